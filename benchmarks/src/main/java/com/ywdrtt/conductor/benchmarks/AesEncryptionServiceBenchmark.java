@@ -0,0 +1,156 @@
+package com.ywdrtt.conductor.benchmarks;
+
+import com.ywdrtt.conductor.security.AesEncryptionService;
+import com.ywdrtt.conductor.security.AesKmsClient;
+import com.ywdrtt.conductor.security.CachingEncryptionService;
+import com.ywdrtt.conductor.security.CachingKmsClient;
+import com.ywdrtt.conductor.security.KmsClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AesEncryptionService on one field value, per format: encrypt and decrypt write and read v3
+ * values (data keys from the data-key cache, as configured in EncryptingExecutionDAOConfig),
+ * decryptV2 and decryptLegacy read the older formats under the client key. All of them reuse
+ * their thread's Cipher; the *Uncached methods look one up through the provider for every value,
+ * as the service did before, which is the baseline for that reuse.
+ *
+ * encryptUncachedDataKey and decryptUncachedDataKey run the service over a plain AesKmsClient,
+ * which generates or unwraps a data key for every value. decryptCachedValue and
+ * encryptDeterministicCached take a value repeated across tasks from CachingEncryptionService's
+ * plaintext and ciphertext caches; compare them with decrypt and encrypt.
+ *
+ * valueLength covers short identifiers and longer free text.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class AesEncryptionServiceBenchmark {
+
+    private static final String CLIENT_ID = "clientA";
+    private static final byte[] LEGACY_IV = "ThisIsADummyIV12".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"16", "256"})
+    public int valueLength;
+
+    private CachingKmsClient kmsClient;
+    private AesEncryptionService service;
+    private AesEncryptionService uncachedDataKeyService;
+    private CachingEncryptionService cachingService;
+    private SecretKey clientKey;
+    private String plaintext;
+    private String v3Ciphertext;
+    private String v2Ciphertext;
+    private String legacyCiphertext;
+
+    @Setup
+    public void setup() throws Exception {
+        KmsClient kms = new AesKmsClient();
+        kmsClient = new CachingKmsClient(kms, Duration.ofMinutes(15), 1_000_000, 10_000, new SimpleMeterRegistry());
+        service = new AesEncryptionService(kmsClient);
+        uncachedDataKeyService = new AesEncryptionService(kms);
+        clientKey = kms.getEncryptionKey(CLIENT_ID);
+        plaintext = "x".repeat(valueLength);
+        v3Ciphertext = service.encrypt(plaintext, CLIENT_ID);
+        cachingService = new CachingEncryptionService(service, Duration.ofMinutes(5), 10_000, new SimpleMeterRegistry());
+        v2Ciphertext = encryptV2();
+        legacyCiphertext = encryptLegacyUncached();
+    }
+
+    @TearDown
+    public void tearDown() {
+        cachingService.close();
+        kmsClient.close();
+    }
+
+    @Benchmark
+    public String encrypt() throws Exception {
+        return service.encrypt(plaintext, CLIENT_ID);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+        return service.decrypt(v3Ciphertext, CLIENT_ID);
+    }
+
+    @Benchmark
+    public String encryptUncachedDataKey() throws Exception {
+        return uncachedDataKeyService.encrypt(plaintext, CLIENT_ID);
+    }
+
+    @Benchmark
+    public String decryptUncachedDataKey() throws Exception {
+        return uncachedDataKeyService.decrypt(v3Ciphertext, CLIENT_ID);
+    }
+
+    @Benchmark
+    public String decryptCachedValue() throws Exception {
+        return cachingService.decrypt(v3Ciphertext, CLIENT_ID);
+    }
+
+    @Benchmark
+    public String encryptDeterministicCached() throws Exception {
+        return cachingService.encryptDeterministic(plaintext, CLIENT_ID);
+    }
+
+    @Benchmark
+    public String decryptV2() throws Exception {
+        return service.decrypt(v2Ciphertext, CLIENT_ID);
+    }
+
+    @Benchmark
+    public String decryptV2Uncached() throws Exception {
+        byte[] in = Base64.getDecoder().decode(v2Ciphertext.substring(3));
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, clientKey, new GCMParameterSpec(128, in, 0, 12));
+        cipher.updateAAD(CLIENT_ID.getBytes(StandardCharsets.UTF_8));
+        return new String(cipher.doFinal(in, 12, in.length - 12), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String decryptLegacy() throws Exception {
+        return service.decrypt(legacyCiphertext, CLIENT_ID);
+    }
+
+    @Benchmark
+    public String decryptLegacyUncached() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, clientKey, new IvParameterSpec(LEGACY_IV));
+        return new String(cipher.doFinal(Base64.getDecoder().decode(legacyCiphertext)), StandardCharsets.UTF_8);
+    }
+
+    // How every value was written before the v2 format
+    @Benchmark
+    public String encryptLegacyUncached() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, clientKey, new IvParameterSpec(LEGACY_IV));
+        return Base64.getEncoder().encodeToString(cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // A v2 value as the previous version wrote it: iv || ciphertext || tag under the client key
+    private String encryptV2() throws Exception {
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, clientKey, new GCMParameterSpec(128, iv));
+        cipher.updateAAD(CLIENT_ID.getBytes(StandardCharsets.UTF_8));
+        byte[] ciphertext = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+        byte[] out = Arrays.copyOf(iv, iv.length + ciphertext.length);
+        System.arraycopy(ciphertext, 0, out, iv.length, ciphertext.length);
+        return "v2:" + Base64.getEncoder().encodeToString(out);
+    }
+}
@@ -0,0 +1,46 @@
+package com.ywdrtt.conductor.benchmarks;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixtures shared by the security benchmarks. Beans are built by hand and their @Value fields set
+ * reflectively so the suites run without a Spring context or an identity provider.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + name + " on " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * A Keycloak-style access token carrying roles under realm, client and group claims.
+     */
+    static Jwt jwt(String subject, List<String> realmRoles) {
+        Instant now = Instant.now();
+        return Jwt.withTokenValue("token-" + subject)
+                .header("alg", "RS256")
+                .subject(subject)
+                .claim("jti", subject + "-" + now.toEpochMilli())
+                .claim("scope", "openid profile email")
+                .claim("realm_access", Map.of("roles", realmRoles))
+                .claim("resource_access", Map.of("conductor", Map.of("roles", List.of("metadata_manager"))))
+                .claim("groups", List.of("engineering"))
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(3600))
+                .build();
+    }
+}
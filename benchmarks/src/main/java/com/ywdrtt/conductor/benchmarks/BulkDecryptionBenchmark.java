@@ -0,0 +1,179 @@
+package com.ywdrtt.conductor.benchmarks;
+
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.dao.ExecutionDAO;
+import com.netflix.conductor.model.TaskModel;
+import com.netflix.conductor.model.WorkflowModel;
+import com.ywdrtt.conductor.dao.BulkPayloadExecutor;
+import com.ywdrtt.conductor.dao.EncryptingExecutionDAO;
+import com.ywdrtt.conductor.dao.WorkflowContextCache;
+import com.ywdrtt.conductor.security.AesEncryptionService;
+import com.ywdrtt.conductor.security.AesKmsClient;
+import com.ywdrtt.conductor.security.CachingKmsClient;
+import com.ywdrtt.conductor.security.EncryptionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EncryptingExecutionDAO's bulk operations against the BulkPayloadExecutor's parallelism, on a
+ * workflow of 'tasks' tasks whose input and output each carry 'sensitiveFields' sensitive values:
+ * getWorkflowWithTasks (the UI's workflow fetch, getWorkflow(id, true)) and getTasks read every
+ * sensitive value afterwards, as serializing the response would; createTasks encrypts them.
+ * getWorkflowWithTasks and createTasks decrypt and encrypt on the executor. getTasks only builds the
+ * decrypt-on-access views there, the values are decrypted by the benchmark thread as it reads
+ * them, so it stays near the baseline whatever the parallelism.
+ *
+ * parallelism 1 runs on the caller thread and is the baseline; compare the others against it on
+ * a machine with at least as many cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class BulkDecryptionBenchmark {
+
+    private static final String WORKFLOW_ID = "wf-bulk";
+    private static final String CLIENT_ID = "clientA";
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"2000"})
+    public int tasks;
+
+    @Param({"4"})
+    public int sensitiveFields;
+
+    private CachingKmsClient kmsClient;
+    private BulkPayloadExecutor bulkPayloads;
+    private EncryptingExecutionDAO dao;
+    private WorkflowModel workflow;
+    private List<String> taskIds;
+    private List<Map<String, Object>> plainPayloads;
+    private List<Map<String, Object>> encryptedPayloads;
+
+    @Setup
+    public void setup() throws Exception {
+        List<String> sensitivePaths = new ArrayList<>();
+        for (int i = 0; i < sensitiveFields; i++) {
+            sensitivePaths.add("$.customer.secret" + i);
+        }
+        WorkflowDef workflowDef = new WorkflowDef();
+        workflowDef.setName("bench_bulk_workflow");
+        workflowDef.setVersion(1);
+        workflowDef.setInputTemplate(Map.of("_defaultEncryptionEnabled", true, "_sensitivePaths", sensitivePaths));
+        workflow = new WorkflowModel();
+        workflow.setWorkflowId(WORKFLOW_ID);
+        workflow.setWorkflowDefinition(workflowDef);
+        workflow.setInput(new HashMap<>(Map.of("clientId", CLIENT_ID)));
+
+        // Payloads as stored are encrypted once here; every read decrypts them again
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        kmsClient = new CachingKmsClient(new AesKmsClient(), Duration.ofMinutes(15), 1_000_000, 10_000, meterRegistry);
+        EncryptionService encryptionService = new AesEncryptionService(kmsClient);
+        taskIds = new ArrayList<>(tasks);
+        plainPayloads = new ArrayList<>(tasks);
+        encryptedPayloads = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            Map<String, Object> plain = new LinkedHashMap<>();
+            Map<String, Object> encrypted = new LinkedHashMap<>();
+            for (int i = 0; i < sensitiveFields; i++) {
+                String value = "123-45-" + (6789 + t + i);
+                plain.put("secret" + i, value);
+                encrypted.put("secret" + i, "ENC:" + encryptionService.encrypt(value, CLIENT_ID));
+            }
+            plain.put("name", "customer-" + t);
+            encrypted.put("name", "customer-" + t);
+            plainPayloads.add(Map.of("customer", plain, "status", "VERIFIED"));
+            encryptedPayloads.add(Map.of("customer", encrypted, "status", "VERIFIED"));
+            taskIds.add("task-" + t);
+        }
+
+        // Answers the calls the benchmarked operations make with new models, as read from storage
+        ExecutionDAO delegate = (ExecutionDAO) Proxy.newProxyInstance(ExecutionDAO.class.getClassLoader(),
+                new Class<?>[]{ExecutionDAO.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getWorkflow":
+                            return args.length > 1 && (Boolean) args[1] ? workflowWithTasks() : workflow;
+                        case "getTasks":
+                            return newTasks(encryptedPayloads);
+                        case "createTasks":
+                            return args[0];
+                        default:
+                            return null;
+                    }
+                });
+
+        bulkPayloads = new BulkPayloadExecutor(parallelism, 64, 8, meterRegistry);
+        dao = new EncryptingExecutionDAO(delegate, encryptionService,
+                new WorkflowContextCache(Duration.ofSeconds(5), 10_000, meterRegistry), bulkPayloads, meterRegistry, 256 * 1024);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        bulkPayloads.close();
+        kmsClient.close();
+    }
+
+    @Benchmark
+    public void getWorkflowWithTasks(Blackhole blackhole) {
+        readSensitive(dao.getWorkflow(WORKFLOW_ID, true).getTasks(), blackhole);
+    }
+
+    @Benchmark
+    public void getTasks(Blackhole blackhole) {
+        readSensitive(dao.getTasks(taskIds), blackhole);
+    }
+
+    @Benchmark
+    public List<TaskModel> createTasks() {
+        return dao.createTasks(newTasks(plainPayloads));
+    }
+
+    // Reads every sensitive value, decrypting the ones still behind a decrypt-on-access view
+    private void readSensitive(List<TaskModel> result, Blackhole blackhole) {
+        for (TaskModel task : result) {
+            for (Map<String, Object> payload : List.of(task.getInputData(), task.getOutputData())) {
+                Map<?, ?> customer = (Map<?, ?>) payload.get("customer");
+                for (int i = 0; i < sensitiveFields; i++) {
+                    blackhole.consume(customer.get("secret" + i));
+                }
+            }
+        }
+    }
+
+    private WorkflowModel workflowWithTasks() {
+        WorkflowModel read = new WorkflowModel();
+        read.setWorkflowId(WORKFLOW_ID);
+        read.setWorkflowDefinition(workflow.getWorkflowDefinition());
+        read.setInput(workflow.getInput());
+        read.setTasks(newTasks(encryptedPayloads));
+        return read;
+    }
+
+    private List<TaskModel> newTasks(List<Map<String, Object>> payloads) {
+        List<TaskModel> result = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            TaskModel task = new TaskModel();
+            task.setTaskId(taskIds.get(t));
+            task.setWorkflowInstanceId(WORKFLOW_ID);
+            task.setReferenceTaskName("task_" + t);
+            task.setInputData(payloads.get(t));
+            task.setOutputData(payloads.get(t));
+            result.add(task);
+        }
+        return result;
+    }
+}
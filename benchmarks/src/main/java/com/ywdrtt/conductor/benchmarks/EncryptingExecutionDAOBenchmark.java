@@ -0,0 +1,201 @@
+package com.ywdrtt.conductor.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.dao.ExecutionDAO;
+import com.netflix.conductor.model.TaskModel;
+import com.netflix.conductor.model.WorkflowModel;
+import com.ywdrtt.conductor.dao.BulkPayloadExecutor;
+import com.ywdrtt.conductor.dao.EncryptingExecutionDAO;
+import com.ywdrtt.conductor.dao.WorkflowContextCache;
+import com.ywdrtt.conductor.security.AesEncryptionService;
+import com.ywdrtt.conductor.security.AesKmsClient;
+import com.ywdrtt.conductor.security.CachingKmsClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EncryptingExecutionDAO's payload processing, through the calls that run it for one task: updateTask
+ * encrypts the sensitive fields of the task output before the delegate stores it, getTask returns them
+ * behind decrypt-on-access views and decrypt reads every one, while readStatusOnly reads a plain
+ * field only, as status checks do, and decrypts nothing. The workflow definition enables
+ * encryption and lists the sensitive paths, as for a task without _sensitivePaths of its own.
+ *
+ * payloadSize is the serialized size of the task output: the sensitive fields sit in a small
+ * "customer" object next to a "history" list padding the output to 1KB, 100KB or 5MB, so the
+ * cost of processing a few fields can be followed as the data around them grows.
+ *
+ * pathStyle lists the fields as $.customer.secretN (definite) or as $..secretN, which searches the
+ * whole output: deepScanWalk matches all of them in one StreamingPayloadTransformer walk, as the
+ * DAO does from its large payload threshold up, deepScanJsonPath evaluates each with JsonPath, as
+ * below the threshold. The threshold is set to 1 byte and to 0 (never) for the two.
+ *
+ * The delegate is an in-memory stub and the data keys come from AesKmsClient behind the data-key
+ * cache, as configured in EncryptingExecutionDAOConfig.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class EncryptingExecutionDAOBenchmark {
+
+    private static final String WORKFLOW_ID = "wf-bench";
+    private static final String TASK_ID = "task-bench";
+
+    @Param({"2", "10"})
+    public int sensitiveFields;
+
+    @Param({"1KB", "100KB", "5MB"})
+    public String payloadSize;
+
+    @Param({"definite", "deepScanWalk", "deepScanJsonPath"})
+    public String pathStyle;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CachingKmsClient kmsClient;
+    private BulkPayloadExecutor bulkPayloads;
+    private EncryptingExecutionDAO dao;
+    private TaskModel task;
+    private Map<String, Object> storedOutput;
+
+    @Setup
+    @SuppressWarnings("deprecation") // the stub keeps the raw output, as storage receives it
+    public void setup() throws Exception {
+        List<String> sensitivePaths = new ArrayList<>();
+        Map<String, Object> customer = new LinkedHashMap<>();
+        for (int i = 0; i < sensitiveFields; i++) {
+            customer.put("secret" + i, "123-45-" + (6789 + i));
+            sensitivePaths.add(("definite".equals(pathStyle) ? "$.customer.secret" : "$..secret") + i);
+        }
+        for (int i = 0; i < 20; i++) {
+            customer.put("attribute" + i, "value-" + i);
+        }
+        Map<String, Object> output = new HashMap<>();
+        output.put("customer", customer);
+        output.put("status", "VERIFIED");
+        output.put("history", history(targetBytes(payloadSize) - objectMapper.writeValueAsBytes(output).length));
+
+        WorkflowDef workflowDef = new WorkflowDef();
+        workflowDef.setName("bench_workflow");
+        workflowDef.setVersion(1);
+        workflowDef.setInputTemplate(Map.of("_defaultEncryptionEnabled", true, "_sensitivePaths", sensitivePaths));
+        WorkflowModel workflow = new WorkflowModel();
+        workflow.setWorkflowId(WORKFLOW_ID);
+        workflow.setWorkflowDefinition(workflowDef);
+        workflow.setInput(new HashMap<>(Map.of("clientId", "clientA")));
+
+        // Answers the calls updateTask and getTask make; everything else is unused
+        ExecutionDAO delegate = (ExecutionDAO) Proxy.newProxyInstance(ExecutionDAO.class.getClassLoader(),
+                new Class<?>[]{ExecutionDAO.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getWorkflow":
+                            return workflow;
+                        case "updateTask":
+                            storedOutput = ((TaskModel) args[0]).getRawOutputData();
+                            return null;
+                        case "getTask":
+                            return newTask(storedOutput); // a new task, as read from storage
+                        default:
+                            return null;
+                    }
+                });
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        kmsClient = new CachingKmsClient(new AesKmsClient(), Duration.ofMinutes(15), 1_000_000, 10_000, meterRegistry);
+        bulkPayloads = new BulkPayloadExecutor(1, 64, 8, meterRegistry);
+        dao = new EncryptingExecutionDAO(delegate, new AesEncryptionService(kmsClient),
+                new WorkflowContextCache(Duration.ofSeconds(5), 10_000, meterRegistry), bulkPayloads, meterRegistry,
+                largePayloadBytes(pathStyle));
+        task = newTask(output);
+        dao.updateTask(task);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        bulkPayloads.close();
+        kmsClient.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> encrypt() {
+        dao.updateTask(task);
+        return storedOutput;
+    }
+
+    @Benchmark
+    public void decrypt(Blackhole blackhole) {
+        Map<?, ?> customer = (Map<?, ?>) dao.getTask(TASK_ID).getOutputData().get("customer");
+        for (int i = 0; i < sensitiveFields; i++) {
+            blackhole.consume(customer.get("secret" + i));
+        }
+    }
+
+    @Benchmark
+    public Object readStatusOnly() {
+        return dao.getTask(TASK_ID).getOutputData().get("status");
+    }
+
+    private static long largePayloadBytes(String pathStyle) {
+        switch (pathStyle) {
+            case "definite":
+                return 256 * 1024; // the default; definite paths are never walked
+            case "deepScanWalk":
+                return 1;
+            case "deepScanJsonPath":
+                return 0;
+            default:
+                throw new IllegalArgumentException("Unknown pathStyle: " + pathStyle);
+        }
+    }
+
+    private static int targetBytes(String size) {
+        switch (size) {
+            case "1KB":
+                return 1024;
+            case "100KB":
+                return 100 * 1024;
+            case "5MB":
+                return 5 * 1024 * 1024;
+            default:
+                throw new IllegalArgumentException("Unknown payloadSize: " + size);
+        }
+    }
+
+    // Status records of about 100 bytes, as many as fill the given number of bytes
+    private List<Map<String, Object>> history(int bytes) throws Exception {
+        List<Map<String, Object>> history = new ArrayList<>();
+        int size = 2; // []
+        while (size < bytes) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("seq", history.size());
+            entry.put("status", "IN_PROGRESS");
+            entry.put("note", "step " + history.size() + " completed by worker-" + (history.size() % 16));
+            entry.put("timestamp", 1_700_000_000_000L + history.size());
+            history.add(entry);
+            size += objectMapper.writeValueAsBytes(entry).length + 1;
+        }
+        return history;
+    }
+
+    private static TaskModel newTask(Map<String, Object> outputData) {
+        TaskModel task = new TaskModel();
+        task.setTaskId(TASK_ID);
+        task.setWorkflowInstanceId(WORKFLOW_ID);
+        task.setReferenceTaskName("collect_customer_data");
+        task.setOutputData(outputData);
+        return task;
+    }
+}
@@ -0,0 +1,76 @@
+package com.ywdrtt.conductor.benchmarks;
+
+import com.ywdrtt.conductor.worker.runtime.VirtualThreads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tasks/sec for an IO-bound handler (a blocking sleep standing in for a downstream call), run the
+ * way TaskPoller runs them: a slot semaphore bounds concurrency and each task goes to either the
+ * fixed platform pool or a virtual thread. The virtual mode needs a Java 21 JVM.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ExecutionModeBenchmark.TASKS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+
+    static final int TASKS = 2000;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"16", "256", "1024"})
+    public int concurrency;
+
+    @Param({"5"})
+    public int ioMillis;
+
+    private ExecutorService executor;
+    private Semaphore slots;
+
+    @Setup
+    public void setup() {
+        if ("virtual".equals(mode)) {
+            if (!VirtualThreads.isSupported()) {
+                throw new IllegalStateException("virtual mode needs Java 21, running on " + Runtime.version());
+            }
+            executor = VirtualThreads.newThreadPerTaskExecutor("bench");
+        } else {
+            executor = Executors.newFixedThreadPool(concurrency);
+        }
+        slots = new Semaphore(concurrency);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void ioBoundTasks() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            slots.acquire();
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(ioMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    slots.release();
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,45 @@
+package com.ywdrtt.conductor.benchmarks;
+
+import com.ywdrtt.conductor.working.AuthorizationAudit;
+import com.ywdrtt.conductor.working.JwtConverterConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authority extraction done for every bearer token: the converter built by
+ * {@link JwtConverterConfig} resolving the configured role claim paths. A cache size of 0 measures
+ * the conversion itself, a non-zero size a repeat call with the same bearer token.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JwtAuthoritiesBenchmark {
+
+    @Param({"0", "10000"})
+    public int authorityCacheMaxSize;
+
+    private JwtAuthenticationConverter converter;
+    private Jwt jwt;
+
+    @Setup
+    public void setup() {
+        JwtConverterConfig config = new JwtConverterConfig(AuthorizationAudit.disabled());
+        BenchmarkSupport.setField(config, "roleClaimPaths",
+                List.of("realm_access.roles", "resource_access.conductor.roles", "groups"));
+        BenchmarkSupport.setField(config, "authorityCacheMaxSize", authorityCacheMaxSize);
+        converter = config.jwtAuthenticationConverter();
+        jwt = BenchmarkSupport.jwt("alice", List.of("user", "workflow_manager"));
+    }
+
+    @Benchmark
+    public Object convert() {
+        return converter.convert(jwt);
+    }
+}
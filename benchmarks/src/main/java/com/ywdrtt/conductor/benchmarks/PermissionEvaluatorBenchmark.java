@@ -0,0 +1,73 @@
+package com.ywdrtt.conductor.benchmarks;
+
+import com.ywdrtt.conductor.working.AuthorizationAudit;
+import com.ywdrtt.conductor.working.ConductorPermission;
+import com.ywdrtt.conductor.working.ConductorPermissionEvaluator;
+import com.ywdrtt.conductor.working.ConductorRoleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConductorPermissionEvaluator#hasPermission} as called by each @PreAuthorize check: an
+ * allowed global check, an allowed resource check and a denied one that walks every rule.
+ * With audit=true denials are queued for the audit writer (grants are not sampled).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PermissionEvaluatorBenchmark {
+
+    @Param({"false", "true"})
+    public boolean audit;
+
+    private AuthorizationAudit authorizationAudit;
+    private ConductorPermissionEvaluator evaluator;
+    private Authentication user;
+
+    @Setup
+    public void setup() {
+        ConductorRoleConfig roles = new ConductorRoleConfig();
+        BenchmarkSupport.setField(roles, "adminRoles", List.of("ADMIN"));
+        BenchmarkSupport.setField(roles, "workflowManagerRoles", List.of("WORKFLOW_MANAGER"));
+        BenchmarkSupport.setField(roles, "metadataManagerRoles", List.of("METADATA_MANAGER"));
+        BenchmarkSupport.setField(roles, "userRoles", List.of("USER"));
+        authorizationAudit = audit
+                ? new AuthorizationAudit(true, 0.0, true, 8192, new SimpleMeterRegistry())
+                : AuthorizationAudit.disabled();
+        evaluator = new ConductorPermissionEvaluator(roles, authorizationAudit);
+
+        user = new JwtAuthenticationToken(BenchmarkSupport.jwt("alice", List.of("user")), List.of(
+                new SimpleGrantedAuthority("SCOPE_openid"),
+                new SimpleGrantedAuthority("SCOPE_profile"),
+                new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    @TearDown
+    public void tearDown() {
+        authorizationAudit.close();
+    }
+
+    @Benchmark
+    public boolean globalAllowed() {
+        return evaluator.hasPermission(user, "workflow", ConductorPermission.CREATE);
+    }
+
+    @Benchmark
+    public boolean resourceAllowed() {
+        return evaluator.hasPermission(user, "wf-42", "workflow", ConductorPermission.READ);
+    }
+
+    @Benchmark
+    public boolean denied() {
+        return evaluator.hasPermission(user, "queue-admin", ConductorPermission.DELETE);
+    }
+}
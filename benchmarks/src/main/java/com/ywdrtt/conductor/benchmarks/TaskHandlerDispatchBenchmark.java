@@ -0,0 +1,71 @@
+package com.ywdrtt.conductor.benchmarks;
+
+import com.ywdrtt.conductor.worker.abstractions.ConductorTaskHandler;
+import com.ywdrtt.conductor.worker.abstractions.In;
+import com.ywdrtt.conductor.worker.abstractions.TaskHandler;
+import com.ywdrtt.conductor.worker.config.TaskHandlerBinder;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handler dispatch as done by ConductorWorkerAutoRegistrar: the old reflective Method.invoke
+ * path against the adapter produced by {@link TaskHandlerBinder}, for a map-based handler and a
+ * typed one going through the precomputed binding plan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class TaskHandlerDispatchBenchmark {
+
+    public static class AddNumbers {
+        @TaskHandler
+        public Map<String, Object> handle(Map<String, Object> input) {
+            int sum = Integer.parseInt((String) input.get("num1")) +
+                    Integer.parseInt((String) input.get("num2"));
+            return Map.of("addition", sum);
+        }
+    }
+
+    public static class TypedAddNumbers {
+        @TaskHandler(output = "addition")
+        public int handle(@In("num1") int num1, @In("num2") int num2) {
+            return num1 + num2;
+        }
+    }
+
+    private final Map<String, Object> input = Map.of("num1", "40", "num2", "2");
+    private AddNumbers bean;
+    private Method method;
+    private ConductorTaskHandler handler;
+    private ConductorTaskHandler typedHandler;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        bean = new AddNumbers();
+        method = AddNumbers.class.getDeclaredMethod("handle", Map.class);
+        handler = TaskHandlerBinder.bind(bean, method);
+        typedHandler = TaskHandlerBinder.bind(new TypedAddNumbers(),
+                TypedAddNumbers.class.getDeclaredMethod("handle", int.class, int.class));
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        return method.invoke(bean, input);
+    }
+
+    @Benchmark
+    public Object bound() {
+        return handler.handle(input);
+    }
+
+    @Benchmark
+    public Object boundTyped() {
+        return typedHandler.handle(input);
+    }
+}
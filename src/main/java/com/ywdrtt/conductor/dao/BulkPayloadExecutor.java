@@ -0,0 +1,126 @@
+package com.ywdrtt.conductor.dao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the payload encryption/decryption of bulk DAO operations (workflows with their tasks,
+ * bulk task reads and writes) on a dedicated, bounded ForkJoinPool.
+ *
+ * Each unit processes one workflow's or task's payloads and writes the result back to it, so
+ * units are independent and results land in the caller's list in its original order. The
+ * caller blocks until every unit is done. If units throw, the others still run, then the first
+ * exception is rethrown to the caller with the later ones suppressed.
+ *
+ * At most 'parallelism' threads do crypto work at any time, and at most maxConcurrentBatches
+ * bulk calls share them. A batch arriving when the pool is saturated is rejected by it and runs
+ * on the caller thread instead of queueing behind the others, so a burst of bulk reads slows
+ * down its own callers rather than every bulk call in the server.
+ *
+ * Batches smaller than minUnits, or any batch when parallelism is 1, run on the caller thread.
+ *
+ * Metrics:
+ * - conductor.encryption.bulk.rejected: batches run on the caller thread because the pool was saturated
+ */
+public final class BulkPayloadExecutor implements AutoCloseable {
+
+    private static final int UNITS_PER_TASK = 16; // a payload takes microseconds: amortize fork/join overhead
+
+    private final AtomicInteger threads = new AtomicInteger();
+    private final ForkJoinPool pool; // null when parallelism <= 1
+    private final int minUnits;
+    private final Semaphore batches;
+    private final Counter rejected;
+
+    public BulkPayloadExecutor(int parallelism, int minUnits, int maxConcurrentBatches, MeterRegistry meterRegistry) {
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism, this::newThread, null, false) : null;
+        this.minUnits = Math.max(1, minUnits);
+        this.batches = new Semaphore(Math.max(1, maxConcurrentBatches));
+        this.rejected = Counter.builder("conductor.encryption.bulk.rejected")
+                .description("Bulk payload batches run on the caller thread because the bulk pool was saturated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs every unit before returning.
+     */
+    void run(List<Runnable> units) {
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        if (pool == null || units.size() < minUnits) {
+            runAll(units, 0, units.size(), failure);
+        } else if (!batches.tryAcquire()) {
+            rejected.increment();
+            runAll(units, 0, units.size(), failure);
+        } else {
+            try {
+                pool.invoke(new Slice(units, 0, units.size(), failure));
+            } finally {
+                batches.release();
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    // Keeps going past a failing unit: the first failure is kept, later ones are suppressed into it
+    private static void runAll(List<Runnable> units, int from, int to, AtomicReference<RuntimeException> failure) {
+        for (int i = from; i < to; i++) {
+            try {
+                units.get(i).run();
+            } catch (RuntimeException e) {
+                if (!failure.compareAndSet(null, e)) {
+                    failure.get().addSuppressed(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (pool != null) {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("encryption-bulk-" + threads.incrementAndGet());
+        return thread;
+    }
+
+    private static final class Slice extends RecursiveAction {
+
+        private final List<Runnable> units;
+        private final int from;
+        private final int to;
+        private final AtomicReference<RuntimeException> failure;
+
+        private Slice(List<Runnable> units, int from, int to, AtomicReference<RuntimeException> failure) {
+            this.units = units;
+            this.from = from;
+            this.to = to;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= UNITS_PER_TASK) {
+                runAll(units, from, to, failure);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Slice(units, from, middle, failure), new Slice(units, middle, to, failure));
+        }
+    }
+}
@@ -0,0 +1,751 @@
+package com.ywdrtt.conductor.dao;
+
+import com.jayway.jsonpath.InvalidPathException;
+import com.netflix.conductor.common.metadata.events.EventExecution;
+import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.dao.ExecutionDAO;
+import com.netflix.conductor.model.TaskModel;
+import com.netflix.conductor.model.WorkflowModel;
+import com.ywdrtt.conductor.security.EncryptionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A decorating ExecutionDAO that encrypts sensitive PII fields in workflow and task inputs/outputs
+ * before they reach the delegate, and decrypts them on the way back.
+ *
+ * All encryption configuration is read from the workflow and its definitions:
+ * - WorkflowDef.inputTemplate: _defaultEncryptionEnabled, and _sensitivePaths for the workflow's own input/output
+ * - TaskDef.inputTemplate: _sensitivePaths for the task's input/output, and _clientId
+ * - workflow input / task input: _enableEncryption and clientId overrides (workflow variables: clientId)
+ *
+ * What comes from the definitions is resolved once per workflow definition version and task
+ * reference into a cached EncryptionPlan, rebuilt when a payload's definition no longer matches
+ * it. Only the instance-level overrides in workflow/task input and variables are read on every call.
+ *
+ * Task operations take their workflow's context (definition, clientId, enablement) from a shared
+ * WorkflowContextCache instead of loading the workflow from the delegate each time; workflows
+ * read, written or removed through this DAO refresh it.
+ *
+ * Operations on many payloads (a workflow with its tasks, bulk task reads and writes) hand one
+ * unit per workflow or task to a BulkPayloadExecutor, which processes them in parallel.
+ *
+ * Reads of a workflow with its tasks (getWorkflow(id, true), getWorkflowsByType,
+ * getWorkflowsByCorrelationId with tasks) return full payloads, as the API and UI serialize them:
+ * their values are decrypted in the units the bulk executor runs, in parallel. Other reads do not
+ * decrypt: they return LazyPayload views in which each encrypted sensitive value is decrypted the
+ * first time it is read, then kept. Callers that only look at status or other plain fields (most
+ * decider and sweeper task reads) pay no decryption, and a view written back stores the values
+ * never read as they were read. Metrics:
+ * - conductor.encryption.fields{result=deferred}: encrypted values returned behind a lazy view
+ * - conductor.encryption.fields{result=decrypted}: values decrypted, up front or when read
+ *
+ * Wildcard and deep scan paths are matched by JsonPath, one evaluation per path, each building a
+ * path string for every node it visits. In payloads of largePayloadBytes or more (estimated from
+ * the tree; 0 never) the paths StreamingPayloadTransformer supports are all matched in one walk.
+ *
+ * Sensitive paths also listed in _deterministicPaths (next to _sensitivePaths, in the same
+ * definition) are encrypted with EncryptionService.encryptDeterministic, which may reuse the
+ * ciphertext of an equal value of the same client (see CachingEncryptionService). Only flag paths
+ * whose values may be seen to be equal, such as identifiers that are joined on anyway.
+ *
+ * Only the payloads stored with the workflow or task are processed (getRawInput etc.); payloads kept in
+ * external storage are left to it. Writes hand the delegate encrypted copies and leave the caller's
+ * plaintext maps in place, since the engine keeps using the objects it just stored.
+ */
+@Slf4j
+public class EncryptingExecutionDAO implements ExecutionDAO {
+
+    private static final String ENCRYPTED_PREFIX = "ENC:";
+
+    // Default Client ID to use if 'clientId' is not specified anywhere in Workflow/Task context
+    private static final String DEFAULT_CLIENT_ID = "GLOBAL_DEFAULT_CLIENT";
+
+    // Keys for custom metadata in TaskDef and WorkflowDef inputTemplate maps
+    private static final String SENSITIVE_PATHS_KEY = "_sensitivePaths"; // For both WorkflowDef and TaskDef
+    private static final String DETERMINISTIC_PATHS_KEY = "_deterministicPaths"; // Next to _sensitivePaths, a subset of them
+    private static final String CLIENT_ID_KEY = "_clientId";             // For TaskDef (override workflow-level)
+    private static final String ENABLE_ENCRYPTION_KEY = "_enableEncryption"; // For Workflow/Task input (override default)
+    private static final String DEFAULT_ENCRYPTION_ENABLED_KEY = "_defaultEncryptionEnabled"; // For WorkflowDef
+
+    // Bound on cached encryption plans (one per workflow definition version and task reference)
+    private static final int MAX_CACHED_PLANS = 10_000;
+
+    // What processPayload does to the values at the sensitive paths
+    private enum Processing {
+        ENCRYPT,
+        DECRYPT,        // on the thread processing the payload
+        DECRYPT_LAZILY  // behind LazyPayload views, on the thread that reads a value
+    }
+
+    private final ExecutionDAO delegate;
+    private final EncryptionService encryptionService;
+    private final Map<EncryptionPlan.Key, EncryptionPlan> plans = new ConcurrentHashMap<>();
+    private final WorkflowContextCache workflowContexts;
+    private final BulkPayloadExecutor bulkPayloads;
+    private final Counter deferredFields;
+    private final Counter decryptedFields;
+    private final long largePayloadBytes;
+
+    public EncryptingExecutionDAO(ExecutionDAO delegate, EncryptionService encryptionService,
+                                  WorkflowContextCache workflowContexts, BulkPayloadExecutor bulkPayloads,
+                                  MeterRegistry meterRegistry, long largePayloadBytes) {
+        this.delegate = delegate;
+        this.encryptionService = encryptionService;
+        this.workflowContexts = workflowContexts;
+        this.bulkPayloads = bulkPayloads;
+        this.deferredFields = Counter.builder("conductor.encryption.fields").tag("result", "deferred")
+                .description("Encrypted values returned behind a decrypt-on-access view").register(meterRegistry);
+        this.decryptedFields = Counter.builder("conductor.encryption.fields").tag("result", "decrypted")
+                .description("Deferred values decrypted because they were read").register(meterRegistry);
+        this.largePayloadBytes = largePayloadBytes;
+        log.info("EncryptingExecutionDAO initialized, wrapping {}", delegate.getClass().getSimpleName());
+    }
+
+    // --- Helper Methods for Client ID and Encryption Status/Paths ---
+
+    /**
+     * Takes the encryption context of a workflow instance in hand. The workflow was just read from or
+     * written to the delegate, so the cached context is refreshed with it at no cost.
+     */
+    private WorkflowContext contextOf(WorkflowModel workflow) {
+        String clientId = null;
+        if (workflow.getInput().get("clientId") instanceof String) {
+            clientId = (String) workflow.getInput().get("clientId");
+        } else if (workflow.getVariables() != null && workflow.getVariables().get("clientId") instanceof String) {
+            clientId = (String) workflow.getVariables().get("clientId");
+        }
+        Boolean encryptionEnabled = null;
+        if (workflow.getInput().get(ENABLE_ENCRYPTION_KEY) instanceof Boolean) {
+            encryptionEnabled = (Boolean) workflow.getInput().get(ENABLE_ENCRYPTION_KEY);
+        }
+        WorkflowContext context = new WorkflowContext(workflow.getWorkflowId(), workflow.getWorkflowDefinition(), clientId, encryptionEnabled);
+        workflowContexts.put(context);
+        return context;
+    }
+
+    /**
+     * The encryption context of a task's workflow: from the shared cache, else from the delegate.
+     * @return null if the workflow does not exist.
+     */
+    private WorkflowContext contextFor(TaskModel task) {
+        return workflowContexts.get(task.getWorkflowInstanceId(), workflowId -> {
+            WorkflowModel workflow = delegate.getWorkflow(workflowId, false); // Fetch workflow without tasks
+            return workflow != null ? contextOf(workflow) : null;
+        });
+    }
+
+    /**
+     * Returns the encryption plan for a workflow payload (task == null) or a task payload, building
+     * and caching it on first use for the workflow definition's name and version.
+     */
+    private EncryptionPlan planFor(WorkflowContext workflow, TaskModel task) {
+        WorkflowDef workflowDef = workflow.workflowDefinition();
+        if (workflowDef == null) {
+            return EncryptionPlan.NONE;
+        }
+        TaskDef taskDef = task != null ? task.getTaskDefinition().orElse(null) : null;
+        EncryptionPlan.Key key = new EncryptionPlan.Key(workflowDef.getName(), workflowDef.getVersion(), referenceNameOf(task));
+        List<Object> source = planSource(workflowDef, taskDef);
+        EncryptionPlan plan = plans.get(key);
+        if (plan == null || !plan.isBuiltFrom(source)) {
+            if (plans.size() >= MAX_CACHED_PLANS) {
+                plans.clear(); // Registered definitions are few; only ad-hoc ones can pile up
+            }
+            plan = buildPlan(workflowDef, taskDef, source);
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    // The reference name in the definition: iterations of a loop share the plan of their task
+    private static String referenceNameOf(TaskModel task) {
+        if (task == null) {
+            return null;
+        }
+        return task.getWorkflowTask() != null ? task.getWorkflowTask().getTaskReferenceName() : task.getReferenceTaskName();
+    }
+
+    // The definition entries a plan is built from, compared on every lookup
+    private static List<Object> planSource(WorkflowDef workflowDef, TaskDef taskDef) {
+        Map<String, Object> workflowTemplate = workflowDef.getInputTemplate() != null ? workflowDef.getInputTemplate() : Map.of();
+        Map<String, Object> taskTemplate = taskDef != null && taskDef.getInputTemplate() != null ? taskDef.getInputTemplate() : Map.of();
+        return Arrays.asList(workflowTemplate.get(SENSITIVE_PATHS_KEY), workflowTemplate.get(DETERMINISTIC_PATHS_KEY),
+                workflowTemplate.get(DEFAULT_ENCRYPTION_ENABLED_KEY), taskTemplate.get(SENSITIVE_PATHS_KEY),
+                taskTemplate.get(DETERMINISTIC_PATHS_KEY), taskTemplate.get(CLIENT_ID_KEY));
+    }
+
+    private EncryptionPlan buildPlan(WorkflowDef workflowDef, TaskDef taskDef, List<Object> source) {
+        String taskClientId = null;
+        if (taskDef != null && taskDef.getInputTemplate() != null && taskDef.getInputTemplate().get(CLIENT_ID_KEY) instanceof String) {
+            taskClientId = (String) taskDef.getInputTemplate().get(CLIENT_ID_KEY);
+        }
+        boolean defaultEnabled = workflowDef.getInputTemplate() != null
+                && Boolean.TRUE.equals(workflowDef.getInputTemplate().get(DEFAULT_ENCRYPTION_ENABLED_KEY));
+
+        List<PayloadPath> sensitivePaths = new ArrayList<>();
+        for (String path : getSensitivePaths(workflowDef, taskDef)) {
+            try {
+                sensitivePaths.add(PayloadPath.compile(path));
+            } catch (InvalidPathException e) {
+                log.warn("Ignoring invalid sensitive path '{}' in workflow definition {} version {}: {}",
+                        path, workflowDef.getName(), workflowDef.getVersion(), e.getMessage());
+            }
+        }
+        Set<String> deterministicPaths = getDeterministicPaths(workflowDef, taskDef);
+        for (String path : deterministicPaths) {
+            if (sensitivePaths.stream().noneMatch(sensitivePath -> sensitivePath.toString().equals(path))) {
+                log.warn("Ignoring deterministic path '{}' in workflow definition {} version {}: not one of the sensitive paths",
+                        path, workflowDef.getName(), workflowDef.getVersion());
+            }
+        }
+        log.debug("Built encryption plan for workflow definition {} version {} / task {}: paths {}, deterministic {}, default enabled {}, task client ID {}",
+                workflowDef.getName(), workflowDef.getVersion(), taskDef != null ? taskDef.getName() : "N/A",
+                sensitivePaths, deterministicPaths, defaultEnabled, taskClientId);
+        return new EncryptionPlan(sensitivePaths, deterministicPaths, defaultEnabled, taskClientId, source);
+    }
+
+    /**
+     * Resolves the Client ID for a given payload's encryption.
+     * Priority: task input clientId > TaskDef.inputTemplate._clientId >
+     * workflow input clientId > workflow variables clientId > DEFAULT_CLIENT_ID.
+     * @param workflow The workflow instance context, holding its input/variables clientId.
+     * @param task The task model (null when resolving for a workflow-level payload).
+     * @param plan The payload's encryption plan, holding the TaskDef's _clientId.
+     * @return The resolved clientId string.
+     */
+    private String resolveClientId(WorkflowContext workflow, TaskModel task, EncryptionPlan plan) {
+        // 1. Task input "clientId"
+        if (task != null && task.getInputData().get("clientId") instanceof String) {
+            return (String) task.getInputData().get("clientId");
+        }
+
+        // 2. TaskDef inputTemplate "_clientId", resolved when the plan was built
+        if (plan.taskClientId() != null) {
+            return plan.taskClientId();
+        }
+
+        // 3./4. Workflow input "clientId", then workflow variables "clientId"
+        if (workflow.clientId() != null) {
+            return workflow.clientId();
+        }
+
+        // 5. Final fallback to default client ID
+        log.debug("Client ID not found for workflow {}/task {}. Using DEFAULT_CLIENT_ID: {}",
+                workflow.workflowId(), task != null ? task.getTaskId() : "N/A", DEFAULT_CLIENT_ID);
+        return DEFAULT_CLIENT_ID;
+    }
+
+    /**
+     * Determines if encryption should be enabled for a given payload context.
+     * Priority: task input _enableEncryption > workflow input _enableEncryption > WorkflowDef._defaultEncryptionEnabled > false.
+     * @param workflow The workflow context, holding its input's _enableEncryption.
+     * @param task The task model (null when processing a workflow payload).
+     * @param plan The payload's encryption plan, holding the WorkflowDef default.
+     * @return true if encryption is enabled.
+     */
+    private boolean isEncryptionEnabledForContext(WorkflowContext workflow, TaskModel task, EncryptionPlan plan) {
+        // 1. Task-specific override
+        if (task != null && task.getInputData().get(ENABLE_ENCRYPTION_KEY) instanceof Boolean) {
+            return (Boolean) task.getInputData().get(ENABLE_ENCRYPTION_KEY);
+        }
+
+        // 2. Workflow-level override
+        if (workflow.encryptionEnabled() != null) {
+            return workflow.encryptionEnabled();
+        }
+
+        // 3. Blueprint-level default
+        return plan.defaultEnabled();
+    }
+
+    /**
+     * Reads the sensitive JSON paths from the definitions, when a plan is built.
+     * Priority: TaskDef.inputTemplate._sensitivePaths > WorkflowDef.inputTemplate._sensitivePaths.
+     *
+     * @param workflowDef The workflow definition.
+     * @param taskDef The definition of the task whose payload is processed, null for workflow payloads.
+     * @return The JSON paths to encrypt/decrypt, in declaration order.
+     */
+    private Set<String> getSensitivePaths(WorkflowDef workflowDef, TaskDef taskDef) {
+        // 1. A task's payload: the sensitive paths of its TaskDef
+        if (taskDef != null && taskDef.getInputTemplate() != null && taskDef.getInputTemplate().containsKey(SENSITIVE_PATHS_KEY)) {
+            Object sensitivePathsObj = taskDef.getInputTemplate().get(SENSITIVE_PATHS_KEY);
+            if (sensitivePathsObj instanceof List) {
+                return stringsOf((List<?>) sensitivePathsObj); // Task-specific paths are highest priority
+            }
+            log.warn("Value for '{}' in TaskDef '{}' inputTemplate is not a List. Type: {}",
+                    SENSITIVE_PATHS_KEY, taskDef.getName(), sensitivePathsObj != null ? sensitivePathsObj.getClass().getName() : "null");
+        }
+
+        // 2. Fallback: the WorkflowDef's sensitive paths (workflow payloads, or tasks without their own)
+        if (workflowDef.getInputTemplate() != null && workflowDef.getInputTemplate().containsKey(SENSITIVE_PATHS_KEY)) {
+            Object sensitivePathsObj = workflowDef.getInputTemplate().get(SENSITIVE_PATHS_KEY);
+            if (sensitivePathsObj instanceof List) {
+                return stringsOf((List<?>) sensitivePathsObj);
+            }
+            log.warn("Value for '{}' in WorkflowDef '{}' inputTemplate is not a List. Type: {}",
+                    SENSITIVE_PATHS_KEY, workflowDef.getName(), sensitivePathsObj != null ? sensitivePathsObj.getClass().getName() : "null");
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * Reads the sensitive paths flagged as safe for deterministic encryption, from the definition
+     * whose _sensitivePaths are used, when a plan is built.
+     *
+     * @param workflowDef The workflow definition.
+     * @param taskDef The definition of the task whose payload is processed, null for workflow payloads.
+     * @return The flagged JSON paths, as written in _sensitivePaths.
+     */
+    private Set<String> getDeterministicPaths(WorkflowDef workflowDef, TaskDef taskDef) {
+        Map<String, Object> template = taskDef != null && taskDef.getInputTemplate() != null
+                && taskDef.getInputTemplate().get(SENSITIVE_PATHS_KEY) instanceof List ? taskDef.getInputTemplate() : workflowDef.getInputTemplate();
+        Object deterministicPathsObj = template != null ? template.get(DETERMINISTIC_PATHS_KEY) : null;
+        if (deterministicPathsObj instanceof List) {
+            return stringsOf((List<?>) deterministicPathsObj);
+        }
+        if (deterministicPathsObj != null) {
+            log.warn("Value for '{}' in definition inputTemplate of workflow '{}' is not a List. Type: {}",
+                    DETERMINISTIC_PATHS_KEY, workflowDef.getName(), deterministicPathsObj.getClass().getName());
+        }
+        return Collections.emptySet();
+    }
+
+    private static Set<String> stringsOf(List<?> values) {
+        Set<String> strings = new LinkedHashSet<>();
+        for (Object value : values) {
+            if (value instanceof String) {
+                strings.add((String) value);
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * Encrypts or decrypts the sensitive paths of one payload.
+     *
+     * Works on the Map/List tree itself through PayloadPath: nothing is serialized, and only the
+     * containers leading to a changed value are copied, so the map passed in is left untouched.
+     * Deferred decryption copies into LazyPayload containers and sets each encrypted value as a
+     * LazyPayload.Pending, decrypted when it is first read.
+     *
+     * @param payload The payload as stored with the workflow or task.
+     * @param workflow The workflow instance context.
+     * @param task The task model (null when processing a workflow payload).
+     * @param processing Whether to encrypt, decrypt now or defer decryption.
+     * @return The processed payload; the one passed in when nothing had to change.
+     */
+    private Map<String, Object> processPayload(Map<String, Object> payload, WorkflowContext workflow, TaskModel task, Processing processing) {
+        if (payload == null || payload.isEmpty()) {
+            return payload;
+        }
+
+        // Definition-level settings: one cache lookup per call
+        EncryptionPlan plan = planFor(workflow, task);
+        if (!isEncryptionEnabledForContext(workflow, task, plan)) {
+            return payload;
+        }
+
+        List<PayloadPath> sensitivePaths = plan.sensitivePaths();
+        if (sensitivePaths.isEmpty()) {
+            log.debug("No sensitive paths defined for payload for workflow {} / task {}. Skipping processing.",
+                    workflow.workflowId(), task != null ? task.getTaskId() : "N/A");
+            return payload;
+        }
+
+        String resolvedClientId = resolveClientId(workflow, task, plan);
+        boolean encrypt = processing == Processing.ENCRYPT;
+
+        try {
+            boolean lazy = processing == Processing.DECRYPT_LAZILY;
+            PayloadPath.Rewrite rewrite = new PayloadPath.Rewrite(payload, lazy);
+            UnaryOperator<String> decrypter = encrypt ? null
+                    : encryptedValue -> decryptOnAccess(encryptedValue, resolvedClientId, workflow, task);
+
+            boolean large = largePayloadBytes > 0 && plan.hasWalker() && StreamingPayloadTransformer.exceeds(payload, largePayloadBytes);
+
+            // Paths flagged in _deterministicPaths come last: a value is encrypted once, by the first
+            // path that matches it, so one that an unflagged path also matches stays randomized.
+            for (EncryptionPlan.PathGroup group : plan.pathGroups()) {
+                boolean deterministic = group.deterministic();
+
+                // Large payload: one walk matches all the wildcard/deep scan paths it supports. Processing
+                // a value only replaces one String with another, so matches on the payload as read hold.
+                StreamingPayloadTransformer walker = large ? group.walker() : null;
+                if (walker != null) {
+                    for (PayloadPath match : walker.matches(payload)) {
+                        try {
+                            processValue(rewrite, match, resolvedClientId, workflow, task, decrypter, lazy, deterministic);
+                        } catch (Exception pathReadError) {
+                            log.debug("Path '{}' could not be processed in payload for workflow {} / task {} / client {}. Skipping. Error: {}",
+                                    match, workflow.workflowId(), task != null ? task.getTaskId() : "N/A", resolvedClientId, pathReadError.getMessage());
+                        }
+                    }
+                }
+
+                for (PayloadPath path : group.paths()) {
+                    try {
+                        if (path.isDefinite()) {
+                            processValue(rewrite, path, resolvedClientId, workflow, task, decrypter, lazy, deterministic);
+                        } else if (walker == null || !path.isWalkable()) {
+                            // Wildcard, deep scan or filter: JsonPath finds the matches, each is processed on its own.
+                            // Decrypting only replaces one String with another, so matches are found on the payload
+                            // as read (JsonPath would decrypt the values of a lazy view).
+                            for (PayloadPath match : path.matches(encrypt ? rewrite.result() : payload)) {
+                                processValue(rewrite, match, resolvedClientId, workflow, task, decrypter, lazy, deterministic);
+                            }
+                        }
+                    } catch (Exception pathReadError) {
+                        log.debug("Path '{}' could not be processed in payload for workflow {} / task {} / client {}. Skipping. Error: {}",
+                                path, workflow.workflowId(), task != null ? task.getTaskId() : "N/A", resolvedClientId, pathReadError.getMessage());
+                    }
+                }
+            }
+            return rewrite.result();
+
+        } catch (Exception e) {
+            log.error("Error during {} for workflow {} / task {} / client {}. Returning original payload to prevent data loss.",
+                    encrypt ? "encryption" : "decryption", workflow.workflowId(), task != null ? task.getTaskId() : "N/A", resolvedClientId, e);
+            return payload;
+        }
+    }
+
+    /**
+     * Encrypts the String at one definite path, or decrypts it with the decrypter when one is given:
+     * now, or when it is first read if lazy.
+     * Values that are already in the target state, missing or not Strings are left as they are.
+     * @param deterministic the path is flagged in _deterministicPaths: a value may be encrypted to a
+     *                      ciphertext already produced for the same value and client
+     */
+    private void processValue(PayloadPath.Rewrite rewrite, PayloadPath path, String resolvedClientId,
+                              WorkflowContext workflow, TaskModel task, UnaryOperator<String> decrypter,
+                              boolean lazy, boolean deterministic) throws Exception {
+        Object value = path.read(rewrite.result());
+        if (value instanceof LazyPayload.Pending) {
+            if (decrypter != null) {
+                return; // Matched by an earlier path
+            }
+            // A view from an earlier read, written back: a value never read goes back as it was stored
+            if (!((LazyPayload.Pending) value).isDecrypted()) {
+                rewrite.set(path, LazyPayload.stored(value));
+                return;
+            }
+            value = LazyPayload.stored(value);
+        }
+        if (value instanceof String) {
+            String stringValue = (String) value;
+            if (decrypter == null) {
+                if (!stringValue.startsWith(ENCRYPTED_PREFIX)) { // Avoid double encryption
+                    String encryptedValue = deterministic
+                            ? encryptionService.encryptDeterministic(stringValue, resolvedClientId)
+                            : encryptionService.encrypt(stringValue, resolvedClientId);
+                    rewrite.set(path, ENCRYPTED_PREFIX + encryptedValue);
+                    log.trace("Encrypted path: {} for client: {} in workflow {} / task {}", path, resolvedClientId, workflow.workflowId(), task != null ? task.getTaskId() : "N/A");
+                }
+            } else if (stringValue.startsWith(ENCRYPTED_PREFIX) && !lazy) {
+                rewrite.set(path, decrypter.apply(stringValue));
+                log.trace("Decrypted path: {} for client: {} in workflow {} / task {}", path, resolvedClientId, workflow.workflowId(), task != null ? task.getTaskId() : "N/A");
+            } else if (stringValue.startsWith(ENCRYPTED_PREFIX)) {
+                rewrite.set(path, new LazyPayload.Pending(stringValue, decrypter));
+                deferredFields.increment();
+                log.trace("Deferred decryption of path: {} for client: {} in workflow {} / task {}", path, resolvedClientId, workflow.workflowId(), task != null ? task.getTaskId() : "N/A");
+            }
+        } else if (value != null) {
+            log.warn("Value at path '{}' for client '{}' in workflow {} / task {} is not a String. Skipping encryption/decryption. Value type: {}",
+                    path, resolvedClientId, workflow.workflowId(), task != null ? task.getTaskId() : "N/A", value.getClass().getName());
+        }
+    }
+
+    /**
+     * Decrypts a value, up front or when a deferred one is first read. A value that cannot be decrypted is returned
+     * as stored, as it was when payloads were decrypted up front.
+     */
+    private String decryptOnAccess(String encryptedValue, String resolvedClientId, WorkflowContext workflow, TaskModel task) {
+        try {
+            String decryptedValue = encryptionService.decrypt(encryptedValue.substring(ENCRYPTED_PREFIX.length()), resolvedClientId);
+            decryptedFields.increment();
+            return decryptedValue;
+        } catch (Exception e) {
+            log.warn("Could not decrypt a value for client {} in workflow {} / task {}. Returning it encrypted. Error: {}",
+                    resolvedClientId, workflow.workflowId(), task != null ? task.getTaskId() : "N/A", e.getMessage());
+            return encryptedValue;
+        }
+    }
+
+    // --- Applying it to workflows and tasks ---
+
+    /**
+     * Hands the delegate the workflow with encrypted payloads, then puts the caller's plaintext back.
+     */
+    @SuppressWarnings("deprecation") // raw payloads on purpose: getInput etc. would pull externalized payloads back inline
+    private <T> T writeEncrypted(WorkflowModel workflow, Supplier<T> write) {
+        Map<String, Object> input = workflow.getRawInput();
+        Map<String, Object> output = workflow.getRawOutput();
+        WorkflowContext context = contextOf(workflow); // Replaces the cached context, e.g. after new variables
+        workflow.setRawInput(processPayload(input, context, null, Processing.ENCRYPT));
+        workflow.setRawOutput(processPayload(output, context, null, Processing.ENCRYPT));
+        try {
+            return write.get();
+        } finally {
+            workflow.setRawInput(input);
+            workflow.setRawOutput(output);
+        }
+    }
+
+    /**
+     * Hands the delegate the tasks with encrypted payloads, then puts the caller's plaintext back.
+     */
+    @SuppressWarnings("deprecation") // raw payloads on purpose: getInput etc. would pull externalized payloads back inline
+    private <T> T writeEncrypted(List<TaskModel> tasks, Supplier<T> write) {
+        List<Map<String, Object>> plaintext = new ArrayList<>(tasks.size() * 2);
+        for (TaskModel task : tasks) {
+            plaintext.add(task.getRawInputData());
+            plaintext.add(task.getRawOutputData());
+        }
+        try {
+            processTasks(tasks, Processing.ENCRYPT);
+            return write.get();
+        } finally {
+            for (int i = 0; i < tasks.size(); i++) {
+                tasks.get(i).setRawInputData(plaintext.get(2 * i));
+                tasks.get(i).setRawOutputData(plaintext.get(2 * i + 1));
+            }
+        }
+    }
+
+    private WorkflowModel decrypt(WorkflowModel workflow, boolean includeTasks) {
+        if (workflow != null) {
+            decryptWorkflows(Collections.singletonList(workflow), includeTasks);
+        }
+        return workflow;
+    }
+
+    /**
+     * Decrypts workflows and, with includeTasks, their tasks: one unit per workflow and per task,
+     * run by the bulk executor. Contexts are resolved up front on the caller thread. With tasks, the
+     * full payloads are returned and the units decrypt them; without, they only build the
+     * decrypt-on-access views, and values are decrypted by whichever thread reads them.
+     */
+    @SuppressWarnings("deprecation") // raw payloads on purpose: getInput etc. would pull externalized payloads back inline
+    private List<WorkflowModel> decryptWorkflows(List<WorkflowModel> workflows, boolean includeTasks) {
+        Processing processing = includeTasks ? Processing.DECRYPT : Processing.DECRYPT_LAZILY;
+        List<Runnable> units = new ArrayList<>();
+        for (WorkflowModel workflow : workflows) {
+            if (workflow == null) {
+                continue;
+            }
+            WorkflowContext context = contextOf(workflow);
+            units.add(() -> {
+                workflow.setRawInput(processPayload(workflow.getRawInput(), context, null, processing));
+                workflow.setRawOutput(processPayload(workflow.getRawOutput(), context, null, processing));
+            });
+            if (includeTasks) {
+                for (TaskModel task : workflow.getTasks()) {
+                    units.add(() -> processTask(task, context, processing));
+                }
+            }
+        }
+        bulkPayloads.run(units);
+        return workflows;
+    }
+
+    private List<TaskModel> decryptTasks(List<TaskModel> tasks) {
+        processTasks(tasks, Processing.DECRYPT_LAZILY);
+        return tasks;
+    }
+
+    /**
+     * Encrypts or decrypts many tasks' payloads: contexts are resolved on the caller thread (at most
+     * one delegate read per workflow), then one unit per task runs on the bulk executor.
+     */
+    private void processTasks(List<TaskModel> tasks, Processing processing) {
+        List<Runnable> units = new ArrayList<>(tasks.size());
+        for (TaskModel task : tasks) {
+            if (task == null) {
+                continue;
+            }
+            WorkflowContext context = contextFor(task);
+            if (context != null) {
+                units.add(() -> processTask(task, context, processing));
+            } else {
+                log.warn("Workflow with ID {} not found for task {}. Cannot determine encryption context. Leaving task data as is.",
+                        task.getWorkflowInstanceId(), task.getTaskId());
+            }
+        }
+        bulkPayloads.run(units);
+    }
+
+    // Input before output, in one unit: the output's processing reads the overrides in the task input
+    @SuppressWarnings("deprecation") // raw payloads on purpose: getInput etc. would pull externalized payloads back inline
+    private void processTask(TaskModel task, WorkflowContext workflow, Processing processing) {
+        task.setRawInputData(processPayload(task.getRawInputData(), workflow, task, processing));
+        task.setRawOutputData(processPayload(task.getRawOutputData(), workflow, task, processing));
+    }
+
+    // --- Task Operations ---
+    // The workflow context comes from the shared WorkflowContextCache; the delegate is only read on a miss.
+
+    @Override
+    public List<TaskModel> getPendingTasksByWorkflow(String taskName, String workflowId) {
+        return decryptTasks(delegate.getPendingTasksByWorkflow(taskName, workflowId));
+    }
+
+    @Override
+    public List<TaskModel> getTasks(String taskType, String startKey, int count) {
+        return decryptTasks(delegate.getTasks(taskType, startKey, count));
+    }
+
+    @Override
+    public List<TaskModel> createTasks(List<TaskModel> tasks) {
+        return writeEncrypted(tasks, () -> delegate.createTasks(tasks));
+    }
+
+    @Override
+    public void updateTask(TaskModel task) {
+        writeEncrypted(Collections.singletonList(task), () -> {
+            delegate.updateTask(task);
+            return null;
+        });
+    }
+
+    @Override
+    @SuppressWarnings("deprecation") // still part of ExecutionDAO: passed through for callers that use it
+    public boolean exceedsInProgressLimit(TaskModel task) {
+        return delegate.exceedsInProgressLimit(task);
+    }
+
+    @Override
+    public boolean removeTask(String taskId) {
+        return delegate.removeTask(taskId);
+    }
+
+    @Override
+    public TaskModel getTask(String taskId) {
+        TaskModel task = delegate.getTask(taskId);
+        if (task != null) {
+            decryptTasks(Collections.singletonList(task));
+        }
+        return task;
+    }
+
+    @Override
+    public List<TaskModel> getTasks(List<String> taskIds) {
+        return decryptTasks(delegate.getTasks(taskIds));
+    }
+
+    @Override
+    public List<TaskModel> getPendingTasksForTaskType(String taskType) {
+        return decryptTasks(delegate.getPendingTasksForTaskType(taskType));
+    }
+
+    @Override
+    public List<TaskModel> getTasksForWorkflow(String workflowId) {
+        return decryptTasks(delegate.getTasksForWorkflow(workflowId));
+    }
+
+    // --- Workflow Operations ---
+
+    @Override
+    public String createWorkflow(WorkflowModel workflow) {
+        return writeEncrypted(workflow, () -> delegate.createWorkflow(workflow));
+    }
+
+    @Override
+    public String updateWorkflow(WorkflowModel workflow) {
+        // The delegate stores the input again too, so both payloads are encrypted
+        return writeEncrypted(workflow, () -> delegate.updateWorkflow(workflow));
+    }
+
+    @Override
+    public boolean removeWorkflow(String workflowId) {
+        workflowContexts.invalidate(workflowId);
+        return delegate.removeWorkflow(workflowId);
+    }
+
+    @Override
+    public boolean removeWorkflowWithExpiry(String workflowId, int ttlSeconds) {
+        workflowContexts.invalidate(workflowId);
+        return delegate.removeWorkflowWithExpiry(workflowId, ttlSeconds);
+    }
+
+    @Override
+    public void removeFromPendingWorkflow(String workflowType, String workflowId) {
+        delegate.removeFromPendingWorkflow(workflowType, workflowId);
+    }
+
+    @Override
+    public WorkflowModel getWorkflow(String workflowId) {
+        return decrypt(delegate.getWorkflow(workflowId), true);
+    }
+
+    @Override
+    public WorkflowModel getWorkflow(String workflowId, boolean includeTasks) {
+        return decrypt(delegate.getWorkflow(workflowId, includeTasks), includeTasks);
+    }
+
+    @Override
+    public List<String> getRunningWorkflowIds(String workflowName, int version) {
+        return delegate.getRunningWorkflowIds(workflowName, version);
+    }
+
+    @Override
+    public List<WorkflowModel> getPendingWorkflowsByType(String workflowName, int version) {
+        return decryptWorkflows(delegate.getPendingWorkflowsByType(workflowName, version), false);
+    }
+
+    @Override
+    public long getPendingWorkflowCount(String workflowName) {
+        return delegate.getPendingWorkflowCount(workflowName);
+    }
+
+    @Override
+    public long getInProgressTaskCount(String taskDefName) {
+        return delegate.getInProgressTaskCount(taskDefName);
+    }
+
+    @Override
+    public List<WorkflowModel> getWorkflowsByType(String workflowName, Long startTime, Long endTime) {
+        return decryptWorkflows(delegate.getWorkflowsByType(workflowName, startTime, endTime), true);
+    }
+
+    @Override
+    public List<WorkflowModel> getWorkflowsByCorrelationId(String workflowName, String correlationId, boolean includeTasks) {
+        return decryptWorkflows(delegate.getWorkflowsByCorrelationId(workflowName, correlationId, includeTasks), includeTasks);
+    }
+
+    @Override
+    public boolean canSearchAcrossWorkflows() {
+        return delegate.canSearchAcrossWorkflows();
+    }
+
+    // --- Event Executions (no payloads of ours) ---
+
+    @Override
+    public boolean addEventExecution(EventExecution eventExecution) {
+        return delegate.addEventExecution(eventExecution);
+    }
+
+    @Override
+    public void updateEventExecution(EventExecution eventExecution) {
+        delegate.updateEventExecution(eventExecution);
+    }
+
+    @Override
+    public void removeEventExecution(EventExecution eventExecution) {
+        delegate.removeEventExecution(eventExecution);
+    }
+}
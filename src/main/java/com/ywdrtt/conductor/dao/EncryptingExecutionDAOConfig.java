@@ -0,0 +1,117 @@
+package com.ywdrtt.conductor.dao;
+
+import com.netflix.conductor.dao.ExecutionDAO;
+import com.ywdrtt.conductor.security.AesEncryptionService;
+import com.ywdrtt.conductor.security.AesKmsClient;
+import com.ywdrtt.conductor.security.CachingEncryptionService;
+import com.ywdrtt.conductor.security.CachingKmsClient;
+import com.ywdrtt.conductor.security.EncryptionService;
+import com.ywdrtt.conductor.security.KmsClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.unit.DataSize;
+
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+
+/**
+ * Wraps the server's ExecutionDAO (Postgres, Redis, ... per conductor.db.type) in an
+ * EncryptingExecutionDAO. Only for an application that embeds the Conductor server; enabled with
+ * conductor.encryption.enabled=true.
+ */
+@Configuration
+@ConditionalOnProperty(name = "conductor.encryption.enabled", havingValue = "true")
+public class EncryptingExecutionDAOConfig {
+
+    // How long task operations reuse a workflow's encryption context; PT0S reads the workflow every time
+    @Value("${conductor.encryption.workflow-context-cache.ttl:PT5S}")
+    private Duration workflowContextTtl;
+
+    @Value("${conductor.encryption.workflow-context-cache.max-size:10000}")
+    private int workflowContextMaxSize;
+
+    // Threads doing bulk encryption/decryption at most; 1 runs everything on the caller thread
+    @Value("${conductor.encryption.bulk.parallelism:#{T(java.lang.Math).max(1, T(java.lang.Runtime).getRuntime().availableProcessors() / 2)}}")
+    private int bulkParallelism;
+
+    // Smallest number of workflows/tasks in one call worth running in parallel
+    @Value("${conductor.encryption.bulk.min-units:64}")
+    private int bulkMinUnits;
+
+    // Bulk calls sharing the pool at once; more run on their caller thread
+    @Value("${conductor.encryption.bulk.max-concurrent-batches:8}")
+    private int bulkMaxConcurrentBatches;
+
+    // How long a data key encrypts new values, and how long an unwrapped data key is kept
+    @Value("${conductor.encryption.data-key.ttl:PT15M}")
+    private Duration dataKeyTtl;
+
+    // Values one data key may encrypt before it is replaced
+    @Value("${conductor.encryption.data-key.max-uses:1000000}")
+    private long dataKeyMaxUses;
+
+    @Value("${conductor.encryption.data-key.max-cached-keys:10000}")
+    private int dataKeyMaxCachedKeys;
+
+    // Payloads from this size (estimated as JSON) have their wildcard and deep scan paths matched in one walk; 0B never
+    @Value("${conductor.encryption.large-payload-threshold:256KB}")
+    private DataSize largePayloadThreshold;
+
+    // Cached plaintexts (and ciphertexts) per client; 0 caches no values, and paths flagged for
+    // deterministic encryption are then encrypted afresh like the rest
+    @Value("${conductor.encryption.value-cache.max-entries-per-client:0}")
+    private int valueCacheMaxEntries;
+
+    // How long a cached value is reused; keep it below the data key TTL
+    @Value("${conductor.encryption.value-cache.ttl:PT5M}")
+    private Duration valueCacheTtl;
+
+    /**
+     * The KMS behind a data-key cache, so envelope encryption calls it once per data key rather
+     * than once per value. Its refresh thread stops with the context.
+     */
+    @Bean
+    public KmsClient kmsClient(MeterRegistry meterRegistry) throws NoSuchAlgorithmException {
+        KmsClient kms = new AesKmsClient(); // DUMMY: Replace with your production-grade KMS client
+        return new CachingKmsClient(kms, dataKeyTtl, dataKeyMaxUses, dataKeyMaxCachedKeys, meterRegistry);
+    }
+
+    /**
+     * AES-GCM over the data-key cache, behind a per-client value cache when one is configured. The
+     * value cache's sweeper stops, and its values are zeroed, with the context.
+     */
+    @Bean
+    public EncryptionService encryptionService(KmsClient kmsClient, MeterRegistry meterRegistry) throws GeneralSecurityException {
+        EncryptionService encryptionService = new AesEncryptionService(kmsClient); // DUMMY: Replace with your production-grade encryption service
+        if (valueCacheMaxEntries <= 0) {
+            return encryptionService;
+        }
+        return new CachingEncryptionService(encryptionService, valueCacheTtl, valueCacheMaxEntries, meterRegistry);
+    }
+
+    /**
+     * Parallel stage for the encrypting DAO's bulk operations; its threads stop with the context.
+     */
+    @Bean
+    public BulkPayloadExecutor bulkPayloadExecutor(MeterRegistry meterRegistry) {
+        return new BulkPayloadExecutor(bulkParallelism, bulkMinUnits, bulkMaxConcurrentBatches, meterRegistry);
+    }
+
+    /**
+     * The primary ExecutionDAO: Conductor's own, provided by its persistence module, is injected
+     * as the delegate.
+     */
+    @Bean
+    @Primary
+    public ExecutionDAO encryptingExecutionDAO(ExecutionDAO delegate, EncryptionService encryptionService,
+                                               BulkPayloadExecutor bulkPayloadExecutor, MeterRegistry meterRegistry) {
+        return new EncryptingExecutionDAO(delegate, encryptionService,
+                new WorkflowContextCache(workflowContextTtl, workflowContextMaxSize, meterRegistry), bulkPayloadExecutor, meterRegistry,
+                largePayloadThreshold.toBytes());
+    }
+}
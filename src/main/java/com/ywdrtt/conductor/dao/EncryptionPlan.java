@@ -0,0 +1,177 @@
+package com.ywdrtt.conductor.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * What EncryptingExecutionDAO takes from the definitions to process the payloads of one
+ * workflow definition version, or of one task reference within it: the compiled sensitive
+ * paths, which of them _deterministicPaths flags, the WorkflowDef's _defaultEncryptionEnabled
+ * and the TaskDef's _clientId. In each group of paths encrypted the same way, the wildcard and
+ * deep scan paths StreamingPayloadTransformer supports are also compiled into one walker, which
+ * matches them all in a single pass over a large payload.
+ *
+ * Plans are immutable and cached by Key; instance-level overrides (clientId and _enableEncryption
+ * in workflow/task input and variables) are not part of a plan and are read on every call.
+ *
+ * A plan also keeps the definition entries it was built from. Definitions are stored through the
+ * MetadataDAO, possibly by another server, so nothing tells the cache when one changes; a payload
+ * whose definition carries other entries gets a new plan instead.
+ */
+final class EncryptionPlan {
+
+    static final EncryptionPlan NONE = new EncryptionPlan(List.of(), Set.of(), false, null, null);
+
+    private final List<PayloadPath> sensitivePaths;
+    private final List<PathGroup> pathGroups;
+    private final boolean defaultEnabled;
+    private final String taskClientId; // TaskDef _clientId, null when not set
+    private final List<Object> source;
+
+    /**
+     * @param deterministicPaths expressions of the sensitive paths flagged for deterministic encryption
+     */
+    EncryptionPlan(List<PayloadPath> sensitivePaths, Set<String> deterministicPaths, boolean defaultEnabled,
+                   String taskClientId, List<Object> source) {
+        this.sensitivePaths = List.copyOf(sensitivePaths);
+        List<PayloadPath> randomized = new ArrayList<>();
+        List<PayloadPath> deterministic = new ArrayList<>();
+        for (PayloadPath path : sensitivePaths) {
+            (deterministicPaths.contains(path.toString()) ? deterministic : randomized).add(path);
+        }
+        List<PathGroup> groups = new ArrayList<>(2);
+        if (!randomized.isEmpty()) {
+            groups.add(new PathGroup(randomized, false));
+        }
+        if (!deterministic.isEmpty()) {
+            groups.add(new PathGroup(deterministic, true));
+        }
+        this.pathGroups = List.copyOf(groups);
+        this.defaultEnabled = defaultEnabled;
+        this.taskClientId = taskClientId;
+        this.source = source != null ? copyOf(source) : null;
+    }
+
+    // Lists copied, so a definition edited in place no longer matches
+    private static List<Object> copyOf(List<Object> source) {
+        List<Object> copy = new ArrayList<>(source.size());
+        for (Object entry : source) {
+            copy.add(entry instanceof List ? new ArrayList<>((List<?>) entry) : entry);
+        }
+        return copy;
+    }
+
+    List<PayloadPath> sensitivePaths() {
+        return sensitivePaths;
+    }
+
+    /**
+     * The sensitive paths in processing order: the unflagged ones, then those flagged for
+     * deterministic encryption. Empty groups are left out.
+     */
+    List<PathGroup> pathGroups() {
+        return pathGroups;
+    }
+
+    /**
+     * @return whether any group has a walker for large payloads
+     */
+    boolean hasWalker() {
+        for (PathGroup group : pathGroups) {
+            if (group.walker != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean defaultEnabled() {
+        return defaultEnabled;
+    }
+
+    String taskClientId() {
+        return taskClientId;
+    }
+
+    /**
+     * @param source the definition entries a plan would be built from now
+     * @return whether this plan was built from the same entries
+     */
+    boolean isBuiltFrom(List<Object> source) {
+        return Objects.equals(this.source, source);
+    }
+
+    /**
+     * Sensitive paths encrypted the same way, with a walker matching the walkable ones among them in
+     * one pass over a large payload instead of one JsonPath evaluation per path.
+     */
+    static final class PathGroup {
+
+        private final List<PayloadPath> paths;
+        private final boolean deterministic;
+        private final StreamingPayloadTransformer walker; // null when no path is walkable
+
+        private PathGroup(List<PayloadPath> paths, boolean deterministic) {
+            this.paths = List.copyOf(paths);
+            this.deterministic = deterministic;
+            List<String> walkable = new ArrayList<>();
+            for (PayloadPath path : paths) {
+                if (path.isWalkable()) {
+                    walkable.add(path.toString());
+                }
+            }
+            this.walker = walkable.isEmpty() ? null : StreamingPayloadTransformer.compile(walkable);
+        }
+
+        List<PayloadPath> paths() {
+            return paths;
+        }
+
+        boolean deterministic() {
+            return deterministic;
+        }
+
+        StreamingPayloadTransformer walker() {
+            return walker;
+        }
+    }
+
+    /**
+     * Workflow definition name and version, plus the task reference name for task payloads
+     * (null for the workflow's own input and output).
+     */
+    static final class Key {
+
+        private final String workflowName;
+        private final int version;
+        private final String taskReferenceName;
+        private final int hash;
+
+        Key(String workflowName, int version, String taskReferenceName) {
+            this.workflowName = workflowName;
+            this.version = version;
+            this.taskReferenceName = taskReferenceName;
+            this.hash = Objects.hash(workflowName, version, taskReferenceName);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version && Objects.equals(workflowName, other.workflowName)
+                    && Objects.equals(taskReferenceName, other.taskReferenceName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
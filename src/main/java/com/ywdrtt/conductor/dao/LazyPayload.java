@@ -0,0 +1,276 @@
+package com.ywdrtt.conductor.dao;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Decrypt-on-access payloads, as EncryptingExecutionDAO returns them from reads.
+ *
+ * Each encrypted value at a sensitive path is replaced by a Pending that holds the ciphertext; the
+ * containers on the way to it are LazyMap and LazyList copies (made by a lazy PayloadPath.Rewrite),
+ * which hand out the plaintext wherever a value is read: get, iteration, equals, serialization.
+ * A value is decrypted the first time it is read and the plaintext is kept, so reads that never
+ * reach a sensitive value (status checks, most decider and sweeper reads) cost no decryption.
+ *
+ * The views are ordinary mutable maps and lists; values put into them are stored as given.
+ * Concurrent reads are safe, as they are for the maps the delegate returns.
+ */
+final class LazyPayload {
+
+    private LazyPayload() {
+    }
+
+    /**
+     * An encrypted value standing in a lazy container until it is first read.
+     */
+    static final class Pending {
+
+        private final String encryptedValue;
+        private final UnaryOperator<String> decrypter;
+        private volatile String value;
+
+        /**
+         * @param decrypter returns the plaintext of encryptedValue; called once
+         */
+        Pending(String encryptedValue, UnaryOperator<String> decrypter) {
+            this.encryptedValue = encryptedValue;
+            this.decrypter = decrypter;
+        }
+
+        String value() {
+            String result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        result = decrypter.apply(encryptedValue);
+                        value = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @return the value as stored, with its ENC: prefix
+         */
+        String encryptedValue() {
+            return encryptedValue;
+        }
+
+        /**
+         * @return whether the value was read, and so decrypted, already
+         */
+        boolean isDecrypted() {
+            return value != null;
+        }
+
+        @Override
+        public String toString() {
+            return value();
+        }
+    }
+
+    private static Object resolve(Object value) {
+        return value instanceof Pending ? ((Pending) value).value() : value;
+    }
+
+    /**
+     * @return the value stored in a lazy or plain container without decrypting it; a Pending if not read yet
+     */
+    static Object raw(Object container, Object step) {
+        if (container instanceof LazyMap) {
+            return ((LazyMap) container).entries.get(step);
+        }
+        if (container instanceof LazyList) {
+            List<Object> elements = ((LazyList) container).elements;
+            int index = (Integer) step;
+            return index < elements.size() ? elements.get(index) : null;
+        }
+        return null;
+    }
+
+    /**
+     * @return the value to write back to storage: a Pending's plaintext once read, else the value as stored
+     */
+    static Object stored(Object value) {
+        if (!(value instanceof Pending)) {
+            return value;
+        }
+        Pending pending = (Pending) value;
+        return pending.isDecrypted() ? pending.value() : pending.encryptedValue();
+    }
+
+    /**
+     * @return the map or list behind a lazy container, whose values are raw; any other value as it is
+     */
+    static Object backing(Object container) {
+        if (container instanceof LazyMap) {
+            return ((LazyMap) container).entries;
+        }
+        if (container instanceof LazyList) {
+            return ((LazyList) container).elements;
+        }
+        return container;
+    }
+
+    static final class LazyMap extends AbstractMap<String, Object> {
+
+        private final Map<String, Object> entries;
+
+        LazyMap(Map<String, Object> source) {
+            this.entries = new LinkedHashMap<>(source);
+        }
+
+        @Override
+        public Object get(Object key) {
+            return resolve(entries.get(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return entries.containsKey(key);
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            return resolve(entries.put(key, value));
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return resolve(entries.remove(key));
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public void clear() {
+            entries.clear();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Entry<String, Object>> iterator = entries.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            return new LazyEntry(iterator.next());
+                        }
+
+                        @Override
+                        public void remove() {
+                            iterator.remove();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return entries.size();
+                }
+            };
+        }
+    }
+
+    // Decrypts on getValue, so walking keys (keySet, containsKey by iteration) decrypts nothing
+    private static final class LazyEntry implements Map.Entry<String, Object> {
+
+        private final Map.Entry<String, Object> entry;
+
+        private LazyEntry(Map.Entry<String, Object> entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String getKey() {
+            return entry.getKey();
+        }
+
+        @Override
+        public Object getValue() {
+            return resolve(entry.getValue());
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return resolve(entry.setValue(value));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return Objects.equals(getKey(), other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    static final class LazyList extends AbstractList<Object> implements RandomAccess {
+
+        private final List<Object> elements;
+
+        LazyList(List<Object> source) {
+            this.elements = new ArrayList<>(source);
+        }
+
+        @Override
+        public Object get(int index) {
+            return resolve(elements.get(index));
+        }
+
+        @Override
+        public Object set(int index, Object element) {
+            return resolve(elements.set(index, element));
+        }
+
+        @Override
+        public void add(int index, Object element) {
+            elements.add(index, element);
+            modCount++;
+        }
+
+        @Override
+        public Object remove(int index) {
+            modCount++;
+            return resolve(elements.remove(index));
+        }
+
+        @Override
+        public int size() {
+            return elements.size();
+        }
+    }
+}
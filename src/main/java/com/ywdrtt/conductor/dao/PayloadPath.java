@@ -0,0 +1,288 @@
+package com.ywdrtt.conductor.dao;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A sensitive path (one entry of _sensitivePaths) compiled for the Map/List tree Conductor hands
+ * the DAO, so payloads are never serialized to JSON just to find a few fields.
+ *
+ * Definite paths - dot or bracket property names and array indexes, e.g. $.customer.ssn,
+ * $['customer']['ssn'] or $.accounts[0].iban - are resolved by walking the maps and lists directly.
+ * Anything else (wildcards, deep scan, filters, slices, unions, functions) is still evaluated by
+ * JsonPath, read-only, on the same tree: it returns the definite paths of its matches, and those
+ * are read and written like any other definite path.
+ *
+ * Writes go through a Rewrite, which copies only the containers on the way to a written value.
+ * The caller's payload is never modified (it may be immutable, or shared with other tasks), and
+ * everything off the written paths stays shared with it. A lazy Rewrite makes those copies
+ * LazyPayload containers, for payloads whose values are decrypted on access; reads through a
+ * PayloadPath see their raw values and never trigger a decryption.
+ */
+final class PayloadPath {
+
+    // Evaluates an indefinite path to the list of definite paths it matches; no match is an empty list
+    private static final Configuration MATCHES_CONF = Configuration.defaultConfiguration()
+            .addOptions(Option.AS_PATH_LIST, Option.SUPPRESS_EXCEPTIONS);
+
+    private final String expression;
+    private final Object[] steps; // String property name or Integer index; null when indefinite
+    private final JsonPath jsonPath; // only for indefinite paths
+    private final boolean walkable; // indefinite and supported by StreamingPayloadTransformer
+
+    private PayloadPath(String expression, Object[] steps, JsonPath jsonPath, boolean walkable) {
+        this.expression = expression;
+        this.steps = steps;
+        this.jsonPath = jsonPath;
+        this.walkable = walkable;
+    }
+
+    /**
+     * @throws com.jayway.jsonpath.InvalidPathException if the expression is not a valid JsonPath
+     */
+    static PayloadPath compile(String expression) {
+        Object[] steps = parseDefinite(expression);
+        if (steps != null) {
+            return new PayloadPath(expression, steps, null, false);
+        }
+        JsonPath jsonPath = JsonPath.compile(expression);
+        return new PayloadPath(expression, null, jsonPath, StreamingPayloadTransformer.compile(List.of(expression)) != null);
+    }
+
+    boolean isDefinite() {
+        return steps != null;
+    }
+
+    /**
+     * @return true if StreamingPayloadTransformer can match this indefinite path instead of JsonPath
+     */
+    boolean isWalkable() {
+        return walkable;
+    }
+
+    /**
+     * A definite path from its steps, as found by walking a payload.
+     */
+    static PayloadPath definite(Object[] steps) {
+        StringBuilder expression = new StringBuilder("$");
+        for (Object step : steps) {
+            if (step instanceof String) {
+                expression.append("['").append(step).append("']");
+            } else {
+                expression.append('[').append(step).append(']');
+            }
+        }
+        return new PayloadPath(expression.toString(), steps, null, false);
+    }
+
+    /**
+     * @return the definite paths this indefinite path matches in the payload
+     */
+    List<PayloadPath> matches(Map<String, Object> payload) {
+        List<String> found = JsonPath.using(MATCHES_CONF).parse(payload).read(jsonPath);
+        List<PayloadPath> matches = new ArrayList<>(found.size());
+        for (String match : found) {
+            Object[] matchSteps = parseDefinite(match);
+            if (matchSteps != null) {
+                matches.add(new PayloadPath(match, matchSteps, null, false));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return the value at this definite path, or null when any step is missing or of the wrong type
+     */
+    Object read(Map<String, Object> payload) {
+        Object node = payload;
+        for (Object step : steps) {
+            node = child(node, step);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private static Object child(Object container, Object step) {
+        if (container instanceof LazyPayload.LazyMap || container instanceof LazyPayload.LazyList) {
+            return LazyPayload.raw(container, step);
+        }
+        if (step instanceof String) {
+            return container instanceof Map ? ((Map<?, ?>) container).get(step) : null;
+        }
+        if (container instanceof List) {
+            List<?> list = (List<?>) container;
+            int index = (Integer) step;
+            return index < list.size() ? list.get(index) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Parses $.a.b, $['a']["b"] and $.a[0] forms into steps.
+     *
+     * @return null for anything else, which JsonPath then evaluates
+     */
+    private static Object[] parseDefinite(String expression) {
+        if (expression == null || !expression.startsWith("$")) {
+            return null;
+        }
+        List<Object> steps = new ArrayList<>();
+        int length = expression.length();
+        int i = 1;
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (c == '.') {
+                int start = ++i;
+                while (i < length && isNameChar(expression.charAt(i))) {
+                    i++;
+                }
+                if (i == start || (i < length && expression.charAt(i) != '.' && expression.charAt(i) != '[')) {
+                    return null; // "..", "$.*", "$.a()" ...
+                }
+                steps.add(expression.substring(start, i));
+            } else if (c == '[') {
+                int close = expression.indexOf(']', i);
+                if (close < 0) {
+                    return null;
+                }
+                Object step = bracketStep(expression.substring(i + 1, close));
+                if (step == null) {
+                    return null;
+                }
+                steps.add(step);
+                i = close + 1;
+            } else {
+                return null;
+            }
+        }
+        return steps.isEmpty() ? null : steps.toArray();
+    }
+
+    // 'name', "name" or a non-negative index; null for wildcards, filters, slices, unions and negative indexes
+    static Object bracketStep(String inner) {
+        if (inner.length() >= 2 && (inner.charAt(0) == '\'' || inner.charAt(0) == '"') && inner.charAt(inner.length() - 1) == inner.charAt(0)) {
+            String name = inner.substring(1, inner.length() - 1);
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c == '\'' || c == '"' || c == '\\' || c == ',') {
+                    return null;
+                }
+            }
+            return name;
+        }
+        if (inner.isEmpty() || inner.length() > 9) {
+            return null;
+        }
+        for (int i = 0; i < inner.length(); i++) {
+            if (inner.charAt(i) < '0' || inner.charAt(i) > '9') {
+                return null;
+            }
+        }
+        return Integer.valueOf(inner);
+    }
+
+    static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    /**
+     * Copy-on-write edit of one payload. The first write to a container replaces it, in a copy of its
+     * parent, with a copy of its own; later writes reuse the copies already made.
+     */
+    static final class Rewrite {
+
+        private final Map<String, Object> original;
+        private final boolean lazy;
+        private Map<String, Object> root;
+        private final Set<Object> copies = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Rewrite(Map<String, Object> original) {
+            this(original, false);
+        }
+
+        /**
+         * @param lazy copy into LazyPayload containers, so LazyPayload.Pending values can be set
+         */
+        Rewrite(Map<String, Object> original, boolean lazy) {
+            this.original = original;
+            this.lazy = lazy;
+        }
+
+        /**
+         * @return the payload with every write so far; the original payload if nothing was written
+         */
+        Map<String, Object> result() {
+            return root != null ? root : original;
+        }
+
+        /**
+         * Sets the value at a definite path whose containers all exist, as they do for a path just read.
+         */
+        @SuppressWarnings("unchecked")
+        void set(PayloadPath path, Object value) {
+            if (root == null) {
+                root = (Map<String, Object>) copy(original);
+                copies.add(root);
+            }
+            Object container = root;
+            Object[] steps = path.steps;
+            for (int i = 0; i < steps.length - 1; i++) {
+                Object child = child(container, steps[i]);
+                if (!copies.contains(child)) {
+                    child = copy(child);
+                    put(container, steps[i], child);
+                    copies.add(child);
+                }
+                container = child;
+            }
+            put(container, steps[steps.length - 1], value);
+        }
+
+        // From the raw values of a lazy container: copying it must not decrypt what was never read
+        @SuppressWarnings("unchecked")
+        private Object copy(Object container) {
+            Object source = LazyPayload.backing(container);
+            if (source instanceof Map) {
+                Map<String, Object> map = (Map<String, Object>) source;
+                if (lazy) {
+                    return new LazyPayload.LazyMap(map);
+                }
+                Map<String, Object> copy = new LinkedHashMap<>();
+                map.forEach((key, value) -> copy.put(key, LazyPayload.stored(value)));
+                return copy;
+            }
+            List<Object> list = (List<Object>) source;
+            if (lazy) {
+                return new LazyPayload.LazyList(list);
+            }
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(value -> copy.add(LazyPayload.stored(value)));
+            return copy;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void put(Object container, Object step, Object value) {
+            if (step instanceof String) {
+                ((Map<String, Object>) container).put((String) step, value);
+            } else {
+                ((List<Object>) container).set((Integer) step, value);
+            }
+        }
+    }
+}
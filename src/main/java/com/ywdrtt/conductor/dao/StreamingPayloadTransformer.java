@@ -0,0 +1,284 @@
+package com.ywdrtt.conductor.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sensitive paths matched node by node, for payloads too large to evaluate through JsonPath.
+ *
+ * matches walks an in-memory payload once and returns the definite paths of the matched values,
+ * as PayloadPath.matches does with JsonPath, but without building a path for every node visited.
+ * Subtrees no path can reach are skipped. The state is the partial matches of each open container,
+ * so memory grows with nesting depth and the number of paths, never with the size of the payload.
+ *
+ * Supported: property names ($.a, $['a']), array indexes ($[0]), wildcards ($.a[*], $.a.*) and
+ * deep scan ($..a, $.a[*]..iban.value). A path matches the same values JsonPath does: compile
+ * returns null for the forms where JsonPath's deep scan behaves differently (a wildcard anywhere
+ * after "..", or $..[0] and $..* followed by more steps), and for filters, slices, unions,
+ * functions and negative indexes. Those stay with JsonPath.
+ */
+public final class StreamingPayloadTransformer {
+
+    private static final Object ANY = new Object(); // wildcard selector
+
+    private static final class Step {
+        private final Object selector; // property name, Integer index or ANY
+        private final boolean deep; // preceded by "..": matches at any depth below the previous step
+
+        private Step(Object selector, boolean deep) {
+            this.selector = selector;
+            this.deep = deep;
+        }
+
+        private boolean matches(String name, int index) {
+            if (selector == ANY) {
+                return true;
+            }
+            return name != null ? selector.equals(name) : selector instanceof Integer && (Integer) selector == index;
+        }
+    }
+
+    private final Step[][] paths;
+    private final int maxStates; // partial matches one node can have: a path is at most at each of its steps once
+
+    private StreamingPayloadTransformer(Step[][] paths) {
+        this.paths = paths;
+        int states = 0;
+        for (Step[] path : paths) {
+            states += path.length + 1;
+        }
+        this.maxStates = states;
+    }
+
+    /**
+     * @return null if any expression is not supported
+     */
+    public static StreamingPayloadTransformer compile(List<String> expressions) {
+        Step[][] paths = new Step[expressions.size()][];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = parse(expressions.get(i));
+            if (paths[i] == null || paths[i].length > Short.MAX_VALUE) {
+                return null;
+            }
+        }
+        return new StreamingPayloadTransformer(paths);
+    }
+
+    /**
+     * @return the definite paths of the values the paths match in the payload, each once
+     */
+    List<PayloadPath> matches(Map<String, Object> payload) {
+        List<PayloadPath> matches = new ArrayList<>();
+        walk(payload, 0, new Cursor(), matches);
+        return matches;
+    }
+
+    private void walk(Object container, int depth, Cursor cursor, List<PayloadPath> matches) {
+        container = LazyPayload.backing(container); // walking a view must not decrypt it
+        if (container instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) container).entrySet()) {
+                if (entry.getKey() instanceof String) {
+                    String name = (String) entry.getKey();
+                    visit(entry.getValue(), depth, name, cursor.enter(depth, name, -1), cursor, matches);
+                }
+            }
+        } else {
+            List<?> list = (List<?>) container;
+            for (int i = 0; i < list.size(); i++) {
+                visit(list.get(i), depth, i, cursor.enter(depth, null, i), cursor, matches);
+            }
+        }
+    }
+
+    private void visit(Object value, int depth, Object step, boolean matched, Cursor cursor, List<PayloadPath> matches) {
+        boolean descend = (value instanceof Map || value instanceof List) && cursor.live(depth + 1);
+        if (!matched && !descend) {
+            return;
+        }
+        cursor.trail[depth] = step;
+        if (matched) {
+            matches.add(PayloadPath.definite(Arrays.copyOf(cursor.trail, depth + 1)));
+        }
+        if (descend) {
+            walk(value, depth + 1, cursor, matches);
+        }
+    }
+
+    /**
+     * Rough size of the payload as JSON, counted only up to 'bytes'.
+     * @return true if the payload serializes to about 'bytes' or more
+     */
+    static boolean exceeds(Object payload, long bytes) {
+        return estimate(payload, bytes) >= bytes;
+    }
+
+    private static long estimate(Object node, long limit) {
+        node = LazyPayload.backing(node);
+        if (node instanceof String) {
+            return ((String) node).length() + 2;
+        }
+        long size = 2;
+        if (node instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet()) {
+                size += String.valueOf(entry.getKey()).length() + 4 + estimate(entry.getValue(), limit - size);
+                if (size >= limit) {
+                    return size;
+                }
+            }
+            return size;
+        }
+        if (node instanceof List) {
+            for (Object element : (List<?>) node) {
+                size += 1 + estimate(element, limit - size);
+                if (size >= limit) {
+                    return size;
+                }
+            }
+            return size;
+        }
+        return 8; // number, boolean or null
+    }
+
+    /**
+     * Partial matches per depth, in buffers reused for every node at that depth. A state is a path
+     * index and the number of its steps matched so far, packed into an int.
+     */
+    private final class Cursor {
+
+        private int[][] states = new int[8][];
+        private int[] counts = new int[8];
+        private Object[] trail = new Object[8]; // property name or Integer index per depth, for matches
+
+        private Cursor() {
+            states[0] = new int[maxStates];
+            for (int path = 0; path < paths.length; path++) {
+                states[0][counts[0]++] = path << 16;
+            }
+        }
+
+        /**
+         * Computes the states of a child of a node at 'depth'.
+         * @param name the child's property name, null for an array element
+         * @param index the child's array index
+         * @return true if a path matches the child itself
+         */
+        private boolean enter(int depth, String name, int index) {
+            int child = depth + 1;
+            if (child == states.length) {
+                states = Arrays.copyOf(states, child * 2);
+                counts = Arrays.copyOf(counts, child * 2);
+                trail = Arrays.copyOf(trail, child * 2);
+            }
+            if (states[child] == null) {
+                states[child] = new int[maxStates];
+            }
+            int[] from = states[depth];
+            int[] to = states[child];
+            int count = 0;
+            boolean matched = false;
+            for (int i = 0; i < counts[depth]; i++) {
+                int path = from[i] >>> 16;
+                int matchedSteps = from[i] & 0xffff;
+                Step[] steps = paths[path];
+                if (matchedSteps == steps.length) {
+                    continue; // complete at the parent: nothing below is part of this match
+                }
+                Step step = steps[matchedSteps];
+                if (step.deep) {
+                    count = add(to, count, from[i]); // keep scanning further down
+                }
+                if (step.matches(name, index)) {
+                    count = add(to, count, path << 16 | (matchedSteps + 1));
+                    matched |= matchedSteps + 1 == steps.length;
+                }
+            }
+            counts[child] = count;
+            return matched;
+        }
+
+        // True if a path may still match at or below a node whose states are at 'depth'
+        private boolean live(int depth) {
+            int[] nodeStates = states[depth];
+            for (int i = 0; i < counts[depth]; i++) {
+                if ((nodeStates[i] & 0xffff) < paths[nodeStates[i] >>> 16].length) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int add(int[] to, int count, int state) {
+            for (int i = 0; i < count; i++) {
+                if (to[i] == state) {
+                    return count;
+                }
+            }
+            to[count] = state;
+            return count + 1;
+        }
+    }
+
+    /**
+     * Parses $ followed by .name, ..name, .*, ..*, [n], ['name'], [*] and their .. forms.
+     * @return null for anything else
+     */
+    private static Step[] parse(String expression) {
+        if (expression == null || !expression.startsWith("$")) {
+            return null;
+        }
+        List<Step> steps = new ArrayList<>();
+        int length = expression.length();
+        int i = 1;
+        while (i < length) {
+            boolean deep = false;
+            if (expression.startsWith("..", i)) {
+                deep = true;
+                i += 2;
+            } else if (expression.charAt(i) == '.') {
+                i++;
+            } else if (expression.charAt(i) != '[') {
+                return null;
+            }
+            if (i < length && expression.charAt(i) == '[' && (deep || expression.charAt(i - 1) != '.')) {
+                int close = expression.indexOf(']', i);
+                if (close < 0) {
+                    return null;
+                }
+                String inner = expression.substring(i + 1, close);
+                Object selector = "*".equals(inner) ? ANY : PayloadPath.bracketStep(inner);
+                if (selector == null) {
+                    return null;
+                }
+                steps.add(new Step(selector, deep));
+                i = close + 1;
+            } else if (i < length && expression.charAt(i) == '*') {
+                steps.add(new Step(ANY, deep));
+                i++;
+            } else {
+                int start = i;
+                while (i < length && PayloadPath.isNameChar(expression.charAt(i))) {
+                    i++;
+                }
+                if (i == start) {
+                    return null;
+                }
+                steps.add(new Step(expression.substring(start, i), deep));
+            }
+        }
+        // JsonPath's scan applies whatever follows $..[n] or $..* to the containers it passes rather
+        // than to the matched element, and drops some object members from wildcards after a scan:
+        // leave those forms to JsonPath
+        boolean scanned = false;
+        for (int j = 0; j < steps.size(); j++) {
+            Step step = steps.get(j);
+            boolean last = j == steps.size() - 1;
+            if ((scanned && step.selector == ANY) || (step.deep && !(step.selector instanceof String) && !last)) {
+                return null;
+            }
+            scanned |= step.deep;
+        }
+        return steps.isEmpty() ? null : steps.toArray(new Step[0]);
+    }
+}
@@ -0,0 +1,42 @@
+package com.ywdrtt.conductor.dao;
+
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+
+/**
+ * What EncryptingExecutionDAO needs from a workflow instance to process its payloads and those
+ * of its tasks: the definition, which selects the EncryptionPlan, and the instance-level
+ * overrides from the workflow's input and variables.
+ *
+ * It is a small immutable snapshot, so it can be cached instead of loading the whole WorkflowModel
+ * again for every task read and write.
+ */
+final class WorkflowContext {
+
+    private final String workflowId;
+    private final WorkflowDef workflowDefinition;
+    private final String clientId; // workflow input clientId, else workflow variables clientId; null when neither is set
+    private final Boolean encryptionEnabled; // workflow input _enableEncryption; null when not set
+
+    WorkflowContext(String workflowId, WorkflowDef workflowDefinition, String clientId, Boolean encryptionEnabled) {
+        this.workflowId = workflowId;
+        this.workflowDefinition = workflowDefinition;
+        this.clientId = clientId;
+        this.encryptionEnabled = encryptionEnabled;
+    }
+
+    String workflowId() {
+        return workflowId;
+    }
+
+    WorkflowDef workflowDefinition() {
+        return workflowDefinition;
+    }
+
+    String clientId() {
+        return clientId;
+    }
+
+    Boolean encryptionEnabled() {
+        return encryptionEnabled;
+    }
+}
@@ -0,0 +1,102 @@
+package com.ywdrtt.conductor.dao;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded, short-lived cache of WorkflowContexts by workflow ID, shared by every
+ * EncryptingExecutionDAO method. Task reads and writes only need a workflow's encryption
+ * context, and without this cache each of them loads the workflow from the delegate first.
+ *
+ * Entries expire after the TTL, which bounds how long a change made elsewhere (another server
+ * writing new workflow variables) can go unseen. Changes made through this DAO replace the entry
+ * right away. When the cache is full, expired entries are swept; if it is still full, new
+ * contexts are not cached until entries expire.
+ *
+ * Metrics:
+ * - conductor.encryption.workflow.context{result=hit}: delegate getWorkflow calls saved
+ * - conductor.encryption.workflow.context{result=miss}: contexts loaded from the delegate
+ * - conductor.encryption.workflow.context.size
+ */
+public final class WorkflowContextCache {
+
+    private static final class Entry {
+        private final WorkflowContext context;
+        private final long expiresAtNanos;
+
+        private Entry(WorkflowContext context, long expiresAtNanos) {
+            this.context = context;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Counter hits;
+    private final Counter misses;
+    private volatile long nextSweepNanos = System.nanoTime();
+
+    /**
+     * @param ttl how long a context is reused; zero disables caching
+     */
+    public WorkflowContextCache(Duration ttl, int maxSize, MeterRegistry meterRegistry) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.hits = Counter.builder("conductor.encryption.workflow.context").tag("result", "hit")
+                .description("Workflow reads saved by reusing a cached encryption context").register(meterRegistry);
+        this.misses = Counter.builder("conductor.encryption.workflow.context").tag("result", "miss")
+                .description("Encryption contexts loaded from the delegate ExecutionDAO").register(meterRegistry);
+        Gauge.builder("conductor.encryption.workflow.context.size", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * @param loader loads the context when it is not cached; may return null (workflow not found), which is not cached
+     */
+    WorkflowContext get(String workflowId, Function<String, WorkflowContext> loader) {
+        Entry entry = entries.get(workflowId);
+        if (entry != null && System.nanoTime() - entry.expiresAtNanos < 0) {
+            hits.increment();
+            return entry.context;
+        }
+        misses.increment();
+        WorkflowContext context = loader.apply(workflowId);
+        put(context);
+        return context;
+    }
+
+    void put(WorkflowContext context) {
+        if (context == null || context.workflowId() == null || ttlNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (entries.size() >= maxSize && !entries.containsKey(context.workflowId())) {
+            sweep(now);
+            if (entries.size() >= maxSize) {
+                return;
+            }
+        }
+        entries.put(context.workflowId(), new Entry(context, now + ttlNanos));
+    }
+
+    void invalidate(String workflowId) {
+        if (workflowId != null) {
+            entries.remove(workflowId);
+        }
+    }
+
+    // Drops expired entries, at most twice per TTL so a cache full of live entries is not scanned on every put
+    private void sweep(long now) {
+        if (now - nextSweepNanos < 0) {
+            return;
+        }
+        nextSweepNanos = now + ttlNanos / 2;
+        entries.values().removeIf(entry -> now - entry.expiresAtNanos >= 0);
+    }
+}
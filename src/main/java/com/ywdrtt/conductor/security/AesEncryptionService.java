@@ -0,0 +1,135 @@
+package com.ywdrtt.conductor.security;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * AES Encryption Service with a versioned ciphertext format.
+ *
+ * - "v3:" + base64(wrapped key length (2 bytes) || wrapped data key || iv || ciphertext || tag):
+ *   envelope encryption. The value is encrypted with AES/GCM and a random 96-bit IV under a data
+ *   key from KmsClient.generateDataKey, and the data key, wrapped by the KMS, is stored with it.
+ *   The client ID is additional authenticated data, so a value cannot be moved to another
+ *   client's payload undetected. Everything is encrypted in this format.
+ * - "v2:" + base64(iv || ciphertext || tag): the same AES/GCM encryption directly under the
+ *   client's key. Decrypt-only.
+ * - Anything without a version prefix is the legacy format, AES/CBC with a fixed IV. It is still
+ *   decrypted so values stored before the switch remain readable; it is never written.
+ *   (Base64 never contains ':', so the prefix cannot be confused with a legacy value.)
+ *
+ * Data keys are only cheap when the KmsClient caches them (CachingKmsClient); a plain KmsClient
+ * generates and unwraps one per value.
+ *
+ * Ciphers are created once per thread and re-initialized for every value instead of being looked
+ * up through the provider each time; Cipher is not thread-safe, so they are never shared.
+ *
+ * WARNING: keys still come from the demo AesKmsClient. Servers running an older version cannot
+ * read v3 values, so upgrade every server before new values are written.
+ */
+@Slf4j
+public class AesEncryptionService implements EncryptionService {
+
+    static final String V3_PREFIX = "v3:";
+    static final String V2_PREFIX = "v2:";
+    private static final int GCM_IV_BYTES = 12;
+    private static final int GCM_TAG_BITS = 128;
+
+    // Legacy format only: the fixed IV all values were encrypted with before v2
+    private static final byte[] LEGACY_IV = "ThisIsADummyIV12".getBytes(StandardCharsets.UTF_8); // 16 bytes for AES
+
+    private static final ThreadLocal<Cipher> GCM = ThreadLocal.withInitial(() -> newCipher("AES/GCM/NoPadding"));
+    private static final ThreadLocal<Cipher> LEGACY_CBC = ThreadLocal.withInitial(() -> newCipher("AES/CBC/PKCS5Padding"));
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private final KmsClient kmsClient;
+
+    public AesEncryptionService(KmsClient kmsClient) {
+        this.kmsClient = kmsClient;
+        log.info("AesEncryptionService writes envelope-encrypted AES-GCM ({}) values; {} and legacy fixed-IV CBC values are decrypt-only.",
+                V3_PREFIX, V2_PREFIX);
+    }
+
+    @Override
+    public String encrypt(String plaintext, String clientId) throws Exception {
+        if (plaintext == null || plaintext.isEmpty()) {
+            return plaintext;
+        }
+        DataKey dataKey = kmsClient.generateDataKey(clientId);
+        byte[] wrappedKey = dataKey.wrappedKey();
+        byte[] plainBytes = plaintext.getBytes(StandardCharsets.UTF_8);
+
+        byte[] iv = new byte[GCM_IV_BYTES];
+        RANDOM.get().nextBytes(iv);
+        Cipher cipher = GCM.get();
+        cipher.init(Cipher.ENCRYPT_MODE, dataKey.key(), new GCMParameterSpec(GCM_TAG_BITS, iv));
+        cipher.updateAAD(aad(clientId));
+
+        int header = 2 + wrappedKey.length;
+        byte[] out = new byte[header + GCM_IV_BYTES + cipher.getOutputSize(plainBytes.length)];
+        out[0] = (byte) (wrappedKey.length >>> 8);
+        out[1] = (byte) wrappedKey.length;
+        System.arraycopy(wrappedKey, 0, out, 2, wrappedKey.length);
+        System.arraycopy(iv, 0, out, header, GCM_IV_BYTES);
+        cipher.doFinal(plainBytes, 0, plainBytes.length, out, header + GCM_IV_BYTES);
+        return V3_PREFIX + Base64.getEncoder().encodeToString(out);
+    }
+
+    @Override
+    public String decrypt(String ciphertext, String clientId) throws Exception {
+        if (ciphertext == null || ciphertext.isEmpty()) {
+            return ciphertext;
+        }
+        if (ciphertext.startsWith(V3_PREFIX)) {
+            byte[] in = Base64.getDecoder().decode(ciphertext.substring(V3_PREFIX.length()));
+            int wrappedLength = in.length < 2 ? -1 : (in[0] & 0xff) << 8 | (in[1] & 0xff);
+            int header = 2 + wrappedLength;
+            if (wrappedLength <= 0 || in.length < header + GCM_IV_BYTES + GCM_TAG_BITS / 8) {
+                throw new GeneralSecurityException("Truncated " + V3_PREFIX + " ciphertext");
+            }
+            SecretKey dataKey = kmsClient.decryptDataKey(clientId, Arrays.copyOfRange(in, 2, header));
+            return decryptGcm(dataKey, in, header, clientId);
+        }
+        SecretKey secretKey = kmsClient.getEncryptionKey(clientId);
+        if (ciphertext.startsWith(V2_PREFIX)) {
+            byte[] in = Base64.getDecoder().decode(ciphertext.substring(V2_PREFIX.length()));
+            if (in.length < GCM_IV_BYTES + GCM_TAG_BITS / 8) {
+                throw new GeneralSecurityException("Truncated " + V2_PREFIX + " ciphertext");
+            }
+            return decryptGcm(secretKey, in, 0, clientId);
+        }
+        Cipher cipher = LEGACY_CBC.get();
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(LEGACY_IV));
+        byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(ciphertext));
+        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    }
+
+    // in[offset..] is iv || ciphertext || tag
+    private static String decryptGcm(SecretKey key, byte[] in, int offset, String clientId) throws GeneralSecurityException {
+        Cipher cipher = GCM.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, in, offset, GCM_IV_BYTES));
+        cipher.updateAAD(aad(clientId));
+        byte[] decryptedBytes = cipher.doFinal(in, offset + GCM_IV_BYTES, in.length - offset - GCM_IV_BYTES);
+        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] aad(String clientId) {
+        return clientId == null ? new byte[0] : clientId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(transformation + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ywdrtt.conductor.security;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * DUMMY AES KMS Client for demonstration purposes.
+ * WARNING: This implementation is NOT secure for production.
+ * - The key is generated in memory at startup and lost on restart.
+ * - No key rotation, access control or secure key management.
+ * - All client IDs use the same key. In a real KMS each clientId maps to its own managed key.
+ */
+@Slf4j
+public class AesKmsClient implements KmsClient {
+
+    private final SecretKey masterDemoKey; // Single key for all clients in this demo
+
+    public AesKmsClient() throws NoSuchAlgorithmException {
+        // In a real KMS, this key would be securely retrieved, not generated like this.
+        KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+        keyGen.init(256);
+        this.masterDemoKey = keyGen.generateKey();
+        log.warn("AesKmsClient is for DEMO ONLY and NOT SECURE: one in-memory key for every client. Do not use it in production.");
+    }
+
+    @Override
+    public SecretKey getEncryptionKey(String clientId) {
+        log.debug("Retrieving demo key for clientId: {}", clientId);
+        return masterDemoKey;
+    }
+}
@@ -0,0 +1,336 @@
+package com.ywdrtt.conductor.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EncryptionService decorator for sensitive values that repeat: the same customer or account
+ * number flows through every task of a workflow and is decrypted again at each hop.
+ *
+ * - decrypt: plaintexts are cached per client ID by ciphertext, so a value already decrypted, or
+ *   encrypted, by this server is returned without touching the cipher. A ciphertext is only found
+ *   in its own client's cache, so a value moved to another client's payload still fails to decrypt.
+ * - encryptDeterministic: the ciphertext of each value is cached per client ID, keyed by an HMAC
+ *   of the plaintext under a key generated at startup, and reused for the same value. Equal values
+ *   then get equal ciphertexts, which reveals which stored values are equal: the DAO only uses it
+ *   for paths flagged in _deterministicPaths.
+ * - encrypt stays randomized; its result is added to the decryption cache.
+ *
+ * Each client has at most maxEntriesPerClient plaintexts and as many ciphertexts, in segmented
+ * LRU maps (up to 16 segments, fewer when maxEntriesPerClient is smaller, so the bound holds), and
+ * entries expire after ttl. Plaintexts are held as char arrays that are zeroed when an entry is
+ * evicted, expires, is replaced or the service is closed; a background task sweeps expired entries
+ * so idle clients' values do not linger, and drops the maps of clients left with none. Strings
+ * handed to callers cannot be wiped and live as long as the caller keeps them.
+ *
+ * Metrics:
+ * - conductor.encryption.value.cache{operation=decrypt|encrypt, result=hit|miss}; encrypt counts
+ *   deterministic encryptions only
+ * - conductor.encryption.value.cache.hit.ratio{operation=decrypt|encrypt}
+ * - conductor.encryption.value.cache.size: cached plaintexts and ciphertexts, all clients
+ */
+public class CachingEncryptionService implements EncryptionService, AutoCloseable {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final EncryptionService delegate;
+    private final long ttlNanos;
+    private final int segmentCount;
+    private final int segmentCapacity;
+    private final Map<String, ClientValues> clients = new ConcurrentHashMap<>();
+    private final SecretKey fingerprintKey;
+    private final ThreadLocal<Mac> fingerprints;
+    private final ScheduledExecutorService sweeper;
+    private final Counter decryptHits;
+    private final Counter decryptMisses;
+    private final Counter encryptHits;
+    private final Counter encryptMisses;
+
+    /**
+     * @param ttl how long a value is reused; keep it below the data key TTL, as a reused ciphertext
+     *            extends the life of the data key it was encrypted with
+     * @param maxEntriesPerClient bound on cached plaintexts, and on cached ciphertexts, per client
+     */
+    public CachingEncryptionService(EncryptionService delegate, Duration ttl, int maxEntriesPerClient, MeterRegistry meterRegistry)
+            throws GeneralSecurityException {
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.segmentCount = Math.max(1, Math.min(MAX_SEGMENTS, maxEntriesPerClient));
+        this.segmentCapacity = Math.max(1, maxEntriesPerClient / segmentCount);
+        this.fingerprintKey = KeyGenerator.getInstance("HmacSHA256").generateKey();
+        this.fingerprints = ThreadLocal.withInitial(this::newMac);
+        this.decryptHits = Counter.builder("conductor.encryption.value.cache").tag("operation", "decrypt").tag("result", "hit").register(meterRegistry);
+        this.decryptMisses = Counter.builder("conductor.encryption.value.cache").tag("operation", "decrypt").tag("result", "miss").register(meterRegistry);
+        this.encryptHits = Counter.builder("conductor.encryption.value.cache").tag("operation", "encrypt").tag("result", "hit").register(meterRegistry);
+        this.encryptMisses = Counter.builder("conductor.encryption.value.cache").tag("operation", "encrypt").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("conductor.encryption.value.cache.hit.ratio", this, service -> ratio(service.decryptHits, service.decryptMisses))
+                .tag("operation", "decrypt").register(meterRegistry);
+        Gauge.builder("conductor.encryption.value.cache.hit.ratio", this, service -> ratio(service.encryptHits, service.encryptMisses))
+                .tag("operation", "encrypt").register(meterRegistry);
+        Gauge.builder("conductor.encryption.value.cache.size", this, CachingEncryptionService::size).register(meterRegistry);
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "encryption-value-cache-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepNanos = Math.min(Math.max(ttlNanos / 2, TimeUnit.MILLISECONDS.toNanos(10)), TimeUnit.SECONDS.toNanos(30));
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepNanos, sweepNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String encrypt(String plaintext, String clientId) throws Exception {
+        String ciphertext = delegate.encrypt(plaintext, clientId);
+        if (plaintext != null && !plaintext.isEmpty()) {
+            ClientValues values = values(clientId);
+            values.plaintexts.segment(ciphertext).put(ciphertext, plaintext, System.nanoTime() + ttlNanos);
+            values.wipeIfRetired();
+        }
+        return ciphertext;
+    }
+
+    @Override
+    public String encryptDeterministic(String plaintext, String clientId) throws Exception {
+        if (plaintext == null || plaintext.isEmpty()) {
+            return delegate.encrypt(plaintext, clientId);
+        }
+        ByteBuffer fingerprint = ByteBuffer.wrap(fingerprints.get().doFinal(plaintext.getBytes(StandardCharsets.UTF_8)));
+        ClientValues values = values(clientId);
+        Segment<ByteBuffer> segment = values.ciphertexts.segment(fingerprint);
+        String cached = segment.get(fingerprint, System.nanoTime());
+        if (cached != null) {
+            encryptHits.increment();
+            return cached;
+        }
+        encryptMisses.increment();
+        String ciphertext = delegate.encrypt(plaintext, clientId);
+        long expiresAtNanos = System.nanoTime() + ttlNanos;
+        segment.put(fingerprint, ciphertext, expiresAtNanos);
+        values.plaintexts.segment(ciphertext).put(ciphertext, plaintext, expiresAtNanos);
+        values.wipeIfRetired();
+        return ciphertext;
+    }
+
+    @Override
+    public String decrypt(String ciphertext, String clientId) throws Exception {
+        if (ciphertext == null || ciphertext.isEmpty()) {
+            return delegate.decrypt(ciphertext, clientId);
+        }
+        ClientValues values = values(clientId);
+        Segment<String> segment = values.plaintexts.segment(ciphertext);
+        String cached = segment.get(ciphertext, System.nanoTime());
+        if (cached != null) {
+            decryptHits.increment();
+            return cached;
+        }
+        decryptMisses.increment();
+        String plaintext = delegate.decrypt(ciphertext, clientId);
+        segment.put(ciphertext, plaintext, System.nanoTime() + ttlNanos);
+        values.wipeIfRetired();
+        return plaintext;
+    }
+
+    /**
+     * Stops the sweeper and zeroes every cached value.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        for (ClientValues values : clients.values()) {
+            values.plaintexts.clear();
+            values.ciphertexts.clear();
+        }
+        clients.clear();
+    }
+
+    private ClientValues values(String clientId) {
+        return clients.computeIfAbsent(clientId, id -> new ClientValues());
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(fingerprintKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    // Runs on the sweeper thread
+    private void sweep() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, ClientValues> client : clients.entrySet()) {
+            ClientValues values = client.getValue();
+            values.plaintexts.removeExpired(now);
+            values.ciphertexts.removeExpired(now);
+            // Retired before the emptiness check: a value put after it is wiped by its writer
+            values.retired = true;
+            if (values.plaintexts.size() == 0 && values.ciphertexts.size() == 0) {
+                clients.remove(client.getKey(), values);
+            } else {
+                values.retired = false;
+            }
+        }
+    }
+
+    // Clients with cached values, or not swept since their last ones expired
+    int clientCount() {
+        return clients.size();
+    }
+
+    private int size() {
+        int size = 0;
+        for (ClientValues values : clients.values()) {
+            size += values.plaintexts.size() + values.ciphertexts.size();
+        }
+        return size;
+    }
+
+    private static double ratio(Counter hits, Counter misses) {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private final class ClientValues {
+        private final Segments<String> plaintexts = new Segments<>(); // by ciphertext
+        private final Segments<ByteBuffer> ciphertexts = new Segments<>(); // by plaintext fingerprint
+        private volatile boolean retired; // being or already removed from clients by the sweeper
+
+        // After a put: values put into maps the sweeper has dropped would never be zeroed
+        private void wipeIfRetired() {
+            if (retired) {
+                plaintexts.clear();
+                ciphertexts.clear();
+            }
+        }
+    }
+
+    private final class Segments<K> {
+
+        @SuppressWarnings("unchecked")
+        private final Segment<K>[] segments = new Segment[segmentCount];
+
+        private Segments() {
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = new Segment<>(segmentCapacity);
+            }
+        }
+
+        private Segment<K> segment(K key) {
+            return segments[(key.hashCode() & Integer.MAX_VALUE) % segmentCount];
+        }
+
+        private void removeExpired(long now) {
+            for (Segment<K> segment : segments) {
+                segment.removeExpired(now);
+            }
+        }
+
+        private void clear() {
+            for (Segment<K> segment : segments) {
+                segment.clear();
+            }
+        }
+
+        private int size() {
+            int size = 0;
+            for (Segment<K> segment : segments) {
+                size += segment.size();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Access-ordered map under one lock. Values are copied in and out of their char arrays under
+     * the lock, so an array is never zeroed while it is being read.
+     */
+    private static final class Segment<K> {
+
+        private final Map<K, Entry> entries;
+
+        private Segment(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry> eldest) {
+                    if (size() > capacity) {
+                        eldest.getValue().wipe();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private synchronized String get(K key, long now) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (now - entry.expiresAtNanos >= 0) {
+                entries.remove(key);
+                entry.wipe();
+                return null;
+            }
+            return new String(entry.value);
+        }
+
+        private synchronized void put(K key, String value, long expiresAtNanos) {
+            Entry previous = entries.put(key, new Entry(value.toCharArray(), expiresAtNanos));
+            if (previous != null) {
+                previous.wipe();
+            }
+        }
+
+        private synchronized void removeExpired(long now) {
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (now - entry.expiresAtNanos >= 0) {
+                    it.remove();
+                    entry.wipe();
+                }
+            }
+        }
+
+        private synchronized void clear() {
+            entries.values().forEach(Entry::wipe);
+            entries.clear();
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    private static final class Entry {
+        private final char[] value;
+        private final long expiresAtNanos;
+
+        private Entry(char[] value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private void wipe() {
+            Arrays.fill(value, '\0');
+        }
+    }
+}
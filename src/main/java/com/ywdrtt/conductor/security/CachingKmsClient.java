@@ -0,0 +1,231 @@
+package com.ywdrtt.conductor.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * KmsClient decorator that keeps the KMS off the per-field path of envelope encryption.
+ *
+ * - generateDataKey: each client has one active data key, reused for every value until it is
+ *   dataKeyTtl old or has encrypted maxUses values. A background task generates its replacement
+ *   shortly before either limit (at 75%), so callers normally never wait for the KMS. Keys of
+ *   clients that stopped encrypting are not refreshed and are dropped once expired.
+ * - decryptDataKey: unwrapped keys are cached by client and wrapped key for dataKeyTtl, so all
+ *   values sharing a data key cost one KMS call. Keys this client generated are cached up front.
+ * - getEncryptionKey (v2 and legacy values only) goes straight to the delegate.
+ *
+ * Metrics:
+ * - conductor.encryption.kms.requests{operation=generate|decrypt}: calls to the delegate
+ * - conductor.encryption.kms.data.keys: active data keys
+ */
+@Slf4j
+public class CachingKmsClient implements KmsClient, AutoCloseable {
+
+    private static final double REFRESH_AHEAD = 0.75;
+
+    private final KmsClient delegate;
+    private final long ttlNanos;
+    private final long maxUses;
+    private final int maxCachedKeys;
+
+    private final Map<String, ActiveKey> activeKeys = new ConcurrentHashMap<>();
+    private final Map<String, Object> generateLocks = new ConcurrentHashMap<>();
+    private final Map<WrappedKey, UnwrappedKey> unwrappedKeys = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher;
+    private final Counter generateRequests;
+    private final Counter decryptRequests;
+
+    /**
+     * @param dataKeyTtl how long a data key encrypts new values, and how long an unwrapped key is kept
+     * @param maxUses values one data key may encrypt
+     * @param maxCachedKeys bound on cached unwrapped keys
+     */
+    public CachingKmsClient(KmsClient delegate, Duration dataKeyTtl, long maxUses, int maxCachedKeys, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.ttlNanos = dataKeyTtl.toNanos();
+        this.maxUses = maxUses;
+        this.maxCachedKeys = maxCachedKeys;
+        this.generateRequests = Counter.builder("conductor.encryption.kms.requests").tag("operation", "generate").register(meterRegistry);
+        this.decryptRequests = Counter.builder("conductor.encryption.kms.requests").tag("operation", "decrypt").register(meterRegistry);
+        Gauge.builder("conductor.encryption.kms.data.keys", activeKeys, Map::size).register(meterRegistry);
+
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kms-data-key-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkNanos = Math.min(Math.max(ttlNanos / 10, TimeUnit.MILLISECONDS.toNanos(10)), TimeUnit.SECONDS.toNanos(30));
+        refresher.scheduleWithFixedDelay(this::refresh, checkNanos, checkNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public SecretKey getEncryptionKey(String clientId) throws Exception {
+        return delegate.getEncryptionKey(clientId);
+    }
+
+    @Override
+    public DataKey generateDataKey(String clientId) throws Exception {
+        while (true) {
+            ActiveKey active = activeKeys.get(clientId);
+            if (active != null && active.tryUse(System.nanoTime())) {
+                return active.dataKey;
+            }
+            rotate(clientId, active);
+        }
+    }
+
+    @Override
+    public SecretKey decryptDataKey(String clientId, byte[] wrappedKey) throws Exception {
+        WrappedKey id = new WrappedKey(clientId, wrappedKey);
+        UnwrappedKey cached = unwrappedKeys.get(id);
+        long now = System.nanoTime();
+        if (cached != null && now - cached.expiresAtNanos < 0) {
+            return cached.key;
+        }
+        decryptRequests.increment();
+        SecretKey key = delegate.decryptDataKey(clientId, wrappedKey);
+        cache(id, key, now);
+        return key;
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Replaces the client's active key unless another thread already replaced 'stale'.
+     */
+    private void rotate(String clientId, ActiveKey stale) throws Exception {
+        synchronized (generateLocks.computeIfAbsent(clientId, id -> new Object())) {
+            ActiveKey current = activeKeys.get(clientId);
+            if (current != stale && current != null && current.usable(System.nanoTime())) {
+                return;
+            }
+            activeKeys.put(clientId, newActiveKey(clientId));
+        }
+    }
+
+    private ActiveKey newActiveKey(String clientId) throws Exception {
+        generateRequests.increment();
+        DataKey dataKey = delegate.generateDataKey(clientId);
+        long now = System.nanoTime();
+        cache(new WrappedKey(clientId, dataKey.wrappedKey()), dataKey.key(), now);
+        return new ActiveKey(dataKey, now + ttlNanos);
+    }
+
+    private void cache(WrappedKey id, SecretKey key, long now) {
+        if (unwrappedKeys.size() >= maxCachedKeys) {
+            unwrappedKeys.values().removeIf(entry -> now - entry.expiresAtNanos >= 0);
+            if (unwrappedKeys.size() >= maxCachedKeys) {
+                return;
+            }
+        }
+        unwrappedKeys.put(id, new UnwrappedKey(key, now + ttlNanos));
+    }
+
+    // Runs on the refresher thread: replaces keys close to a limit before callers hit it
+    private void refresh() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, ActiveKey> entry : activeKeys.entrySet()) {
+            String clientId = entry.getKey();
+            ActiveKey active = entry.getValue();
+            if (!active.nearLimit(now)) {
+                continue;
+            }
+            if (!active.usedSinceCreated()) {
+                if (!active.usable(now)) {
+                    activeKeys.remove(clientId, active); // idle client: the next encryption generates on demand
+                }
+                continue;
+            }
+            try {
+                rotate(clientId, active);
+            } catch (Exception e) {
+                log.warn("Could not refresh data key for client {}; it is generated on demand once expired. Error: {}", clientId, e.getMessage());
+            }
+        }
+        unwrappedKeys.values().removeIf(entry -> now - entry.expiresAtNanos >= 0);
+    }
+
+    private final class ActiveKey {
+        private final DataKey dataKey;
+        private final long expiresAtNanos;
+        private final long refreshAtNanos;
+        private final AtomicLong uses = new AtomicLong();
+
+        private ActiveKey(DataKey dataKey, long expiresAtNanos) {
+            this.dataKey = dataKey;
+            this.expiresAtNanos = expiresAtNanos;
+            this.refreshAtNanos = expiresAtNanos - (long) (ttlNanos * (1 - REFRESH_AHEAD));
+        }
+
+        private boolean usable(long now) {
+            return now - expiresAtNanos < 0 && uses.get() < maxUses;
+        }
+
+        // Claims one use of the budget
+        private boolean tryUse(long now) {
+            return now - expiresAtNanos < 0 && uses.incrementAndGet() <= maxUses;
+        }
+
+        private boolean nearLimit(long now) {
+            return now - refreshAtNanos >= 0 || uses.get() >= maxUses * REFRESH_AHEAD;
+        }
+
+        private boolean usedSinceCreated() {
+            return uses.get() > 0;
+        }
+    }
+
+    private static final class UnwrappedKey {
+        private final SecretKey key;
+        private final long expiresAtNanos;
+
+        private UnwrappedKey(SecretKey key, long expiresAtNanos) {
+            this.key = key;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private static final class WrappedKey {
+        private final String clientId;
+        private final byte[] wrappedKey;
+        private final int hash;
+
+        private WrappedKey(String clientId, byte[] wrappedKey) {
+            this.clientId = clientId;
+            this.wrappedKey = wrappedKey;
+            this.hash = 31 * clientId.hashCode() + Arrays.hashCode(wrappedKey);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof WrappedKey)) {
+                return false;
+            }
+            WrappedKey other = (WrappedKey) o;
+            return clientId.equals(other.clientId) && Arrays.equals(wrappedKey, other.wrappedKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
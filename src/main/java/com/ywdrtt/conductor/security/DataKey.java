@@ -0,0 +1,29 @@
+package com.ywdrtt.conductor.security;
+
+import javax.crypto.SecretKey;
+
+/**
+ * A data key for envelope encryption: the plaintext key, which never leaves memory, and the same
+ * key wrapped by the KMS, which is stored with every value it encrypts.
+ */
+public final class DataKey {
+
+    private final SecretKey key;
+    private final byte[] wrappedKey;
+
+    public DataKey(SecretKey key, byte[] wrappedKey) {
+        this.key = key;
+        this.wrappedKey = wrappedKey.clone();
+    }
+
+    public SecretKey key() {
+        return key;
+    }
+
+    /**
+     * @return the wrapped key; callers must not modify it
+     */
+    public byte[] wrappedKey() {
+        return wrappedKey;
+    }
+}
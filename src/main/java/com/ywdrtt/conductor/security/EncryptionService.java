@@ -0,0 +1,34 @@
+package com.ywdrtt.conductor.security;
+
+public interface EncryptionService {
+    /**
+     * Encrypts a plaintext string.
+     * @param plaintext The string to encrypt.
+     * @param clientId The ID of the client whose key should be used.
+     * @return The base64-encoded ciphertext.
+     * @throws Exception if encryption fails.
+     */
+    String encrypt(String plaintext, String clientId) throws Exception;
+
+    /**
+     * Decrypts a base64-encoded ciphertext.
+     * @param ciphertext The base64-encoded ciphertext.
+     * @param clientId The ID of the client whose key should be used.
+     * @return The decrypted plaintext.
+     * @throws Exception if decryption fails.
+     */
+    String decrypt(String ciphertext, String clientId) throws Exception;
+
+    /**
+     * Encrypts a value from a path flagged as safe for deterministic encryption: an implementation
+     * may return the ciphertext it produced earlier for the same value and client, which reveals
+     * that the two values are equal. By default every value is encrypted afresh.
+     * @param plaintext The string to encrypt.
+     * @param clientId The ID of the client whose key should be used.
+     * @return The base64-encoded ciphertext.
+     * @throws Exception if encryption fails.
+     */
+    default String encryptDeterministic(String plaintext, String clientId) throws Exception {
+        return encrypt(plaintext, clientId);
+    }
+}
@@ -0,0 +1,47 @@
+package com.ywdrtt.conductor.security;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+public interface KmsClient {
+    /**
+     * Retrieves an encryption/decryption key for a given client ID.
+     * In a real scenario, this would involve secure communication with a KMS.
+     * @param clientId The ID of the client for whom the key is needed.
+     * @return A SecretKey for encryption/decryption.
+     * @throws Exception if key retrieval fails.
+     */
+    SecretKey getEncryptionKey(String clientId) throws Exception;
+
+    /**
+     * Generates a new data key for envelope encryption: values are encrypted with the plaintext key
+     * and the wrapped copy, encrypted under the client's key, is stored next to them.
+     * A real KMS does this server-side (GenerateDataKey); by default it is done locally with
+     * AES key wrap under getEncryptionKey(clientId).
+     * @param clientId The ID of the client whose key wraps the data key.
+     * @return The data key, in plaintext and wrapped.
+     * @throws Exception if key generation fails.
+     */
+    default DataKey generateDataKey(String clientId) throws Exception {
+        KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+        keyGen.init(256);
+        SecretKey dataKey = keyGen.generateKey();
+        Cipher cipher = Cipher.getInstance("AESWrap");
+        cipher.init(Cipher.WRAP_MODE, getEncryptionKey(clientId));
+        return new DataKey(dataKey, cipher.wrap(dataKey));
+    }
+
+    /**
+     * Unwraps a data key returned by generateDataKey.
+     * @param clientId The ID of the client whose key wrapped the data key.
+     * @param wrappedKey The wrapped data key, as stored with the ciphertext.
+     * @return The plaintext data key.
+     * @throws Exception if the key cannot be unwrapped, e.g. it belongs to another client.
+     */
+    default SecretKey decryptDataKey(String clientId, byte[] wrappedKey) throws Exception {
+        Cipher cipher = Cipher.getInstance("AESWrap");
+        cipher.init(Cipher.UNWRAP_MODE, getEncryptionKey(clientId));
+        return (SecretKey) cipher.unwrap(wrappedKey, "AES", Cipher.SECRET_KEY);
+    }
+}
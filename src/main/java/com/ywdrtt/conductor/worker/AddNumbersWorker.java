@@ -1,24 +1,22 @@
 package com.ywdrtt.conductor.worker;
 
 import com.ywdrtt.conductor.worker.abstractions.ConductorWorker;
+import com.ywdrtt.conductor.worker.abstractions.In;
 import com.ywdrtt.conductor.worker.abstractions.TaskHandler;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-
 @Slf4j
 @Component
 @ConductorWorker("addnumbers")
 public class AddNumbersWorker {
 
-    @TaskHandler
-    public Map<String, Object> thisCanBeAnything(Map<String, Object> input) {
-        int sum = Integer.parseInt((String) input.get("num1")) +
-                Integer.parseInt((String) input.get("num2"));
+    @TaskHandler(output = "addition")
+    public int thisCanBeAnything(@In("num1") int num1, @In("num2") int num2) {
+        int sum = num1 + num2;
 
-        log.info("Handled add numbers task: {} + {} = {}", input.get("num1"), input.get("num2"), sum);
-        return Map.of("addition", sum);
+        log.info("Handled add numbers task: {} + {} = {}", num1, num2, sum);
+        return sum;
     }
 }
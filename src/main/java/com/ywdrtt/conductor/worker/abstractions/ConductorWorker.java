@@ -6,4 +6,12 @@ import java.lang.annotation.*;
 @Documented
 public @interface ConductorWorker {
     String value(); // Task Name
+
+    int batchSize() default 1; // > 1 polls and reports tasks in batches of up to this size
+
+    int threadCount() default 1; // handler threads for this worker (initial value when adaptive)
+
+    int minThreadCount() default 1; // adaptive lower bound
+
+    int maxThreadCount() default 0; // adaptive upper bound; 0 keeps the pool fixed at threadCount
 }
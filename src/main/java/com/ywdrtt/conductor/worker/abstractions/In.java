@@ -0,0 +1,11 @@
+package com.ywdrtt.conductor.worker.abstractions;
+
+import java.lang.annotation.*;
+
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+// Binds a @TaskHandler parameter to one key of the task input
+public @interface In {
+    String value(); // Input key
+}
@@ -6,4 +6,5 @@ import java.lang.annotation.*;
 @Documented
 // Annotation for the task method
 public @interface TaskHandler {
+    String output() default ""; // output key for scalar return values; POJOs/records are flattened when empty
 }
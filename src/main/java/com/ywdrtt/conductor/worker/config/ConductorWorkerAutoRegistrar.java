@@ -3,6 +3,7 @@ package com.ywdrtt.conductor.worker.config;
 import com.netflix.conductor.client.worker.Worker;
 import com.netflix.conductor.common.metadata.tasks.Task;
 import com.netflix.conductor.common.metadata.tasks.TaskResult;
+import com.ywdrtt.conductor.worker.abstractions.ConductorTaskHandler;
 import com.ywdrtt.conductor.worker.abstractions.ConductorWorker;
 import com.ywdrtt.conductor.worker.abstractions.TaskHandler;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +19,7 @@ import java.util.*;
 @RequiredArgsConstructor
 public class ConductorWorkerAutoRegistrar implements BeanPostProcessor {
     private final List<Worker> dynamicWorkers = new ArrayList<>();
+    private final Map<String, ConductorWorker> workerSettings = new HashMap<>();
 
     @Override
     public Object postProcessAfterInitialization(Object bean, String beanName) {
@@ -25,6 +27,11 @@ public class ConductorWorkerAutoRegistrar implements BeanPostProcessor {
         if (annotation == null) return bean;
 
         String taskName = annotation.value();
+        if (annotation.minThreadCount() < 1 || annotation.minThreadCount() > annotation.threadCount()) {
+            throw new IllegalArgumentException("Worker '" + taskName + "' (" + bean.getClass().getSimpleName()
+                    + "): minThreadCount must be between 1 and threadCount (" + annotation.threadCount()
+                    + "), was " + annotation.minThreadCount());
+        }
 
         // Search for method annotated with @TaskHandler
         Optional<Method> maybeTaskHandler = Arrays.stream(bean.getClass().getDeclaredMethods())
@@ -39,13 +46,9 @@ public class ConductorWorkerAutoRegistrar implements BeanPostProcessor {
 
         Method taskHandler = maybeTaskHandler.get();
 
-        // Validate signature
-        if (!Map.class.isAssignableFrom(taskHandler.getReturnType()) ||
-                taskHandler.getParameterCount() != 1 ||
-                !Map.class.isAssignableFrom(taskHandler.getParameterTypes()[0])) {
-            throw new IllegalStateException("Method " + taskHandler.getName() +
-                    " must have signature: Map<String,Object> method(Map<String,Object>)");
-        }
+        // Bind once here so each execution is a direct call instead of Method.invoke;
+        // typed parameters and return values get their conversions resolved now as well
+        ConductorTaskHandler handler = TaskHandlerBinder.bind(bean, taskHandler);
 
         Worker worker = new Worker() {
             public String getTaskDefName() { return taskName; }
@@ -53,9 +56,7 @@ public class ConductorWorkerAutoRegistrar implements BeanPostProcessor {
             public TaskResult execute(Task task) {
                 TaskResult result = new TaskResult(task);
                 try {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> output = (Map<String, Object>) taskHandler.invoke(bean, task.getInputData());
-                    result.setOutputData(output);
+                    result.setOutputData(handler.handle(task.getInputData()));
                     result.setStatus(TaskResult.Status.COMPLETED);
                 } catch (Exception e) {
                     result.setStatus(TaskResult.Status.FAILED);
@@ -66,6 +67,7 @@ public class ConductorWorkerAutoRegistrar implements BeanPostProcessor {
         };
 
         dynamicWorkers.add(worker);
+        workerSettings.put(taskName, annotation);
         log.info("Registered dynamic worker: {}", taskName);
         return bean;
     }
@@ -73,6 +75,10 @@ public class ConductorWorkerAutoRegistrar implements BeanPostProcessor {
     public List<Worker> getRegisteredWorkers() {
         return Collections.unmodifiableList(dynamicWorkers);
     }
+
+    public ConductorWorker getWorkerSettings(Worker worker) {
+        return workerSettings.get(worker.getTaskDefName());
+    }
 }
 
 
@@ -1,36 +1,100 @@
 package com.ywdrtt.conductor.worker.config;
 
 
-import com.netflix.conductor.client.automator.TaskRunnerConfigurer;
 import com.netflix.conductor.client.http.TaskClient;
 import com.netflix.conductor.client.worker.Worker;
+import com.ywdrtt.conductor.worker.abstractions.ConductorWorker;
+import com.ywdrtt.conductor.worker.runtime.AdaptiveConcurrencyController;
+import com.ywdrtt.conductor.worker.runtime.PollMetrics;
+import com.ywdrtt.conductor.worker.runtime.TaskAcquisitionStrategyFactory;
+import com.ywdrtt.conductor.worker.runtime.TaskPoller;
+import com.ywdrtt.conductor.worker.runtime.TaskResultJournal;
+import com.ywdrtt.conductor.worker.runtime.TaskResultReporter;
+import com.ywdrtt.conductor.worker.runtime.VirtualThreads;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
+// conductor.worker.enabled=false keeps the handlers registered but starts no pollers (e.g. in tests without a server)
 @Component
+@ConditionalOnProperty(name = "conductor.worker.enabled", havingValue = "true", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class ConductorWorkerStarter implements SmartInitializingSingleton {
 
     private final TaskClient taskClient;
     private final ConductorWorkerAutoRegistrar registrar;
-    private TaskRunnerConfigurer configurer;
+    private final TaskAcquisitionStrategyFactory acquisitionStrategyFactory;
+    private final MeterRegistry meterRegistry;
+    private final List<TaskPoller> pollers = new ArrayList<>();
+    private AdaptiveConcurrencyController concurrencyController;
+    private TaskResultReporter reporter;
+
+    // Runs each polled task on its own virtual thread (Java 21+); threadCount then only sizes the semaphore
+    @Value("${conductor.worker.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${conductor.worker.reporting.queue-capacity:1000}")
+    private int reportQueueCapacity;
+
+    @Value("${conductor.worker.reporting.batch-size:50}")
+    private int reportBatchSize;
+
+    @Value("${conductor.worker.reporting.threads:2}")
+    private int reportThreads;
+
+    @Value("${conductor.worker.reporting.max-attempts:10}")
+    private int reportMaxAttempts;
+
+    // Parallel updateTask calls per batch; Conductor has no bulk update endpoint
+    @Value("${conductor.worker.reporting.max-in-flight:8}")
+    private int reportMaxInFlight;
+
+    // Where results still unreported at shutdown are kept for the next start; empty disables it
+    @Value("${conductor.worker.reporting.journal-file:}")
+    private String reportJournalFile;
 
     @Override
     public void afterSingletonsInstantiated() {
         List<Worker> workers = registrar.getRegisteredWorkers();
 
         if (!workers.isEmpty()) {
-            configurer = new TaskRunnerConfigurer.Builder(taskClient, workers)
-                    .withThreadCount(workers.size())
-                    .build();
+            virtualThreads = VirtualThreads.useIfSupported(virtualThreads);
+
+            // Results are posted by a dedicated stage so handler threads go straight back to polling
+            TaskResultJournal journal = reportJournalFile.isBlank() ? null : new TaskResultJournal(Paths.get(reportJournalFile));
+            reporter = new TaskResultReporter(taskClient, meterRegistry, reportQueueCapacity, reportBatchSize,
+                    reportThreads, reportMaxAttempts, reportMaxInFlight, journal);
+            reporter.start();
+
+            // Each worker gets its own pool so slow handlers cannot starve fast ones
+            for (Worker worker : workers) {
+                ConductorWorker settings = registrar.getWorkerSettings(worker);
+                TaskPoller poller = new TaskPoller(taskClient, reporter, worker, settings.batchSize(), settings.threadCount(), virtualThreads,
+                        acquisitionStrategyFactory.create(worker), new PollMetrics(meterRegistry, worker.getTaskDefName()));
 
-            configurer.init();
+                if (settings.maxThreadCount() > settings.threadCount()) {
+                    if (concurrencyController == null) {
+                        concurrencyController = new AdaptiveConcurrencyController(taskClient);
+                    }
+                    concurrencyController.register(poller, settings.minThreadCount(), settings.maxThreadCount());
+                }
+                poller.start();
+                pollers.add(poller);
+            }
+
+            if (concurrencyController != null) {
+                concurrencyController.start();
+            }
             log.info("✅ Started {} Conductor workers ", workers.size());
         } else {
             log.warn("⚠️ No Conductor workers found to register.");
@@ -39,8 +103,12 @@ public class ConductorWorkerStarter implements SmartInitializingSingleton {
 
     @PreDestroy
     public void shutdown() {
-        if (configurer != null) {
-            configurer.shutdown();
+        if (concurrencyController != null) {
+            concurrencyController.shutdown();
+        }
+        if (!pollers.isEmpty()) {
+            pollers.forEach(TaskPoller::shutdown);
+            reporter.shutdown(10);
             log.info("🛑 Conductor workers shut down cleanly.");
         }
     }
@@ -0,0 +1,46 @@
+package com.ywdrtt.conductor.worker.config;
+
+import com.ywdrtt.conductor.worker.runtime.BackoffAcquisitionStrategy;
+import com.ywdrtt.conductor.worker.runtime.FixedIntervalAcquisitionStrategy;
+import com.ywdrtt.conductor.worker.runtime.LongPollAcquisitionStrategy;
+import com.ywdrtt.conductor.worker.runtime.TaskAcquisitionStrategyFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class TaskAcquisitionConfig {
+
+    // fixed | backoff | long-poll
+    @Value("${conductor.worker.acquisition.strategy:fixed}")
+    private String strategy;
+
+    @Value("${conductor.worker.acquisition.backoff.base-delay-ms:100}")
+    private long backoffBaseDelayMs;
+
+    @Value("${conductor.worker.acquisition.backoff.max-delay-ms:10000}")
+    private long backoffMaxDelayMs;
+
+    @Value("${conductor.worker.acquisition.long-poll.timeout-ms:5000}")
+    private int longPollTimeoutMs;
+
+    // Default strategy, replaced by any user-declared TaskAcquisitionStrategyFactory bean
+    @Bean
+    @ConditionalOnMissingBean
+    public TaskAcquisitionStrategyFactory taskAcquisitionStrategyFactory() {
+        log.info("Task acquisition strategy: {}", strategy);
+        switch (strategy) {
+            case "backoff":
+                return worker -> new BackoffAcquisitionStrategy(backoffBaseDelayMs, backoffMaxDelayMs);
+            case "long-poll":
+                return worker -> new LongPollAcquisitionStrategy(longPollTimeoutMs);
+            case "fixed":
+                return FixedIntervalAcquisitionStrategy::new;
+            default:
+                throw new IllegalStateException("Unknown conductor.worker.acquisition.strategy: " + strategy);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.ywdrtt.conductor.worker.config;
+
+import com.ywdrtt.conductor.worker.abstractions.ConductorTaskHandler;
+import com.ywdrtt.conductor.worker.abstractions.In;
+import com.ywdrtt.conductor.worker.abstractions.TaskHandler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Binds a {@code @TaskHandler} method to a {@link ConductorTaskHandler} once, at registration time.
+ * The returned handler calls the method directly (no {@code Method.invoke}, no Object[] boxing,
+ * no InvocationTargetException wrapping), so the JIT can inline it into the worker's execute path.
+ * <p>
+ * Besides {@code Map<String,Object> method(Map<String,Object>)}, handlers may take typed
+ * parameters and return typed values:
+ * <ul>
+ *     <li>{@code @In("key")} parameters receive that input value converted to the parameter type</li>
+ *     <li>{@code Map} parameters receive the whole input, unconverted</li>
+ *     <li>other POJO/record parameters are populated from the whole input</li>
+ *     <li>scalar return values are written under {@link TaskHandler#output()}, POJOs/records are
+ *     flattened into the output map and {@code void} produces an empty output</li>
+ * </ul>
+ * The binding plan (extractors, converters, return adapter) is composed into a single method
+ * handle here, so a call does no lookups and no JSON round-trip.
+ */
+@Slf4j
+public final class TaskHandlerBinder {
+
+    private static final MethodType HANDLE_TYPE = MethodType.methodType(Map.class, Map.class);
+    private static final MethodHandle BIND;
+    private static final MethodHandle APPLY;
+    private static final MethodHandle SINGLETON;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            BIND = lookup.findVirtual(InputBinding.class, "bind", MethodType.methodType(Object.class, Map.class));
+            APPLY = lookup.findVirtual(Function.class, "apply", MethodType.methodType(Object.class, Object.class))
+                    .asType(MethodType.methodType(Map.class, Function.class, Object.class));
+            SINGLETON = lookup.findStatic(Collections.class, "singletonMap",
+                    MethodType.methodType(Map.class, Object.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private TaskHandlerBinder() {
+    }
+
+    public static ConductorTaskHandler bind(Object bean, Method method) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+            MethodHandle target = lookup.unreflect(method);
+            if (!isMapToMap(method)) {
+                return methodHandle(plan(target.bindTo(bean), method));
+            }
+            try {
+                return metafactory(lookup, target, bean, method);
+            } catch (Throwable e) {
+                // e.g. bean class not visible from the handler's class loader: keep a bound handle instead
+                log.debug("LambdaMetafactory binding failed for {}, falling back to MethodHandle: {}", method, e.toString());
+                return methodHandle(target.bindTo(bean));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access @TaskHandler method " + method, e);
+        }
+    }
+
+    private static boolean isMapToMap(Method method) {
+        return method.getParameterCount() == 1
+                && Map.class.isAssignableFrom(method.getReturnType())
+                && method.getParameterTypes()[0].isAssignableFrom(Map.class)
+                && method.getParameters()[0].getAnnotation(In.class) == null;
+    }
+
+    /**
+     * Composes {@code (Map) -> Map} around the bound handler: every parameter gets an extractor
+     * from the input map, the extractors all read the same argument and the return value is
+     * adapted to an output map.
+     */
+    private static MethodHandle plan(MethodHandle bound, Method method) throws IllegalAccessException {
+        Parameter[] parameters = method.getParameters();
+        MethodHandle[] extractors = new MethodHandle[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            extractors[i] = extractor(method, parameters[i]);
+        }
+        MethodHandle handle = MethodHandles.filterArguments(bound, 0, extractors);
+        Class<?> returnType = method.getReturnType();
+        MethodType fromInput = MethodType.methodType(returnType, Map.class);
+        handle = parameters.length == 0
+                ? MethodHandles.dropArguments(handle, 0, Map.class)
+                : MethodHandles.permuteArguments(handle, fromInput, new int[parameters.length]);
+
+        if (returnType == void.class) {
+            MethodHandle emptyOutput = MethodHandles.dropArguments(
+                    MethodHandles.constant(Map.class, Collections.emptyMap()), 0, Map.class);
+            return MethodHandles.foldArguments(emptyOutput, handle);
+        }
+        return MethodHandles.filterReturnValue(handle, returnAdapter(method));
+    }
+
+    private static MethodHandle extractor(Method method, Parameter parameter) throws IllegalAccessException {
+        In in = parameter.getAnnotation(In.class);
+        Class<?> type = parameter.getType();
+        if (in == null && !Map.class.isAssignableFrom(type) && !TypeConverters.isPojo(type)) {
+            throw new IllegalStateException("Parameter " + parameter.getName() + " of " + method.getName()
+                    + " must be annotated with @In, or be a Map or POJO bound from the whole input");
+        }
+        InputBinding binding = new InputBinding(in == null ? null : in.value(),
+                in == null && Map.class.isAssignableFrom(type) ? null : TypeConverters.input(parameter.getParameterizedType()));
+        return BIND.bindTo(binding).asType(MethodType.methodType(type, Map.class));
+    }
+
+    private static MethodHandle returnAdapter(Method method) {
+        Class<?> returnType = method.getReturnType();
+        String output = method.getAnnotation(TaskHandler.class) == null ? "" : method.getAnnotation(TaskHandler.class).output();
+        MethodHandle adapter;
+        if (!output.isEmpty()) {
+            adapter = MethodHandles.insertArguments(SINGLETON, 0, output);
+        } else if (Map.class.isAssignableFrom(returnType)) {
+            adapter = MethodHandles.identity(Map.class);
+        } else if (TypeConverters.isPojo(returnType)) {
+            adapter = APPLY.bindTo(TypeConverters.output(returnType));
+        } else {
+            throw new IllegalStateException("Method " + method.getName() + " returns " + returnType.getSimpleName()
+                    + ": set @TaskHandler(output = \"key\") to name its output");
+        }
+        return adapter.asType(MethodType.methodType(Map.class, returnType));
+    }
+
+    private static ConductorTaskHandler metafactory(MethodHandles.Lookup lookup, MethodHandle target,
+                                                    Object bean, Method method) throws Throwable {
+        CallSite site = LambdaMetafactory.metafactory(
+                lookup,
+                "handle",
+                MethodType.methodType(ConductorTaskHandler.class, method.getDeclaringClass()),
+                HANDLE_TYPE,
+                target,
+                MethodType.methodType(method.getReturnType(), method.getParameterTypes()));
+        return (ConductorTaskHandler) site.getTarget().invoke(bean);
+    }
+
+    private static ConductorTaskHandler methodHandle(MethodHandle bound) {
+        MethodHandle handle = bound.asType(HANDLE_TYPE);
+        return input -> {
+            try {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> output = (Map<String, Object>) handle.invokeExact(input);
+                return output;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        };
+    }
+
+    /**
+     * Reads one parameter value from the task input: a single key, or the whole map when
+     * {@code key} is null. A null converter passes the value through unchanged.
+     */
+    private static final class InputBinding {
+        private final String key;
+        private final Function<Object, Object> converter;
+
+        InputBinding(String key, Function<Object, Object> converter) {
+            this.key = key;
+            this.converter = converter;
+        }
+
+        @SuppressWarnings("unused") // invoked through BIND
+        Object bind(Map<String, Object> input) {
+            Object value = key == null ? input : input.get(key);
+            if (converter == null) {
+                return value;
+            }
+            try {
+                return converter.apply(value);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(key == null ? e.getMessage() : "Input '" + key + "': " + e.getMessage(), e);
+            }
+        }
+    }
+}
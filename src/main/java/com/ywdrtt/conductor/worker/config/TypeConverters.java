@@ -0,0 +1,359 @@
+package com.ywdrtt.conductor.worker.config;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Converters between task input/output maps and handler parameter/return types, built once per
+ * type and cached. Values are converted directly from what the Conductor client deserialized
+ * (String, Number, Boolean, Map, List), without a JSON round-trip; POJOs and records are
+ * populated through method handles resolved at build time.
+ */
+final class TypeConverters {
+
+    private static final Map<Type, Function<Object, Object>> INPUT = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Function<Object, Map<String, Object>>> OUTPUT = new ConcurrentHashMap<>();
+
+    // Converters built by the current thread and not published yet: a POJO reader is visible here
+    // (so self-referencing types terminate) but only reaches INPUT once it is fully resolved
+    private static final ThreadLocal<Map<Type, Function<Object, Object>>> BUILDING = ThreadLocal.withInitial(LinkedHashMap::new);
+
+    private TypeConverters() {
+    }
+
+    /**
+     * Converter from a raw input value to {@code type}. Primitive targets reject null.
+     */
+    static Function<Object, Object> input(Type type) {
+        Function<Object, Object> converter = INPUT.get(type);
+        if (converter != null) {
+            return converter;
+        }
+        Map<Type, Function<Object, Object>> building = BUILDING.get();
+        converter = building.get(type);
+        if (converter != null) {
+            return converter;
+        }
+        boolean outermost = building.isEmpty();
+        try {
+            converter = createInput(type);
+            building.putIfAbsent(type, converter);
+            if (!outermost) {
+                return converter;
+            }
+            // everything this call built is resolved now; nested readers are published with it
+            building.forEach(INPUT::putIfAbsent);
+            return INPUT.get(type);
+        } finally {
+            if (outermost) {
+                BUILDING.remove();
+            }
+        }
+    }
+
+    /**
+     * Converter flattening a POJO or record into an output map, one entry per readable property.
+     */
+    static Function<Object, Map<String, Object>> output(Class<?> type) {
+        Function<Object, Map<String, Object>> converter = OUTPUT.get(type);
+        if (converter == null) {
+            converter = new PojoWriter(type)::write;
+            OUTPUT.putIfAbsent(type, converter);
+        }
+        return converter;
+    }
+
+    static boolean isScalar(Class<?> type) {
+        return type.isPrimitive() || type == String.class || type == Boolean.class || type == Character.class
+                || Number.class.isAssignableFrom(type) || type.isEnum();
+    }
+
+    static boolean isPojo(Class<?> type) {
+        return !isScalar(type) && !type.isInterface() && !type.isArray()
+                && !Modifier.isAbstract(type.getModifiers()) && !type.getName().startsWith("java.");
+    }
+
+    private static Function<Object, Object> createInput(Type type) {
+        Class<?> raw = rawType(type);
+        if (raw == String.class) return value -> value == null ? null : value.toString();
+        if (raw == int.class || raw == Integer.class) return number(raw, Number::intValue, Integer::valueOf);
+        if (raw == long.class || raw == Long.class) return number(raw, Number::longValue, Long::valueOf);
+        if (raw == double.class || raw == Double.class) return number(raw, Number::doubleValue, Double::valueOf);
+        if (raw == float.class || raw == Float.class) return number(raw, Number::floatValue, Float::valueOf);
+        if (raw == short.class || raw == Short.class) return number(raw, Number::shortValue, Short::valueOf);
+        if (raw == byte.class || raw == Byte.class) return number(raw, Number::byteValue, Byte::valueOf);
+        if (raw == BigDecimal.class) return number(raw, n -> new BigDecimal(n.toString()), BigDecimal::new);
+        if (raw == boolean.class || raw == Boolean.class) return bool(raw);
+        if (raw.isEnum()) return enumeration(raw);
+        if (List.class.isAssignableFrom(raw) && type instanceof ParameterizedType) {
+            return list(raw, ((ParameterizedType) type).getActualTypeArguments()[0]);
+        }
+        if (isPojo(raw)) {
+            PojoReader reader = new PojoReader(raw);
+            BUILDING.get().put(type, reader::read);
+            reader.resolve();
+            return reader::read;
+        }
+        return passThrough(raw);
+    }
+
+    private static Function<Object, Object> number(Class<?> type, Function<Number, Object> fromNumber,
+                                                   Function<String, Object> parse) {
+        boolean primitive = type.isPrimitive();
+        return value -> {
+            if (value instanceof Number) return fromNumber.apply((Number) value);
+            if (value instanceof String) return parse.apply(((String) value).trim());
+            if (value == null && !primitive) return null;
+            throw cannotConvert(value, type);
+        };
+    }
+
+    private static Function<Object, Object> bool(Class<?> type) {
+        boolean primitive = type.isPrimitive();
+        return value -> {
+            if (value instanceof Boolean) return value;
+            if (value instanceof String) return Boolean.parseBoolean(((String) value).trim());
+            if (value == null && !primitive) return null;
+            throw cannotConvert(value, type);
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<Object, Object> enumeration(Class<?> type) {
+        return value -> {
+            if (value == null || type.isInstance(value)) return value;
+            if (value instanceof String) return Enum.valueOf((Class) type, ((String) value).trim());
+            throw cannotConvert(value, type);
+        };
+    }
+
+    private static Function<Object, Object> list(Class<?> type, Type elementType) {
+        Class<?> elementClass = rawType(elementType);
+        if (elementClass == Object.class || Map.class.isAssignableFrom(elementClass)) {
+            return passThrough(type); // nothing to convert, keep the client's list as is
+        }
+        Function<Object, Object> element = input(elementType);
+        return value -> {
+            if (value == null) return null;
+            if (!(value instanceof Collection)) throw cannotConvert(value, type);
+            Collection<?> source = (Collection<?>) value;
+            List<Object> converted = new ArrayList<>(source.size());
+            for (Object item : source) {
+                converted.add(element.apply(item));
+            }
+            return converted;
+        };
+    }
+
+    private static Function<Object, Object> passThrough(Class<?> type) {
+        return value -> {
+            if (value == null || type.isInstance(value)) return value;
+            throw cannotConvert(value, type);
+        };
+    }
+
+    private static IllegalArgumentException cannotConvert(Object value, Class<?> type) {
+        return new IllegalArgumentException(value == null
+                ? "Missing value for " + type.getSimpleName()
+                : "Cannot convert " + value.getClass().getSimpleName() + " '" + value + "' to " + type.getSimpleName());
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) return (Class<?>) type;
+        if (type instanceof ParameterizedType) return (Class<?>) ((ParameterizedType) type).getRawType();
+        return Object.class; // wildcards and type variables
+    }
+
+    private static MethodHandles.Lookup lookupIn(Class<?> type) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+    }
+
+    private static String propertyName(String methodName, int prefixLength) {
+        return Character.toLowerCase(methodName.charAt(prefixLength)) + methodName.substring(prefixLength + 1);
+    }
+
+    /**
+     * Builds a POJO or record from an input map. Records go through their canonical constructor;
+     * other classes need a no-arg constructor and are filled through setters or public fields.
+     */
+    private static final class PojoReader {
+        private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object[].class);
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+        private final Class<?> type;
+        private final List<String> keys = new ArrayList<>();
+        private final List<Function<Object, Object>> converters = new ArrayList<>();
+        private final List<MethodHandle> setters = new ArrayList<>();
+        private MethodHandle constructor;
+        private boolean record;
+
+        PojoReader(Class<?> type) {
+            this.type = type;
+        }
+
+        void resolve() {
+            try {
+                MethodHandles.Lookup lookup = lookupIn(type);
+                record = type.isRecord();
+                if (record) {
+                    resolveRecord(lookup);
+                } else {
+                    resolveBean(lookup);
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot bind task input to " + type.getName()
+                        + ": needs a record, or a no-arg constructor with setters", e);
+            }
+        }
+
+        private void resolveRecord(MethodHandles.Lookup lookup) throws ReflectiveOperationException {
+            RecordComponent[] components = type.getRecordComponents();
+            Class<?>[] parameterTypes = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                parameterTypes[i] = components[i].getType();
+                keys.add(components[i].getName());
+                converters.add(input(components[i].getGenericType()));
+            }
+            constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asSpreader(Object[].class, components.length)
+                    .asType(SPREAD_TYPE);
+        }
+
+        private void resolveBean(MethodHandles.Lookup lookup) throws ReflectiveOperationException {
+            Constructor<?> noArg = type.getDeclaredConstructor();
+            constructor = lookup.unreflectConstructor(noArg).asType(MethodType.methodType(Object.class));
+            for (Method method : type.getMethods()) {
+                if (method.getName().length() > 3 && method.getName().startsWith("set")
+                        && method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers())) {
+                    addSetter(propertyName(method.getName(), 3), method.getGenericParameterTypes()[0],
+                            lookup.unreflect(method));
+                }
+            }
+            for (Field field : type.getFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers) && !keys.contains(field.getName())) {
+                    addSetter(field.getName(), field.getGenericType(), lookup.unreflectSetter(field));
+                }
+            }
+        }
+
+        private void addSetter(String key, Type valueType, MethodHandle setter) {
+            keys.add(key);
+            converters.add(input(valueType));
+            setters.add(setter.asType(SETTER_TYPE));
+        }
+
+        Object read(Object value) {
+            if (value == null || type.isInstance(value)) return value;
+            if (!(value instanceof Map)) throw cannotConvert(value, type);
+            Map<?, ?> input = (Map<?, ?>) value;
+            try {
+                return record ? readRecord(input) : readBean(input);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot create " + type.getSimpleName() + ": " + e.getMessage(), e);
+            }
+        }
+
+        private Object readRecord(Map<?, ?> input) throws Throwable {
+            Object[] arguments = new Object[keys.size()];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = convert(i, input.get(keys.get(i)));
+            }
+            return constructor.invokeExact(arguments);
+        }
+
+        private Object readBean(Map<?, ?> input) throws Throwable {
+            Object bean = constructor.invokeExact();
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                if (input.containsKey(key)) {
+                    setters.get(i).invokeExact(bean, convert(i, input.get(key)));
+                }
+            }
+            return bean;
+        }
+
+        private Object convert(int property, Object value) {
+            try {
+                return converters.get(property).apply(value);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Property '" + keys.get(property) + "' of "
+                        + type.getSimpleName() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Flattens a POJO (public getters) or record (component accessors) into an output map.
+     */
+    private static final class PojoWriter {
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        private final List<String> keys = new ArrayList<>();
+        private final List<MethodHandle> getters = new ArrayList<>();
+
+        PojoWriter(Class<?> type) {
+            try {
+                MethodHandles.Lookup lookup = lookupIn(type);
+                if (type.isRecord()) {
+                    for (RecordComponent component : type.getRecordComponents()) {
+                        add(component.getName(), lookup.unreflect(component.getAccessor()));
+                    }
+                    return;
+                }
+                for (Method method : type.getMethods()) {
+                    String name = method.getName();
+                    if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers())
+                            || method.getDeclaringClass() == Object.class || method.getReturnType() == void.class) {
+                        continue;
+                    }
+                    if (name.length() > 3 && name.startsWith("get")) {
+                        add(propertyName(name, 3), lookup.unreflect(method));
+                    } else if (name.length() > 2 && name.startsWith("is") && method.getReturnType() == boolean.class) {
+                        add(propertyName(name, 2), lookup.unreflect(method));
+                    }
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot write task output from " + type.getName(), e);
+            }
+        }
+
+        private void add(String key, MethodHandle getter) {
+            keys.add(key);
+            getters.add(getter.asType(GETTER_TYPE));
+        }
+
+        Map<String, Object> write(Object value) {
+            Map<String, Object> output = new LinkedHashMap<>();
+            if (value == null) return output;
+            try {
+                for (int i = 0; i < keys.size(); i++) {
+                    output.put(keys.get(i), (Object) getters.get(i).invokeExact(value));
+                }
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return output;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.conductor.client.http.TaskClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * AIMD controller for per-worker concurrency.
+ * <p>
+ * Every sampling interval each registered poller is checked: while the server still has queued
+ * tasks and handler latency stays close to the best latency seen so far, concurrency grows by one
+ * thread. Once latency degrades past the tolerance (the handler is saturating CPU or its
+ * downstream), concurrency is cut multiplicatively. Both moves stay within the worker's min/max.
+ */
+@Slf4j
+public class AdaptiveConcurrencyController {
+
+    private static final long SAMPLE_INTERVAL_MS = 1000;
+    private static final double LATENCY_TOLERANCE = 1.5;
+    private static final double DECREASE_FACTOR = 0.75;
+    private static final double SMOOTHING = 0.2;
+    private static final double BASELINE_DRIFT = 1.01; // lets the baseline recover after a slow phase
+
+    private final ToIntFunction<String> queueDepth;
+    private final List<Limit> limits = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("concurrency-controller-%d").setDaemon(true).build());
+
+    public AdaptiveConcurrencyController(TaskClient taskClient) {
+        this(taskClient::getQueueSizeForTask);
+    }
+
+    // Queue depth per task type; tests drive adjust() by hand with their own samples
+    AdaptiveConcurrencyController(ToIntFunction<String> queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    public void register(TaskPoller poller, int minConcurrency, int maxConcurrency) {
+        register((Target) poller, minConcurrency, maxConcurrency);
+    }
+
+    void register(Target target, int minConcurrency, int maxConcurrency) {
+        limits.add(new Limit(target, Math.max(1, minConcurrency), maxConcurrency));
+        log.info("Adaptive concurrency for {} between {} and {} threads", target.getTaskType(), minConcurrency, maxConcurrency);
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::adjust, SAMPLE_INTERVAL_MS, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // One sampling interval
+    void adjust() {
+        for (Limit limit : limits) {
+            try {
+                limit.adjust();
+            } catch (Exception e) {
+                log.warn("Could not adjust concurrency for {}: {}", limit.target.getTaskType(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * What the controller samples and resizes; implemented by {@link TaskPoller}.
+     */
+    interface Target {
+        String getTaskType();
+
+        int getConcurrency();
+
+        void setConcurrency(int concurrency);
+
+        TaskPoller.Stats drainStats();
+    }
+
+    private final class Limit {
+        private final Target target;
+        private final int min;
+        private final int max;
+        private double smoothedLatency;
+        private double baselineLatency = Double.MAX_VALUE;
+
+        Limit(Target target, int min, int max) {
+            this.target = target;
+            this.min = min;
+            this.max = max;
+        }
+
+        void adjust() {
+            TaskPoller.Stats stats = target.drainStats();
+            if (stats.getExecutions() == 0) {
+                return; // nothing ran, no signal
+            }
+            smoothedLatency = smoothedLatency == 0
+                    ? stats.getAvgLatencyMillis()
+                    : smoothedLatency * (1 - SMOOTHING) + stats.getAvgLatencyMillis() * SMOOTHING;
+            baselineLatency = Math.min(baselineLatency * BASELINE_DRIFT, smoothedLatency);
+
+            int current = target.getConcurrency();
+            int next = current;
+            if (smoothedLatency > baselineLatency * LATENCY_TOLERANCE) {
+                next = Math.max(min, (int) (current * DECREASE_FACTOR));
+            } else if (current < max && queueDepth.applyAsInt(target.getTaskType()) > 0) {
+                next = current + 1;
+            }
+
+            if (next != current) {
+                target.setConcurrency(next);
+                log.debug("Concurrency for {}: {} -> {} (latency {} ms, baseline {} ms)",
+                        target.getTaskType(), current, next,
+                        String.format("%.2f", smoothedLatency), String.format("%.2f", baselineLatency));
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Short polls with exponential backoff while the queue stays empty. Each consecutive empty poll
+ * doubles the delay up to {@code maxDelayMillis}; the actual delay is jittered between half and
+ * the full value so idle workers do not poll in lockstep. Any non-empty poll resets the backoff.
+ */
+public class BackoffAcquisitionStrategy implements TaskAcquisitionStrategy {
+
+    private static final int POLL_TIMEOUT_MS = 100;
+
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private int emptyPolls;
+
+    public BackoffAcquisitionStrategy(long baseDelayMillis, long maxDelayMillis) {
+        this.baseDelayMillis = Math.max(1, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    @Override
+    public int pollTimeoutMillis() {
+        return POLL_TIMEOUT_MS;
+    }
+
+    @Override
+    public long nextPollDelayMillis(int polledTasks) {
+        if (polledTasks > 0) {
+            emptyPolls = 0;
+            return 0;
+        }
+        long delay = baseDelayMillis << Math.min(emptyPolls, 30);
+        if (delay <= 0 || delay > maxDelayMillis) {
+            delay = maxDelayMillis;
+        } else {
+            emptyPolls++;
+        }
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+}
@@ -0,0 +1,27 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import com.netflix.conductor.client.worker.Worker;
+
+/**
+ * Short polls at the worker's polling interval while the queue is empty (the client's default behaviour).
+ */
+public class FixedIntervalAcquisitionStrategy implements TaskAcquisitionStrategy {
+
+    private static final int POLL_TIMEOUT_MS = 100;
+
+    private final Worker worker;
+
+    public FixedIntervalAcquisitionStrategy(Worker worker) {
+        this.worker = worker;
+    }
+
+    @Override
+    public int pollTimeoutMillis() {
+        return POLL_TIMEOUT_MS;
+    }
+
+    @Override
+    public long nextPollDelayMillis(int polledTasks) {
+        return polledTasks > 0 ? 0 : worker.getPollingInterval();
+    }
+}
@@ -0,0 +1,25 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+/**
+ * Long polls: the server holds each poll open for up to {@code timeoutMillis} and answers as soon
+ * as a task is queued, so an idle worker issues one request per timeout instead of a stream of
+ * empty short polls. Re-polls immediately in both cases since the wait already happened server-side.
+ */
+public class LongPollAcquisitionStrategy implements TaskAcquisitionStrategy {
+
+    private final int timeoutMillis;
+
+    public LongPollAcquisitionStrategy(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public int pollTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public long nextPollDelayMillis(int polledTasks) {
+        return 0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Poll metrics for one task type: poll latency, polls by outcome and the share of polls that
+ * came back empty.
+ */
+public class PollMetrics {
+
+    private final Timer latency;
+    private final Counter nonEmptyPolls;
+    private final Counter emptyPolls;
+    private final Counter failedPolls;
+
+    public PollMetrics(MeterRegistry registry, String taskType) {
+        this.latency = Timer.builder("conductor.worker.poll.latency")
+                .tag("taskType", taskType)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.nonEmptyPolls = polls(registry, taskType, "tasks");
+        this.emptyPolls = polls(registry, taskType, "empty");
+        this.failedPolls = polls(registry, taskType, "error");
+        Gauge.builder("conductor.worker.poll.empty.ratio", this, PollMetrics::emptyPollRatio)
+                .tag("taskType", taskType)
+                .register(registry);
+    }
+
+    public void recordPoll(long latencyNanos, int polledTasks) {
+        latency.record(latencyNanos, TimeUnit.NANOSECONDS);
+        (polledTasks > 0 ? nonEmptyPolls : emptyPolls).increment();
+    }
+
+    public void recordFailure(long latencyNanos) {
+        latency.record(latencyNanos, TimeUnit.NANOSECONDS);
+        failedPolls.increment();
+    }
+
+    double emptyPollRatio() {
+        double total = nonEmptyPolls.count() + emptyPolls.count();
+        return total == 0 ? 0 : emptyPolls.count() / total;
+    }
+
+    private static Counter polls(MeterRegistry registry, String taskType, String result) {
+        return Counter.builder("conductor.worker.polls")
+                .tag("taskType", taskType)
+                .tag("result", result)
+                .register(registry);
+    }
+}
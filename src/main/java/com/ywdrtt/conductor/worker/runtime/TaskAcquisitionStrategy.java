@@ -0,0 +1,20 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+/**
+ * Decides how a {@link TaskPoller} acquires work: how long the server may hold a poll open and
+ * how long to wait before the next one. One instance is created per worker, so implementations
+ * may keep per-worker state (e.g. the current backoff).
+ */
+public interface TaskAcquisitionStrategy {
+
+    /**
+     * Server-side wait for the batch poll call; the server answers as soon as tasks arrive.
+     */
+    int pollTimeoutMillis();
+
+    /**
+     * Delay before the next poll, given the number of tasks the previous poll returned.
+     * Implementations should return 0 after a non-empty poll so a busy queue is drained at once.
+     */
+    long nextPollDelayMillis(int polledTasks);
+}
@@ -0,0 +1,12 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import com.netflix.conductor.client.worker.Worker;
+
+/**
+ * Creates the {@link TaskAcquisitionStrategy} for each worker. Declare a bean of this type to
+ * plug in a custom strategy.
+ */
+public interface TaskAcquisitionStrategyFactory {
+
+    TaskAcquisitionStrategy create(Worker worker);
+}
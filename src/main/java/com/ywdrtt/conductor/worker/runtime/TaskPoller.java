@@ -0,0 +1,315 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.conductor.client.http.TaskClient;
+import com.netflix.conductor.client.worker.Worker;
+import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.metadata.tasks.TaskResult;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Polls and executes tasks for a single worker on its own handler pool.
+ * <p>
+ * Each round-trip polls up to {@code batchSize} tasks, bounded by the free execution slots and
+ * by the room left in the {@link TaskResultReporter}, and hands them to the pool together. Each
+ * result is queued for reporting as soon as its task finishes, so a slow task never holds back
+ * the others; the reporter batches the updates. A task the pool rejects (e.g. during shutdown)
+ * gives its slot back and is handed back to the server for another worker. The number of
+ * slots (and pool threads) can be resized at runtime, see {@link AdaptiveConcurrencyController}.
+ * <p>
+ * With virtual threads every task gets its own virtual thread and the slot semaphore alone
+ * limits concurrency; otherwise a fixed platform-thread pool matches the slot count.
+ * <p>
+ * Poll timing (short polls, backoff, long polls) is delegated to a {@link TaskAcquisitionStrategy}.
+ */
+@Slf4j
+public class TaskPoller implements AdaptiveConcurrencyController.Target {
+
+    private static final long SLOT_WAIT_MS = 100;
+    // How long the server keeps a rejected task back before another poll can pick it up
+    private static final long REQUEUE_DELAY_SECONDS = 1;
+
+    private final TaskClient taskClient;
+    private final TaskResultReporter reporter;
+    private final Worker worker;
+    private final int batchSize;
+    private final TaskAcquisitionStrategy acquisition;
+    private final PollMetrics pollMetrics;
+    private final ResizableSemaphore slots;
+    private final ExecutorService handlerPool;
+    private final ScheduledExecutorService pollLoop;
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder executionNanos = new LongAdder();
+    private volatile int concurrency;
+
+    public TaskPoller(TaskClient taskClient, TaskResultReporter reporter, Worker worker, int batchSize, int threadCount,
+                      boolean virtualThreads, TaskAcquisitionStrategy acquisition, PollMetrics pollMetrics) {
+        this(taskClient, reporter, worker, batchSize, threadCount,
+                handlerPool(worker, Math.max(1, threadCount), virtualThreads), acquisition, pollMetrics);
+    }
+
+    TaskPoller(TaskClient taskClient, TaskResultReporter reporter, Worker worker, int batchSize, int threadCount,
+               ExecutorService handlerPool, TaskAcquisitionStrategy acquisition, PollMetrics pollMetrics) {
+        this.taskClient = taskClient;
+        this.reporter = reporter;
+        this.worker = worker;
+        this.batchSize = Math.max(1, batchSize);
+        this.acquisition = acquisition;
+        this.pollMetrics = pollMetrics;
+        this.concurrency = Math.max(1, threadCount);
+        this.slots = new ResizableSemaphore(concurrency);
+        this.handlerPool = handlerPool;
+        this.pollLoop = Executors.newSingleThreadScheduledExecutor(
+                threadFactory("poller-" + worker.getTaskDefName()));
+    }
+
+    public void start() {
+        pollLoop.schedule(this::pollAndExecute, 0, TimeUnit.MILLISECONDS);
+        log.info("Started poller for {} with {} {} threads, batch size {}", worker.getTaskDefName(), concurrency,
+                handlerPool instanceof ThreadPoolExecutor ? "platform" : "virtual", batchSize);
+    }
+
+    public void shutdown() {
+        pollLoop.shutdownNow();
+        handlerPool.shutdown();
+        try {
+            if (!handlerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+                handlerPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            handlerPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String getTaskType() {
+        return worker.getTaskDefName();
+    }
+
+    @Override
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Grows or shrinks the execution slots and the pool behind them. Shrinking never interrupts
+     * running tasks; the surplus threads retire once they go idle.
+     */
+    @Override
+    public synchronized void setConcurrency(int newConcurrency) {
+        int delta = newConcurrency - concurrency;
+        ThreadPoolExecutor platformPool = handlerPool instanceof ThreadPoolExecutor ? (ThreadPoolExecutor) handlerPool : null;
+        if (delta > 0) {
+            if (platformPool != null) {
+                platformPool.setMaximumPoolSize(newConcurrency);
+                platformPool.setCorePoolSize(newConcurrency);
+            }
+            slots.release(delta);
+        } else if (delta < 0) {
+            if (platformPool != null) {
+                platformPool.setCorePoolSize(newConcurrency);
+                platformPool.setMaximumPoolSize(newConcurrency);
+            }
+            slots.reducePermits(-delta);
+        }
+        concurrency = newConcurrency;
+    }
+
+    /**
+     * Returns the executions observed since the previous call and starts a new window.
+     */
+    @Override
+    public Stats drainStats() {
+        long count = executed.sumThenReset();
+        long nanos = executionNanos.sumThenReset();
+        return new Stats(count, count == 0 ? 0 : nanos / count / 1_000_000.0);
+    }
+
+    int availableSlots() {
+        return slots.availablePermits();
+    }
+
+    private void pollAndExecute() {
+        long delay;
+        try {
+            delay = pollOnce();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (!pollLoop.isShutdown()) {
+            pollLoop.schedule(this::pollAndExecute, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * One poll round: acquire slots, poll, hand the tasks to the pool. Returns the delay before
+     * the next round.
+     */
+    long pollOnce() throws InterruptedException {
+        long delay = worker.getPollingInterval();
+        int acquired = 0;
+        long pollStart = 0;
+        try {
+            if (!worker.paused()) {
+                acquired = acquireSlots();
+                if (acquired == 0) {
+                    delay = 0; // all slots busy; acquireSlots already waited
+                } else {
+                    pollStart = System.nanoTime();
+                    List<Task> tasks = taskClient.batchPollTasksByTaskType(worker.getTaskDefName(),
+                            worker.getIdentity(), acquired, acquisition.pollTimeoutMillis());
+                    int polled = tasks == null ? 0 : tasks.size();
+                    pollMetrics.recordPoll(System.nanoTime() - pollStart, polled);
+                    if (polled > acquired) {
+                        // more than asked for: the extras have no slot, hand them back to the server
+                        log.warn("Polled {} tasks of type {} for {} slots, handing {} back to the server",
+                                polled, worker.getTaskDefName(), acquired, polled - acquired);
+                        for (Task extra : tasks.subList(acquired, polled)) {
+                            report(requeued(extra));
+                        }
+                        tasks = tasks.subList(0, acquired);
+                        polled = acquired;
+                    }
+                    int unused = acquired - polled;
+                    acquired = 0; // the catch below must not release these slots again
+                    slots.release(unused);
+                    if (polled > 0) {
+                        log.debug("Polled {} tasks of type {}", polled, worker.getTaskDefName());
+                        submit(tasks);
+                    }
+                    delay = acquisition.nextPollDelayMillis(polled);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            if (acquired > 0) {
+                pollMetrics.recordFailure(System.nanoTime() - pollStart);
+                slots.release(acquired);
+            }
+            log.error("Error when polling for tasks of type {}", worker.getTaskDefName(), e);
+        }
+        return delay;
+    }
+
+    private int acquireSlots() throws InterruptedException {
+        // don't fetch work the reporter has no room for
+        int limit = Math.min(batchSize, reporter.remainingCapacity());
+        if (limit == 0) {
+            Thread.sleep(SLOT_WAIT_MS);
+            return 0;
+        }
+        if (!slots.tryAcquire(SLOT_WAIT_MS, TimeUnit.MILLISECONDS)) {
+            return 0;
+        }
+        int acquired = 1;
+        while (acquired < limit && slots.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+
+    private void submit(List<Task> tasks) {
+        for (Task task : tasks) {
+            try {
+                handlerPool.execute(() -> {
+                    TaskResult result;
+                    try {
+                        result = execute(task);
+                    } finally {
+                        slots.release();
+                    }
+                    report(result);
+                });
+            } catch (RejectedExecutionException e) {
+                slots.release();
+                log.warn("Handler pool for {} rejected task {}, handing it back to the server",
+                        worker.getTaskDefName(), task.getTaskId());
+                report(requeued(task));
+            }
+        }
+    }
+
+    private TaskResult execute(Task task) {
+        long start = System.nanoTime();
+        TaskResult result;
+        try {
+            result = worker.execute(task);
+        } catch (Throwable t) {
+            result = failed(task, t);
+        }
+        executionNanos.add(System.nanoTime() - start);
+        executed.increment();
+        result.setWorkerId(worker.getIdentity());
+        return result;
+    }
+
+    private TaskResult failed(Task task, Throwable t) {
+        log.error("Unable to execute task: {} of type: {}", task.getTaskId(), task.getTaskDefName(), t);
+        TaskResult result = new TaskResult(task);
+        result.setStatus(TaskResult.Status.FAILED);
+        result.setReasonForIncompletion(t.getMessage());
+        return result;
+    }
+
+    // IN_PROGRESS with a callback puts the task back on the server's queue without using a retry
+    private TaskResult requeued(Task task) {
+        TaskResult result = new TaskResult(task);
+        result.setStatus(TaskResult.Status.IN_PROGRESS);
+        result.setCallbackAfterSeconds(REQUEUE_DELAY_SECONDS);
+        result.setWorkerId(worker.getIdentity());
+        return result;
+    }
+
+    private void report(TaskResult result) {
+        try {
+            reporter.report(result);
+        } catch (InterruptedException e) {
+            log.warn("Interrupted while queueing the result of task {} for {}", result.getTaskId(), worker.getTaskDefName());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService handlerPool(Worker worker, int concurrency, boolean virtualThreads) {
+        return virtualThreads
+                ? VirtualThreads.newThreadPerTaskExecutor("vworker-" + worker.getTaskDefName())
+                : new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), threadFactory("worker-" + worker.getTaskDefName()));
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        return new ThreadFactoryBuilder().setNameFormat(prefix + "-%d").setDaemon(true).build();
+    }
+
+    @Value
+    public static class Stats {
+        long executions;
+        double avgLatencyMillis;
+    }
+
+    private static final class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
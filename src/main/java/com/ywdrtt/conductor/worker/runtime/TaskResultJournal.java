@@ -0,0 +1,80 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.conductor.common.config.ObjectMapperProvider;
+import com.netflix.conductor.common.metadata.tasks.TaskResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * File holding the task results {@link TaskResultReporter} could not deliver before shutdown
+ * (one JSON document per line), so the next start reports them instead of losing them.
+ */
+@Slf4j
+public class TaskResultJournal {
+
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapperProvider().getObjectMapper();
+
+    public TaskResultJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Replaces the journal with the given results; an empty collection removes it.
+     */
+    public void write(Collection<TaskResult> results) throws IOException {
+        if (results.isEmpty()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        // written aside and moved, so a crash mid-write never leaves a torn journal
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (TaskResult result : results) {
+                writer.write(objectMapper.writeValueAsString(result));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the journaled results and removes the journal. Unreadable lines are skipped.
+     */
+    public List<TaskResult> takeAll() throws IOException {
+        List<TaskResult> results = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return results;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    results.add(objectMapper.readValue(line, TaskResult.class));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable task result in {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        Files.delete(file);
+        return results;
+    }
+}
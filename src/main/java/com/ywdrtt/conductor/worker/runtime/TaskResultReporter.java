@@ -0,0 +1,345 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.conductor.client.exception.ConductorClientException;
+import com.netflix.conductor.client.http.TaskClient;
+import com.netflix.conductor.common.metadata.tasks.TaskResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports {@link TaskResult}s to the server off the handler threads.
+ * <p>
+ * At most {@code queueCapacity} results are pending at a time. When the server slows down that
+ * limit is reached: {@link #report} then blocks the handler thread and {@link #remainingCapacity()}
+ * lets pollers stop fetching work they could not report. While a task's update is still pending,
+ * a newer result for the same task replaces it, so only the latest state is sent.
+ * <p>
+ * Each task is assigned to one reporter thread, which drains its pending updates in batches of up
+ * to {@code batchSize}. Conductor has no bulk update endpoint, so the updates of a batch are sent
+ * as parallel calls (at most {@code maxInFlight} at a time) and the batch costs about one round
+ * trip. A task never has two updates in flight, so the server sees them in order.
+ * <p>
+ * Transient failures (IO errors, 5xx, 429) are retried with exponential backoff until
+ * {@code maxAttempts}; client errors are dropped immediately. Results still pending when
+ * {@link #shutdown} gives up are written to the {@link TaskResultJournal}, if one is configured,
+ * and reported again by the next {@link #start}.
+ */
+@Slf4j
+public class TaskResultReporter {
+
+    private static final long POLL_WAIT_MS = 100;
+    private static final long RETRY_BASE_DELAY_MS = 500;
+    private static final long RETRY_MAX_DELAY_MS = 30_000;
+
+    private final TaskClient taskClient;
+    private final Semaphore capacity;
+    private final ConcurrentMap<String, PendingUpdate> pending = new ConcurrentHashMap<>();
+    private final Lane[] lanes;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBaseDelayMs;
+    private final TaskResultJournal journal;
+    private final ExecutorService reporters;
+    private final ExecutorService senders;
+    private volatile boolean running;
+
+    private final Timer updateLatency;
+    private final DistributionSummary batchSizes;
+    private final Counter coalesced;
+    private final Counter retried;
+    private final Counter dropped;
+
+    public TaskResultReporter(TaskClient taskClient, MeterRegistry registry,
+                              int queueCapacity, int batchSize, int threads, int maxAttempts) {
+        this(taskClient, registry, queueCapacity, batchSize, threads, maxAttempts, 1, null);
+    }
+
+    public TaskResultReporter(TaskClient taskClient, MeterRegistry registry, int queueCapacity, int batchSize,
+                              int threads, int maxAttempts, int maxInFlight, TaskResultJournal journal) {
+        this(taskClient, registry, queueCapacity, batchSize, threads, maxAttempts, maxInFlight, journal, RETRY_BASE_DELAY_MS);
+    }
+
+    TaskResultReporter(TaskClient taskClient, MeterRegistry registry, int queueCapacity, int batchSize,
+                       int threads, int maxAttempts, int maxInFlight, TaskResultJournal journal, long retryBaseDelayMs) {
+        this.taskClient = taskClient;
+        this.capacity = new Semaphore(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBaseDelayMs = retryBaseDelayMs;
+        this.journal = journal;
+        this.lanes = new Lane[Math.max(1, threads)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+        this.reporters = Executors.newFixedThreadPool(lanes.length,
+                new ThreadFactoryBuilder().setNameFormat("task-result-reporter-%d").setDaemon(true).build());
+        // shared by all reporter threads; each waits for its own batch's calls to finish
+        this.senders = maxInFlight > 1
+                ? Executors.newFixedThreadPool(maxInFlight,
+                        new ThreadFactoryBuilder().setNameFormat("task-result-sender-%d").setDaemon(true).build())
+                : null;
+
+        this.updateLatency = Timer.builder("conductor.worker.report.latency").register(registry);
+        this.batchSizes = DistributionSummary.builder("conductor.worker.report.batch.size").register(registry);
+        this.coalesced = Counter.builder("conductor.worker.report.coalesced").register(registry);
+        this.retried = Counter.builder("conductor.worker.report.retries").register(registry);
+        this.dropped = Counter.builder("conductor.worker.report.dropped").register(registry);
+        Gauge.builder("conductor.worker.report.queue.size", pending, ConcurrentMap::size).register(registry);
+        Gauge.builder("conductor.worker.report.retry.size", this, TaskResultReporter::retrying).register(registry);
+    }
+
+    /**
+     * Starts the reporter threads, then queues the results journaled by the previous shutdown.
+     */
+    public void start() {
+        running = true;
+        for (Lane lane : lanes) {
+            reporters.execute(() -> drain(lane));
+        }
+        log.info("Started task result reporter with {} threads, queue capacity {}, batch size {}",
+                lanes.length, capacity.availablePermits(), batchSize);
+        replayJournal();
+    }
+
+    /**
+     * Stops accepting work and gives the reporter threads up to {@code timeoutSeconds} to flush
+     * what is still queued. Whatever is left (retries that are not due yet included) goes to the
+     * journal when there is one.
+     */
+    public void shutdown(long timeoutSeconds) {
+        running = false;
+        reporters.shutdown();
+        try {
+            if (!reporters.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
+                reporters.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            reporters.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (senders != null) {
+            senders.shutdownNow();
+        }
+        List<TaskResult> unreported = new ArrayList<>();
+        pending.values().forEach(update -> unreported.add(update.result));
+        if (journal != null) {
+            try {
+                journal.write(unreported);
+                if (!unreported.isEmpty()) {
+                    log.info("Journaled {} unreported task results for the next start", unreported.size());
+                }
+                return;
+            } catch (IOException e) {
+                log.error("Could not journal {} unreported task results", unreported.size(), e);
+            }
+        }
+        if (!unreported.isEmpty()) {
+            log.warn("⚠️ {} task results were not reported before shutdown", unreported.size());
+        }
+    }
+
+    /**
+     * Queues a result for reporting, blocking while {@code queueCapacity} results are pending.
+     * Replaces the pending update of the same task, if there is one, without blocking.
+     */
+    public void report(TaskResult result) throws InterruptedException {
+        String taskId = result.getTaskId();
+        while (true) {
+            if (pending.computeIfPresent(taskId, (id, update) -> update.replace(result)) != null) {
+                coalesced.increment();
+                return;
+            }
+            capacity.acquire();
+            PendingUpdate update = new PendingUpdate(result);
+            if (pending.putIfAbsent(taskId, update) == null) {
+                lane(taskId).queue.add(update);
+                return;
+            }
+            capacity.release(); // another result for this task got in first; merge into it
+        }
+    }
+
+    public int remainingCapacity() {
+        return capacity.availablePermits();
+    }
+
+    private Lane lane(String taskId) {
+        return lanes[Math.floorMod(taskId.hashCode(), lanes.length)];
+    }
+
+    private int retrying() {
+        int retrying = 0;
+        for (Lane lane : lanes) {
+            retrying += lane.retries.size();
+        }
+        return retrying;
+    }
+
+    private void replayJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            List<TaskResult> journaled = journal.takeAll();
+            for (TaskResult result : journaled) {
+                report(result);
+            }
+            if (!journaled.isEmpty()) {
+                log.info("Queued {} task results journaled before the last shutdown", journaled.size());
+            }
+        } catch (IOException e) {
+            log.error("Could not read the task result journal", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain(Lane lane) {
+        List<PendingUpdate> batch = new ArrayList<>(batchSize);
+        while (running || !lane.queue.isEmpty()) {
+            try {
+                lane.retries.drainTo(batch, batchSize);
+                if (batch.size() < batchSize) {
+                    PendingUpdate first = batch.isEmpty() ? lane.queue.poll(POLL_WAIT_MS, TimeUnit.MILLISECONDS) : lane.queue.poll();
+                    if (first != null) {
+                        batch.add(first);
+                        lane.queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    flush(lane, batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void flush(Lane lane, List<PendingUpdate> batch) {
+        batchSizes.record(batch.size());
+        // from here on, a newer result for one of these tasks starts a new update
+        for (PendingUpdate update : batch) {
+            pending.remove(update.result.getTaskId(), update);
+        }
+        if (senders == null || batch.size() == 1) {
+            batch.forEach(update -> send(lane, update));
+            return;
+        }
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[batch.size()];
+        for (int i = 0; i < calls.length; i++) {
+            PendingUpdate update = batch.get(i);
+            calls[i] = CompletableFuture.runAsync(() -> send(lane, update), senders);
+        }
+        try {
+            CompletableFuture.allOf(calls).join();
+        } catch (RuntimeException e) {
+            // send() handles its own failures; this only happens when the sender pool is gone
+            log.warn("Task result sender pool unavailable: {}", e.getMessage());
+            batch.forEach(update -> send(lane, update));
+        }
+    }
+
+    private void send(Lane lane, PendingUpdate update) {
+        if (update.sent) {
+            return;
+        }
+        long start = System.nanoTime();
+        update.attempts++;
+        try {
+            taskClient.updateTask(update.result);
+            update.sent = true;
+            capacity.release();
+        } catch (Exception e) {
+            if (isTransient(e) && update.attempts < maxAttempts) {
+                retry(lane, update, e);
+            } else {
+                update.sent = true;
+                capacity.release();
+                dropped.increment();
+                log.error("Failed to update result for task {} after {} attempts", update.result.getTaskId(), update.attempts, e);
+            }
+        } finally {
+            updateLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void retry(Lane lane, PendingUpdate update, Exception cause) {
+        if (pending.putIfAbsent(update.result.getTaskId(), update) != null) {
+            // a newer result for this task is already queued; it replaces this one
+            update.sent = true;
+            capacity.release();
+            return;
+        }
+        update.scheduleRetry(retryBaseDelayMs);
+        lane.retries.put(update);
+        retried.increment();
+        log.debug("Retrying update for task {} (attempt {}): {}", update.result.getTaskId(), update.attempts, cause.getMessage());
+    }
+
+    private static boolean isTransient(Exception e) {
+        if (e instanceof ConductorClientException) {
+            ConductorClientException clientException = (ConductorClientException) e;
+            int status = clientException.getStatus();
+            return clientException.isRetryable() || status == 0 || status == 429 || status >= 500;
+        }
+        return true;
+    }
+
+    private static final class Lane {
+        private final BlockingQueue<PendingUpdate> queue = new LinkedBlockingQueue<>();
+        private final DelayQueue<PendingUpdate> retries = new DelayQueue<>();
+    }
+
+    private static final class PendingUpdate implements Delayed {
+        private volatile TaskResult result;
+        private volatile boolean sent;
+        private int attempts;
+        private long retryAtNanos;
+
+        PendingUpdate(TaskResult result) {
+            this.result = result;
+        }
+
+        PendingUpdate replace(TaskResult newer) {
+            result = newer;
+            return this;
+        }
+
+        void scheduleRetry(long baseDelayMs) {
+            long delayMs = Math.min(RETRY_MAX_DELAY_MS, baseDelayMs << Math.min(attempts - 1, 16));
+            retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(retryAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to Java 21 virtual threads without requiring Java 21 to compile. The APIs are looked up
+ * reflectively once; on older runtimes {@link #isSupported()} is false and callers keep their
+ * platform-thread pools.
+ */
+@Slf4j
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = lookup(Thread.class, "ofVirtual");
+    private static final Method NAME = lookup(builderClass(), "name", String.class, long.class);
+    private static final Method FACTORY = lookup(builderClass(), "factory");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR =
+            lookup(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null && NAME != null && FACTORY != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Whether to run handlers on virtual threads: only when requested and supported, otherwise
+     * the platform-thread pools are kept (with a warning if they were requested).
+     */
+    public static boolean useIfSupported(boolean requested) {
+        if (requested && !isSupported()) {
+            log.warn("⚠️ Virtual threads requested but not available on Java {}, using platform threads.", Runtime.version());
+            return false;
+        }
+        return requested;
+    }
+
+    /**
+     * An executor starting one named virtual thread per submitted task. Concurrency must be
+     * bounded by the caller (the pollers use their slot semaphore).
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21, running on " + Runtime.version());
+        }
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create virtual thread executor", e);
+        }
+    }
+
+    private static Class<?> builderClass() {
+        try {
+            return Class.forName("java.lang.Thread$Builder");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method lookup(Class<?> owner, String name, Class<?>... parameterTypes) {
+        if (owner == null) {
+            return null;
+        }
+        try {
+            return owner.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            log.debug("{}.{} not available on Java {}", owner.getSimpleName(), name, Runtime.version());
+            return null;
+        }
+    }
+}
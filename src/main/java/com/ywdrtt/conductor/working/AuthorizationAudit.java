@@ -0,0 +1,220 @@
+package com.ywdrtt.conductor.working;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous audit trail for authorization decisions and malformed role claims.
+ *
+ * Request threads never touch a stream: they claim a preallocated slot in a fixed-size ring buffer
+ * with one CAS, copy references into it and publish it. A single background writer drains the
+ * ring and writes one compact line per record to the "conductor.security.audit" logger, so all
+ * formatting happens off the request path. When the ring is full the record is dropped and counted
+ * rather than blocking the caller.
+ *
+ * Grants are sampled (sample-rate, 0..1); denials and malformed claims are always written when
+ * always-log-denials is set. With auditing disabled, or for a grant that is not sampled, a call
+ * returns after a field read or a random draw and allocates nothing.
+ */
+@Component
+public class AuthorizationAudit implements AutoCloseable {
+
+    private static final Logger AUDIT_LOG = LoggerFactory.getLogger("conductor.security.audit");
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private enum Kind { DECISION, MALFORMED_CLAIM }
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final boolean alwaysLogDenials;
+
+    private final Slot[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next slot to claim
+    private volatile long tail; // next slot to drain; written by the writer only
+    private final Counter written;
+    private final Counter dropped;
+    private final Consumer<String> sink;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    @Autowired
+    public AuthorizationAudit(@Value("${app.security.audit.enabled:true}") boolean enabled,
+                              @Value("${app.security.audit.sample-rate:0.0}") double sampleRate,
+                              @Value("${app.security.audit.always-log-denials:true}") boolean alwaysLogDenials,
+                              @Value("${app.security.audit.buffer-size:8192}") int bufferSize,
+                              MeterRegistry meterRegistry) {
+        this(enabled, sampleRate, alwaysLogDenials, bufferSize, meterRegistry, AUDIT_LOG::info);
+    }
+
+    // Tests read the lines from sink instead of the audit logger
+    AuthorizationAudit(boolean enabled, double sampleRate, boolean alwaysLogDenials, int bufferSize,
+                       MeterRegistry meterRegistry, Consumer<String> sink) {
+        this.sink = sink;
+        this.enabled = enabled && (sampleRate > 0 || alwaysLogDenials);
+        this.sampleRate = sampleRate;
+        this.alwaysLogDenials = alwaysLogDenials;
+
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1; // next power of two
+        this.ring = new Slot[this.enabled ? capacity : 0];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.written = Counter.builder("conductor.security.audit").tag("result", "written").register(meterRegistry);
+        this.dropped = Counter.builder("conductor.security.audit").tag("result", "dropped").register(meterRegistry);
+
+        if (this.enabled) {
+            this.writer = new Thread(this::drainLoop, "authorization-audit-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    /**
+     * For code paths built outside the Spring context (benchmarks, tests).
+     */
+    public static AuthorizationAudit disabled() {
+        return new AuthorizationAudit(false, 0, false, 0, new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param permission the permission object as passed to the evaluator, possibly of the wrong type
+     */
+    public void decision(Authentication authentication, String targetType, Object targetId, Object permission, boolean granted) {
+        if (!enabled || !shouldWrite(granted)) {
+            return;
+        }
+        publish(Kind.DECISION, authentication, targetType, targetId, permission, granted);
+    }
+
+    /**
+     * A role claim path that did not resolve to roles in a token; found is what sat there instead.
+     */
+    public void malformedClaim(String subject, String claimPath, String segment, Object found) {
+        if (!enabled || !alwaysLogDenials) {
+            return;
+        }
+        publish(Kind.MALFORMED_CLAIM, subject, claimPath, segment, found == null ? null : found.getClass(), false);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean shouldWrite(boolean granted) {
+        if (!granted && alwaysLogDenials) {
+            return true;
+        }
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private void publish(Kind kind, Object subject, String type, Object id, Object detail, boolean granted) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= ring.length) {
+                dropped.increment(); // writer is behind: never block a request thread
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = ring[(int) sequence & mask];
+        slot.timestampMillis = System.currentTimeMillis();
+        slot.kind = kind;
+        slot.subject = subject;
+        slot.type = type;
+        slot.id = id;
+        slot.detail = detail;
+        slot.granted = granted;
+        slot.published = sequence + 1; // volatile write: makes the fields above visible to the writer
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (running || tail != head.get()) {
+            long next = tail;
+            Slot slot = ring[(int) next & mask];
+            if (slot.published != next + 1) {
+                if (running) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                } else {
+                    Thread.onSpinWait(); // shutting down: a producer claimed this slot and is filling it
+                }
+                continue;
+            }
+
+            line.setLength(0);
+            format(slot, line);
+            slot.subject = null; // don't keep tokens reachable from the ring
+            slot.id = null;
+            slot.detail = null;
+            tail = next + 1; // frees the slot for producers
+
+            try {
+                sink.accept(line.toString());
+                written.increment();
+            } catch (RuntimeException e) {
+                dropped.increment();
+            }
+        }
+    }
+
+    private static void format(Slot slot, StringBuilder line) {
+        line.append("ts=").append(slot.timestampMillis);
+        if (slot.kind == Kind.DECISION) {
+            String principal = slot.subject instanceof Authentication authentication ? authentication.getName() : null;
+            line.append(" event=authz decision=").append(slot.granted ? "GRANT" : "DENY")
+                    .append(" principal=").append(principal)
+                    .append(" type=").append(slot.type)
+                    .append(" id=").append(slot.id);
+            if (slot.detail == null || slot.detail instanceof ConductorPermission) {
+                line.append(" permission=").append(slot.detail);
+            } else {
+                line.append(" permission=invalid:").append(slot.detail.getClass().getName());
+            }
+        } else {
+            line.append(" event=malformed_claim sub=").append(slot.subject)
+                    .append(" path=").append(slot.type)
+                    .append(" segment=").append(slot.id)
+                    .append(" found=").append(slot.detail instanceof Class<?> found ? found.getSimpleName() : "null");
+        }
+    }
+
+    // Reused ring entry; fields are plain and published through the volatile sequence
+    private static final class Slot {
+        private long timestampMillis;
+        private Kind kind;
+        private Object subject;
+        private String type;
+        private Object id;
+        private Object detail;
+        private boolean granted;
+        private volatile long published;
+    }
+}
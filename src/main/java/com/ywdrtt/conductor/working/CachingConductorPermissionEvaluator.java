@@ -1,7 +1,11 @@
-package com.yourcompany.yourconductorapp.security;
-
-import com.yourcompany.yourconductorapp.config.ConductorRoleConfig;
-import org.springframework.cache.annotation.Cacheable; // Make sure to import
+package com.ywdrtt.conductor.working;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -9,6 +13,7 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Component;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -18,13 +23,45 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.Arrays; // For Arrays.asList
 
+/**
+ * Variant of ConductorPermissionEvaluator that computes a caller's effective permissions once per
+ * token and caches them. Selected with app.permissions.evaluator=cached.
+ */
 @Component("conductorPermissionEvaluator")
-public class ConductorPermissionEvaluator implements PermissionEvaluator {
+@ConditionalOnProperty(name = "app.permissions.evaluator", havingValue = "cached")
+public class CachingConductorPermissionEvaluator implements PermissionEvaluator {
 
     private final ConductorRoleConfig conConfig;
-
-    public ConductorPermissionEvaluator(ConductorRoleConfig conConfig) {
+    // Decisions go to the async audit writer instead of the console
+    private final AuthorizationAudit audit;
+
+    // Effective permissions per (subject, authorities), each entry living as long as the token it came from.
+    // Replaces @Cacheable: no cache manager was configured, the call was a self-invocation the proxy never
+    // intercepted, and a key on the name alone would have served stale permissions after a role change.
+    private final TokenScopedCache<CachedPermissions> permissionCache;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    public CachingConductorPermissionEvaluator(ConductorRoleConfig conConfig,
+                                               AuthorizationAudit audit,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${app.permissions.cache.max-size:10000}") int cacheMaxSize) {
         this.conConfig = conConfig;
+        this.audit = audit;
+        this.permissionCache = new TokenScopedCache<>(cacheMaxSize);
+        this.cacheHits = Counter.builder("conductor.security.permission.cache").tag("result", "hit").register(meterRegistry);
+        this.cacheMisses = Counter.builder("conductor.security.permission.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("conductor.security.permission.cache.size", permissionCache, TokenScopedCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Role lists changed: every cached permission map may now be wrong. Dropping them frees the
+     * memory; correctness comes from the snapshot check in getCachedUserPermissions, since a lookup
+     * that started before the reload can still put an old-policy entry after this clear().
+     */
+    @EventListener
+    public void onRolesReloaded(ConductorRolesReloadedEvent event) {
+        permissionCache.clear();
     }
 
     private List<String> extractUserRoles(Authentication authentication) {
@@ -36,7 +73,6 @@ public class ConductorPermissionEvaluator implements PermissionEvaluator {
                 .filter(role -> role.startsWith("ROLE_"))
                 .map(role -> role.substring(5).toUpperCase())
                 .collect(Collectors.toList());
-        // System.out.println("DEBUG: User roles extracted: " + authorities); // Keep for debugging if needed
         return authorities;
     }
 
@@ -47,16 +83,41 @@ public class ConductorPermissionEvaluator implements PermissionEvaluator {
         var result = configuredRoles.stream()
                 .map(String::toUpperCase)
                 .anyMatch(userExtractedRoles::contains);
-        // System.out.println("DEBUG: Checking roles: User has " + userExtractedRoles + ", required " + configuredRoles + ". Result: " + result); // Keep for debugging if needed
         return result;
     }
 
     /**
-     * Calculates and caches a map of effective permissions for a given user.
+     * Returns the effective permissions of the caller, computed once per token.
+     * The key is the subject plus a hash of the authorities; a hit is only used when the cached authorities
+     * are exactly the caller's, so a hash collision can never hand out someone else's permissions, and when
+     * the entry was computed from the role snapshot in effect now, so no entry outlives a reload.
+     */
+    private Map<String, Set<ConductorPermission>> getCachedUserPermissions(Authentication authentication, Jwt jwt) {
+        Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
+        Set<String> authorityNames = authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+        String key = authentication.getName() + '|' + Integer.toHexString(authorityNames.hashCode());
+
+        ConductorRoleConfig.Roles roles = conConfig.current();
+        CachedPermissions cached = permissionCache.get(key);
+        if (cached != null && cached.roles() == roles && cached.authorities().equals(authorityNames)) {
+            cacheHits.increment();
+            return cached.permissions();
+        }
+        cacheMisses.increment();
+        Map<String, Set<ConductorPermission>> permissions = getEffectiveUserPermissions(authentication, roles);
+        permissionCache.put(key, new CachedPermissions(roles, authorityNames, permissions), jwt.getExpiresAt());
+        return permissions;
+    }
+
+    /**
+     * Calculates a map of effective permissions for a given user (see getCachedUserPermissions for the cached lookup).
      * The map structure: Map<ResourceType (String), Set<ConductorPermission>>
      */
-    @Cacheable(value = "userPermissions", key = "#authentication.name")
     public Map<String, Set<ConductorPermission>> getEffectiveUserPermissions(Authentication authentication) {
+        return getEffectiveUserPermissions(authentication, conConfig.current());
+    }
+
+    private Map<String, Set<ConductorPermission>> getEffectiveUserPermissions(Authentication authentication, ConductorRoleConfig.Roles roles) {
         Map<String, Set<ConductorPermission>> userPermissions = new HashMap<>();
         List<String> userRoles = extractUserRoles(authentication);
 
@@ -71,26 +132,26 @@ public class ConductorPermissionEvaluator implements PermissionEvaluator {
         // --- Role-based Permission Calculation ---
 
         // ADMIN has full access to everything
-        if (hasAnyRequiredRole(userRoles, conConfig.admin())) {
+        if (hasAnyRequiredRole(userRoles, roles.admin())) {
             for (String resourceType : allResourceTypes) {
                 userPermissions.computeIfAbsent(resourceType, k -> new HashSet<>()).addAll(allPermissions);
             }
-            return userPermissions; // Admins are done, no need to check other roles
+            return immutable(userPermissions); // Admins are done, no need to check other roles
         }
 
         // Workflow Manager permissions (workflow-resource, workflow-bulk-resource)
-        if (hasAnyRequiredRole(userRoles, conConfig.workflowManager())) {
+        if (hasAnyRequiredRole(userRoles, roles.workflowManager())) {
             userPermissions.computeIfAbsent("workflow", k -> new HashSet<>()).addAll(allPermissions); // Assume all actions for workflow
             userPermissions.computeIfAbsent("workflow-bulk", k -> new HashSet<>()).addAll(allPermissions); // Assume all actions for workflow-bulk
         }
 
         // Metadata Manager permissions (metadata-resource)
-        if (hasAnyRequiredRole(userRoles, conConfig.metadataManager())) {
+        if (hasAnyRequiredRole(userRoles, roles.metadataManager())) {
             userPermissions.computeIfAbsent("metadata", k -> new HashSet<>()).addAll(allPermissions); // Assume all actions for metadata
         }
 
         // Basic User permissions (layered on top, or defined if not already covered)
-        if (hasAnyRequiredRole(userRoles, conConfig.user())) {
+        if (hasAnyRequiredRole(userRoles, roles.user())) {
             // Workflow: user* has GET, POST, PUT, DELETE, EXECUTE (assuming EXECUTE for start/pause/resume)
             userPermissions.computeIfAbsent("workflow", k -> new HashSet<>()).addAll(Arrays.asList(
                 ConductorPermission.READ, ConductorPermission.CREATE, ConductorPermission.UPDATE, ConductorPermission.DELETE, ConductorPermission.EXECUTE));
@@ -120,7 +181,14 @@ public class ConductorPermissionEvaluator implements PermissionEvaluator {
         //     userPermissions.computeIfAbsent("queue-admin", k -> new HashSet<>()).addAll(allPermissions); // Or specific queue admin permissions
         // }
 
-        return userPermissions;
+        return immutable(userPermissions);
+    }
+
+    // Immutable, as the same map is shared by every request carrying this token
+    private static Map<String, Set<ConductorPermission>> immutable(Map<String, Set<ConductorPermission>> permissions) {
+        Map<String, Set<ConductorPermission>> copy = new HashMap<>();
+        permissions.forEach((resourceType, actions) -> copy.put(resourceType, Set.copyOf(actions)));
+        return Map.copyOf(copy);
     }
 
 
@@ -132,27 +200,25 @@ public class ConductorPermissionEvaluator implements PermissionEvaluator {
 
     @Override
     public boolean hasPermission(Authentication authentication, Serializable targetId, String targetType, Object permission) {
-        if (!(authentication.getPrincipal() instanceof Jwt)) {
-            return false;
-        }
-        if (!(permission instanceof ConductorPermission action)) {
-            System.err.println("Error: Permission object is not of type ConductorPermission: " + (permission != null ? permission.getClass().getName() : "null"));
+        if (!(authentication.getPrincipal() instanceof Jwt jwt) || !(permission instanceof ConductorPermission action)) {
+            // A permission of the wrong type is written to the audit as invalid
+            audit.decision(authentication, targetType, targetId, permission, false);
             return false;
         }
 
         // Get the cached permissions map for the user
-        Map<String, Set<ConductorPermission>> userEffectivePermissions = getEffectiveUserPermissions(authentication);
+        Map<String, Set<ConductorPermission>> userEffectivePermissions = getCachedUserPermissions(authentication, jwt);
 
         // Perform a quick in-memory lookup
         Set<ConductorPermission> allowedActions = userEffectivePermissions.getOrDefault(targetType.toLowerCase(), Collections.emptySet());
 
         boolean granted = allowedActions.contains(action);
-
-        // Debugging (optional, remove in production)
-        System.out.println("DEBUG: Permission Check - User: " + authentication.getName() +
-                           ", TargetType: " + targetType + ", Action: " + action +
-                           ", Allowed: " + allowedActions + ", Result: " + granted);
-
+        audit.decision(authentication, targetType, targetId, action, granted);
         return granted;
     }
+
+    // roles is the snapshot the permissions were computed from, compared by identity
+    private record CachedPermissions(ConductorRoleConfig.Roles roles, Set<String> authorities,
+                                     Map<String, Set<ConductorPermission>> permissions) {
+    }
 }
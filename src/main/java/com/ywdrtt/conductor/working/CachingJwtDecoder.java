@@ -0,0 +1,174 @@
+package com.ywdrtt.conductor.working;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * JwtDecoder that remembers tokens it has already verified.
+ *
+ * Clients reuse one access token for thousands of calls, so after the first full verification
+ * (signature + claim validation by the delegate) the resulting Jwt is kept in a bounded LRU until
+ * the token's exp. Entries are keyed by the SHA-256 of the token, so raw tokens are not retained
+ * and a hit requires the exact same token bytes. Rejected tokens are never cached.
+ *
+ * A cached token skips signature verification, so it would outlive the removal of its signing key
+ * from the JWKS. retainKeys drops the tokens whose "kid" is no longer published (and tokens
+ * without one); JwtDecoderConfig calls it on every JWKS refresh that removes keys. A revoked key
+ * is therefore still honoured for tokens already cached until the next refresh, at most
+ * jwt.jwks.refresh-interval later. A token whose verification was under way while retainKeys ran
+ * is not cached, since it may have been verified against a key that was just dropped.
+ *
+ * The LRU is split into SEGMENTS independently locked access-ordered maps to keep the hit path
+ * from serializing all request threads on one lock.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private static final int SEGMENTS = 16;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final JwtDecoder delegate;
+    private final Segment[] segments;
+    private final AtomicLong keySetGeneration = new AtomicLong(); // advanced by every retainKeys
+    private final Timer verification;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param maxSize max verified tokens kept; 0 disables the cache.
+     */
+    public CachingJwtDecoder(JwtDecoder delegate, int maxSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.segments = new Segment[maxSize > 0 ? SEGMENTS : 0];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(Math.max(1, maxSize / SEGMENTS));
+        }
+        this.verification = Timer.builder("conductor.security.jwt.verification").register(meterRegistry);
+        this.hits = Counter.builder("conductor.security.jwt.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("conductor.security.jwt.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("conductor.security.jwt.cache.size", this, CachingJwtDecoder::size).register(meterRegistry);
+        Gauge.builder("conductor.security.jwt.cache.hit.ratio", this, CachingJwtDecoder::hitRatio).register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        if (segments.length == 0 || token == null) {
+            return verify(token);
+        }
+
+        ByteBuffer key = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        Segment segment = segments[(key.getInt(0) & Integer.MAX_VALUE) % SEGMENTS];
+        Jwt cached = segment.get(key, System.currentTimeMillis());
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        long generation = keySetGeneration.get();
+        Jwt jwt = verify(token);
+        if (jwt.getExpiresAt() != null) {
+            segment.put(key, jwt, jwt.getExpiresAt().toEpochMilli(), generation);
+        }
+        return jwt;
+    }
+
+    /**
+     * Drops cached tokens whose "kid" header is not among the given key IDs.
+     */
+    public void retainKeys(Set<String> keyIds) {
+        // Advanced before sweeping: a put either lands before its segment is swept or sees the change
+        keySetGeneration.incrementAndGet();
+        for (Segment segment : segments) {
+            segment.removeIf(jwt -> !keyIds.contains(jwt.getHeaders().get("kid")));
+        }
+    }
+
+    private Jwt verify(String token) {
+        long start = System.nanoTime();
+        try {
+            return delegate.decode(token);
+        } finally {
+            verification.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private final class Segment {
+
+        private final Map<ByteBuffer, Entry> entries;
+
+        private Segment(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Entry> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        private synchronized Jwt get(ByteBuffer key, long nowMillis) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAtMillis() <= nowMillis) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.jwt();
+        }
+
+        // Skipped when retainKeys ran since the token's verification started
+        private synchronized void put(ByteBuffer key, Jwt jwt, long expiresAtMillis, long generation) {
+            if (keySetGeneration.get() == generation) {
+                entries.put(key, new Entry(jwt, expiresAtMillis));
+            }
+        }
+
+        private synchronized void removeIf(Predicate<Jwt> filter) {
+            entries.values().removeIf(entry -> filter.test(entry.jwt()));
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    private record Entry(Jwt jwt, long expiresAtMillis) {
+    }
+}
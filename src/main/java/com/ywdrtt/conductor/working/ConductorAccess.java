@@ -0,0 +1,28 @@
+package com.ywdrtt.conductor.working;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the permission a controller method requires, e.g.
+ * {@code @ConductorAccess(resource = "workflow", action = ConductorPermission.READ, id = "workflowId")}.
+ *
+ * Replaces {@code @PreAuthorize("hasPermission(...)")}: the rules are read once at startup into
+ * ConductorAccessInterceptor's route table instead of evaluating a SpEL expression per request.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ConductorAccess {
+
+    // Target type passed to the permission evaluator (workflow, metadata, event, ...)
+    String resource();
+
+    ConductorPermission action();
+
+    // Path variable holding the resource id for resource-specific checks; empty for global actions
+    String id() default "";
+}
@@ -0,0 +1,21 @@
+package com.ywdrtt.conductor.working;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ConductorAccessConfig implements WebMvcConfigurer {
+
+    private final ConductorAccessInterceptor conductorAccessInterceptor;
+
+    public ConductorAccessConfig(ConductorAccessInterceptor conductorAccessInterceptor) {
+        this.conductorAccessInterceptor = conductorAccessInterceptor;
+    }
+
+    // Route-table enforcement of @ConductorAccess for every controller endpoint
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(conductorAccessInterceptor);
+    }
+}
@@ -0,0 +1,120 @@
+package com.ywdrtt.conductor.working;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Enforces @ConductorAccess on controller methods.
+ *
+ * At startup every controller bean is scanned once and its annotated methods are compiled into an
+ * immutable route table (handler method -> resource, action, id path variable). Per request the
+ * interceptor does a single map lookup on the resolved handler method and asks the permission
+ * evaluator directly: no SpEL parsing, type resolution or expression root allocation.
+ *
+ * Denials throw AccessDeniedException, exactly like @PreAuthorize, so Spring Security's
+ * ExceptionTranslationFilter still answers with 403.
+ */
+@Slf4j
+@Component
+public class ConductorAccessInterceptor implements HandlerInterceptor, SmartInitializingSingleton {
+
+    private final ApplicationContext applicationContext;
+    private final PermissionEvaluator permissionEvaluator;
+    private volatile Map<Method, Rule> routes = Map.of();
+
+    public ConductorAccessInterceptor(ApplicationContext applicationContext,
+                                      PermissionEvaluator permissionEvaluator) {
+        this.applicationContext = applicationContext;
+        this.permissionEvaluator = permissionEvaluator;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<Method, Rule> table = new HashMap<>();
+        for (Object controller : applicationContext.getBeansWithAnnotation(Controller.class).values()) {
+            // HandlerMethod resolves methods on the user class, not on CGLIB proxies
+            for (Method method : ClassUtils.getUserClass(controller).getDeclaredMethods()) {
+                ConductorAccess access = method.getAnnotation(ConductorAccess.class);
+                if (access != null) {
+                    table.put(method, compile(method, access));
+                }
+            }
+        }
+        routes = Map.copyOf(table);
+        log.info("ConductorAccess route table compiled with {} rules", table.size());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        Rule rule = routes.get(handlerMethod.getMethod());
+        if (rule == null) {
+            return true; // no @ConductorAccess: authentication alone (SecurityConfig) applies
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !isGranted(rule, authentication, request)) {
+            throw new AccessDeniedException("Access is denied");
+        }
+        return true;
+    }
+
+    private boolean isGranted(Rule rule, Authentication authentication, HttpServletRequest request) {
+        if (rule.idVariable() == null) {
+            return permissionEvaluator.hasPermission(authentication, rule.resource(), rule.action());
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, String> pathVariables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String targetId = pathVariables != null ? pathVariables.get(rule.idVariable()) : null;
+        return permissionEvaluator.hasPermission(authentication, targetId, rule.resource(), rule.action());
+    }
+
+    /**
+     * Validates the annotation against the method once, so a typo in id() fails the startup
+     * instead of silently turning into a global check.
+     */
+    private static Rule compile(Method method, ConductorAccess access) {
+        if (access.id().isEmpty()) {
+            return new Rule(access.resource(), access.action(), null);
+        }
+        for (Parameter parameter : method.getParameters()) {
+            PathVariable pathVariable = parameter.getAnnotation(PathVariable.class);
+            if (pathVariable != null && access.id().equals(pathVariableName(pathVariable, parameter))) {
+                return new Rule(access.resource(), access.action(), access.id());
+            }
+        }
+        throw new IllegalStateException("@ConductorAccess on " + method + " refers to path variable '"
+                + access.id() + "' which the method does not declare");
+    }
+
+    private static String pathVariableName(PathVariable pathVariable, Parameter parameter) {
+        if (!pathVariable.name().isEmpty()) {
+            return pathVariable.name();
+        }
+        return !pathVariable.value().isEmpty() ? pathVariable.value() : parameter.getName();
+    }
+
+    private record Rule(String resource, ConductorPermission action, String idVariable) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.ywdrtt.conductor.working;
+
+/**
+ * Path prefixes of the Conductor server REST API, as used by the role-based URL rules in
+ * NewSecurityConfig and NewSecurityConfig1. Mirrors conductor-rest's RequestMappingConstants, which
+ * is not on this app's classpath.
+ */
+public final class ConductorApiPaths {
+
+    public static final String API_PREFIX = "/api/";
+
+    public static final String ADMIN = API_PREFIX + "admin";
+    public static final String EVENT = API_PREFIX + "event";
+    public static final String METADATA = API_PREFIX + "metadata";
+    public static final String QUEUE_ADMIN = API_PREFIX + "queue";
+    public static final String TASK = API_PREFIX + "tasks";
+    public static final String WORKFLOW_BULK = API_PREFIX + "workflow/bulk";
+    public static final String WORKFLOW = API_PREFIX + "workflow";
+    public static final String HEALTH_CHECK = "/health";
+
+    private ConductorApiPaths() {
+    }
+}
@@ -0,0 +1,13 @@
+package com.ywdrtt.conductor.working;
+
+/**
+ * Actions checked by ConductorPermissionEvaluator, e.g.
+ * hasPermission(#workflowId, 'workflow', T(ConductorPermission).READ).
+ */
+public enum ConductorPermission {
+    READ,
+    CREATE,
+    UPDATE,
+    DELETE,
+    EXECUTE
+}
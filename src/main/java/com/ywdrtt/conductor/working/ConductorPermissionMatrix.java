@@ -0,0 +1,207 @@
+package com.ywdrtt.conductor.working;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Immutable role × resource type × ConductorPermission decision table, compiled from a
+ * ConductorRoleConfig snapshot at startup and again after every role reload.
+ *
+ * Configured roles are folded into four tiers (admin, workflow manager, metadata manager, user).
+ * A caller's authorities become a tier bitmask, and for every tier combination the permissions
+ * allowed on each resource type are stored as a bitset over ConductorPermission ordinals. A
+ * decision is then a map lookup per authority, two array lookups and a bit test, with no
+ * allocation on the common path.
+ *
+ * The table encodes exactly the rules ConductorPermissionEvaluator used to evaluate per call:
+ * - admin: every action on every resource
+ * - workflow manager: every action on workflow resources (any "workflow*" type for global checks,
+ *   "workflow" / "workflow-bulk" for resource checks)
+ * - metadata manager: every action on metadata
+ * - user: CREATE/READ (global) or any action (resource) on workflow, metadata, event, task and
+ *   health-check
+ */
+public final class ConductorPermissionMatrix {
+
+    // Tiers: bit positions in a caller's tier mask
+    private static final int ADMIN = 1;
+    private static final int WORKFLOW_MANAGER = 1 << 1;
+    private static final int METADATA_MANAGER = 1 << 2;
+    private static final int USER = 1 << 3;
+    private static final int TIER_COMBINATIONS = 1 << 4;
+
+    // Resource types
+    private static final int WORKFLOW = 0;
+    private static final int WORKFLOW_BULK = 1;
+    private static final int WORKFLOW_OTHER = 2; // other "workflow*" types, global checks only
+    private static final int METADATA = 3;
+    private static final int EVENT = 4;
+    private static final int TASK = 5;
+    private static final int HEALTH_CHECK = 6;
+    private static final int OTHER = 7;
+    private static final int RESOURCE_TYPES = 8;
+
+    private static final Map<String, Integer> RESOURCE_TYPES_BY_NAME = Map.of(
+            "workflow", WORKFLOW,
+            "workflow-bulk", WORKFLOW_BULK,
+            "metadata", METADATA,
+            "event", EVENT,
+            "task", TASK,
+            "health-check", HEALTH_CHECK);
+
+    private static final String ROLE_PREFIX = "ROLE_";
+    private static final int ALL = (1 << ConductorPermission.values().length) - 1;
+    private static final int CREATE_OR_READ = bit(ConductorPermission.CREATE) | bit(ConductorPermission.READ);
+
+    private final Map<String, Integer> tiersByAuthority; // "ROLE_<UPPERCASE ROLE>" -> tier mask
+    private final int[][] global = new int[TIER_COMBINATIONS][RESOURCE_TYPES];
+    private final int[][] resource = new int[TIER_COMBINATIONS][RESOURCE_TYPES];
+
+    private ConductorPermissionMatrix(Map<String, Integer> tiersByAuthority) {
+        this.tiersByAuthority = tiersByAuthority;
+        for (int tiers = 0; tiers < TIER_COMBINATIONS; tiers++) {
+            for (int type = 0; type < RESOURCE_TYPES; type++) {
+                global[tiers][type] = globalPermissions(tiers, type);
+                resource[tiers][type] = resourcePermissions(tiers, type);
+            }
+        }
+    }
+
+    public static ConductorPermissionMatrix compile(ConductorRoleConfig config) {
+        return compile(config.current());
+    }
+
+    // Compiled from one snapshot so a concurrent reload can never mix two policies
+    public static ConductorPermissionMatrix compile(ConductorRoleConfig.Roles roles) {
+        Map<String, Integer> tiers = new HashMap<>();
+        addTier(tiers, roles.admin(), ADMIN);
+        addTier(tiers, roles.workflowManager(), WORKFLOW_MANAGER);
+        addTier(tiers, roles.metadataManager(), METADATA_MANAGER);
+        addTier(tiers, roles.user(), USER);
+        return new ConductorPermissionMatrix(Map.copyOf(tiers));
+    }
+
+    /**
+     * Global actions, e.g. hasPermission('workflow', ConductorPermission.CREATE).
+     */
+    public boolean isAllowed(Collection<? extends GrantedAuthority> authorities, String targetType, ConductorPermission action) {
+        return (global[tierMask(authorities)][resourceType(targetType, true)] & bit(action)) != 0;
+    }
+
+    /**
+     * Resource-specific actions, e.g. hasPermission(#workflowId, 'workflow', ConductorPermission.READ).
+     */
+    public boolean isAllowedOnResource(Collection<? extends GrantedAuthority> authorities, String targetType, ConductorPermission action) {
+        return (resource[tierMask(authorities)][resourceType(targetType, false)] & bit(action)) != 0;
+    }
+
+    private int tierMask(Collection<? extends GrantedAuthority> authorities) {
+        if (authorities == null) {
+            return 0;
+        }
+        int mask = 0;
+        if (authorities instanceof List<?> list && authorities instanceof RandomAccess) {
+            // Authentication tokens hold an unmodifiable ArrayList: index it rather than allocate an iterator
+            for (int i = 0; i < list.size(); i++) {
+                mask |= tiers((GrantedAuthority) list.get(i));
+            }
+        } else {
+            for (GrantedAuthority authority : authorities) {
+                mask |= tiers(authority);
+            }
+        }
+        return mask;
+    }
+
+    private int tiers(GrantedAuthority authority) {
+        String name = authority.getAuthority();
+        if (name == null) {
+            return 0;
+        }
+        Integer tiers = tiersByAuthority.get(name);
+        if (tiers == null && name.startsWith(ROLE_PREFIX) && !isUpperCase(name)) {
+            // Role names are compared case-insensitively; only mixed-case authorities pay for this
+            tiers = tiersByAuthority.get(ROLE_PREFIX + name.substring(ROLE_PREFIX.length()).toUpperCase());
+        }
+        return tiers == null ? 0 : tiers;
+    }
+
+    private static int resourceType(String targetType, boolean global) {
+        if (targetType == null) {
+            return OTHER;
+        }
+        Integer type = RESOURCE_TYPES_BY_NAME.get(targetType);
+        if (type == null) {
+            String lower = targetType.toLowerCase();
+            type = RESOURCE_TYPES_BY_NAME.get(lower);
+            if (type == null) {
+                type = global && lower.startsWith("workflow") ? WORKFLOW_OTHER : OTHER;
+            }
+        }
+        return type;
+    }
+
+    private static int globalPermissions(int tiers, int type) {
+        int permissions = 0;
+        if ((tiers & ADMIN) != 0) {
+            permissions |= ALL;
+        }
+        if ((tiers & WORKFLOW_MANAGER) != 0 && (type == WORKFLOW || type == WORKFLOW_BULK || type == WORKFLOW_OTHER)) {
+            permissions |= ALL;
+        }
+        if ((tiers & METADATA_MANAGER) != 0 && type == METADATA) {
+            permissions |= ALL;
+        }
+        if ((tiers & USER) != 0 && isUserResource(type)) {
+            permissions |= CREATE_OR_READ;
+        }
+        return permissions;
+    }
+
+    private static int resourcePermissions(int tiers, int type) {
+        int permissions = 0;
+        if ((tiers & ADMIN) != 0) {
+            permissions |= ALL;
+        }
+        if ((tiers & WORKFLOW_MANAGER) != 0 && (type == WORKFLOW || type == WORKFLOW_BULK)) {
+            permissions |= ALL;
+        }
+        if ((tiers & METADATA_MANAGER) != 0 && type == METADATA) {
+            permissions |= ALL;
+        }
+        if ((tiers & USER) != 0 && isUserResource(type)) {
+            permissions |= ALL;
+        }
+        return permissions;
+    }
+
+    private static boolean isUserResource(int type) {
+        return type == WORKFLOW || type == METADATA || type == EVENT || type == TASK || type == HEALTH_CHECK;
+    }
+
+    private static void addTier(Map<String, Integer> tiers, List<String> roles, int tier) {
+        for (String role : roles) {
+            if (role != null && !role.isBlank()) {
+                tiers.merge(ROLE_PREFIX + role.toUpperCase(), tier, (a, b) -> a | b);
+            }
+        }
+    }
+
+    private static boolean isUpperCase(String name) {
+        for (int i = ROLE_PREFIX.length(); i < name.length(); i++) {
+            if (Character.isLowerCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int bit(ConductorPermission permission) {
+        return 1 << permission.ordinal();
+    }
+}
@@ -1,13 +1,21 @@
 package com.ywdrtt.conductor.working;
 
-package com.yourcompany.yourconductorapp.config;
-
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
+/**
+ * Role mappings, held as an immutable Roles snapshot that is swapped atomically on reload
+ * (see ConductorRoleConfigReloader). A reader takes current() once and sees one consistent policy.
+ *
+ * The app.roles.* values bound at startup are the initial snapshot.
+ */
 @Component("conConfig")
 public class ConductorRoleConfig {
 
@@ -23,19 +31,66 @@ public class ConductorRoleConfig {
     @Value("${app.roles.user:USER}")
     private List<String> userRoles;
 
+    private volatile Roles current;
+
+    /**
+     * The role lists in effect, trimmed, upper-cased and de-duplicated once per snapshot.
+     */
+    public Roles current() {
+        Roles roles = current;
+        if (roles == null) {
+            // First read: compile the startup values (a racing duplicate compiles the same snapshot)
+            roles = Roles.of(adminRoles, workflowManagerRoles, metadataManagerRoles, userRoles);
+            current = roles;
+        }
+        return roles;
+    }
+
+    /**
+     * Publishes a new snapshot; readers switch over on their next current() call.
+     */
+    public void update(Roles roles) {
+        this.current = roles;
+    }
+
     public List<String> adminRoles() {
-        return adminRoles != null ? adminRoles : Collections.emptyList();
+        return current().admin();
     }
 
     public List<String> workflowManagerRoles() {
-        return workflowManagerRoles != null ? workflowManagerRoles : Collections.emptyList();
+        return current().workflowManager();
     }
 
     public List<String> metadataManagerRoles() {
-        return metadataManagerRoles != null ? metadataManagerRoles : Collections.emptyList();
+        return current().metadataManager();
     }
 
     public List<String> userRoles() {
-        return userRoles != null ? userRoles : Collections.emptyList();
+        return current().user();
+    }
+
+    public record Roles(List<String> admin, List<String> workflowManager, List<String> metadataManager, List<String> user) {
+
+        public static Roles of(Collection<String> admin, Collection<String> workflowManager,
+                               Collection<String> metadataManager, Collection<String> user) {
+            return new Roles(normalize(admin), normalize(workflowManager), normalize(metadataManager), normalize(user));
+        }
+
+        public boolean isEmpty() {
+            return admin.isEmpty() && workflowManager.isEmpty() && metadataManager.isEmpty() && user.isEmpty();
+        }
+
+        private static List<String> normalize(Collection<String> roles) {
+            if (roles == null) {
+                return Collections.emptyList();
+            }
+            Set<String> normalized = new LinkedHashSet<>();
+            for (String role : roles) {
+                if (role != null && !role.isBlank()) {
+                    normalized.add(role.trim().toUpperCase(Locale.ROOT));
+                }
+            }
+            return List.copyOf(normalized);
+        }
     }
 }
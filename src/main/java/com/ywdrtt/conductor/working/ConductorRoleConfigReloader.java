@@ -0,0 +1,190 @@
+package com.ywdrtt.conductor.working;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reloads ConductorRoleConfig at runtime, without a restart, from either source:
+ * - app.roles.file: a properties file using the same keys (app.roles.admin=ADMIN,SUPER_ADMIN ...),
+ *   watched for changes. Keys missing from the file keep their Environment value.
+ * - the Spring Environment, re-read on POST /actuator/conductorroles (expose the endpoint with
+ *   management.endpoints.web.exposure.include). GET returns the roles in effect.
+ *
+ * The Environment is the one bound at startup: a POST only sees values changed in its live property
+ * sources (system properties, or sources a config client replaces at runtime). application.properties
+ * and other config files are not read again, so edits to them are only picked up through
+ * app.roles.file, or by a restart.
+ *
+ * Each reload is compiled into a new immutable ConductorRoleConfig.Roles, published with one
+ * volatile write, and announced with ConductorRolesReloadedEvent so evaluators swap their compiled
+ * tables and drop caches. Readers never lock. A file that cannot be read or defines no role at all
+ * is rejected and the current policy stays. File events are debounced so an editor's partial
+ * writes are not applied; replacing the file with an atomic move is still the safest way to edit it.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "conductorroles")
+public class ConductorRoleConfigReloader implements InitializingBean, DisposableBean {
+
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private static final String ADMIN = "app.roles.admin";
+    private static final String WORKFLOW_MANAGER = "app.roles.workflowManager";
+    private static final String METADATA_MANAGER = "app.roles.metadataManager";
+    private static final String USER = "app.roles.user";
+
+    private final ConductorRoleConfig roleConfig;
+    private final Environment environment;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.roles.file:}")
+    private String rolesFile;
+
+    private WatchService watchService;
+    private Thread watcher;
+
+    public ConductorRoleConfigReloader(ConductorRoleConfig roleConfig, Environment environment, ApplicationEventPublisher eventPublisher) {
+        this.roleConfig = roleConfig;
+        this.environment = environment;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!StringUtils.hasText(rolesFile)) {
+            return;
+        }
+        Path file = Path.of(rolesFile).toAbsolutePath();
+        reloadFromFile(file);
+
+        // Watch the directory, not the file: editors and ConfigMap updates replace it via rename
+        watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watcher = new Thread(() -> watch(file), "conductor-roles-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Watching {} for role mapping changes", file);
+    }
+
+    /**
+     * The file was first applied while beans were still being created, before @EventListener methods
+     * are registered: announce the snapshot once more so evaluators built earlier recompile from it.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void onContextRefreshed() {
+        if (StringUtils.hasText(rolesFile)) {
+            eventPublisher.publishEvent(new ConductorRolesReloadedEvent(roleConfig));
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (watchService != null) {
+            watchService.close(); // ends the watcher thread
+        }
+    }
+
+    @ReadOperation
+    public ConductorRoleConfig.Roles roles() {
+        return roleConfig.current();
+    }
+
+    /**
+     * Re-reads the role keys from the live Environment; config files loaded at startup are not read
+     * again (see the class comment).
+     */
+    @WriteOperation
+    public ConductorRoleConfig.Roles reloadFromEnvironment() {
+        ConductorRoleConfig.Roles roles = roles(environment::getProperty);
+        if (roles.equals(roleConfig.current())) {
+            log.info("No role change in the environment; config files are not re-read, use app.roles.file to reload them");
+        }
+        apply(roles, "environment");
+        return roleConfig.current();
+    }
+
+    private void watch(Path file) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // Swallow the burst of events a single save produces, then read once
+                do {
+                    key.pollEvents();
+                    key.reset();
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                reloadFromFile(file);
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // shutting down
+        }
+    }
+
+    private void reloadFromFile(Path file) {
+        if (!Files.isRegularFile(file)) {
+            log.warn("Role mapping file {} not found, keeping current roles", file);
+            return;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Could not read role mapping file {}, keeping current roles: {}", file, e.getMessage());
+            return;
+        }
+        apply(roles(key -> properties.getProperty(key, environment.getProperty(key))), file.toString());
+    }
+
+    private ConductorRoleConfig.Roles roles(UnaryOperator<String> lookup) {
+        return ConductorRoleConfig.Roles.of(
+                split(lookup.apply(ADMIN), "ADMIN"),
+                split(lookup.apply(WORKFLOW_MANAGER), "WORKFLOW_MANAGER"),
+                split(lookup.apply(METADATA_MANAGER), "METADATA_MANAGER"),
+                split(lookup.apply(USER), "USER"));
+    }
+
+    // Same comma splitting and defaults as the @Value bindings in ConductorRoleConfig
+    private static List<String> split(String value, String defaultRole) {
+        return Arrays.asList(StringUtils.commaDelimitedListToStringArray(value != null ? value : defaultRole));
+    }
+
+    private synchronized void apply(ConductorRoleConfig.Roles roles, String source) {
+        if (roles.isEmpty()) {
+            log.warn("Role mappings from {} define no roles, keeping current roles", source);
+            return;
+        }
+        if (roles.equals(roleConfig.current())) {
+            return;
+        }
+        roleConfig.update(roles);
+        eventPublisher.publishEvent(new ConductorRolesReloadedEvent(roleConfig));
+        log.info("Role mappings reloaded from {}: {}", source, roles);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ywdrtt.conductor.working;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published after ConductorRoleConfig has reloaded its role lists. Anything derived from them
+ * (compiled permission tables, cached effective permissions) must be rebuilt or dropped.
+ */
+public class ConductorRolesReloadedEvent extends ApplicationEvent {
+
+    public ConductorRolesReloadedEvent(ConductorRoleConfig roleConfig) {
+        super(roleConfig);
+    }
+
+    public ConductorRoleConfig getRoleConfig() {
+        return (ConductorRoleConfig) getSource();
+    }
+}
@@ -0,0 +1,238 @@
+package com.ywdrtt.conductor.working;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Role-based URL authorization for the SecurityFilterChain, decided in a single walk of the request path.
+ *
+ * The rules are the same ones the chain used to declare one by one
+ * ({@code requestMatchers(HttpMethod.GET, WORKFLOW + "/**").hasAnyRole(...)}, first match wins,
+ * anything unmatched only needs to be authenticated), but instead of testing every matcher in order
+ * they are compiled into a trie of path segments. Each trie node stores, per HTTP method, the
+ * index of the first declared rule ending there, so the winning rule is the lowest index seen
+ * while walking down the request's segments. Role lists are compiled into bitmasks; a caller's
+ * authorities are turned into one mask and a decision is a single AND.
+ *
+ * Semantics follow AntPathRequestMatcher for "prefix/**" patterns: a rule matches the prefix itself
+ * and anything below it ("/api/workflow", "/api/workflow/", "/api/workflow/123"), case-sensitively,
+ * against servletPath + pathInfo. A request without a method matches method-specific rules too.
+ */
+public final class ConductorRouteAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+    private static final String SUBPATH_SUFFIX = "/**";
+    private static final int NO_RULE = Integer.MAX_VALUE;
+
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+    private static final int ANY_METHOD = METHODS.length; // slot for rules without a method
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final Node root;
+    private final long[] ruleRoles; // rule index -> mask of roles allowed by that rule
+    private final Map<String, Long> roleBits; // "ROLE_X" -> bit
+
+    private ConductorRouteAuthorizationManager(Node root, long[] ruleRoles, Map<String, Long> roleBits) {
+        this.root = root;
+        this.ruleRoles = ruleRoles;
+        this.roleBits = roleBits;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        int rule = firstMatchingRule(context.getRequest());
+        Authentication auth = authentication.get();
+        if (rule == NO_RULE) {
+            // anyRequest().authenticated()
+            return auth != null && !(auth instanceof AnonymousAuthenticationToken) && auth.isAuthenticated() ? GRANTED : DENIED;
+        }
+        return auth != null && auth.isAuthenticated() && (roleMask(auth.getAuthorities()) & ruleRoles[rule]) != 0 ? GRANTED : DENIED;
+    }
+
+    private int firstMatchingRule(HttpServletRequest request) {
+        String path = requestPath(request);
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return NO_RULE; // every rule prefix starts with '/'
+        }
+        int slot = methodSlot(request.getMethod());
+
+        int first = NO_RULE;
+        Node node = root;
+        int start = 1;
+        while (true) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            node = node.child(path, start, end - start);
+            if (node == null) {
+                return first;
+            }
+            first = Math.min(first, slot < 0 ? node.firstForAnyMethod : Math.min(node.first[slot], node.first[ANY_METHOD]));
+            if (end == path.length()) {
+                return first;
+            }
+            start = end + 1;
+        }
+    }
+
+    private long roleMask(Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            String name = authority.getAuthority();
+            Long bit = name == null ? null : roleBits.get(name);
+            if (bit != null) {
+                mask |= bit;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return the method's slot, ANY_METHOD for methods no rule can name, or -1 when the request
+     * has no method (AntPathRequestMatcher then ignores the rule's method).
+     */
+    private static int methodSlot(String method) {
+        if (!StringUtils.hasText(method)) {
+            return -1;
+        }
+        HttpMethod resolved = HttpMethod.resolve(method);
+        return resolved == null ? ANY_METHOD : resolved.ordinal();
+    }
+
+    // Same path AntPathRequestMatcher matches against
+    private static String requestPath(HttpServletRequest request) {
+        String url = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        if (pathInfo != null) {
+            url = StringUtils.hasLength(url) ? url + pathInfo : pathInfo;
+        }
+        return url == null ? "" : url;
+    }
+
+    private static final class Node {
+
+        private final String segment;
+        private Node[] children = new Node[0];
+        private final int[] first = new int[METHODS.length + 1]; // method slot -> first rule ending here
+        private int firstForAnyMethod = NO_RULE;
+
+        private Node(String segment) {
+            this.segment = segment;
+            Arrays.fill(first, NO_RULE);
+        }
+
+        // Children are few per level, so a scan with regionMatches beats hashing a substring
+        private Node child(String path, int offset, int length) {
+            for (Node child : children) {
+                if (child.segment.length() == length && path.regionMatches(offset, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private Node childOrCreate(String segment) {
+            for (Node child : children) {
+                if (child.segment.equals(segment)) {
+                    return child;
+                }
+            }
+            Node child = new Node(segment);
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+            return child;
+        }
+
+        private void add(int slot, int rule) {
+            first[slot] = Math.min(first[slot], rule);
+            firstForAnyMethod = Math.min(firstForAnyMethod, rule);
+        }
+    }
+
+    /**
+     * Collects the rules in declaration order; order matters exactly as it did for requestMatchers.
+     */
+    public static final class Builder {
+
+        private record Rule(HttpMethod method, String pattern, List<String> roles) {
+        }
+
+        private final List<Rule> rules = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        // requestMatchers(pattern).hasAnyRole(roles)
+        public Builder route(String pattern, List<String> roles) {
+            return route(null, pattern, roles);
+        }
+
+        // requestMatchers(method, pattern).hasAnyRole(roles)
+        public Builder route(HttpMethod method, String pattern, List<String> roles) {
+            if (pattern == null || !pattern.startsWith("/") || !pattern.endsWith(SUBPATH_SUFFIX)
+                    || pattern.length() == SUBPATH_SUFFIX.length()
+                    || pattern.indexOf('*') != pattern.length() - 2 || pattern.indexOf('?') >= 0 || pattern.indexOf('{') >= 0) {
+                throw new IllegalArgumentException("Only \"/prefix/**\" patterns are supported, got: " + pattern);
+            }
+            for (String role : roles) {
+                if (role.startsWith(ROLE_PREFIX)) {
+                    throw new IllegalArgumentException(role + " should not start with " + ROLE_PREFIX + " since it is automatically inserted");
+                }
+            }
+            rules.add(new Rule(method, pattern, List.copyOf(roles)));
+            return this;
+        }
+
+        public ConductorRouteAuthorizationManager build() {
+            Map<String, Long> roleBits = new HashMap<>();
+            long[] ruleRoles = new long[rules.size()];
+            Node root = new Node("");
+
+            for (int i = 0; i < rules.size(); i++) {
+                Rule rule = rules.get(i);
+                for (String role : rule.roles()) {
+                    Long bit = roleBits.get(ROLE_PREFIX + role);
+                    if (bit == null) {
+                        if (roleBits.size() == Long.SIZE) {
+                            throw new IllegalStateException("At most " + Long.SIZE + " distinct roles are supported");
+                        }
+                        bit = 1L << roleBits.size();
+                        roleBits.put(ROLE_PREFIX + role, bit);
+                    }
+                    ruleRoles[i] |= bit;
+                }
+
+                // "/api/workflow/**" -> segments "api", "workflow"
+                String prefix = rule.pattern().substring(1, rule.pattern().length() - SUBPATH_SUFFIX.length());
+                Node node = root;
+                for (String segment : prefix.split("/", -1)) {
+                    node = node.childOrCreate(segment);
+                }
+                node.add(rule.method() == null ? ANY_METHOD : rule.method().ordinal(), i);
+            }
+            return new ConductorRouteAuthorizationManager(root, ruleRoles, Map.copyOf(roleBits));
+        }
+    }
+}
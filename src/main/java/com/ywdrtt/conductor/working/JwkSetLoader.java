@@ -0,0 +1,31 @@
+package com.ywdrtt.conductor.working;
+
+import com.nimbusds.jose.jwk.JWKSet;
+
+import java.io.IOException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Where RefreshingJwkSource gets the IdP's signing keys from. Production uses the IdP's JWKS
+ * endpoint; tests declare a JwkSetLoader bean backed by a local in-memory key set instead.
+ */
+@FunctionalInterface
+public interface JwkSetLoader {
+
+    // Upper bound for a JWKS document; real ones are a few KB
+    int MAX_JWKS_SIZE_BYTES = 512 * 1024;
+
+    JWKSet load() throws IOException, ParseException;
+
+    static JwkSetLoader remote(URL jwkSetUrl, Duration timeout) {
+        int timeoutMillis = (int) timeout.toMillis();
+        return () -> JWKSet.load(jwkSetUrl, timeoutMillis, timeoutMillis, MAX_JWKS_SIZE_BYTES);
+    }
+
+    static JwkSetLoader inMemory(JWKSet jwkSet) {
+        JWKSet publicKeys = jwkSet.toPublicJWKSet();
+        return () -> publicKeys;
+    }
+}
@@ -1,7 +1,5 @@
 package com.ywdrtt.conductor.working;
 
-package com.yourcompany.yourconductorapp.config;
-
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,20 +10,31 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Configuration
 public class JwtConverterConfig {
 
+    // Malformed role claims are reported through the async audit writer, not the console
+    private final AuthorizationAudit audit;
+
     @Value("${jwt.claims.role-paths:}")
     private List<String> roleClaimPaths;
 
+    // Max tokens whose authorities are kept; 0 disables the cache
+    @Value("${jwt.claims.authority-cache.max-size:10000}")
+    private int authorityCacheMaxSize;
+
+    public JwtConverterConfig(AuthorizationAudit audit) {
+        this.audit = audit;
+    }
+
     @Bean
     public JwtAuthenticationConverter jwtAuthenticationConverter() {
         JwtAuthenticationConverter jwtAuthenticationConverter = new JwtAuthenticationConverter();
@@ -34,68 +43,100 @@ public class JwtConverterConfig {
     }
 
     private Converter<Jwt, Collection<GrantedAuthority>> jwtGrantedAuthoritiesConverter() {
+        // Compiled once here instead of re-splitting every path for every request
+        List<ClaimPath> claimPaths = compile(roleClaimPaths);
+        // Stateless and thread-safe, so one instance serves all tokens
+        JwtGrantedAuthoritiesConverter defaultAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+        TokenScopedCache<Collection<GrantedAuthority>> cache = new TokenScopedCache<>(authorityCacheMaxSize);
+
         return jwt -> {
-            Set<GrantedAuthority> authorities = Stream.empty().collect(Collectors.toSet());
-
-            JwtGrantedAuthoritiesConverter defaultAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
-            authorities.addAll(defaultAuthoritiesConverter.convert(jwt));
-
-            for (String rolePath : roleClaimPaths) {
-                List<String> rolesFromPath = extractListClaimByPath(jwt, rolePath.trim());
-                if (rolesFromPath != null && !rolesFromPath.isEmpty()) {
-                    authorities.addAll(
-                            rolesFromPath.stream()
-                                    .map(roleName -> new SimpleGrantedAuthority("ROLE_" + roleName.toUpperCase()))
-                                    .collect(Collectors.toSet())
-                    );
+            // The token's signature was verified before conversion, so its claims can key the cache
+            String cacheKey = cache.isEnabled() ? cacheKey(jwt) : null;
+            if (cacheKey != null) {
+                Collection<GrantedAuthority> cached = cache.get(cacheKey);
+                if (cached != null) {
+                    return cached;
                 }
             }
 
-            return authorities;
+            Set<GrantedAuthority> authorities = new HashSet<>(defaultAuthoritiesConverter.convert(jwt));
+            for (ClaimPath claimPath : claimPaths) {
+                for (String roleName : claimPath.extract(jwt, audit)) {
+                    authorities.add(new SimpleGrantedAuthority("ROLE_" + roleName.toUpperCase()));
+                }
+            }
+
+            Collection<GrantedAuthority> resolved = Collections.unmodifiableSet(authorities);
+            if (cacheKey != null) {
+                cache.put(cacheKey, resolved, jwt.getExpiresAt());
+            }
+            return resolved;
         };
     }
 
-    private List<String> extractListClaimByPath(Jwt jwt, String path) {
-        if (path == null || path.isEmpty()) {
-            return Collections.emptyList();
+    /**
+     * Identifies a token: issuer + subject + jti when the IdP issues a jti, otherwise the raw
+     * token value itself (exact match, so two tokens can never share an entry).
+     */
+    private static String cacheKey(Jwt jwt) {
+        String jti = jwt.getId();
+        if (jti == null || jti.isEmpty()) {
+            return jwt.getTokenValue();
         }
+        return jwt.getClaimAsString("iss") + '|' + jwt.getSubject() + '|' + jti;
+    }
 
-        String[] pathSegments = path.split("\\.");
-        Object currentClaim = jwt.getClaims();
-
-        for (int i = 0; i < pathSegments.length; i++) {
-            String segment = pathSegments[i];
-
-            if (currentClaim instanceof Map) {
-                Map<String, Object> currentMap = (Map<String, Object>) currentClaim;
-                currentClaim = currentMap.get(segment);
+    private static List<ClaimPath> compile(List<String> paths) {
+        if (paths == null) {
+            return Collections.emptyList();
+        }
+        List<ClaimPath> compiled = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            String trimmed = path == null ? "" : path.trim();
+            if (!trimmed.isEmpty()) {
+                compiled.add(new ClaimPath(trimmed, trimmed.split("\\.")));
+            }
+        }
+        return List.copyOf(compiled);
+    }
 
-                if (currentClaim == null) {
+    /**
+     * A role claim path such as "realm_access.roles", split into its segments at startup.
+     * Extraction walks the nested claim maps segment by segment and accepts a List of Strings
+     * (non-String elements are ignored) or a single String at the end of the path. Anything else
+     * is reported to the audit and yields no roles.
+     */
+    private record ClaimPath(String path, String[] segments) {
+
+        List<String> extract(Jwt jwt, AuthorizationAudit audit) {
+            Object currentClaim = jwt.getClaims();
+            for (int i = 0; i < segments.length; i++) {
+                if (!(currentClaim instanceof Map<?, ?> currentMap)) {
+                    // Expected a Map at this segment
+                    audit.malformedClaim(jwt.getSubject(), path, segments[i], currentClaim);
                     return Collections.emptyList();
                 }
-            } else {
-                if (i < pathSegments.length - 1) {
-                    System.err.println("Warning: JWT claim path '" + path + "' invalid. Expected a Map at segment '" + segment + "' but found " + (currentClaim != null ? currentClaim.getClass().getSimpleName() : "null"));
+                currentClaim = currentMap.get(segments[i]);
+                if (currentClaim == null) {
                     return Collections.emptyList();
                 }
             }
-        }
 
-        if (currentClaim instanceof List) {
-            try {
-                return ((List<?>) currentClaim).stream()
-                        .filter(String.class::isInstance)
-                        .map(String.class::cast)
-                        .collect(Collectors.toList());
-            } catch (ClassCastException e) {
-                System.err.println("Warning: JWT claim at path '" + path + "' is a List but contains non-String elements. " + e.getMessage());
+            if (currentClaim instanceof List<?> list) {
+                List<String> roles = new ArrayList<>(list.size());
+                for (Object element : list) {
+                    if (element instanceof String role) {
+                        roles.add(role);
+                    }
+                }
+                return roles;
+            } else if (currentClaim instanceof String role) {
+                return Collections.singletonList(role);
+            } else {
+                // Not a List<String> or String
+                audit.malformedClaim(jwt.getSubject(), path, null, currentClaim);
                 return Collections.emptyList();
             }
-        } else if (currentClaim instanceof String) {
-            return Collections.singletonList((String) currentClaim);
-        } else {
-            System.err.println("Warning: JWT claim at path '" + path + "' is not a List<String> or String. Found: " + (currentClaim != null ? currentClaim.getClass().getSimpleName() : "null"));
-            return Collections.emptyList();
         }
     }
 }
@@ -0,0 +1,112 @@
+package com.ywdrtt.conductor.working;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JWT verification done locally against a cached JWKS, with verified tokens memoized until exp
+ * or until their signing key leaves the JWKS (noticed at the next refresh).
+ * Replaces the decoder Spring Boot would build from jwk-set-uri, which verifies the signature of
+ * every request.
+ */
+@Configuration
+public class JwtDecoderConfig {
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:}")
+    private String jwkSetUri;
+
+    // Only used to validate the "iss" claim; no discovery request is made
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri:}")
+    private String issuerUri;
+
+    @Value("${jwt.jws-algorithms:RS256}")
+    private List<String> jwsAlgorithms;
+
+    // Also bounds how long tokens already cached are accepted after their signing key is removed
+    @Value("${jwt.jwks.refresh-interval:PT5M}")
+    private Duration jwksRefreshInterval;
+
+    @Value("${jwt.jwks.timeout:PT5S}")
+    private Duration jwksTimeout;
+
+    // Max verified tokens kept; 0 disables the cache
+    @Value("${jwt.verified-token-cache.max-size:10000}")
+    private int verifiedTokenCacheMaxSize;
+
+    /**
+     * Keys come from a JwkSetLoader bean when one exists (tests plug in an in-memory key set),
+     * otherwise from the IdP's jwk-set-uri.
+     */
+    @Bean(destroyMethod = "close")
+    public RefreshingJwkSource jwkSource(ObjectProvider<JwkSetLoader> jwkSetLoader, MeterRegistry meterRegistry) {
+        JwkSetLoader loader = jwkSetLoader.getIfAvailable(this::remoteJwkSetLoader);
+        return new RefreshingJwkSource(loader, jwksRefreshInterval, meterRegistry).start();
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(RefreshingJwkSource jwkSource, MeterRegistry meterRegistry) {
+        return cachingDecoder(jwkSource, jwsAlgorithms, issuerUri, verifiedTokenCacheMaxSize, meterRegistry);
+    }
+
+    /**
+     * The verifying decoder behind a verified-token cache that drops the tokens of keys removed from
+     * the key set when it is refreshed.
+     */
+    static CachingJwtDecoder cachingDecoder(RefreshingJwkSource jwkSource, List<String> algorithms, String issuer,
+                                            int maxSize, MeterRegistry meterRegistry) {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(verifyingDecoder(jwkSource, algorithms, issuer), maxSize, meterRegistry);
+        jwkSource.onKeysRemoved(decoder::retainKeys);
+        return decoder;
+    }
+
+    /**
+     * Signature verification with the given keys plus Spring's default claim validation
+     * (exp/nbf with clock skew, and iss when an issuer is configured).
+     */
+    static JwtDecoder verifyingDecoder(JWKSource<SecurityContext> jwkSource, List<String> algorithms, String issuer) {
+        Set<JWSAlgorithm> jwsAlgorithms = new LinkedHashSet<>();
+        for (String algorithm : algorithms) {
+            jwsAlgorithms.add(JWSAlgorithm.parse(algorithm.trim()));
+        }
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(jwsAlgorithms, jwkSource));
+        // Claims are validated by the Spring validator below, as NimbusJwtDecoder's builders do
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+        decoder.setJwtValidator(issuer == null || issuer.isBlank()
+                ? JwtValidators.createDefault()
+                : JwtValidators.createDefaultWithIssuer(issuer));
+        return decoder;
+    }
+
+    private JwkSetLoader remoteJwkSetLoader() {
+        if (jwkSetUri == null || jwkSetUri.isBlank()) {
+            throw new IllegalStateException("Set spring.security.oauth2.resourceserver.jwt.jwk-set-uri or declare a JwkSetLoader bean");
+        }
+        try {
+            return JwkSetLoader.remote(new URL(jwkSetUri), jwksTimeout);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Invalid jwk-set-uri: " + jwkSetUri, e);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.ywdrtt.conductor.working;
 
-package com.netflix.conductor.security; // Adjust package as needed
-
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -11,16 +10,19 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
-import static com.netflix.conductor.rest.config.RequestMappingConstants.*; // Import your constants
+import java.util.List;
+
+import static com.ywdrtt.conductor.working.ConductorApiPaths.*;
 
 @Configuration
+@ConditionalOnProperty(name = "app.security.filter-chain", havingValue = "routes")
 @EnableWebSecurity
 public class NewSecurityConfig {
 
     // Inject the JwtAuthenticationConverter bean provided by JwtConverterConfig
     private final JwtAuthenticationConverter jwtAuthenticationConverter;
 
-    public SecurityConfig(JwtAuthenticationConverter jwtAuthenticationConverter) {
+    public NewSecurityConfig(JwtAuthenticationConverter jwtAuthenticationConverter) {
         this.jwtAuthenticationConverter = jwtAuthenticationConverter;
     }
 
@@ -28,51 +30,55 @@ public class NewSecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable) // Consider enabling for browser-based clients if applicable
-                .authorizeHttpRequests(authorize -> authorize
-                        // Order matters: More specific paths first
-
-                        // 1. Admin Resource: /admin/** (Full access for ADMIN)
-                        .requestMatchers(ADMIN + "/**").hasRole("ADMIN")
-
-                        // 2. Queue Admin Resource: /queue/admin/** (GET/POST for ADMIN)
-                        .requestMatchers(HttpMethod.GET, QUEUE_ADMIN + "/**").hasRole("ADMIN")
-                        .requestMatchers(HttpMethod.POST, QUEUE_ADMIN + "/**").hasRole("ADMIN")
-
-                        // 3. Workflow Bulk Resource: /workflow/bulk/** (All methods for WORKFLOW_MANAGER, ADMIN)
-                        // Note: ADMIN will also have WORKFLOW_MANAGER role due to role hierarchy/assignment in your IdP if configured.
-                        // Otherwise, you might need to explicitly list ADMIN for all these if ADMIN doesn't inherit WORKFLOW_MANAGER role.
-                        .requestMatchers(WORKFLOW_BULK + "/**").hasAnyRole("WORKFLOW_MANAGER", "ADMIN")
-
-                        // 4. Workflow Resource: /workflow/**
-                        //    GET/DELETE: USER, WORKFLOW_MANAGER, ADMIN
-                        .requestMatchers(HttpMethod.GET, WORKFLOW + "/**").hasAnyRole("USER", "WORKFLOW_MANAGER", "ADMIN")
-                        .requestMatchers(HttpMethod.DELETE, WORKFLOW + "/**").hasAnyRole("USER", "WORKFLOW_MANAGER", "ADMIN")
-                        //    POST/PUT: WORKFLOW_MANAGER, ADMIN
-                        .requestMatchers(HttpMethod.POST, WORKFLOW + "/**").hasAnyRole("WORKFLOW_MANAGER", "ADMIN")
-                        .requestMatchers(HttpMethod.PUT, WORKFLOW + "/**").hasAnyRole("WORKFLOW_MANAGER", "ADMIN")
-
-                        // 5. Metadata Resource: /metadata/** (All methods for USER, METADATA_MANAGER, ADMIN)
-                        .requestMatchers(METADATA + "/**").hasAnyRole("USER", "METADATA_MANAGER", "ADMIN")
-
-                        // 6. Event Resource: /event/** (GET/POST/PUT for USER, ADMIN)
-                        .requestMatchers(HttpMethod.GET, EVENT + "/**").hasAnyRole("USER", "ADMIN")
-                        .requestMatchers(HttpMethod.POST, EVENT + "/**").hasAnyRole("USER", "ADMIN")
-                        .requestMatchers(HttpMethod.PUT, EVENT + "/**").hasAnyRole("USER", "ADMIN")
-
-                        // 7. Task Resource: /task/** (GET/PUT for USER, ADMIN)
-                        .requestMatchers(HttpMethod.GET, TASK + "/**").hasAnyRole("USER", "ADMIN")
-                        .requestMatchers(HttpMethod.PUT, TASK + "/**").hasAnyRole("USER", "ADMIN")
-
-                        // 8. Health Check Resource: /health (GET for USER, ADMIN)
-                        .requestMatchers(HttpMethod.GET, HEALTH_CHECK + "/**").hasAnyRole("USER", "ADMIN")
-
-                        // All other requests must be authenticated
-                        .anyRequest().authenticated()
-                )
+                // All role rules are decided by one trie walk; see ConductorRouteAuthorizationManager
+                .authorizeHttpRequests(authorize -> authorize.anyRequest().access(conductorRoutes()))
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter)) // Use the injected bean
                 );
 
         return http.build();
     }
+
+    /**
+     * Order matters: more specific paths first. The first matching rule decides; requests no rule
+     * matches must be authenticated.
+     */
+    private static ConductorRouteAuthorizationManager conductorRoutes() {
+        return ConductorRouteAuthorizationManager.builder()
+                // 1. Admin Resource: /admin/** (Full access for ADMIN)
+                .route(ADMIN + "/**", List.of("ADMIN"))
+
+                // 2. Queue Admin Resource: /queue/admin/** (GET/POST for ADMIN)
+                .route(HttpMethod.GET, QUEUE_ADMIN + "/**", List.of("ADMIN"))
+                .route(HttpMethod.POST, QUEUE_ADMIN + "/**", List.of("ADMIN"))
+
+                // 3. Workflow Bulk Resource: /workflow/bulk/** (All methods for WORKFLOW_MANAGER, ADMIN)
+                // Note: ADMIN will also have WORKFLOW_MANAGER role due to role hierarchy/assignment in your IdP if configured.
+                // Otherwise, you might need to explicitly list ADMIN for all these if ADMIN doesn't inherit WORKFLOW_MANAGER role.
+                .route(WORKFLOW_BULK + "/**", List.of("WORKFLOW_MANAGER", "ADMIN"))
+
+                // 4. Workflow Resource: /workflow/**
+                //    GET/DELETE: USER, WORKFLOW_MANAGER, ADMIN
+                .route(HttpMethod.GET, WORKFLOW + "/**", List.of("USER", "WORKFLOW_MANAGER", "ADMIN"))
+                .route(HttpMethod.DELETE, WORKFLOW + "/**", List.of("USER", "WORKFLOW_MANAGER", "ADMIN"))
+                //    POST/PUT: WORKFLOW_MANAGER, ADMIN
+                .route(HttpMethod.POST, WORKFLOW + "/**", List.of("WORKFLOW_MANAGER", "ADMIN"))
+                .route(HttpMethod.PUT, WORKFLOW + "/**", List.of("WORKFLOW_MANAGER", "ADMIN"))
+
+                // 5. Metadata Resource: /metadata/** (All methods for USER, METADATA_MANAGER, ADMIN)
+                .route(METADATA + "/**", List.of("USER", "METADATA_MANAGER", "ADMIN"))
+
+                // 6. Event Resource: /event/** (GET/POST/PUT for USER, ADMIN)
+                .route(HttpMethod.GET, EVENT + "/**", List.of("USER", "ADMIN"))
+                .route(HttpMethod.POST, EVENT + "/**", List.of("USER", "ADMIN"))
+                .route(HttpMethod.PUT, EVENT + "/**", List.of("USER", "ADMIN"))
+
+                // 7. Task Resource: /task/** (GET/PUT for USER, ADMIN)
+                .route(HttpMethod.GET, TASK + "/**", List.of("USER", "ADMIN"))
+                .route(HttpMethod.PUT, TASK + "/**", List.of("USER", "ADMIN"))
+
+                // 8. Health Check Resource: /health (GET for USER, ADMIN)
+                .route(HttpMethod.GET, HEALTH_CHECK + "/**", List.of("USER", "ADMIN"))
+                .build();
+    }
 }
@@ -1,10 +1,9 @@
 package com.ywdrtt.conductor.working;
 
-package com.netflix.conductor.security;
-
-import com.yourcompany.yourconductorapp.config.ConductorRoleConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -12,132 +11,99 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
-import java.util.Arrays;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.List;
 
-import static com.netflix.conductor.rest.config.RequestMappingConstants.*;
+import static com.ywdrtt.conductor.working.ConductorApiPaths.*;
 
 @Configuration
+@ConditionalOnProperty(name = "app.security.filter-chain", havingValue = "role-routes")
 @EnableWebSecurity
 public class NewSecurityConfig1 {
 
     private final JwtAuthenticationConverter jwtAuthenticationConverter;
     private final ConductorRoleConfig conductorRoleConfig;
+    // Rebuilt from a fresh role snapshot on every reload; requests read whichever table is current
+    private volatile ConductorRouteAuthorizationManager conductorRoutes;
 
-    public SecurityConfig(JwtAuthenticationConverter jwtAuthenticationConverter,
-                          ConductorRoleConfig conductorRoleConfig) {
+    public NewSecurityConfig1(JwtAuthenticationConverter jwtAuthenticationConverter,
+                              ConductorRoleConfig conductorRoleConfig) {
         this.jwtAuthenticationConverter = jwtAuthenticationConverter;
         this.conductorRoleConfig = conductorRoleConfig;
     }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        conductorRoutes = conductorRoutes(conductorRoleConfig.current());
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorize -> authorize
-                        // 1. Admin Resource: /admin/** (Full access for ADMIN)
-                        // Direct use of String[] from config
-                        .requestMatchers(ADMIN + "/**").hasAnyRole(conductorRoleConfig.adminRoles())
-
-                        // 2. Queue Admin Resource: /queue/admin/** (GET/POST for ADMIN)
-                        .requestMatchers(HttpMethod.GET, QUEUE_ADMIN + "/**").hasAnyRole(conductorRoleConfig.adminRoles())
-                        .requestMatchers(HttpMethod.POST, QUEUE_ADMIN + "/**").hasAnyRole(conductorRoleConfig.adminRoles())
-
-                        // 3. Workflow Bulk Resource: /workflow/bulk/** (All methods for WORKFLOW_MANAGER, ADMIN)
-                        .requestMatchers(WORKFLOW_BULK + "/**").hasAnyRole(
-                                Stream.concat(
-                                        Arrays.stream(conductorRoleConfig.workflowManagerRoles()),
-                                        Arrays.stream(conductorRoleConfig.adminRoles())
-                                ).toArray(String[]::new)
-                        )
-
-                        // 4. Workflow Resource: /workflow/**
-                        //    GET/DELETE: USER, WORKFLOW_MANAGER, ADMIN
-                        .requestMatchers(HttpMethod.GET, WORKFLOW + "/**").hasAnyRole(
-                                Stream.of(
-                                        conductorRoleConfig.userRoles(),
-                                        conductorRoleConfig.workflowManagerRoles(),
-                                        conductorRoleConfig.adminRoles()
-                                ).flatMap(Arrays::stream).toArray(String[]::new)
-                        )
-                        .requestMatchers(HttpMethod.DELETE, WORKFLOW + "/**").hasAnyRole(
-                                Stream.of(
-                                        conductorRoleConfig.userRoles(),
-                                        conductorRoleConfig.workflowManagerRoles(),
-                                        conductorRoleConfig.adminRoles()
-                                ).flatMap(Arrays::stream).toArray(String[]::new)
-                        )
-                        //    POST/PUT: WORKFLOW_MANAGER, ADMIN
-                        .requestMatchers(HttpMethod.POST, WORKFLOW + "/**").hasAnyRole(
-                                Stream.concat(
-                                        Arrays.stream(conductorRoleConfig.workflowManagerRoles()),
-                                        Arrays.stream(conductorRoleConfig.adminRoles())
-                                ).toArray(String[]::new)
-                        )
-                        .requestMatchers(HttpMethod.PUT, WORKFLOW + "/**").hasAnyRole(
-                                Stream.concat(
-                                        Arrays.stream(conductorRoleConfig.workflowManagerRoles()),
-                                        Arrays.stream(conductorRoleConfig.adminRoles())
-                                ).toArray(String[]::new)
-                        )
-
-                        // 5. Metadata Resource: /metadata/** (All methods for USER, METADATA_MANAGER, ADMIN)
-                        .requestMatchers(METADATA + "/**").hasAnyRole(
-                                Stream.of(
-                                        conductorRoleConfig.userRoles(),
-                                        conductorRoleConfig.metadataManagerRoles(),
-                                        conductorRoleConfig.adminRoles()
-                                ).flatMap(Arrays::stream).toArray(String[]::new)
-                        )
-
-                        // 6. Event Resource: /event/** (GET/POST/PUT for USER, ADMIN)
-                        .requestMatchers(HttpMethod.GET, EVENT + "/**").hasAnyRole(
-                                Stream.concat(
-                                        Arrays.stream(conductorRoleConfig.userRoles()),
-                                        Arrays.stream(conductorRoleConfig.adminRoles())
-                                ).toArray(String[]::new)
-                        )
-                        .requestMatchers(HttpMethod.POST, EVENT + "/**").hasAnyRole(
-                                Stream.concat(
-                                        Arrays.stream(conductorRoleConfig.userRoles()),
-                                        Arrays.stream(conductorRoleConfig.adminRoles())
-                                ).toArray(String[]::new)
-                        )
-                        .requestMatchers(HttpMethod.PUT, EVENT + "/**").hasAnyRole(
-                                Stream.concat(
-                                        Arrays.stream(conductorRoleConfig.userRoles()),
-                                        Arrays.stream(conductorRoleConfig.adminRoles())
-                                ).toArray(String[]::new)
-                        )
-
-                        // 7. Task Resource: /task/** (GET/PUT for USER, ADMIN)
-                        .requestMatchers(HttpMethod.GET, TASK + "/**").hasAnyRole(
-                                Stream.concat(
-                                        Arrays.stream(conductorRoleConfig.userRoles()),
-                                        Arrays.stream(conductorRoleConfig.adminRoles())
-                                ).toArray(String[]::new)
-                        )
-                        .requestMatchers(HttpMethod.PUT, TASK + "/**").hasAnyRole(
-                                Stream.concat(
-                                        Arrays.stream(conductorRoleConfig.userRoles()),
-                                        Arrays.stream(conductorRoleConfig.adminRoles())
-                                ).toArray(String[]::new)
-                        )
-
-                        // 8. Health Check Resource: /health (GET for USER, ADMIN)
-                        .requestMatchers(HttpMethod.GET, HEALTH_CHECK + "/**").hasAnyRole(
-                                Stream.concat(
-                                        Arrays.stream(conductorRoleConfig.userRoles()),
-                                        Arrays.stream(conductorRoleConfig.adminRoles())
-                                ).toArray(String[]::new)
-                        )
-
-                        .anyRequest().authenticated()
-                )
+                        .anyRequest().access((authentication, context) -> conductorRoutes.check(authentication, context)))
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter))
                 );
 
         return http.build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Same rules as before, with the role lists merged once here and compiled to bitmasks by
+     * ConductorRouteAuthorizationManager. First match wins; anything else must be authenticated.
+     */
+    private static ConductorRouteAuthorizationManager conductorRoutes(ConductorRoleConfig.Roles roles) {
+        List<String> admin = roles.admin();
+        List<String> workflowManagerOrAdmin = union(roles.workflowManager(), admin);
+        List<String> userOrWorkflowManagerOrAdmin = union(roles.user(), workflowManagerOrAdmin);
+        List<String> userOrMetadataManagerOrAdmin = union(roles.user(), roles.metadataManager(), admin);
+        List<String> userOrAdmin = union(roles.user(), admin);
+
+        return ConductorRouteAuthorizationManager.builder()
+                // 1. Admin Resource: /admin/** (Full access for ADMIN)
+                .route(ADMIN + "/**", admin)
+
+                // 2. Queue Admin Resource: /queue/admin/** (GET/POST for ADMIN)
+                .route(HttpMethod.GET, QUEUE_ADMIN + "/**", admin)
+                .route(HttpMethod.POST, QUEUE_ADMIN + "/**", admin)
+
+                // 3. Workflow Bulk Resource: /workflow/bulk/** (All methods for WORKFLOW_MANAGER, ADMIN)
+                .route(WORKFLOW_BULK + "/**", workflowManagerOrAdmin)
+
+                // 4. Workflow Resource: /workflow/**
+                //    GET/DELETE: USER, WORKFLOW_MANAGER, ADMIN
+                .route(HttpMethod.GET, WORKFLOW + "/**", userOrWorkflowManagerOrAdmin)
+                .route(HttpMethod.DELETE, WORKFLOW + "/**", userOrWorkflowManagerOrAdmin)
+                //    POST/PUT: WORKFLOW_MANAGER, ADMIN
+                .route(HttpMethod.POST, WORKFLOW + "/**", workflowManagerOrAdmin)
+                .route(HttpMethod.PUT, WORKFLOW + "/**", workflowManagerOrAdmin)
+
+                // 5. Metadata Resource: /metadata/** (All methods for USER, METADATA_MANAGER, ADMIN)
+                .route(METADATA + "/**", userOrMetadataManagerOrAdmin)
+
+                // 6. Event Resource: /event/** (GET/POST/PUT for USER, ADMIN)
+                .route(HttpMethod.GET, EVENT + "/**", userOrAdmin)
+                .route(HttpMethod.POST, EVENT + "/**", userOrAdmin)
+                .route(HttpMethod.PUT, EVENT + "/**", userOrAdmin)
+
+                // 7. Task Resource: /task/** (GET/PUT for USER, ADMIN)
+                .route(HttpMethod.GET, TASK + "/**", userOrAdmin)
+                .route(HttpMethod.PUT, TASK + "/**", userOrAdmin)
+
+                // 8. Health Check Resource: /health (GET for USER, ADMIN)
+                .route(HttpMethod.GET, HEALTH_CHECK + "/**", userOrAdmin)
+                .build();
+    }
+
+    @EventListener
+    public void onRolesReloaded(ConductorRolesReloadedEvent event) {
+        conductorRoutes = conductorRoutes(event.getRoleConfig().current());
+    }
+
+    @SafeVarargs
+    private static List<String> union(List<String>... roleLists) {
+        List<String> roles = new ArrayList<>();
+        for (List<String> roleList : roleLists) {
+            roles.addAll(roleList);
+        }
+        return roles;
+    }
+}
@@ -0,0 +1,126 @@
+package com.ywdrtt.conductor.working;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * JWKSource serving the IdP's keys from memory. The key set is loaded at startup and refreshed by a
+ * background thread; a request never waits for a JWKS fetch.
+ *
+ * An unknown "kid" (key rotation at the IdP) fails that request and schedules an early background
+ * refresh, at most once per MIN_ON_DEMAND_INTERVAL. A failed refresh keeps the previous keys.
+ * A refresh that drops keys (revocation at the IdP) tells the listeners registered with
+ * onKeysRemoved, so that tokens verified with those keys are not trusted any longer.
+ */
+@Slf4j
+public class RefreshingJwkSource implements JWKSource<SecurityContext>, AutoCloseable {
+
+    private static final Duration MIN_ON_DEMAND_INTERVAL = Duration.ofSeconds(30);
+
+    private final JwkSetLoader loader;
+    private final Duration refreshInterval;
+    private final ScheduledExecutorService scheduler;
+    private final Timer refreshSuccess;
+    private final Timer refreshFailure;
+    private final AtomicLong lastOnDemandRefresh = new AtomicLong();
+    private final List<Consumer<Set<String>>> keyRemovalListeners = new CopyOnWriteArrayList<>();
+    private volatile JWKSet keys = new JWKSet();
+
+    public RefreshingJwkSource(JwkSetLoader loader, Duration refreshInterval, MeterRegistry meterRegistry) {
+        this.loader = loader;
+        this.refreshInterval = refreshInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refreshSuccess = Timer.builder("conductor.security.jwks.refresh").tag("outcome", "success").register(meterRegistry);
+        this.refreshFailure = Timer.builder("conductor.security.jwks.refresh").tag("outcome", "failure").register(meterRegistry);
+        Gauge.builder("conductor.security.jwks.keys", this, source -> source.keys.getKeys().size()).register(meterRegistry);
+    }
+
+    /**
+     * Loads the keys once on the calling thread, then keeps refreshing them in the background.
+     */
+    public RefreshingJwkSource start() {
+        refresh();
+        long intervalMillis = refreshInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * @param listener called on the refresh thread with the key IDs still published, after a refresh
+     *                 that removed keys
+     */
+    public void onKeysRemoved(Consumer<Set<String>> listener) {
+        keyRemovalListeners.add(listener);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        List<JWK> matches = jwkSelector.select(keys);
+        if (matches.isEmpty()) {
+            requestRefresh();
+        }
+        return matches;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void requestRefresh() {
+        long now = System.currentTimeMillis();
+        long last = lastOnDemandRefresh.get();
+        if (now - last >= MIN_ON_DEMAND_INTERVAL.toMillis() && lastOnDemandRefresh.compareAndSet(last, now)) {
+            scheduler.execute(this::refresh);
+        }
+    }
+
+    private void refresh() {
+        long start = System.nanoTime();
+        try {
+            JWKSet previous = keys;
+            keys = loader.load();
+            refreshSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Set<String> published = keyIds(keys);
+            Set<String> removed = keyIds(previous);
+            removed.removeAll(published);
+            if (!removed.isEmpty()) {
+                log.info("JWKS refresh removed keys {}; dropping tokens verified with them", removed);
+                keyRemovalListeners.forEach(listener -> listener.accept(published));
+            }
+        } catch (Exception e) {
+            refreshFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.warn("JWKS refresh failed, keeping {} cached keys: {}", keys.getKeys().size(), e.getMessage());
+        }
+    }
+
+    private static Set<String> keyIds(JWKSet keySet) {
+        Set<String> keyIds = new HashSet<>();
+        for (JWK key : keySet.getKeys()) {
+            keyIds.add(key.getKeyID());
+        }
+        return keyIds;
+    }
+}
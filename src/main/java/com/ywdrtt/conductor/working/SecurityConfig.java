@@ -1,36 +1,28 @@
 package com.ywdrtt.conductor.working;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
-import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
-import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity; // RE-ADDED
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
+@ConditionalOnProperty(name = "app.security.filter-chain", havingValue = "access", matchIfMissing = true)
 @EnableWebSecurity
-@EnableMethodSecurity // RE-ADDED: Enables @PreAuthorize, @PostAuthorize, etc.
+// No method security: controller permissions are enforced by ConductorAccessInterceptor from @ConductorAccess
 public class SecurityConfig {
 
     private final JwtAuthenticationConverter jwtAuthenticationConverter;
-    private final ConductorPermissionEvaluator conductorPermissionEvaluator;
+    private final JwtDecoder jwtDecoder;
 
     public SecurityConfig(JwtAuthenticationConverter jwtAuthenticationConverter,
-                          ConductorPermissionEvaluator conductorPermissionEvaluator) {
+                          JwtDecoder jwtDecoder) {
         this.jwtAuthenticationConverter = jwtAuthenticationConverter;
-        this.conductorPermissionEvaluator = conductorPermissionEvaluator;
-    }
-
-    // RE-ADDED: Bean to register your custom PermissionEvaluator with the MethodSecurityExpressionHandler
-    @Bean
-    public MethodSecurityExpressionHandler methodSecurityExpressionHandler() {
-        DefaultMethodSecurityExpressionHandler expressionHandler = new DefaultMethodSecurityExpressionHandler();
-        expressionHandler.setPermissionEvaluator(conductorPermissionEvaluator); // Set your custom evaluator
-        return expressionHandler;
+        this.jwtDecoder = jwtDecoder;
     }
 
     @Bean
@@ -41,13 +33,15 @@ public class SecurityConfig {
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/webjars/**", "/swagger-resources/**").permitAll()
                         // Permit specific public endpoints (e.g., health check or public APIs)
                         .requestMatchers("/public/**").permitAll()
-                        .requestMatchers("/health-check-resource").permitAll() // Explicitly permit, though handled by controller @PreAuthorize(permitAll)
+                        .requestMatchers("/health-check-resource").permitAll() // No @ConductorAccess on this endpoint: this rule alone opens it
                         // All other requests MUST be authenticated.
-                        // Fine-grained authorization will be handled by @PreAuthorize on controller methods.
+                        // Fine-grained authorization is handled by @ConductorAccess on controller methods (ConductorAccessInterceptor).
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter))); // Plug in your custom converter
+                        .jwt(jwt -> jwt
+                                .decoder(jwtDecoder) // Cached JWKS + verified-token cache, see JwtDecoderConfig
+                                .jwtAuthenticationConverter(jwtAuthenticationConverter))); // Plug in your custom converter
 
         return http.build();
     }
@@ -0,0 +1,76 @@
+package com.ywdrtt.conductor.working;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small in-process cache for values derived from a bearer token (authorities, permissions).
+ *
+ * Every entry expires together with the token it was computed from, so nothing outlives the
+ * token's validity. The size is bounded: when full, expired entries are purged first and, if that
+ * is not enough, an arbitrary tenth of the entries is dropped. No external cache provider is needed.
+ */
+public class TokenScopedCache<V> {
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    public TokenScopedCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * @return the cached value, or null when absent or expired.
+     */
+    public V get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public void put(String key, V value, Instant expiresAt) {
+        if (!isEnabled() || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return; // never cache beyond (or without) the token's own expiry
+        }
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(key, new Entry<>(value, expiresAt.toEpochMilli()));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+        // Still full: drop a tenth of the entries (ConcurrentHashMap iterates roughly in hash order,
+        // which is good enough here since every entry is cheap to recompute)
+        Iterator<String> keys = entries.keySet().iterator();
+        int toDrop = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        while (toDrop-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+    }
+}
@@ -1,13 +1,30 @@
 package com.ywdrtt.conductor;
 
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.ywdrtt.conductor.working.JwkSetLoader;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 
-@SpringBootTest
+// No Conductor server here: pollers would log connection errors for the rest of the build
+@SpringBootTest(properties = "conductor.worker.enabled=false")
 class ConductorApplicationTests {
 
 	@Test
 	void contextLoads() {
 	}
 
+	// Local key set standing in for the IdP, so the context starts without a jwk-set-uri
+	@TestConfiguration
+	static class LocalJwks {
+
+		@Bean
+		JwkSetLoader jwkSetLoader() throws JOSEException {
+			return JwkSetLoader.inMemory(new JWKSet(new RSAKeyGenerator(2048).keyID("test").generate()));
+		}
+	}
+
 }
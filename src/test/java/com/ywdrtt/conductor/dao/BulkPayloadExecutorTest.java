@@ -0,0 +1,146 @@
+package com.ywdrtt.conductor.dao;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkPayloadExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<BulkPayloadExecutor> executors = new ArrayList<>();
+
+    @AfterEach
+    void closeExecutors() throws InterruptedException {
+        for (BulkPayloadExecutor executor : executors) {
+            executor.close();
+        }
+    }
+
+    @Test
+    void runsEveryUnitOnThePoolAndKeepsTheCallersOrder() {
+        BulkPayloadExecutor executor = executor(4, 8, 4);
+        int[] results = new int[1_000];
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Runnable> units = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            int unit = i;
+            units.add(() -> {
+                results[unit] = unit * 2;
+                threads.add(Thread.currentThread().getName());
+            });
+        }
+
+        executor.run(units);
+
+        for (int i = 0; i < results.length; i++) {
+            assertThat(results[i]).isEqualTo(i * 2);
+        }
+        assertThat(threads).allMatch(name -> name.startsWith("encryption-bulk-") || name.equals(Thread.currentThread().getName()))
+                .anyMatch(name -> name.startsWith("encryption-bulk-"));
+    }
+
+    @Test
+    void runsSmallBatchesAndSingleThreadedExecutorsOnTheCallerThread() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Runnable> units = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            units.add(() -> threads.add(Thread.currentThread().getName()));
+        }
+
+        executor(4, 101, 4).run(units);
+        executor(1, 1, 4).run(units);
+
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+    }
+
+    @Test
+    void rethrowsTheFirstFailureAfterRunningEveryUnit() {
+        BulkPayloadExecutor executor = executor(4, 8, 4);
+        AtomicInteger ran = new AtomicInteger();
+        List<Runnable> units = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int unit = i;
+            units.add(() -> {
+                ran.incrementAndGet();
+                if (unit == 10 || unit == 400) {
+                    throw new IllegalStateException("unit " + unit);
+                }
+            });
+        }
+
+        assertThatThrownBy(() -> executor.run(units))
+                .isInstanceOf(IllegalStateException.class)
+                .satisfies(failure -> {
+                    List<String> messages = new ArrayList<>(List.of(failure.getMessage()));
+                    for (Throwable suppressed : failure.getSuppressed()) {
+                        messages.add(suppressed.getMessage());
+                    }
+                    assertThat(messages).containsExactlyInAnyOrder("unit 10", "unit 400");
+                });
+        assertThat(ran).hasValue(500);
+    }
+
+    @Test
+    void rethrowsFailuresOfBatchesRunOnTheCallerThread() {
+        List<Runnable> units = List.of(() -> { }, () -> {
+            throw new IllegalArgumentException("bad payload");
+        }, () -> { });
+
+        assertThatThrownBy(() -> executor(1, 1, 1).run(units)).isInstanceOf(IllegalArgumentException.class).hasMessage("bad payload");
+    }
+
+    @Test
+    void rejectsBatchesWhenSaturatedAndRunsThemOnTheCallerThread() throws Exception {
+        BulkPayloadExecutor executor = executor(2, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> blocking = CompletableFuture.runAsync(() -> executor.run(List.of(() -> {
+            started.countDown();
+            await(release);
+        })));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Runnable> units = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            units.add(() -> threads.add(Thread.currentThread().getName()));
+        }
+        executor.run(units);
+
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+        assertThat(meterRegistry.get("conductor.encryption.bulk.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        blocking.get(5, TimeUnit.SECONDS);
+        threads.clear();
+        executor.run(units);
+        assertThat(threads).anyMatch(name -> name.startsWith("encryption-bulk-"));
+        assertThat(meterRegistry.get("conductor.encryption.bulk.rejected").counter().count()).isEqualTo(1);
+    }
+
+    private BulkPayloadExecutor executor(int parallelism, int minUnits, int maxConcurrentBatches) {
+        BulkPayloadExecutor executor = new BulkPayloadExecutor(parallelism, minUnits, maxConcurrentBatches, meterRegistry);
+        executors.add(executor);
+        return executor;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
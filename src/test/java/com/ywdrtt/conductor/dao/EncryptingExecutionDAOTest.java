@@ -0,0 +1,454 @@
+package com.ywdrtt.conductor.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
+import com.netflix.conductor.dao.ExecutionDAO;
+import com.netflix.conductor.model.TaskModel;
+import com.netflix.conductor.model.WorkflowModel;
+import com.ywdrtt.conductor.security.EncryptionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the DAO over a mocked delegate. The fake encryption writes "clientId|value" reversed, so
+ * the stored values show which client each one was encrypted for; deterministic encryption
+ * appends "~".
+ */
+class EncryptingExecutionDAOTest {
+
+    private final ExecutionDAO delegate = mock(ExecutionDAO.class);
+    private final ReversingEncryption encryption = new ReversingEncryption();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EncryptingExecutionDAO dao = new EncryptingExecutionDAO(delegate, encryption,
+            new WorkflowContextCache(Duration.ofMinutes(1), 100, meterRegistry),
+            new BulkPayloadExecutor(1, 1, 1, meterRegistry), meterRegistry, 0);
+
+    @Test
+    void storesSensitiveWorkflowInputEncryptedAndLeavesTheCallersPlaintext() {
+        WorkflowModel workflow = workflow(Map.of("customer", Map.of("ssn", "123", "name", "Ann"), "clientId", "acme"));
+        List<Map<String, Object>> stored = new ArrayList<>();
+        doAnswer(invocation -> {
+            stored.add(rawInput(invocation.getArgument(0)));
+            return "wf-1";
+        }).when(delegate).createWorkflow(any());
+
+        dao.createWorkflow(workflow);
+
+        assertThat(stored).singleElement().satisfies(input ->
+                assertThat(input.get("customer")).isEqualTo(Map.of("ssn", "ENC:" + reversed("acme|123"), "name", "Ann")));
+        assertThat(workflow.getInput().get("customer")).isEqualTo(Map.of("ssn", "123", "name", "Ann"));
+    }
+
+    @Test
+    void decryptsWhatItStored() {
+        WorkflowModel workflow = workflow(Map.of("customer", Map.of("ssn", "123"), "clientId", "acme"));
+        Map<String, Object> stored = new HashMap<>();
+        doAnswer(invocation -> {
+            stored.putAll(rawInput(invocation.getArgument(0)));
+            return "wf-1";
+        }).when(delegate).createWorkflow(any());
+        dao.createWorkflow(workflow);
+
+        WorkflowModel read = workflow(stored);
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(read);
+
+        assertThat(dao.getWorkflow("wf-1", false).getInput()).isEqualTo(Map.of("customer", Map.of("ssn", "123"), "clientId", "acme"));
+    }
+
+    @Test
+    void readsDecryptNothingUntilASensitiveValueIsRead() {
+        WorkflowModel stored = workflow(Map.of("customer", Map.of("ssn", "ENC:" + reversed("acme|123"), "name", "Ann"), "clientId", "acme"));
+        stored.setStatus(WorkflowModel.Status.RUNNING);
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(stored);
+
+        WorkflowModel read = dao.getWorkflow("wf-1", false);
+        assertThat(read.getStatus()).isEqualTo(WorkflowModel.Status.RUNNING);
+        assertThat(read.getInput()).containsKeys("customer", "clientId");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> customer = (Map<String, Object>) read.getInput().get("customer");
+        assertThat(customer.get("name")).isEqualTo("Ann");
+        assertThat(customer.keySet()).containsExactlyInAnyOrder("ssn", "name");
+
+        assertThat(encryption.decrypts).hasValue(0);
+        assertThat(fields("deferred")).isEqualTo(1);
+        assertThat(fields("decrypted")).isZero();
+
+        assertThat(customer.get("ssn")).isEqualTo("123");
+        assertThat(customer.get("ssn")).isEqualTo("123");
+        assertThat(customer).isEqualTo(Map.of("ssn", "123", "name", "Ann"));
+        assertThat(encryption.decrypts).hasValue(1); // memoized
+        assertThat(fields("decrypted")).isEqualTo(1);
+    }
+
+    @Test
+    void lazyViewsSerializeToTheirPlaintext() throws Exception {
+        when(delegate.getTask("task-1")).thenReturn(task(Map.of(), Map.of("customer", Map.of("ssn", "ENC:" + reversed("acme|123")))));
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow(Map.of("clientId", "acme")));
+
+        TaskModel read = dao.getTask("task-1");
+
+        assertThat(new ObjectMapper().writeValueAsString(read.getInputData())).isEqualTo("{\"customer\":{\"ssn\":\"123\"}}");
+    }
+
+    @Test
+    void aReadViewWrittenBackIsStoredEncryptedAgain() {
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow(Map.of("clientId", "acme")));
+        when(delegate.getTask("task-1")).thenReturn(task(Map.of(), Map.of("customer", Map.of("ssn", "ENC:" + reversed("acme|123"), "name", "Ann"))));
+        List<Object> stored = new ArrayList<>();
+        doAnswer(invocation -> {
+            stored.add(rawInputData(invocation.getArgument(0)).get("customer"));
+            return null;
+        }).when(delegate).updateTask(any());
+
+        TaskModel read = dao.getTask("task-1");
+        dao.updateTask(read);
+        assertThat(encryption.decrypts).hasValue(0); // stored back as read, without a round trip
+        read.getInputData().put("note", "touched");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> customer = (Map<String, Object>) read.getInputData().get("customer");
+        customer.put("ssn", "456");
+        dao.updateTask(read);
+
+        assertThat(stored).containsExactly(Map.of("ssn", "ENC:" + reversed("acme|123"), "name", "Ann"),
+                Map.of("ssn", "ENC:" + reversed("acme|456"), "name", "Ann"));
+        assertThat(customer.get("ssn")).isEqualTo("456");
+    }
+
+    @Test
+    void aValueThatFailsToDecryptIsReturnedAsStored() {
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow(Map.of("customer", Map.of("ssn", "ENC:not-for-acme"), "clientId", "acme")));
+
+        WorkflowModel read = dao.getWorkflow("wf-1", false);
+
+        assertThat(read.getInput().get("customer")).isEqualTo(Map.of("ssn", "ENC:not-for-acme"));
+        assertThat(fields("decrypted")).isZero();
+    }
+
+    @Test
+    void usesTheTaskDefinitionsPathsAndClientIdForTaskPayloads() {
+        WorkflowModel workflow = workflow(Map.of("clientId", "acme"));
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow);
+        TaskModel task = task(Map.of("_clientId", "billing", "_sensitivePaths", List.of("$.cards[*].number")),
+                Map.of("cards", List.of(Map.of("number", "4111"), Map.of("number", "5500")), "customer", Map.of("ssn", "123")));
+        List<Map<String, Object>> stored = new ArrayList<>();
+        doAnswer(invocation -> {
+            stored.add(rawInputData(invocation.getArgument(0)));
+            return null;
+        }).when(delegate).updateTask(any());
+
+        dao.updateTask(task);
+
+        assertThat(stored).singleElement().satisfies(input -> {
+            assertThat(input.get("cards")).isEqualTo(List.of(Map.of("number", "ENC:" + reversed("billing|4111")),
+                    Map.of("number", "ENC:" + reversed("billing|5500"))));
+            assertThat(input.get("customer")).isEqualTo(Map.of("ssn", "123")); // the workflow's path, not the task's
+        });
+        assertThat(task.getInputData().get("cards")).isEqualTo(List.of(Map.of("number", "4111"), Map.of("number", "5500")));
+    }
+
+    @Test
+    void leavesPayloadsAloneWhenEncryptionIsDisabled() {
+        WorkflowModel workflow = workflow(Map.of("customer", Map.of("ssn", "123"), "_enableEncryption", false));
+        Map<String, Object> input = rawInput(workflow);
+        List<Map<String, Object>> stored = new ArrayList<>();
+        doAnswer(invocation -> {
+            stored.add(rawInput(invocation.getArgument(0)));
+            return "wf-1";
+        }).when(delegate).createWorkflow(any());
+
+        dao.createWorkflow(workflow);
+
+        assertThat(stored).containsExactly(input);
+    }
+
+    @Test
+    void readsEachTasksWorkflowOnceInBulkOperations() {
+        WorkflowModel workflow = workflow(Map.of());
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow);
+        List<TaskModel> tasks = List.of(task(Map.of(), Map.of("customer", Map.of("ssn", "1"))),
+                task(Map.of(), Map.of("customer", Map.of("ssn", "2"))));
+        when(delegate.createTasks(anyList())).thenReturn(tasks);
+
+        dao.createTasks(tasks);
+
+        verify(delegate, times(1)).getWorkflow("wf-1", false);
+        assertThat(tasks).extracting(task -> task.getInputData().get("customer"))
+                .containsExactly(Map.of("ssn", "1"), Map.of("ssn", "2"));
+    }
+
+    @Test
+    void bulkReadsOnThePoolDecryptEveryTaskInTheDelegatesOrder() throws InterruptedException {
+        try (BulkPayloadExecutor parallel = new BulkPayloadExecutor(4, 8, 4, new SimpleMeterRegistry())) {
+            EncryptingExecutionDAO parallelDao = new EncryptingExecutionDAO(delegate, new ReversingEncryption(),
+                    new WorkflowContextCache(Duration.ofMinutes(1), 100, new SimpleMeterRegistry()), parallel, new SimpleMeterRegistry(), 0);
+            when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow(Map.of("clientId", "acme")));
+            List<TaskModel> tasks = new ArrayList<>();
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                tasks.add(task(Map.of(), Map.of("customer", Map.of("ssn", "ENC:" + reversed("acme|" + i)))));
+                ids.add("task-" + i);
+            }
+            when(delegate.getTasks(ids)).thenReturn(tasks);
+
+            List<TaskModel> read = parallelDao.getTasks(ids);
+
+            assertThat(read).containsExactlyElementsOf(tasks);
+            for (int i = 0; i < read.size(); i++) {
+                assertThat(read.get(i).getInputData().get("customer")).isEqualTo(Map.of("ssn", String.valueOf(i)));
+            }
+        }
+    }
+
+    @Test
+    void workflowReadsWithTasksAreDecryptedOnThePool() throws InterruptedException {
+        try (BulkPayloadExecutor parallel = new BulkPayloadExecutor(4, 8, 4, new SimpleMeterRegistry())) {
+            ReversingEncryption parallelEncryption = new ReversingEncryption();
+            SimpleMeterRegistry parallelMeters = new SimpleMeterRegistry();
+            EncryptingExecutionDAO parallelDao = new EncryptingExecutionDAO(delegate, parallelEncryption,
+                    new WorkflowContextCache(Duration.ofMinutes(1), 100, parallelMeters), parallel, parallelMeters, 0);
+            WorkflowModel workflow = workflow(Map.of("clientId", "acme", "customer", Map.of("ssn", "ENC:" + reversed("acme|wf"))));
+            for (int i = 0; i < 100; i++) {
+                workflow.getTasks().add(task(Map.of(), Map.of("customer", Map.of("ssn", "ENC:" + reversed("acme|" + i)))));
+            }
+            when(delegate.getWorkflow("wf-1", true)).thenReturn(workflow);
+
+            WorkflowModel read = parallelDao.getWorkflow("wf-1", true);
+
+            // Decrypted before the read returns, by the pool rather than the reading thread
+            assertThat(parallelEncryption.decrypts).hasValue(101);
+            assertThat(parallelEncryption.threads).allMatch(thread -> thread.startsWith("encryption-bulk-"));
+            assertThat(parallelMeters.get("conductor.encryption.fields").tag("result", "deferred").counter().count()).isZero();
+            assertThat(read.getInput().get("customer")).isEqualTo(Map.of("ssn", "wf"));
+            for (int i = 0; i < 100; i++) {
+                assertThat(read.getTasks().get(i).getInputData().get("customer")).isEqualTo(Map.of("ssn", String.valueOf(i)));
+            }
+            assertThat(parallelEncryption.decrypts).hasValue(101);
+        }
+    }
+
+    @Test
+    void largePayloadsHaveTheSameValuesEncryptedByOneWalk() {
+        EncryptingExecutionDAO walkingDao = new EncryptingExecutionDAO(delegate, encryption,
+                new WorkflowContextCache(Duration.ofMinutes(1), 100, new SimpleMeterRegistry()),
+                new BulkPayloadExecutor(1, 1, 1, new SimpleMeterRegistry()), new SimpleMeterRegistry(), 1);
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow(Map.of("clientId", "acme")));
+        Map<String, Object> templates = Map.of("_sensitivePaths", List.of("$..iban", "$.accounts[*].holder.ssn", "$.accounts[?(@.iban)].note"));
+        Map<String, Object> input = Map.of(
+                "iban", "DE00",
+                "accounts", List.of(Map.of("iban", "DE01", "note", "n1", "holder", Map.of("ssn", "111", "name", "A")),
+                        Map.of("holder", Map.of("ssn", "222"), "note", "n2")),
+                "audit", Map.of("nested", Map.of("iban", "DE03")));
+        List<Map<String, Object>> stored = new ArrayList<>();
+        doAnswer(invocation -> {
+            stored.add(rawInputData(invocation.getArgument(0)));
+            return null;
+        }).when(delegate).updateTask(any());
+
+        dao.updateTask(task(templates, input));
+        walkingDao.updateTask(task(templates, input));
+
+        assertThat(stored).hasSize(2);
+        assertThat(stored.get(1)).isEqualTo(stored.get(0));
+        assertThat(stored.get(1).get("iban")).isEqualTo("ENC:" + reversed("acme|DE00"));
+        assertThat(stored.get(1).get("audit")).isEqualTo(Map.of("nested", Map.of("iban", "ENC:" + reversed("acme|DE03"))));
+
+        when(delegate.getTask("task-1")).thenReturn(task(templates, stored.get(1)));
+        TaskModel read = walkingDao.getTask("task-1");
+        assertThat(encryption.decrypts).hasValue(0);
+        assertThat(read.getInputData()).isEqualTo(input);
+    }
+
+    @Test
+    void onlyPathsFlaggedDeterministicAreEncryptedDeterministically() {
+        EncryptingExecutionDAO walkingDao = new EncryptingExecutionDAO(delegate, encryption,
+                new WorkflowContextCache(Duration.ofMinutes(1), 100, new SimpleMeterRegistry()),
+                new BulkPayloadExecutor(1, 1, 1, new SimpleMeterRegistry()), new SimpleMeterRegistry(), 1);
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow(Map.of("clientId", "acme")));
+        // $..iban also matches the flagged accounts' ibans: those stay randomized
+        Map<String, Object> templates = Map.of(
+                "_sensitivePaths", List.of("$.customer.ssn", "$.accounts[*].number", "$..iban", "$.accounts[*].iban"),
+                "_deterministicPaths", List.of("$.accounts[*].number", "$.accounts[*].iban", "$.customer.name"));
+        Map<String, Object> input = Map.of("customer", Map.of("ssn", "123", "name", "Ann"),
+                "accounts", List.of(Map.of("number", "ACC-1", "iban", "DE01"), Map.of("number", "ACC-2")));
+        List<Map<String, Object>> stored = new ArrayList<>();
+        doAnswer(invocation -> {
+            stored.add(rawInputData(invocation.getArgument(0)));
+            return null;
+        }).when(delegate).updateTask(any());
+
+        dao.updateTask(task(templates, input));
+        walkingDao.updateTask(task(templates, input));
+
+        assertThat(stored).hasSize(2);
+        assertThat(stored.get(1)).isEqualTo(stored.get(0));
+        assertThat(stored.get(0).get("customer")).isEqualTo(Map.of("ssn", "ENC:" + reversed("acme|123"), "name", "Ann"));
+        assertThat(stored.get(0).get("accounts")).isEqualTo(List.of(
+                Map.of("number", "ENC:" + reversed("acme|ACC-1") + "~", "iban", "ENC:" + reversed("acme|DE01")),
+                Map.of("number", "ENC:" + reversed("acme|ACC-2") + "~")));
+    }
+
+    @Test
+    void taskWritesUseTheClientIdOfTheWorkflowLastWrittenWithoutReadingItAgain() {
+        WorkflowModel workflow = workflow(Map.of("clientId", "acme"));
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow);
+        List<Object> stored = new ArrayList<>();
+        doAnswer(invocation -> {
+            stored.add(rawInputData(invocation.getArgument(0)).get("customer"));
+            return null;
+        }).when(delegate).updateTask(any());
+        dao.updateTask(task(Map.of(), Map.of("customer", Map.of("ssn", "1"))));
+
+        dao.updateWorkflow(workflow(Map.of("clientId", "globex")));
+        dao.updateTask(task(Map.of(), Map.of("customer", Map.of("ssn", "2"))));
+
+        assertThat(stored).containsExactly(Map.of("ssn", "ENC:" + reversed("acme|1")), Map.of("ssn", "ENC:" + reversed("globex|2")));
+        verify(delegate, times(1)).getWorkflow("wf-1", false);
+    }
+
+    @Test
+    void workflowVariablesWrittenThroughTheDaoReplaceTheCachedClientId() {
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow(Map.of()));
+        List<Object> stored = new ArrayList<>();
+        doAnswer(invocation -> {
+            stored.add(rawInputData(invocation.getArgument(0)).get("customer"));
+            return null;
+        }).when(delegate).updateTask(any());
+        dao.updateTask(task(Map.of(), Map.of("customer", Map.of("ssn", "1"))));
+
+        WorkflowModel withVariables = workflow(Map.of());
+        withVariables.setVariables(new HashMap<>(Map.of("clientId", "initech")));
+        dao.updateWorkflow(withVariables);
+        dao.updateTask(task(Map.of(), Map.of("customer", Map.of("ssn", "2"))));
+
+        assertThat(stored).containsExactly(Map.of("ssn", "ENC:" + reversed("GLOBAL_DEFAULT_CLIENT|1")),
+                Map.of("ssn", "ENC:" + reversed("initech|2")));
+    }
+
+    @Test
+    void removingAWorkflowDropsItsCachedContext() {
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow(Map.of("clientId", "acme")), (WorkflowModel) null);
+        List<Object> stored = new ArrayList<>();
+        doAnswer(invocation -> {
+            stored.add(rawInputData(invocation.getArgument(0)).get("customer"));
+            return null;
+        }).when(delegate).updateTask(any());
+        dao.updateTask(task(Map.of(), Map.of("customer", Map.of("ssn", "1"))));
+
+        dao.removeWorkflow("wf-1");
+        dao.updateTask(task(Map.of(), Map.of("customer", Map.of("ssn", "2"))));
+
+        // Reloaded, and gone: the stale context is not used to encrypt
+        verify(delegate, times(2)).getWorkflow("wf-1", false);
+        assertThat(stored).containsExactly(Map.of("ssn", "ENC:" + reversed("acme|1")), Map.of("ssn", "2"));
+    }
+
+    @Test
+    void removingAWorkflowWithExpiryDropsItsCachedContext() {
+        when(delegate.getWorkflow("wf-1", false)).thenReturn(workflow(Map.of("clientId", "acme")));
+        when(delegate.getTask("task-1")).thenReturn(task(Map.of(), Map.of()));
+        dao.getTask("task-1");
+        dao.getTask("task-1");
+        verify(delegate, times(1)).getWorkflow("wf-1", false);
+
+        dao.removeWorkflowWithExpiry("wf-1", 60);
+        dao.getTask("task-1");
+
+        verify(delegate, times(2)).getWorkflow("wf-1", false);
+    }
+
+    private double fields(String result) {
+        return meterRegistry.get("conductor.encryption.fields").tag("result", result).counter().count();
+    }
+
+    private static WorkflowModel workflow(Map<String, Object> input) {
+        WorkflowDef def = new WorkflowDef();
+        def.setName("customer_onboarding");
+        def.setVersion(1);
+        def.setInputTemplate(Map.of("_defaultEncryptionEnabled", true, "_sensitivePaths", List.of("$.customer.ssn")));
+        WorkflowModel workflow = new WorkflowModel();
+        workflow.setWorkflowId("wf-1");
+        workflow.setWorkflowDefinition(def);
+        workflow.setInput(new HashMap<>(input));
+        return workflow;
+    }
+
+    private static TaskModel task(Map<String, Object> inputTemplate, Map<String, Object> input) {
+        TaskDef taskDef = new TaskDef("collect");
+        taskDef.setInputTemplate(inputTemplate);
+        WorkflowTask workflowTask = new WorkflowTask();
+        workflowTask.setName("collect");
+        workflowTask.setTaskReferenceName("collect_ref");
+        workflowTask.setTaskDefinition(taskDef);
+        TaskModel task = new TaskModel();
+        task.setTaskId("task-" + input.hashCode());
+        task.setWorkflowInstanceId("wf-1");
+        task.setReferenceTaskName("collect_ref");
+        task.setWorkflowTask(workflowTask);
+        task.setInputData(new HashMap<>(input));
+        return task;
+    }
+
+    private static String reversed(String value) {
+        return new StringBuilder(value).reverse().toString();
+    }
+
+    private static final class ReversingEncryption implements EncryptionService {
+
+        private final AtomicInteger decrypts = new AtomicInteger();
+        private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public String encrypt(String plaintext, String clientId) {
+            return reversed(clientId + "|" + plaintext);
+        }
+
+        // Marked, to tell which values went through it
+        @Override
+        public String encryptDeterministic(String plaintext, String clientId) {
+            return encrypt(plaintext, clientId) + "~";
+        }
+
+        @Override
+        public String decrypt(String ciphertext, String clientId) throws GeneralSecurityException {
+            decrypts.incrementAndGet();
+            threads.add(Thread.currentThread().getName());
+            String value = reversed(ciphertext);
+            if (!value.startsWith(clientId + "|")) {
+                throw new GeneralSecurityException("Not encrypted for " + clientId);
+            }
+            return value.substring(clientId.length() + 1);
+        }
+    }
+
+    // The payloads as the delegate stores them; getInput etc. would also read externalized payloads
+    @SuppressWarnings("deprecation")
+    private static Map<String, Object> rawInput(WorkflowModel workflow) {
+        return workflow.getRawInput();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Map<String, Object> rawInputData(TaskModel task) {
+        return task.getRawInputData();
+    }
+}
@@ -0,0 +1,326 @@
+package com.ywdrtt.conductor.dao;
+
+import com.netflix.conductor.common.metadata.tasks.TaskDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowDef;
+import com.netflix.conductor.common.metadata.workflow.WorkflowTask;
+import com.netflix.conductor.dao.ExecutionDAO;
+import com.netflix.conductor.model.TaskModel;
+import com.netflix.conductor.model.WorkflowModel;
+import com.ywdrtt.conductor.security.EncryptionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The cached plans must encrypt exactly what the per-call definition walk did before them.
+ * {@link LegacyWalk} is that code, minus its logging. Every combination of definition entries
+ * and instance overrides below goes through one DAO, under one workflow name and version, so
+ * consecutive combinations also check that a plan built for other definition entries is not reused:
+ * 3 × 3 × 3 × 2 × 2 × 3 × 2 × 2 × 3 = 3,888 combinations, each a task and a workflow payload.
+ */
+class EncryptionPlanTest {
+
+    private static final List<Object> ABSENT = Collections.singletonList(null);
+    private static final List<Object> WORKFLOW_PATHS = Arrays.asList(null, List.of("$.a.ssn"), List.of("$.a.ssn", "$.b.ssn"));
+    private static final List<Object> TASK_PATHS = Arrays.asList(null, List.of("$.b.ssn", "$.c[*].ssn"), "$.b.ssn");
+    private static final List<Object> FLAGS = Arrays.asList(null, true, false);
+
+    private final ExecutionDAO delegate = mock(ExecutionDAO.class);
+    // Workflow contexts are not cached: each combination hands the DAO another workflow under the same ID
+    private final EncryptingExecutionDAO dao = new EncryptingExecutionDAO(delegate, new TaggingEncryption(),
+            new WorkflowContextCache(Duration.ZERO, 0, new SimpleMeterRegistry()),
+            new BulkPayloadExecutor(1, 1, 1, new SimpleMeterRegistry()), new SimpleMeterRegistry(), 0);
+    private WorkflowModel current;
+    private Map<String, Object> stored;
+
+    EncryptionPlanTest() {
+        when(delegate.getWorkflow(anyString(), anyBoolean())).thenAnswer(invocation -> current);
+        doAnswer(invocation -> {
+            stored = rawInputData(invocation.getArgument(0));
+            return null;
+        }).when(delegate).updateTask(any());
+        doAnswer(invocation -> {
+            stored = rawInput(invocation.getArgument(0));
+            return "wf-1";
+        }).when(delegate).updateWorkflow(any());
+    }
+
+    @Test
+    void encryptsLikeThePerCallDefinitionWalkForEveryCombination() {
+        List<String> mismatches = new ArrayList<>();
+        int combinations = 0;
+        for (Object workflowPaths : WORKFLOW_PATHS) {
+            for (Object workflowDefault : FLAGS) {
+                for (Object taskPaths : TASK_PATHS) {
+                    for (Object taskDefClientId : Arrays.asList(null, "taskdef")) {
+                        for (Object taskClientId : Arrays.asList(null, "task")) {
+                            for (Object taskEnabled : FLAGS) {
+                                for (Object workflowClientId : Arrays.asList(null, "workflow")) {
+                                    for (Object variablesClientId : Arrays.asList(null, "variables")) {
+                                        for (Object workflowEnabled : FLAGS) {
+                                            current = workflow(template("_sensitivePaths", workflowPaths, "_defaultEncryptionEnabled", workflowDefault),
+                                                    overrides("clientId", workflowClientId, "_enableEncryption", workflowEnabled), variablesClientId);
+                                            TaskModel task = task(template("_sensitivePaths", taskPaths, "_clientId", taskDefClientId),
+                                                    overrides("clientId", taskClientId, "_enableEncryption", taskEnabled));
+                                            String combination = Arrays.asList(workflowPaths, workflowDefault, taskPaths, taskDefClientId,
+                                                    taskClientId, taskEnabled, workflowClientId, variablesClientId, workflowEnabled).toString();
+
+                                            Map<String, Object> expectedTask = LegacyWalk.encrypted(rawInputData(task), current, task);
+                                            dao.updateTask(task);
+                                            if (!stored.equals(expectedTask)) {
+                                                mismatches.add("task " + combination + ": " + stored + " != " + expectedTask);
+                                            }
+                                            Map<String, Object> expectedWorkflow = LegacyWalk.encrypted(rawInput(current), current, null);
+                                            dao.updateWorkflow(current);
+                                            if (!stored.equals(expectedWorkflow)) {
+                                                mismatches.add("workflow " + combination + ": " + stored + " != " + expectedWorkflow);
+                                            }
+                                            combinations++;
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        assertThat(combinations).isEqualTo(3_888);
+        assertThat(mismatches).isEmpty();
+    }
+
+    @Test
+    void rebuildsThePlanWhenTheDefinitionsSensitivePathsChange() {
+        current = workflow(template("_sensitivePaths", List.of("$.a.ssn"), "_defaultEncryptionEnabled", true), overrides(), null);
+        dao.updateWorkflow(current);
+        assertThat(stored.get("a")).isEqualTo(Map.of("ssn", "ENC:GLOBAL_DEFAULT_CLIENT/1"));
+        assertThat(stored.get("b")).isEqualTo(Map.of("ssn", "2"));
+
+        // Same name and version, stored again with other paths (as another server would)
+        current = workflow(template("_sensitivePaths", List.of("$.b.ssn"), "_defaultEncryptionEnabled", true), overrides(), null);
+        dao.updateWorkflow(current);
+
+        assertThat(stored.get("a")).isEqualTo(Map.of("ssn", "1"));
+        assertThat(stored.get("b")).isEqualTo(Map.of("ssn", "ENC:GLOBAL_DEFAULT_CLIENT/2"));
+    }
+
+    @Test
+    void rebuildsThePlanWhenADefinitionIsEditedInPlace() {
+        List<String> paths = new ArrayList<>(List.of("$.a.ssn"));
+        current = workflow(template("_sensitivePaths", paths, "_defaultEncryptionEnabled", true), overrides(), null);
+        dao.updateWorkflow(current);
+        assertThat(stored.get("b")).isEqualTo(Map.of("ssn", "2"));
+
+        paths.add("$.b.ssn");
+        dao.updateWorkflow(current);
+
+        assertThat(stored.get("a")).isEqualTo(Map.of("ssn", "ENC:GLOBAL_DEFAULT_CLIENT/1"));
+        assertThat(stored.get("b")).isEqualTo(Map.of("ssn", "ENC:GLOBAL_DEFAULT_CLIENT/2"));
+    }
+
+    @Test
+    void rebuildsATaskPlanWhenItsTaskDefinitionChanges() {
+        current = workflow(template("_defaultEncryptionEnabled", true), overrides(), null);
+        dao.updateTask(task(template("_sensitivePaths", List.of("$.b.ssn"), "_clientId", "billing"), overrides()));
+        assertThat(stored.get("b")).isEqualTo(Map.of("ssn", "ENC:billing/2"));
+
+        dao.updateTask(task(template("_sensitivePaths", List.of("$.b.ssn"), "_clientId", "payments"), overrides()));
+
+        assertThat(stored.get("b")).isEqualTo(Map.of("ssn", "ENC:payments/2"));
+    }
+
+    @Test
+    void rebuildsThePlanWhenTheDefinitionsDeterministicPathsChange() {
+        current = workflow(template("_sensitivePaths", List.of("$.a.ssn", "$.b.ssn"), "_defaultEncryptionEnabled", true), overrides(), null);
+        dao.updateWorkflow(current);
+        assertThat(stored.get("a")).isEqualTo(Map.of("ssn", "ENC:GLOBAL_DEFAULT_CLIENT/1"));
+
+        current = workflow(template("_sensitivePaths", List.of("$.a.ssn", "$.b.ssn"), "_deterministicPaths", List.of("$.a.ssn"),
+                "_defaultEncryptionEnabled", true), overrides(), null);
+        dao.updateWorkflow(current);
+
+        assertThat(stored.get("a")).isEqualTo(Map.of("ssn", "ENC:GLOBAL_DEFAULT_CLIENT=1"));
+        assertThat(stored.get("b")).isEqualTo(Map.of("ssn", "ENC:GLOBAL_DEFAULT_CLIENT/2"));
+    }
+
+    private static WorkflowModel workflow(Map<String, Object> inputTemplate, Map<String, Object> overrides, Object variablesClientId) {
+        WorkflowDef def = new WorkflowDef();
+        def.setName("customer_onboarding");
+        def.setVersion(1);
+        def.setInputTemplate(inputTemplate);
+        WorkflowModel workflow = new WorkflowModel();
+        workflow.setWorkflowId("wf-1");
+        workflow.setWorkflowDefinition(def);
+        workflow.setInput(payload(overrides));
+        if (variablesClientId != null) {
+            workflow.setVariables(new HashMap<>(Map.of("clientId", variablesClientId)));
+        }
+        return workflow;
+    }
+
+    private static TaskModel task(Map<String, Object> inputTemplate, Map<String, Object> overrides) {
+        TaskDef taskDef = new TaskDef("collect");
+        taskDef.setInputTemplate(inputTemplate);
+        WorkflowTask workflowTask = new WorkflowTask();
+        workflowTask.setName("collect");
+        workflowTask.setTaskReferenceName("collect_ref");
+        workflowTask.setTaskDefinition(taskDef);
+        TaskModel task = new TaskModel();
+        task.setTaskId("task-1");
+        task.setWorkflowInstanceId("wf-1");
+        task.setReferenceTaskName("collect_ref");
+        task.setWorkflowTask(workflowTask);
+        task.setInputData(payload(overrides));
+        return task;
+    }
+
+    private static Map<String, Object> payload(Map<String, Object> overrides) {
+        Map<String, Object> payload = new LinkedHashMap<>(overrides);
+        payload.put("a", Map.of("ssn", "1"));
+        payload.put("b", Map.of("ssn", "2"));
+        payload.put("c", List.of(Map.of("ssn", "3"), Map.of("ssn", "4")));
+        return payload;
+    }
+
+    // Entries whose value is null are left out, as a definition that does not set them
+    private static Map<String, Object> template(Object... entries) {
+        Map<String, Object> template = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            if (entries[i + 1] != null) {
+                template.put((String) entries[i], entries[i + 1]);
+            }
+        }
+        return template;
+    }
+
+    private static Map<String, Object> overrides(Object... entries) {
+        return template(entries);
+    }
+
+    // "clientId/plaintext", so a stored value shows the client it was encrypted for
+    private static final class TaggingEncryption implements EncryptionService {
+        @Override
+        public String encrypt(String plaintext, String clientId) {
+            return clientId + "/" + plaintext;
+        }
+
+        @Override
+        public String encryptDeterministic(String plaintext, String clientId) {
+            return clientId + "=" + plaintext;
+        }
+
+        @Override
+        public String decrypt(String ciphertext, String clientId) {
+            return ciphertext.substring(clientId.length() + 1);
+        }
+    }
+
+    /**
+     * EncryptingExecutionDAO's definition walk before plans were cached: the paths, the enablement
+     * and the client ID read from the definitions on every call.
+     */
+    private static final class LegacyWalk {
+
+        static Map<String, Object> encrypted(Map<String, Object> payload, WorkflowModel workflow, TaskModel task) {
+            Set<String> paths = getSensitivePathsForPayload(workflow, task);
+            if (!isEncryptionEnabledForContext(workflow, task) || paths.isEmpty()) {
+                return payload;
+            }
+            String clientId = resolveClientId(workflow, task);
+            TaggingEncryption encryption = new TaggingEncryption();
+            PayloadPath.Rewrite rewrite = new PayloadPath.Rewrite(payload);
+            for (String expression : paths) {
+                PayloadPath path = PayloadPath.compile(expression);
+                for (PayloadPath target : path.isDefinite() ? List.of(path) : path.matches(rewrite.result())) {
+                    if (target.read(rewrite.result()) instanceof String) {
+                        rewrite.set(target, "ENC:" + encryption.encrypt((String) target.read(rewrite.result()), clientId));
+                    }
+                }
+            }
+            return rewrite.result();
+        }
+
+        private static String resolveClientId(WorkflowModel workflow, TaskModel task) {
+            if (task != null && task.getInputData().get("clientId") instanceof String) {
+                return (String) task.getInputData().get("clientId");
+            }
+            TaskDef taskDef = task != null ? task.getTaskDefinition().orElse(null) : null;
+            if (taskDef != null && taskDef.getInputTemplate() != null && taskDef.getInputTemplate().get("_clientId") instanceof String) {
+                return (String) taskDef.getInputTemplate().get("_clientId");
+            }
+            if (workflow.getInput().get("clientId") instanceof String) {
+                return (String) workflow.getInput().get("clientId");
+            }
+            if (workflow.getVariables() != null && workflow.getVariables().get("clientId") instanceof String) {
+                return (String) workflow.getVariables().get("clientId");
+            }
+            return "GLOBAL_DEFAULT_CLIENT";
+        }
+
+        private static boolean isEncryptionEnabledForContext(WorkflowModel workflow, TaskModel task) {
+            if (task != null && task.getInputData().get("_enableEncryption") instanceof Boolean) {
+                return (Boolean) task.getInputData().get("_enableEncryption");
+            }
+            if (workflow.getInput().get("_enableEncryption") instanceof Boolean) {
+                return (Boolean) workflow.getInput().get("_enableEncryption");
+            }
+            WorkflowDef workflowDef = workflow.getWorkflowDefinition();
+            return workflowDef != null && workflowDef.getInputTemplate() != null
+                    && Boolean.TRUE.equals(workflowDef.getInputTemplate().get("_defaultEncryptionEnabled"));
+        }
+
+        private static Set<String> getSensitivePathsForPayload(WorkflowModel workflow, TaskModel task) {
+            TaskDef taskDef = task != null ? task.getTaskDefinition().orElse(null) : null;
+            if (taskDef != null && taskDef.getInputTemplate() != null
+                    && taskDef.getInputTemplate().get("_sensitivePaths") instanceof List) {
+                return stringsOf((List<?>) taskDef.getInputTemplate().get("_sensitivePaths"));
+            }
+            WorkflowDef workflowDef = workflow.getWorkflowDefinition();
+            if (workflowDef != null && workflowDef.getInputTemplate() != null
+                    && workflowDef.getInputTemplate().get("_sensitivePaths") instanceof List) {
+                return stringsOf((List<?>) workflowDef.getInputTemplate().get("_sensitivePaths"));
+            }
+            return Collections.emptySet();
+        }
+
+        private static Set<String> stringsOf(List<?> values) {
+            Set<String> strings = new LinkedHashSet<>();
+            for (Object value : values) {
+                if (value instanceof String) {
+                    strings.add((String) value);
+                }
+            }
+            return strings;
+        }
+    }
+
+    // The payloads as the delegate stores them; getInput etc. would also read externalized payloads
+    @SuppressWarnings("deprecation")
+    private static Map<String, Object> rawInput(WorkflowModel workflow) {
+        return workflow.getRawInput();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Map<String, Object> rawInputData(TaskModel task) {
+        return task.getRawInputData();
+    }
+}
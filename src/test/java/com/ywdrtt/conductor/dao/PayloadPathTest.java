@@ -0,0 +1,133 @@
+package com.ywdrtt.conductor.dao;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The payloads are built as Jackson reads them, so the old serialize/JsonPath/deserialize rewrite
+ * can be run on the same input as a reference.
+ */
+class PayloadPathTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final String PAYLOAD = "{"
+            + "\"customer\": {\"name\": \"Ann\", \"ssn\": \"123-45-6789\", \"address\": {\"zip\": \"10001\"}},"
+            + "\"accounts\": [{\"iban\": \"DE01\", \"type\": \"checking\"}, {\"iban\": \"DE02\", \"type\": \"savings\"}],"
+            + "\"odd keys\": {\"with-dash\": \"a\", \"with space\": \"b\"},"
+            + "\"count\": 3,"
+            + "\"notes\": [\"n1\", \"n2\"]"
+            + "}";
+
+    @Test
+    void readsDefinitePathsWithoutJsonPath() throws Exception {
+        Map<String, Object> payload = payload();
+
+        assertThat(PayloadPath.compile("$.customer.ssn").isDefinite()).isTrue();
+        assertThat(PayloadPath.compile("$.customer.ssn").read(payload)).isEqualTo("123-45-6789");
+        assertThat(PayloadPath.compile("$['customer'][\"address\"].zip").read(payload)).isEqualTo("10001");
+        assertThat(PayloadPath.compile("$.accounts[1].iban").read(payload)).isEqualTo("DE02");
+        assertThat(PayloadPath.compile("$['odd keys']['with space']").read(payload)).isEqualTo("b");
+    }
+
+    @Test
+    void readsNullForMissingStepsAndWrongContainerTypes() throws Exception {
+        Map<String, Object> payload = payload();
+
+        assertThat(PayloadPath.compile("$.customer.phone").read(payload)).isNull();
+        assertThat(PayloadPath.compile("$.accounts[5].iban").read(payload)).isNull();
+        assertThat(PayloadPath.compile("$.customer[0]").read(payload)).isNull();
+        assertThat(PayloadPath.compile("$.accounts.iban").read(payload)).isNull();
+        assertThat(PayloadPath.compile("$.count.value").read(payload)).isNull();
+    }
+
+    @Test
+    void leavesWildcardsDeepScanFiltersAndSlicesToJsonPath() throws Exception {
+        Map<String, Object> payload = payload();
+
+        for (String expression : List.of("$.accounts[*].iban", "$..ssn", "$.accounts[?(@.type == 'savings')].iban",
+                "$.accounts[0:1].iban", "$.accounts[-1].iban", "$.customer['name','ssn']", "$.*")) {
+            assertThat(PayloadPath.compile(expression).isDefinite()).as(expression).isFalse();
+        }
+        assertThat(PayloadPath.compile("$.accounts[*].iban").matches(payload)).extracting(PayloadPath::toString)
+                .containsExactly("$['accounts'][0]['iban']", "$['accounts'][1]['iban']");
+        assertThat(PayloadPath.compile("$..zip").matches(payload)).extracting(match -> match.read(payload))
+                .containsExactly("10001");
+        assertThat(PayloadPath.compile("$..phone").matches(payload)).isEmpty();
+    }
+
+    @Test
+    void rewritesTheSameValuesAsTheJsonRoundTripItReplaces() throws Exception {
+        List<String> expressions = List.of("$.customer.ssn", "$['customer']['address']['zip']", "$.accounts[0].iban",
+                "$.accounts[*].type", "$..name", "$.accounts[?(@.type == 'savings')].iban", "$.notes[1]",
+                "$['odd keys']['with-dash']", "$.customer.phone", "$.count");
+
+        for (String expression : expressions) {
+            assertThat(rewrite(payload(), expression)).as(expression).isEqualTo(jsonRoundTrip(payload(), expression));
+        }
+    }
+
+    @Test
+    void copiesOnlyTheContainersOnTheWayToAWrittenValue() throws Exception {
+        Map<String, Object> payload = payload();
+        String before = OBJECT_MAPPER.writeValueAsString(payload);
+
+        Map<String, Object> result = rewrite(payload, "$.customer.ssn");
+
+        assertThat(OBJECT_MAPPER.writeValueAsString(payload)).isEqualTo(before);
+        assertThat(result).isNotSameAs(payload);
+        assertThat(result.get("customer")).isNotSameAs(payload.get("customer"));
+        assertThat(((Map<?, ?>) result.get("customer")).get("address")).isSameAs(((Map<?, ?>) payload.get("customer")).get("address"));
+        assertThat(result.get("accounts")).isSameAs(payload.get("accounts"));
+    }
+
+    @Test
+    void returnsThePayloadItselfWhenNothingIsWritten() throws Exception {
+        Map<String, Object> payload = payload();
+
+        assertThat(new PayloadPath.Rewrite(payload).result()).isSameAs(payload);
+        assertThat(rewrite(payload, "$.customer.phone")).isSameAs(payload);
+    }
+
+    // The DAO's use of PayloadPath: definite paths directly, the others through their matches
+    private static Map<String, Object> rewrite(Map<String, Object> payload, String expression) {
+        PayloadPath path = PayloadPath.compile(expression);
+        PayloadPath.Rewrite rewrite = new PayloadPath.Rewrite(payload);
+        List<PayloadPath> targets = path.isDefinite() ? List.of(path) : new ArrayList<>(path.matches(payload));
+        for (PayloadPath target : targets) {
+            Object value = target.read(rewrite.result());
+            if (value instanceof String) {
+                rewrite.set(target, marked((String) value));
+            }
+        }
+        return rewrite.result();
+    }
+
+    // What processPayload did before: serialize, rewrite with JsonPath, parse back
+    private static Map<String, Object> jsonRoundTrip(Map<String, Object> payload, String expression) throws Exception {
+        DocumentContext document = JsonPath.using(Configuration.defaultConfiguration().addOptions(Option.SUPPRESS_EXCEPTIONS))
+                .parse(OBJECT_MAPPER.writeValueAsString(payload));
+        document.map(expression, (value, configuration) -> value instanceof String ? marked((String) value) : value);
+        return OBJECT_MAPPER.readValue(document.jsonString(), new TypeReference<LinkedHashMap<String, Object>>() {});
+    }
+
+    private static String marked(String value) {
+        return "ENC:" + value;
+    }
+
+    private static Map<String, Object> payload() throws Exception {
+        return OBJECT_MAPPER.readValue(PAYLOAD, new TypeReference<LinkedHashMap<String, Object>>() {});
+    }
+}
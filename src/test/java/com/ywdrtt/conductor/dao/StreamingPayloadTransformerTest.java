@@ -0,0 +1,58 @@
+package com.ywdrtt.conductor.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the walk against JsonPath on the same payload.
+ */
+class StreamingPayloadTransformerTest {
+
+    private static final List<String> PATHS = List.of("$..iban", "$.accounts[*].holder.ssn", "$.cards.*", "$..history[1]");
+
+    @Test
+    void matchesTheSameValuesAsJsonPath() throws Exception {
+        Map<String, Object> payload = payload();
+        StreamingPayloadTransformer transformer = StreamingPayloadTransformer.compile(PATHS);
+
+        List<String> expected = new ArrayList<>();
+        for (String path : PATHS) {
+            PayloadPath.compile(path).matches(payload).forEach(match -> expected.add(match.toString()));
+        }
+        List<String> actual = new ArrayList<>();
+        transformer.matches(payload).forEach(match -> actual.add(match.toString()));
+
+        assertThat(actual).containsExactlyInAnyOrderElementsOf(expected).hasSize(9);
+    }
+
+    @Test
+    void leavesFiltersAndScanQuirksToJsonPath() {
+        assertThat(StreamingPayloadTransformer.compile(List.of("$.accounts[?(@.iban)]"))).isNull();
+        assertThat(StreamingPayloadTransformer.compile(List.of("$..[0].iban"))).isNull();
+        assertThat(StreamingPayloadTransformer.compile(List.of("$..accounts[*]"))).isNull();
+        assertThat(PayloadPath.compile("$..iban").isWalkable()).isTrue();
+        assertThat(PayloadPath.compile("$.accounts[0].iban").isWalkable()).isFalse(); // definite: no search needed
+    }
+
+    @Test
+    void estimatesSizeWithoutSerializing() {
+        assertThat(StreamingPayloadTransformer.exceeds(Map.of("history", List.of("x".repeat(2_000))), 1_024)).isTrue();
+        assertThat(StreamingPayloadTransformer.exceeds(Map.of("status", "OK"), 1_024)).isFalse();
+    }
+
+    private static Map<String, Object> payload() {
+        return Map.of(
+                "status", "OK",
+                "iban", "DE00",
+                "accounts", List.of(
+                        Map.of("iban", "DE01", "holder", Map.of("ssn", "111", "name", "A")),
+                        Map.of("iban", "DE02", "holder", Map.of("ssn", "222"), "limits", List.of(1, 2))),
+                "cards", Map.of("visa", "4111", "amex", "3782"),
+                "audit", Map.of("history", List.of("created", "updated", "closed"), "nested", Map.of("iban", 42)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.ywdrtt.conductor.dao;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkflowContextCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<String, WorkflowContext> loader = workflowId -> {
+        loads.incrementAndGet();
+        return new WorkflowContext(workflowId, null, "loaded", null);
+    };
+
+    @Test
+    void loadsOnceAndCountsHitsAndMisses() {
+        WorkflowContextCache cache = new WorkflowContextCache(Duration.ofMinutes(1), 10, meterRegistry);
+
+        cache.get("wf-1", loader);
+        WorkflowContext context = cache.get("wf-1", loader);
+
+        assertThat(context.clientId()).isEqualTo("loaded");
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("conductor.encryption.workflow.context").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("conductor.encryption.workflow.context").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("conductor.encryption.workflow.context.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void putReplacesTheCachedContext() {
+        WorkflowContextCache cache = new WorkflowContextCache(Duration.ofMinutes(1), 10, meterRegistry);
+        cache.get("wf-1", loader);
+
+        cache.put(new WorkflowContext("wf-1", null, "written", null));
+
+        assertThat(cache.get("wf-1", loader).clientId()).isEqualTo("written");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void invalidatedContextsAreLoadedAgain() {
+        WorkflowContextCache cache = new WorkflowContextCache(Duration.ofMinutes(1), 10, meterRegistry);
+        cache.get("wf-1", loader);
+
+        cache.invalidate("wf-1");
+        cache.get("wf-1", loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void missingWorkflowsAreNotCached() {
+        WorkflowContextCache cache = new WorkflowContextCache(Duration.ofMinutes(1), 10, meterRegistry);
+
+        assertThat(cache.get("wf-1", workflowId -> null)).isNull();
+        cache.get("wf-1", loader);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void expiredContextsAreLoadedAgain() throws InterruptedException {
+        WorkflowContextCache cache = new WorkflowContextCache(Duration.ofMillis(20), 10, meterRegistry);
+        cache.get("wf-1", loader);
+
+        Thread.sleep(40);
+        cache.get("wf-1", loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void zeroTtlDisablesCaching() {
+        WorkflowContextCache cache = new WorkflowContextCache(Duration.ZERO, 10, meterRegistry);
+
+        cache.get("wf-1", loader);
+        cache.get("wf-1", loader);
+
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("conductor.encryption.workflow.context.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void fullCacheKeepsItsLiveEntries() {
+        WorkflowContextCache cache = new WorkflowContextCache(Duration.ofMinutes(1), 2, meterRegistry);
+        cache.get("wf-1", loader);
+        cache.get("wf-2", loader);
+
+        cache.get("wf-3", loader);
+        cache.get("wf-3", loader);
+        cache.get("wf-1", loader);
+
+        assertThat(loads).hasValue(4);
+        assertThat(meterRegistry.get("conductor.encryption.workflow.context.size").gauge().value()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,158 @@
+package com.ywdrtt.conductor.security;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * One key for every client, as with the demo AesKmsClient: only the client ID bound into the
+ * ciphertext tells the clients' values apart. Data keys come from KmsClient's default
+ * generateDataKey/decryptDataKey, uncached.
+ */
+class AesEncryptionServiceTest {
+
+    private final SecretKey key = newKey();
+    private final AesEncryptionService service = new AesEncryptionService(clientId -> key);
+
+    @Test
+    void roundTripsV3Values() throws Exception {
+        String ciphertext = service.encrypt("123-45-6789 ünïcode", "acme");
+
+        assertThat(ciphertext).startsWith(AesEncryptionService.V3_PREFIX);
+        assertThat(service.decrypt(ciphertext, "acme")).isEqualTo("123-45-6789 ünïcode");
+    }
+
+    @Test
+    void usesAFreshIvForEveryValue() throws Exception {
+        assertThat(service.encrypt("123", "acme")).isNotEqualTo(service.encrypt("123", "acme"));
+    }
+
+    @Test
+    void decryptsV2Values() throws Exception {
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        cipher.updateAAD("acme".getBytes(StandardCharsets.UTF_8));
+        byte[] sealed = cipher.doFinal("123-45-6789".getBytes(StandardCharsets.UTF_8));
+        byte[] in = new byte[iv.length + sealed.length];
+        System.arraycopy(iv, 0, in, 0, iv.length);
+        System.arraycopy(sealed, 0, in, iv.length, sealed.length);
+        String v2 = AesEncryptionService.V2_PREFIX + Base64.getEncoder().encodeToString(in);
+
+        assertThat(service.decrypt(v2, "acme")).isEqualTo("123-45-6789");
+        assertThatThrownBy(() -> service.decrypt(v2, "globex")).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void decryptsLegacyFixedIvCbcValues() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec("ThisIsADummyIV12".getBytes(StandardCharsets.UTF_8)));
+        String legacy = Base64.getEncoder().encodeToString(cipher.doFinal("123-45-6789".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(service.decrypt(legacy, "acme")).isEqualTo("123-45-6789");
+    }
+
+    @Test
+    void rejectsAValueEncryptedForAnotherClient() throws Exception {
+        String ciphertext = service.encrypt("123", "acme");
+
+        assertThatThrownBy(() -> service.decrypt(ciphertext, "globex")).isInstanceOf(AEADBadTagException.class);
+    }
+
+    @Test
+    void rejectsTruncatedValues() throws Exception {
+        byte[] in = v3Bytes(service.encrypt("123", "acme"));
+
+        String shorterThanHeaderIvAndTag = v3(Arrays.copyOf(in, 50));
+        String missingItsLastByte = v3(Arrays.copyOf(in, in.length - 1));
+        String withoutWrappedKey = v3(new byte[]{0, 0});
+
+        assertThatThrownBy(() -> service.decrypt(shorterThanHeaderIvAndTag, "acme"))
+                .isInstanceOf(GeneralSecurityException.class).hasMessageContaining("Truncated");
+        assertThatThrownBy(() -> service.decrypt(withoutWrappedKey, "acme"))
+                .isInstanceOf(GeneralSecurityException.class).hasMessageContaining("Truncated");
+        assertThatThrownBy(() -> service.decrypt(missingItsLastByte, "acme")).isInstanceOf(AEADBadTagException.class);
+        assertThatThrownBy(() -> service.decrypt(AesEncryptionService.V2_PREFIX + Base64.getEncoder().encodeToString(new byte[20]), "acme"))
+                .isInstanceOf(GeneralSecurityException.class).hasMessageContaining("Truncated");
+    }
+
+    @Test
+    void rejectsTamperedValuesAndWrappedKeys() throws Exception {
+        byte[] tamperedValue = v3Bytes(service.encrypt("123", "acme"));
+        tamperedValue[tamperedValue.length - 1] ^= 1;
+        byte[] tamperedKey = v3Bytes(service.encrypt("123", "acme"));
+        tamperedKey[10] ^= 1;
+
+        assertThatThrownBy(() -> service.decrypt(v3(tamperedValue), "acme")).isInstanceOf(AEADBadTagException.class);
+        assertThatThrownBy(() -> service.decrypt(v3(tamperedKey), "acme")).isInstanceOf(GeneralSecurityException.class);
+    }
+
+    @Test
+    void roundTripsOnManyThreadsAtOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> workers = IntStream.range(0, 8).<Callable<Boolean>>mapToObj(worker -> () -> {
+                for (int i = 0; i < 500; i++) {
+                    String plaintext = worker + "-" + i;
+                    if (!plaintext.equals(service.decrypt(service.encrypt(plaintext, "client-" + worker), "client-" + worker))) {
+                        return false;
+                    }
+                }
+                return true;
+            }).collect(Collectors.toList());
+
+            for (Future<Boolean> result : executor.invokeAll(workers)) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void leavesNullAndEmptyValuesAsTheyAre() throws Exception {
+        assertThat(service.encrypt(null, "acme")).isNull();
+        assertThat(service.encrypt("", "acme")).isEmpty();
+        assertThat(service.decrypt("", "acme")).isEmpty();
+    }
+
+    private static byte[] v3Bytes(String ciphertext) {
+        assertThat(ciphertext).startsWith(AesEncryptionService.V3_PREFIX);
+        return Base64.getDecoder().decode(ciphertext.substring(AesEncryptionService.V3_PREFIX.length()));
+    }
+
+    private static String v3(byte[] in) {
+        return AesEncryptionService.V3_PREFIX + Base64.getEncoder().encodeToString(in);
+    }
+
+    private static SecretKey newKey() {
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+            keyGenerator.init(256);
+            return keyGenerator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
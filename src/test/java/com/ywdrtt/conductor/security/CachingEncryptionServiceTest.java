@@ -0,0 +1,114 @@
+package com.ywdrtt.conductor.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the value cache over AesEncryptionService, counting the calls that reach it.
+ */
+class CachingEncryptionServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<CachingEncryptionService> services = new ArrayList<>();
+    private final AtomicInteger decryptions = new AtomicInteger();
+
+    @AfterEach
+    void closeServices() {
+        services.forEach(CachingEncryptionService::close);
+    }
+
+    @Test
+    void decryptsARepeatedValueOnce() throws Exception {
+        CachingEncryptionService service = caching(Duration.ofMinutes(5), 100);
+        String ciphertext = service.encrypt("123-45-6789", "clientA");
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(service.decrypt(ciphertext, "clientA")).isEqualTo("123-45-6789");
+        }
+
+        assertThat(decryptions.get()).isZero(); // encrypt already cached the plaintext
+        assertThat(meterRegistry.get("conductor.encryption.value.cache").tag("operation", "decrypt").tag("result", "hit").counter().count())
+                .isEqualTo(10);
+        assertThat(meterRegistry.get("conductor.encryption.value.cache.hit.ratio").tag("operation", "decrypt").gauge().value())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void reusesCiphertextsOnlyWhenDeterministic() throws Exception {
+        CachingEncryptionService service = caching(Duration.ofMinutes(5), 100);
+
+        assertThat(service.encryptDeterministic("ACC-1", "clientA")).isEqualTo(service.encryptDeterministic("ACC-1", "clientA"));
+        assertThat(service.encryptDeterministic("ACC-1", "clientA")).isNotEqualTo(service.encryptDeterministic("ACC-1", "clientB"));
+        assertThat(service.encrypt("ACC-1", "clientA")).isNotEqualTo(service.encrypt("ACC-1", "clientA"));
+        assertThat(meterRegistry.get("conductor.encryption.value.cache.hit.ratio").tag("operation", "encrypt").gauge().value())
+                .isEqualTo(0.5);
+    }
+
+    @Test
+    void neverServesAValueToAnotherClient() throws Exception {
+        CachingEncryptionService service = caching(Duration.ofMinutes(5), 100);
+        String ciphertext = service.encrypt("123-45-6789", "clientA");
+
+        assertThatThrownBy(() -> service.decrypt(ciphertext, "clientB")).isInstanceOf(Exception.class);
+    }
+
+    @Test
+    void keepsAtMostMaxEntriesBelowTheSegmentCount() throws Exception {
+        CachingEncryptionService service = caching(Duration.ofMinutes(5), 5);
+        for (int i = 0; i < 500; i++) {
+            service.encrypt("value-" + i, "clientA");
+        }
+
+        assertThat(meterRegistry.get("conductor.encryption.value.cache.size").gauge().value()).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void keepsAtMostMaxEntriesAndForgetsExpiredValuesAndIdleClients() throws Exception {
+        CachingEncryptionService service = caching(Duration.ofMillis(100), 32);
+        for (int i = 0; i < 500; i++) {
+            service.encrypt("value-" + i, "clientA");
+        }
+        assertThat(meterRegistry.get("conductor.encryption.value.cache.size").gauge().value()).isLessThanOrEqualTo(32);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get("conductor.encryption.value.cache.size").gauge().value() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.get("conductor.encryption.value.cache.size").gauge().value()).isZero();
+
+        deadline = System.currentTimeMillis() + 5_000;
+        while (service.clientCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(service.clientCount()).isZero();
+        assertThat(service.decrypt(service.encrypt("123-45-6789", "clientA"), "clientA")).isEqualTo("123-45-6789");
+    }
+
+    private CachingEncryptionService caching(Duration ttl, int maxEntriesPerClient) throws Exception {
+        AesEncryptionService aes = new AesEncryptionService(new AesKmsClient());
+        EncryptionService counting = new EncryptionService() {
+            @Override
+            public String encrypt(String plaintext, String clientId) throws Exception {
+                return aes.encrypt(plaintext, clientId);
+            }
+
+            @Override
+            public String decrypt(String ciphertext, String clientId) throws Exception {
+                decryptions.incrementAndGet();
+                return aes.decrypt(ciphertext, clientId);
+            }
+        };
+        CachingEncryptionService service = new CachingEncryptionService(counting, ttl, maxEntriesPerClient, meterRegistry);
+        services.add(service);
+        return service;
+    }
+}
@@ -0,0 +1,182 @@
+package com.ywdrtt.conductor.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs envelope encryption against a stand-in KMS that answers every call after a fixed delay,
+ * like a remote KMS would, and counts the calls it gets.
+ */
+class CachingKmsClientTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<CachingKmsClient> clients = new ArrayList<>();
+
+    @AfterEach
+    void closeClients() {
+        clients.forEach(CachingKmsClient::close);
+    }
+
+    @Test
+    void callsTheKmsOncePerDataKeyInsteadOfOncePerValue() throws Exception {
+        LatencyKmsClient kms = new LatencyKmsClient(Duration.ofMillis(20));
+        AesEncryptionService uncached = new AesEncryptionService(kms);
+        AesEncryptionService cached = new AesEncryptionService(caching(kms, Duration.ofHours(1), 1_000_000));
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(uncached.decrypt(uncached.encrypt("123-45-" + i, "clientA"), "clientA")).isEqualTo("123-45-" + i);
+        }
+        assertThat(kms.generates.get()).isEqualTo(20);
+        assertThat(kms.decrypts.get()).isEqualTo(20);
+
+        kms.reset();
+        for (int i = 0; i < 200; i++) {
+            assertThat(cached.decrypt(cached.encrypt("123-45-" + i, "clientA"), "clientA")).isEqualTo("123-45-" + i);
+        }
+
+        // Ten times the values: one generate, and the key is never unwrapped
+        assertThat(kms.generates.get()).isEqualTo(1);
+        assertThat(kms.decrypts.get()).isZero();
+        assertThat(meterRegistry.get("conductor.encryption.kms.requests").tag("operation", "generate").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rotatesTheDataKeyAfterMaxUsesAndKeepsOlderValuesReadable() throws Exception {
+        LatencyKmsClient kms = new LatencyKmsClient(Duration.ofMillis(1));
+        AesEncryptionService service = new AesEncryptionService(caching(kms, Duration.ofHours(1), 10));
+
+        List<String> ciphertexts = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            ciphertexts.add(service.encrypt("value-" + i, "clientA"));
+        }
+        assertThat(kms.generates.get()).isEqualTo(3);
+
+        // A server with a cold cache unwraps each of the three data keys once
+        AesEncryptionService otherServer = new AesEncryptionService(caching(kms, Duration.ofHours(1), 10));
+        for (int i = 0; i < 25; i++) {
+            assertThat(otherServer.decrypt(ciphertexts.get(i), "clientA")).isEqualTo("value-" + i);
+        }
+        assertThat(kms.decrypts.get()).isEqualTo(3);
+    }
+
+    @Test
+    void refreshesDataKeysInUseBeforeTheyExpireAndDropsIdleOnes() throws Exception {
+        LatencyKmsClient kms = new LatencyKmsClient(Duration.ofMillis(5));
+        AesEncryptionService service = new AesEncryptionService(caching(kms, Duration.ofSeconds(2), 1_000_000));
+        String first = service.encrypt("123-45-6789", "clientA");
+
+        // The replacement is generated by the refresher, not by an encryption waiting for the KMS
+        awaitGenerates(kms, 2);
+        assertThat(kms.generatingThreads).containsExactly(Thread.currentThread().getName(), "kms-data-key-refresh");
+        // Encrypt until the replacement is installed; until then the first key is still valid
+        String second = service.encrypt("123-45-6789", "clientA");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (second.startsWith(first.substring(0, 40)) && System.currentTimeMillis() < deadline) {
+            second = service.encrypt("123-45-6789", "clientA");
+        }
+        assertThat(second.substring(0, 40)).isNotEqualTo(first.substring(0, 40)); // different wrapped key
+        assertThat(kms.generates.get()).isEqualTo(2);
+        assertThat(service.decrypt(first, "clientA")).isEqualTo("123-45-6789");
+
+        // The second key was used, so it is refreshed once too; the third is never used, so it is
+        // neither refreshed nor kept once it expires
+        awaitGenerates(kms, 3);
+        deadline = System.currentTimeMillis() + 10_000;
+        while (meterRegistry.get("conductor.encryption.kms.data.keys").gauge().value() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.get("conductor.encryption.kms.data.keys").gauge().value()).isZero();
+        assertThat(kms.generates.get()).isEqualTo(3);
+        assertThat(kms.generatingThreads).containsExactly(Thread.currentThread().getName(), "kms-data-key-refresh", "kms-data-key-refresh");
+    }
+
+    @Test
+    void valuesCannotBeDecryptedForAnotherClient() throws Exception {
+        LatencyKmsClient kms = new LatencyKmsClient(Duration.ZERO);
+        AesEncryptionService service = new AesEncryptionService(caching(kms, Duration.ofHours(1), 1_000_000));
+        String ciphertext = service.encrypt("123-45-6789", "clientA");
+
+        assertThatThrownBy(() -> service.decrypt(ciphertext, "clientB")).isInstanceOf(Exception.class);
+    }
+
+    private CachingKmsClient caching(KmsClient kms, Duration ttl, long maxUses) {
+        CachingKmsClient client = new CachingKmsClient(kms, ttl, maxUses, 1_000, meterRegistry);
+        clients.add(client);
+        return client;
+    }
+
+    private static void awaitGenerates(LatencyKmsClient kms, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (kms.generates.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(kms.generates.get()).isEqualTo(expected);
+    }
+
+    /**
+     * One key per client; every KMS operation sleeps for 'latency' first.
+     */
+    private static final class LatencyKmsClient implements KmsClient {
+
+        private final Duration latency;
+        private final Map<String, SecretKey> clientKeys = new ConcurrentHashMap<>();
+        private final AtomicInteger generates = new AtomicInteger();
+        private final AtomicInteger decrypts = new AtomicInteger();
+        private final List<String> generatingThreads = new CopyOnWriteArrayList<>();
+
+        private LatencyKmsClient(Duration latency) {
+            this.latency = latency;
+        }
+
+        @Override
+        public SecretKey getEncryptionKey(String clientId) throws Exception {
+            Thread.sleep(latency.toMillis());
+            return clientKeys.computeIfAbsent(clientId, id -> newKey());
+        }
+
+        @Override
+        public DataKey generateDataKey(String clientId) throws Exception {
+            DataKey dataKey = KmsClient.super.generateDataKey(clientId);
+            generatingThreads.add(Thread.currentThread().getName());
+            generates.incrementAndGet();
+            return dataKey;
+        }
+
+        @Override
+        public SecretKey decryptDataKey(String clientId, byte[] wrappedKey) throws Exception {
+            SecretKey key = KmsClient.super.decryptDataKey(clientId, wrappedKey);
+            decrypts.incrementAndGet();
+            return key;
+        }
+
+        private void reset() {
+            generates.set(0);
+            generatingThreads.clear();
+            decrypts.set(0);
+        }
+
+        private static SecretKey newKey() {
+            try {
+                KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+                keyGen.init(256);
+                return keyGen.generateKey();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
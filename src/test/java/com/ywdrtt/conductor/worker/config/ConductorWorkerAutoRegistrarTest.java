@@ -0,0 +1,65 @@
+package com.ywdrtt.conductor.worker.config;
+
+import com.ywdrtt.conductor.worker.abstractions.ConductorWorker;
+import com.ywdrtt.conductor.worker.abstractions.TaskHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConductorWorkerAutoRegistrarTest {
+
+    private final ConductorWorkerAutoRegistrar registrar = new ConductorWorkerAutoRegistrar();
+
+    @Test
+    void registersAnAdaptiveWorkerWithItsSettings() {
+        registrar.postProcessAfterInitialization(new AdaptiveWorker(), "adaptiveWorker");
+
+        assertThat(registrar.getRegisteredWorkers()).singleElement().satisfies(worker -> {
+            assertThat(worker.getTaskDefName()).isEqualTo("adaptive_task");
+            assertThat(registrar.getWorkerSettings(worker).minThreadCount()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void rejectsAMinThreadCountAboveThreadCountNamingTheWorker() {
+        assertThatThrownBy(() -> registrar.postProcessAfterInitialization(new MinAboveThreadCount(), "minAboveThreadCount"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'too_many_min'")
+                .hasMessageContaining("minThreadCount");
+        assertThat(registrar.getRegisteredWorkers()).isEmpty();
+    }
+
+    @Test
+    void rejectsAMinThreadCountBelowOne() {
+        assertThatThrownBy(() -> registrar.postProcessAfterInitialization(new ZeroMin(), "zeroMin"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'zero_min'");
+    }
+
+    @ConductorWorker(value = "adaptive_task", threadCount = 4, minThreadCount = 2, maxThreadCount = 8)
+    static class AdaptiveWorker {
+        @TaskHandler
+        public Map<String, Object> handle(Map<String, Object> input) {
+            return input;
+        }
+    }
+
+    @ConductorWorker(value = "too_many_min", threadCount = 4, minThreadCount = 8, maxThreadCount = 6)
+    static class MinAboveThreadCount {
+        @TaskHandler
+        public Map<String, Object> handle(Map<String, Object> input) {
+            return input;
+        }
+    }
+
+    @ConductorWorker(value = "zero_min", threadCount = 4, minThreadCount = 0, maxThreadCount = 8)
+    static class ZeroMin {
+        @TaskHandler
+        public Map<String, Object> handle(Map<String, Object> input) {
+            return input;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.ywdrtt.conductor.worker.config;
+
+import com.ywdrtt.conductor.worker.abstractions.ConductorTaskHandler;
+import com.ywdrtt.conductor.worker.abstractions.In;
+import com.ywdrtt.conductor.worker.abstractions.TaskHandler;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Binds the handler methods of {@link Handlers} and calls them with inputs shaped like what the
+ * Conductor client deserializes (String, Integer/Double, Boolean, Map, List).
+ */
+class TaskHandlerBinderTest {
+
+    private final Handlers handlers = new Handlers();
+
+    @Test
+    void bindsMapToMapHandlersThroughLambdaMetafactory() {
+        ConductorTaskHandler handler = bind("echo");
+
+        assertThat(handler.handle(Map.of("a", 1))).containsExactly(Map.entry("echoed", Map.of("a", 1)));
+        // the metafactory spins the lambda class next to the handler, the fallback lives in the binder
+        assertThat(handler.getClass().getName()).startsWith(Handlers.class.getName() + "$$Lambda");
+    }
+
+    @Test
+    void coercesNumbersFromOtherNumbersAndStrings() {
+        ConductorTaskHandler handler = bind("add");
+
+        assertThat(handler.handle(Map.of("a", 2.0, "b", "40"))).containsExactly(Map.entry("sum", 42L));
+        assertThat(handler.handle(Map.of("a", 1, "b", 2L))).containsExactly(Map.entry("sum", 3L));
+    }
+
+    @Test
+    void rejectsMissingPrimitivesAndUnparseableValuesNamingTheInput() {
+        ConductorTaskHandler handler = bind("add");
+
+        assertThatThrownBy(() -> handler.handle(Map.of("a", 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Input 'b'");
+        assertThatThrownBy(() -> handler.handle(Map.of("a", 1, "b", true)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Input 'b'")
+                .hasMessageContaining("Boolean");
+    }
+
+    @Test
+    void convertsEnumsAndListElements() {
+        ConductorTaskHandler handler = bind("describe");
+
+        Map<String, Object> output = handler.handle(Map.of("priority", " HIGH ", "counts", List.of("1", 2, 3.0)));
+
+        assertThat(output).containsExactly(Map.entry("description", "HIGH [1, 2, 3]"));
+    }
+
+    @Test
+    void populatesPojoAndRecordParametersFromTheWholeInput() {
+        Map<String, Object> input = Map.of("name", "order-1", "quantity", "3", "tags", List.of("x"), "express", "true");
+
+        assertThat(bind("orderSummary").handle(input)).containsExactly(Map.entry("summary", "order-1 x3 [x] express"));
+        assertThat(bind("shipmentSummary").handle(input)).containsExactly(Map.entry("summary", "order-1 x3"));
+    }
+
+    @Test
+    void flattensPojoAndRecordReturnValues() {
+        assertThat(bind("order").handle(Map.of("name", "o"))).containsOnly(
+                Map.entry("name", "o"), Map.entry("quantity", 1), Map.entry("tags", List.of()), Map.entry("express", false));
+        assertThat(bind("shipment").handle(Map.of("name", "s"))).containsExactly(
+                Map.entry("name", "s"), Map.entry("quantity", 2));
+    }
+
+    @Test
+    void voidHandlersProduceAnEmptyOutput() {
+        ConductorTaskHandler handler = bind("record");
+
+        assertThat(handler.handle(Map.of("event", "e1"))).isEmpty();
+        assertThat(handlers.recorded).containsExactly("e1");
+    }
+
+    @Test
+    void refusesHandlersThatCannotBeBound() {
+        assertThatThrownBy(() -> bind("unannotatedScalar"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("@In");
+        assertThatThrownBy(() -> bind("unnamedScalarOutput"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("@TaskHandler(output");
+    }
+
+    @Test
+    void passesHandlerExceptionsThroughUnwrapped() {
+        assertThatThrownBy(() -> bind("fail").handle(Map.of()))
+                .isExactlyInstanceOf(UnsupportedOperationException.class)
+                .hasMessage("nope");
+    }
+
+    private ConductorTaskHandler bind(String name) {
+        Method method = Arrays.stream(Handlers.class.getDeclaredMethods())
+                .filter(candidate -> candidate.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+        return TaskHandlerBinder.bind(handlers, method);
+    }
+
+    enum Priority {LOW, HIGH}
+
+    public static class Order {
+        private String name;
+        private int quantity = 1;
+        private List<String> tags = List.of();
+        public boolean express;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        public boolean isExpress() {
+            return express;
+        }
+    }
+
+    public record Shipment(String name, Integer quantity) {
+    }
+
+    public static class Handlers {
+        private final List<String> recorded = new ArrayList<>();
+
+        @TaskHandler
+        public Map<String, Object> echo(Map<String, Object> input) {
+            Map<String, Object> output = new HashMap<>();
+            output.put("echoed", input);
+            return output;
+        }
+
+        @TaskHandler(output = "sum")
+        public long add(@In("a") int a, @In("b") long b) {
+            return a + b;
+        }
+
+        @TaskHandler(output = "description")
+        public String describe(@In("priority") Priority priority, @In("counts") List<Integer> counts) {
+            return priority + " " + counts;
+        }
+
+        @TaskHandler(output = "summary")
+        public String orderSummary(Order order) {
+            return order.getName() + " x" + order.getQuantity() + " " + order.getTags() + (order.express ? " express" : "");
+        }
+
+        @TaskHandler(output = "summary")
+        public String shipmentSummary(Shipment shipment) {
+            return shipment.name() + " x" + shipment.quantity();
+        }
+
+        @TaskHandler
+        public Order order(@In("name") String name) {
+            Order order = new Order();
+            order.setName(name);
+            return order;
+        }
+
+        @TaskHandler
+        public Shipment shipment(@In("name") String name) {
+            return new Shipment(name, 2);
+        }
+
+        @TaskHandler
+        public void record(@In("event") String event) {
+            recorded.add(event);
+        }
+
+        @TaskHandler
+        public Map<String, Object> unannotatedScalar(String value) {
+            return Map.of();
+        }
+
+        @TaskHandler
+        public int unnamedScalarOutput(@In("a") int a) {
+            return a;
+        }
+
+        @TaskHandler(output = "never")
+        public String fail() {
+            throw new UnsupportedOperationException("nope");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.ywdrtt.conductor.worker.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The converter caches are static, so every test uses types of its own.
+ */
+class TypeConvertersTest {
+
+    @Test
+    void convertsSelfReferencingTypes() {
+        Function<Object, Object> converter = TypeConverters.input(Node.class);
+
+        Node root = (Node) converter.apply(Map.of("name", "root",
+                "children", List.of(Map.of("name", "leaf", "children", List.of()))));
+
+        assertThat(root.name).isEqualTo("root");
+        assertThat(root.children).singleElement().satisfies(leaf -> assertThat(leaf.name).isEqualTo("leaf"));
+    }
+
+    @Test
+    void doesNotCacheAReaderWhoseResolutionFailed() {
+        // Broken has no no-arg constructor; a reader published before resolve() would be handed out the second time
+        assertThatThrownBy(() -> TypeConverters.input(HoldsBroken.class))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(Broken.class.getName());
+        assertThatThrownBy(() -> TypeConverters.input(HoldsBroken.class))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> TypeConverters.input(Broken.class))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void concurrentFirstUseOnlyEverSeesResolvedReaders() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<Object> convert = () -> {
+            start.await();
+            return TypeConverters.input(Customer.class).apply(Map.of("id", "7", "address", Map.of("city", "Oslo")));
+        };
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(convert));
+            }
+            start.countDown();
+            for (Future<Object> result : results) {
+                Customer customer = (Customer) result.get(5, TimeUnit.SECONDS);
+                assertThat(customer.id()).isEqualTo(7L);
+                assertThat(customer.address().city()).isEqualTo("Oslo");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void writesRecordComponentsInDeclarationOrder() {
+        Map<String, Object> output = TypeConverters.output(Address.class).apply(new Address("Oslo"));
+
+        assertThat(output).containsExactly(Map.entry("city", "Oslo"));
+    }
+
+    public static class Node {
+        public String name;
+        public List<Node> children;
+    }
+
+    public static class Broken {
+        public Broken(String required) {
+        }
+    }
+
+    public static class HoldsBroken {
+        public Broken broken;
+    }
+
+    public record Address(String city) {
+    }
+
+    public record Customer(long id, Address address) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Each adjust() call is one sampling interval; the fake target hands out the latency samples.
+ */
+class AdaptiveConcurrencyControllerTest {
+
+    private int queueDepth = 10;
+    private final AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(taskType -> queueDepth);
+
+    @Test
+    void growsByOneThreadPerIntervalWhileLatencyStaysNearBaseline() {
+        FakeTarget target = register(2, 1, 6);
+
+        List<Integer> concurrency = run(target, 10, 10, 12, 14, 14, 14, 14);
+
+        assertThat(concurrency).containsExactly(3, 4, 5, 6, 6, 6, 6);
+    }
+
+    @Test
+    void doesNotGrowWithoutQueuedTasks() {
+        FakeTarget target = register(2, 1, 6);
+        queueDepth = 0;
+
+        assertThat(run(target, 10, 10, 10)).containsExactly(2, 2, 2);
+    }
+
+    @Test
+    void cutsByAQuarterOnceLatencyExceedsOneAndAHalfTimesBaselineDownToTheMinimum() {
+        FakeTarget target = register(8, 3, 8);
+        run(target, 10, 10);
+
+        // smoothed latency: 0.8 * 10 + 0.2 * 100 = 28 ms against a 10 ms baseline
+        assertThat(run(target, 100, 100, 100, 100)).containsExactly(6, 4, 3, 3);
+    }
+
+    @Test
+    void keepsTheCurrentLimitWhenNothingRan() {
+        FakeTarget target = register(4, 1, 8);
+
+        target.samples.add(new TaskPoller.Stats(0, 0));
+        controller.adjust();
+
+        assertThat(target.concurrency).isEqualTo(4);
+    }
+
+    @Test
+    void growsAgainAfterASlowPhaseOnceLatencyRecovers() {
+        FakeTarget target = register(4, 2, 8);
+        run(target, 10, 10);
+        run(target, 100, 100);
+        int afterCut = target.concurrency;
+
+        // the smoothed latency needs a few intervals to fall back under the tolerance
+        List<Integer> recovery = run(target, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10, 10);
+
+        assertThat(afterCut).isLessThan(4);
+        assertThat(recovery.get(recovery.size() - 1)).isGreaterThan(afterCut);
+    }
+
+    private FakeTarget register(int initial, int min, int max) {
+        FakeTarget target = new FakeTarget(initial);
+        controller.register(target, min, max);
+        return target;
+    }
+
+    // Feeds one latency sample per interval and records the concurrency after each
+    private List<Integer> run(FakeTarget target, double... latenciesMillis) {
+        List<Integer> concurrency = new ArrayList<>();
+        for (double latency : latenciesMillis) {
+            target.samples.add(new TaskPoller.Stats(20, latency));
+            controller.adjust();
+            concurrency.add(target.concurrency);
+        }
+        return concurrency;
+    }
+
+    private static final class FakeTarget implements AdaptiveConcurrencyController.Target {
+        private final List<TaskPoller.Stats> samples = new ArrayList<>();
+        private int concurrency;
+
+        FakeTarget(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        @Override
+        public String getTaskType() {
+            return "work";
+        }
+
+        @Override
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        @Override
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        @Override
+        public TaskPoller.Stats drainStats() {
+            return samples.remove(0);
+        }
+    }
+}
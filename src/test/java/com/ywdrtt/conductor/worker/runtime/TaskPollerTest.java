@@ -0,0 +1,163 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import com.netflix.conductor.client.http.TaskClient;
+import com.netflix.conductor.client.worker.Worker;
+import com.netflix.conductor.common.metadata.tasks.Task;
+import com.netflix.conductor.common.metadata.tasks.TaskResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives single poll rounds against a mocked TaskClient; results go through a real reporter.
+ */
+class TaskPollerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TaskClient taskClient = mock(TaskClient.class);
+    private final TaskResultReporter reporter = new TaskResultReporter(taskClient, meterRegistry, 100, 10, 1, 3);
+    private ExecutorService handlerPool;
+
+    @AfterEach
+    void stop() {
+        reporter.shutdown(5);
+        if (handlerPool != null) {
+            handlerPool.shutdownNow();
+        }
+    }
+
+    @Test
+    void reportsEachResultWhenItsTaskFinishesNotWhenTheBatchDoes() throws Exception {
+        CountDownLatch releaseSlowTask = new CountDownLatch(1);
+        Worker worker = Worker.create("work", task -> {
+            if (task.getTaskId().equals("slow")) {
+                await(releaseSlowTask);
+            }
+            return completed(task);
+        });
+        handlerPool = Executors.newFixedThreadPool(2);
+        TaskPoller poller = poller(worker, 2, handlerPool);
+        polls(task("slow"), task("fast"));
+        reporter.start();
+
+        poller.pollOnce();
+
+        verify(taskClient, timeout(2000)).updateTask(argThat(result -> result.getTaskId().equals("fast")));
+        verify(taskClient, never()).updateTask(argThat(result -> result.getTaskId().equals("slow")));
+
+        releaseSlowTask.countDown();
+        verify(taskClient, timeout(2000)).updateTask(argThat(result -> result.getTaskId().equals("slow")));
+    }
+
+    @Test
+    void rejectedTasksReleaseTheirSlotsAndGoBackToTheServer() throws Exception {
+        Worker worker = Worker.create("work", TaskPollerTest::completed);
+        handlerPool = Executors.newSingleThreadExecutor();
+        handlerPool.shutdown(); // rejects every task
+        TaskPoller poller = poller(worker, 2, handlerPool);
+        polls(task("t1"), task("t2"));
+        reporter.start();
+
+        poller.pollOnce();
+
+        assertThat(poller.availableSlots()).isEqualTo(2);
+        for (String taskId : List.of("t1", "t2")) {
+            verify(taskClient, timeout(2000)).updateTask(argThat(result -> result.getTaskId().equals(taskId)
+                    && result.getStatus() == TaskResult.Status.IN_PROGRESS
+                    && result.getCallbackAfterSeconds() > 0));
+        }
+    }
+
+    @Test
+    void slotsComeBackOnceTasksFinish() throws Exception {
+        Worker worker = Worker.create("work", TaskPollerTest::completed);
+        handlerPool = Executors.newFixedThreadPool(2);
+        TaskPoller poller = poller(worker, 3, handlerPool);
+        polls(task("t1"), task("t2"));
+        reporter.start();
+
+        poller.pollOnce();
+        handlerPool.shutdown();
+        assertThat(handlerPool.awaitTermination(2, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(poller.availableSlots()).isEqualTo(3);
+    }
+
+    @Test
+    void tasksBeyondTheRequestedCountGoBackToTheServerWithoutTakingSlots() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        Worker worker = Worker.create("work", task -> {
+            await(finish);
+            return completed(task);
+        });
+        handlerPool = Executors.newFixedThreadPool(2);
+        TaskPoller poller = poller(worker, 2, handlerPool);
+        polls(task("t1"), task("t2"), task("t3"));
+        reporter.start();
+
+        poller.pollOnce();
+
+        verify(taskClient, timeout(2000)).updateTask(argThat(result -> result.getTaskId().equals("t3")
+                && result.getStatus() == TaskResult.Status.IN_PROGRESS
+                && result.getCallbackAfterSeconds() > 0));
+        assertThat(poller.availableSlots()).isZero();
+
+        finish.countDown();
+        handlerPool.shutdown();
+        assertThat(handlerPool.awaitTermination(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(poller.availableSlots()).isEqualTo(2);
+        for (String taskId : List.of("t1", "t2")) {
+            verify(taskClient, timeout(2000)).updateTask(argThat(result -> result.getTaskId().equals(taskId)
+                    && result.getStatus() == TaskResult.Status.COMPLETED));
+        }
+    }
+
+    private TaskPoller poller(Worker worker, int threadCount, ExecutorService pool) {
+        return new TaskPoller(taskClient, reporter, worker, 10, threadCount, pool,
+                new FixedIntervalAcquisitionStrategy(worker), new PollMetrics(meterRegistry, worker.getTaskDefName()));
+    }
+
+    private void polls(Task... tasks) {
+        when(taskClient.batchPollTasksByTaskType(eq("work"), anyString(), anyInt(), anyInt())).thenReturn(List.of(tasks));
+    }
+
+    private static Task task(String taskId) {
+        Task task = new Task();
+        task.setTaskId(taskId);
+        task.setTaskDefName("work");
+        task.setWorkflowInstanceId("wf");
+        task.setStatus(Task.Status.IN_PROGRESS);
+        return task;
+    }
+
+    private static TaskResult completed(Task task) {
+        TaskResult result = new TaskResult(task);
+        result.setStatus(TaskResult.Status.COMPLETED);
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import com.netflix.conductor.client.exception.ConductorClientException;
+import com.netflix.conductor.client.http.TaskClient;
+import com.netflix.conductor.common.metadata.tasks.TaskResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the reporter against a mocked TaskClient that records every update it receives, in order,
+ * as "taskId:status".
+ */
+class TaskResultReporterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TaskClient taskClient = mock(TaskClient.class);
+    private final List<String> updates = new CopyOnWriteArrayList<>();
+    private TaskResultReporter reporter;
+
+    @AfterEach
+    void stop() {
+        if (reporter != null) {
+            reporter.shutdown(5);
+        }
+    }
+
+    @Test
+    void blocksHandlersOnceTheQueueIsFullAndResumesAsUpdatesComplete() throws Exception {
+        CountDownLatch serverBusy = new CountDownLatch(1);
+        onUpdate(result -> await(serverBusy));
+        reporter = reporter(2, 1, 3, null);
+        reporter.start();
+
+        reporter.report(result("t1", TaskResult.Status.COMPLETED));
+        reporter.report(result("t2", TaskResult.Status.COMPLETED));
+        assertThat(reporter.remainingCapacity()).isZero();
+
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> report(result("t3", TaskResult.Status.COMPLETED)));
+        Thread.sleep(200);
+        assertThat(blocked).isNotDone();
+
+        serverBusy.countDown();
+        blocked.get(2, TimeUnit.SECONDS);
+        waitFor(() -> updates.size() == 3);
+        assertThat(updates).containsExactly("t1:COMPLETED", "t2:COMPLETED", "t3:COMPLETED");
+    }
+
+    @Test
+    void sendsOnlyTheLatestPendingResultOfATaskEvenAcrossBatches() throws Exception {
+        CountDownLatch firstUpdateSent = new CountDownLatch(1);
+        CountDownLatch serverBusy = new CountDownLatch(1);
+        onUpdate(result -> {
+            firstUpdateSent.countDown();
+            await(serverBusy);
+        });
+        reporter = reporter(10, 10, 3, null);
+        reporter.start();
+
+        reporter.report(result("t1", TaskResult.Status.IN_PROGRESS));
+        assertThat(firstUpdateSent.await(2, TimeUnit.SECONDS)).isTrue();
+        // queued behind the in-flight update: the second replaces the first before it is sent
+        reporter.report(result("t1", TaskResult.Status.FAILED));
+        reporter.report(result("t1", TaskResult.Status.COMPLETED));
+        serverBusy.countDown();
+
+        waitFor(() -> updates.size() == 2);
+        Thread.sleep(100);
+        assertThat(updates).containsExactly("t1:IN_PROGRESS", "t1:COMPLETED");
+        assertThat(meterRegistry.counter("conductor.worker.report.coalesced").count()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesTransientFailuresWithTheLatestResultAndNeverSendsAnOlderOneAfterIt() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        onUpdate(result -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new ConductorClientException(503, "unavailable");
+            }
+        });
+        reporter = new TaskResultReporter(taskClient, meterRegistry, 10, 10, 1, 3, 4, null, 300);
+        reporter.start();
+
+        reporter.report(result("t1", TaskResult.Status.IN_PROGRESS));
+        waitFor(() -> meterRegistry.counter("conductor.worker.report.retries").count() == 1);
+        // lands in the waiting retry, which then carries the newer result
+        reporter.report(result("t1", TaskResult.Status.COMPLETED));
+
+        waitFor(() -> updates.size() == 2);
+        Thread.sleep(100);
+        assertThat(updates).containsExactly("t1:IN_PROGRESS", "t1:COMPLETED");
+        assertThat(meterRegistry.counter("conductor.worker.report.coalesced").count()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesUntilMaxAttemptsThenDrops() {
+        onUpdate(result -> {
+            throw new ConductorClientException(500, "boom");
+        });
+        reporter = reporter(10, 10, 3, null);
+        reporter.start();
+
+        report(result("t1", TaskResult.Status.COMPLETED));
+
+        waitFor(() -> meterRegistry.counter("conductor.worker.report.dropped").count() == 1);
+        assertThat(updates).hasSize(3);
+        assertThat(reporter.remainingCapacity()).isEqualTo(10);
+    }
+
+    @Test
+    void dropsClientErrorsWithoutRetrying() {
+        onUpdate(result -> {
+            throw new ConductorClientException(400, "bad request");
+        });
+        reporter = reporter(10, 10, 3, null);
+        reporter.start();
+
+        report(result("t1", TaskResult.Status.COMPLETED));
+
+        waitFor(() -> meterRegistry.counter("conductor.worker.report.dropped").count() == 1);
+        assertThat(updates).containsExactly("t1:COMPLETED");
+        assertThat(meterRegistry.counter("conductor.worker.report.retries").count()).isZero();
+    }
+
+    @Test
+    void shutdownFlushesWhatIsQueued() throws Exception {
+        onUpdate(result -> sleep(10));
+        reporter = reporter(100, 5, 3, null);
+        reporter.start();
+
+        for (int i = 0; i < 20; i++) {
+            reporter.report(result("t" + i, TaskResult.Status.COMPLETED));
+        }
+        reporter.shutdown(5);
+
+        assertThat(updates).hasSize(20);
+        assertThat(reporter.remainingCapacity()).isEqualTo(100);
+    }
+
+    @Test
+    void journalsUnreportedResultsAtShutdownAndReportsThemOnTheNextStart(@TempDir Path dir) throws Exception {
+        TaskResultJournal journal = new TaskResultJournal(dir.resolve("unreported.jsonl"));
+        AtomicInteger serverDown = new AtomicInteger(1);
+        onUpdate(result -> {
+            if (serverDown.get() == 1) {
+                throw new ConductorClientException(503, "unavailable");
+            }
+        });
+        // the first retry is due long after shutdown
+        reporter = new TaskResultReporter(taskClient, meterRegistry, 10, 10, 1, 3, 4, journal, 60_000);
+        reporter.start();
+        reporter.report(result("t1", TaskResult.Status.COMPLETED));
+        reporter.report(result("t2", TaskResult.Status.FAILED));
+        waitFor(() -> updates.size() == 2);
+        reporter.shutdown(1);
+
+        serverDown.set(0);
+        updates.clear();
+        reporter = reporter(10, 10, 3, journal);
+        reporter.start();
+
+        waitFor(() -> updates.size() == 2);
+        assertThat(updates).containsExactlyInAnyOrder("t1:COMPLETED", "t2:FAILED");
+        assertThat(journal.takeAll()).isEmpty();
+    }
+
+    private TaskResultReporter reporter(int queueCapacity, int batchSize, int maxAttempts, TaskResultJournal journal) {
+        return new TaskResultReporter(taskClient, meterRegistry, queueCapacity, batchSize, 1, maxAttempts, 4, journal, 20);
+    }
+
+    private void onUpdate(Consumer<TaskResult> server) {
+        doAnswer(invocation -> {
+            TaskResult result = invocation.getArgument(0);
+            updates.add(result.getTaskId() + ":" + result.getStatus());
+            server.accept(result);
+            return null;
+        }).when(taskClient).updateTask(any(TaskResult.class));
+    }
+
+    private void report(TaskResult result) {
+        try {
+            reporter.report(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TaskResult result(String taskId, TaskResult.Status status) {
+        TaskResult result = new TaskResult();
+        result.setTaskId(taskId);
+        result.setWorkflowInstanceId("wf");
+        result.setStatus(status);
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 2s").isLessThan(deadline);
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ywdrtt.conductor.worker.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs on whatever JDK builds the project: the fallback cases below Java 21, the virtual thread
+ * cases from 21 on.
+ */
+class VirtualThreadsTest {
+
+    private static final boolean JAVA_21 = Runtime.version().feature() >= 21;
+
+    @Test
+    void supportFollowsTheRuntime() {
+        assertThat(VirtualThreads.isSupported()).isEqualTo(JAVA_21);
+    }
+
+    @Test
+    void fallsBackToPlatformThreadsOnlyWhenTheApisAreMissing() {
+        assertThat(VirtualThreads.useIfSupported(true)).isEqualTo(JAVA_21);
+        assertThat(VirtualThreads.useIfSupported(false)).isFalse();
+    }
+
+    @Test
+    void refusesToBuildAnExecutorWhenTheApisAreMissing() {
+        assumeTrue(!JAVA_21, "virtual threads are available on this runtime");
+
+        assertThatThrownBy(() -> VirtualThreads.newThreadPerTaskExecutor("test"))
+                .isInstanceOf(UnsupportedOperationException.class)
+                .hasMessageContaining("Java 21");
+    }
+
+    @Test
+    void runsEachTaskOnANamedVirtualThread() throws Exception {
+        assumeTrue(JAVA_21, "virtual threads need Java 21");
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+            assertThat((boolean) isVirtual.invoke(thread)).isTrue();
+            assertThat(thread.getName()).startsWith("test-");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.ywdrtt.conductor.working;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Records go to an in-memory sink; every record is a denial so none is sampled away.
+ */
+class AuthorizationAuditTest {
+
+    private static final Pattern DECISION = Pattern.compile(".* type=(\\S+) id=(\\S+) permission=.*");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Queue<String> lines = new ConcurrentLinkedQueue<>();
+    private AuthorizationAudit audit;
+
+    @AfterEach
+    void close() {
+        if (audit != null) {
+            audit.close();
+        }
+    }
+
+    @Test
+    void dropsAndCountsRecordsOnceTheRingIsFull() throws Exception {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        audit = audit(4, line -> {
+            lines.add(line);
+            writerBusy.countDown();
+            await(release);
+        });
+
+        deny("first");
+        assertThat(writerBusy.await(2, TimeUnit.SECONDS)).isTrue();
+        // the writer holds "first" outside the ring: four records fit, the next three do not
+        for (int i = 0; i < 7; i++) {
+            deny("r" + i);
+        }
+        assertThat(count("dropped")).isEqualTo(3);
+
+        release.countDown();
+        audit.close();
+
+        assertThat(ids()).containsExactly("first", "r0", "r1", "r2", "r3");
+        assertThat(count("written")).isEqualTo(5);
+    }
+
+    @Test
+    void countsRecordsTheSinkRejectsAsDropped() {
+        audit = audit(16, line -> {
+            throw new IllegalStateException("appender down");
+        });
+
+        deny("a");
+        deny("b");
+        audit.close();
+
+        assertThat(count("dropped")).isEqualTo(2);
+        assertThat(count("written")).isZero();
+    }
+
+    @Test
+    void keepsEachProducersOrderAndNeverTearsARecord() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        audit = audit(1024, lines::add);
+
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            String producer = "p" + p;
+            Thread thread = new Thread(() -> {
+                await(start);
+                for (int i = 0; i < perProducer; i++) {
+                    audit.decision(null, producer, producer + ":" + i, ConductorPermission.READ, false);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        audit.close();
+
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (String line : lines) {
+            Matcher matcher = DECISION.matcher(line);
+            assertThat(matcher.matches()).as(line).isTrue();
+            String type = matcher.group(1);
+            String[] id = matcher.group(2).split(":");
+            // type and id were written by the same producer into the same slot
+            assertThat(id[0]).as(line).isEqualTo(type);
+            int producer = Integer.parseInt(type.substring(1));
+            int sequence = Integer.parseInt(id[1]);
+            assertThat(sequence).as(line).isGreaterThan(last[producer]);
+            last[producer] = sequence;
+        }
+        assertThat(count("written")).isEqualTo(lines.size());
+        assertThat(count("written") + count("dropped")).isEqualTo(producers * perProducer);
+    }
+
+    private AuthorizationAudit audit(int bufferSize, Consumer<String> sink) {
+        return new AuthorizationAudit(true, 0.0, true, bufferSize, meterRegistry, sink);
+    }
+
+    private void deny(String id) {
+        audit.decision(null, "workflow", id, ConductorPermission.DELETE, false);
+    }
+
+    private List<String> ids() {
+        List<String> ids = new ArrayList<>();
+        for (String line : lines) {
+            Matcher matcher = DECISION.matcher(line);
+            assertThat(matcher.matches()).as(line).isTrue();
+            ids.add(matcher.group(2));
+        }
+        return ids;
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("conductor.security.audit", "result", result).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ywdrtt.conductor.working;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingConductorPermissionEvaluatorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConductorRoleConfig roleConfig = new ConductorRoleConfig();
+    private final CachingConductorPermissionEvaluator evaluator =
+            new CachingConductorPermissionEvaluator(roleConfig, AuthorizationAudit.disabled(), meterRegistry, 100);
+    private final JwtAuthenticationToken operator = token("alice", "ROLE_OPS");
+
+    @Test
+    void servesRepeatedChecksOfATokenFromTheCache() {
+        roleConfig.update(roles(List.of("OPS")));
+
+        assertThat(evaluator.hasPermission(operator, "workflow", ConductorPermission.DELETE)).isTrue();
+        assertThat(evaluator.hasPermission(operator, "workflow-bulk", ConductorPermission.EXECUTE)).isTrue();
+
+        assertThat(cacheCount("miss")).isEqualTo(1);
+        assertThat(cacheCount("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void ignoresEntriesComputedFromAnEarlierRoleSnapshot() {
+        roleConfig.update(roles(List.of("OPS")));
+        assertThat(evaluator.hasPermission(operator, "workflow", ConductorPermission.DELETE)).isTrue();
+
+        // A lookup that raced the reload can put an entry after the clear(); model it by never clearing
+        roleConfig.update(roles(List.of()));
+
+        assertThat(evaluator.hasPermission(operator, "workflow", ConductorPermission.DELETE)).isFalse();
+        assertThat(cacheCount("miss")).isEqualTo(2);
+    }
+
+    @Test
+    void recomputesAfterAReloadEvent() {
+        roleConfig.update(roles(List.of()));
+        assertThat(evaluator.hasPermission(operator, "workflow", ConductorPermission.DELETE)).isFalse();
+
+        roleConfig.update(roles(List.of("OPS")));
+        evaluator.onRolesReloaded(new ConductorRolesReloadedEvent(roleConfig));
+
+        assertThat(evaluator.hasPermission(operator, "workflow", ConductorPermission.DELETE)).isTrue();
+    }
+
+    private double cacheCount(String result) {
+        return meterRegistry.counter("conductor.security.permission.cache", "result", result).count();
+    }
+
+    private static ConductorRoleConfig.Roles roles(List<String> workflowManager) {
+        return ConductorRoleConfig.Roles.of(List.of("ADMIN"), workflowManager, List.of("METADATA_MANAGER"), List.of("USER"));
+    }
+
+    private static JwtAuthenticationToken token(String subject, String... authorities) {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject(subject)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(300))
+                .build();
+        return new JwtAuthenticationToken(jwt, AuthorityUtils.createAuthorityList(authorities), subject);
+    }
+}
@@ -0,0 +1,185 @@
+package com.ywdrtt.conductor.working;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the decoder against a local in-memory key set standing in for the IdP.
+ */
+class CachingJwtDecoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RefreshingJwkSource jwkSource;
+
+    @AfterEach
+    void closeJwkSource() {
+        if (jwkSource != null) {
+            jwkSource.close();
+        }
+    }
+
+    @Test
+    void verifiesOnceThenServesTheSameTokenFromCache() throws Exception {
+        RSAKey key = rsaKey("key-1");
+        JwtDecoder decoder = decoder(JwkSetLoader.inMemory(new JWKSet(key)), 100);
+        String token = token(key, "alice", Instant.now().plusSeconds(300));
+
+        Jwt first = decoder.decode(token);
+        Jwt second = decoder.decode(token);
+
+        assertThat(first.getSubject()).isEqualTo("alice");
+        assertThat(second).isSameAs(first);
+        assertThat(meterRegistry.get("conductor.security.jwt.verification").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("conductor.security.jwt.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("conductor.security.jwt.cache").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("conductor.security.jwt.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnUnknownKeyAndNeverCachesThem() throws Exception {
+        RSAKey trusted = rsaKey("key-1");
+        RSAKey attacker = rsaKey("key-1");
+        JwtDecoder decoder = decoder(JwkSetLoader.inMemory(new JWKSet(trusted)), 100);
+        String forged = token(attacker, "mallory", Instant.now().plusSeconds(300));
+
+        assertThatThrownBy(() -> decoder.decode(forged)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> decoder.decode(forged)).isInstanceOf(JwtException.class);
+        assertThat(meterRegistry.get("conductor.security.jwt.verification").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("conductor.security.jwt.cache.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void keepsAtMostMaxSizeTokens() throws Exception {
+        RSAKey key = rsaKey("key-1");
+        JwtDecoder decoder = decoder(JwkSetLoader.inMemory(new JWKSet(key)), 16);
+
+        for (int i = 0; i < 200; i++) {
+            decoder.decode(token(key, "user-" + i, Instant.now().plusSeconds(300)));
+        }
+
+        assertThat(meterRegistry.get("conductor.security.jwt.cache.size").gauge().value()).isLessThanOrEqualTo(16);
+    }
+
+    @Test
+    void picksUpRotatedKeysInTheBackground() throws Exception {
+        RSAKey oldKey = rsaKey("key-1");
+        RSAKey newKey = rsaKey("key-2");
+        AtomicReference<JWKSet> published = new AtomicReference<>(new JWKSet(oldKey));
+        AtomicInteger loads = new AtomicInteger();
+        JwkSetLoader idp = () -> {
+            loads.incrementAndGet();
+            return published.get().toPublicJWKSet();
+        };
+        JwtDecoder decoder = decoder(idp, 100);
+        String token = token(newKey, "bob", Instant.now().plusSeconds(300));
+
+        published.set(new JWKSet(List.of(oldKey, newKey)));
+        // Unknown kid: the request fails without fetching, and a background refresh is scheduled
+        assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(JwtException.class);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (loads.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(decoder.decode(token).getSubject()).isEqualTo("bob");
+        assertThat(meterRegistry.get("conductor.security.jwks.refresh").tag("outcome", "success").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void dropsCachedTokensOfAKeyRemovedFromTheKeySet() throws Exception {
+        RSAKey revokedKey = rsaKey("key-1");
+        RSAKey keptKey = rsaKey("key-2");
+        AtomicReference<JWKSet> published = new AtomicReference<>(new JWKSet(List.of(revokedKey, keptKey)));
+        AtomicInteger loads = new AtomicInteger();
+        JwkSetLoader idp = () -> {
+            loads.incrementAndGet();
+            return published.get().toPublicJWKSet();
+        };
+        JwtDecoder decoder = decoder(idp, 100, Duration.ofMillis(50));
+        String revoked = token(revokedKey, "carol", Instant.now().plusSeconds(300));
+        String kept = token(keptKey, "dave", Instant.now().plusSeconds(300));
+        decoder.decode(revoked);
+        decoder.decode(kept);
+
+        published.set(new JWKSet(keptKey));
+        int loadsBefore = loads.get();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get("conductor.security.jwt.cache.size").gauge().value() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(loads.get()).isGreaterThan(loadsBefore);
+        assertThat(meterRegistry.get("conductor.security.jwt.cache.size").gauge().value()).isEqualTo(1);
+        assertThatThrownBy(() -> decoder.decode(revoked)).isInstanceOf(JwtException.class);
+        assertThat(decoder.decode(kept).getSubject()).isEqualTo("dave");
+    }
+
+    @Test
+    void doesNotCacheATokenVerifiedWhileTheKeySetChanged() {
+        AtomicReference<CachingJwtDecoder> decoder = new AtomicReference<>();
+        AtomicInteger verifications = new AtomicInteger();
+        // The key set changes while the token is being verified, as a JWKS refresh on another thread would
+        JwtDecoder verifier = token -> {
+            verifications.incrementAndGet();
+            decoder.get().retainKeys(Set.of());
+            return Jwt.withTokenValue(token).header("alg", "RS256").header("kid", "key-1").subject("erin")
+                    .expiresAt(Instant.now().plusSeconds(300)).build();
+        };
+        decoder.set(new CachingJwtDecoder(verifier, 100, meterRegistry));
+
+        decoder.get().decode("token");
+        decoder.get().decode("token");
+
+        assertThat(verifications.get()).isEqualTo(2);
+        assertThat(meterRegistry.get("conductor.security.jwt.cache.size").gauge().value()).isZero();
+    }
+
+    private JwtDecoder decoder(JwkSetLoader loader, int maxSize) {
+        return decoder(loader, maxSize, Duration.ofHours(1));
+    }
+
+    private JwtDecoder decoder(JwkSetLoader loader, int maxSize, Duration refreshInterval) {
+        jwkSource = new RefreshingJwkSource(loader, refreshInterval, meterRegistry).start();
+        return JwtDecoderConfig.cachingDecoder(jwkSource, List.of("RS256"), null, maxSize, meterRegistry);
+    }
+
+    private static RSAKey rsaKey(String keyId) throws JOSEException {
+        return new RSAKeyGenerator(2048).keyID(keyId).generate();
+    }
+
+    private static String token(RSAKey key, String subject, Instant expiresAt) throws JOSEException {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(subject)
+                .issueTime(new Date())
+                .expirationTime(Date.from(expiresAt))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
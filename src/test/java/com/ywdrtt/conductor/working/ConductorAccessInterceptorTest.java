@@ -0,0 +1,202 @@
+package com.ywdrtt.conductor.working;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.util.SimpleMethodInvocation;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The route table must decide like the @PreAuthorize expressions it replaced. Each controller
+ * method is checked through the interceptor and through Spring Security's own evaluation of the
+ * method's former expression, for every combination of the configured roles.
+ */
+class ConductorAccessInterceptorTest {
+
+    private static final String PERMISSION = "T(com.ywdrtt.conductor.working.ConductorPermission)";
+
+    // The @PreAuthorize expressions ConductorAccessController used before @ConductorAccess
+    private static final Map<String, String> PRE_AUTHORIZE = Map.ofEntries(
+            Map.entry("getWorkflowResource", "hasPermission(#workflowId, 'workflow', " + PERMISSION + ".READ)"),
+            Map.entry("createWorkflowResource", "hasPermission('workflow', " + PERMISSION + ".CREATE)"),
+            Map.entry("updateWorkflowResource", "hasPermission(#workflowId, 'workflow', " + PERMISSION + ".UPDATE)"),
+            Map.entry("deleteWorkflowResource", "hasPermission(#workflowId, 'workflow', " + PERMISSION + ".DELETE)"),
+            Map.entry("getWorkflowBulkResource", "hasPermission('workflow-bulk', " + PERMISSION + ".READ)"),
+            Map.entry("createWorkflowBulkResource", "hasPermission('workflow-bulk', " + PERMISSION + ".CREATE)"),
+            Map.entry("updateWorkflowBulkResource", "hasPermission('workflow-bulk', " + PERMISSION + ".UPDATE)"),
+            Map.entry("deleteWorkflowBulkResource", "hasPermission('workflow-bulk', " + PERMISSION + ".DELETE)"),
+            Map.entry("getMetadataResource", "hasPermission(#metadataId, 'metadata', " + PERMISSION + ".READ)"),
+            Map.entry("createMetadataResource", "hasPermission('metadata', " + PERMISSION + ".CREATE)"),
+            Map.entry("updateMetadataResource", "hasPermission(#metadataId, 'metadata', " + PERMISSION + ".UPDATE)"),
+            Map.entry("deleteMetadataResource", "hasPermission(#metadataId, 'metadata', " + PERMISSION + ".DELETE)"),
+            Map.entry("getEventResource", "hasPermission(#eventId, 'event', " + PERMISSION + ".READ)"),
+            Map.entry("createEventResource", "hasPermission('event', " + PERMISSION + ".CREATE)"),
+            Map.entry("updateEventResource", "hasPermission(#eventId, 'event', " + PERMISSION + ".UPDATE)"),
+            Map.entry("getTaskResource", "hasPermission(#taskId, 'task', " + PERMISSION + ".READ)"),
+            Map.entry("getQueueAdminResource", "hasPermission('queue-admin', " + PERMISSION + ".READ)"),
+            Map.entry("createQueueAdminResource", "hasPermission('queue-admin', " + PERMISSION + ".CREATE)"),
+            Map.entry("getAdminResource", "hasPermission('admin', " + PERMISSION + ".READ)"),
+            Map.entry("createAdminResource", "hasPermission('admin', " + PERMISSION + ".CREATE)"),
+            Map.entry("getHealthCheckResource", "true")); // never had an expression
+
+    private static final List<String> ROLES = List.of("ROLE_ADMIN", "ROLE_WORKFLOW_MANAGER", "ROLE_METADATA_MANAGER", "ROLE_USER", "ROLE_GUEST");
+
+    private final ConductorAccessController controller = new ConductorAccessController();
+    private final ConductorPermissionEvaluator permissionEvaluator =
+            new ConductorPermissionEvaluator(roleConfig(), AuthorizationAudit.disabled());
+    private final ConductorAccessInterceptor interceptor = interceptor();
+    private final DefaultMethodSecurityExpressionHandler expressionHandler = new DefaultMethodSecurityExpressionHandler();
+
+    ConductorAccessInterceptorTest() {
+        expressionHandler.setPermissionEvaluator(permissionEvaluator);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void decidesLikeThePreAuthorizeExpressionsItReplaced() {
+        List<Method> handlers = handlerMethods();
+        assertThat(handlers).extracting(Method::getName).containsExactlyInAnyOrderElementsOf(PRE_AUTHORIZE.keySet());
+
+        List<String> mismatches = new ArrayList<>();
+        for (int subset = 0; subset < 1 << ROLES.size(); subset++) {
+            Authentication authentication = token(subset);
+            for (Method method : handlers) {
+                boolean expected = preAuthorize(authentication, method);
+                if (routeTable(authentication, method) != expected) {
+                    mismatches.add(method.getName() + " " + authentication.getAuthorities() + ": expected " + expected);
+                }
+            }
+        }
+
+        assertThat(mismatches).isEmpty();
+    }
+
+    @Test
+    void passesThePathVariableAsTheResourceId() throws Exception {
+        PermissionEvaluator recording = mock(PermissionEvaluator.class);
+        Authentication authentication = token(0);
+        when(recording.hasPermission(authentication, "wf-42", "workflow", ConductorPermission.READ)).thenReturn(true);
+        ConductorAccessInterceptor interceptor = new ConductorAccessInterceptor(context(), recording);
+        interceptor.afterSingletonsInstantiated();
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        boolean allowed = interceptor.preHandle(request(Map.of("workflowId", "wf-42")), new MockHttpServletResponse(),
+                new HandlerMethod(controller, ConductorAccessController.class.getMethod("getWorkflowResource", String.class)));
+
+        assertThat(allowed).isTrue();
+    }
+
+    @Test
+    void deniesAnnotatedHandlersWithoutAnAuthentication() throws Exception {
+        HandlerMethod handler = new HandlerMethod(controller, ConductorAccessController.class.getMethod("createEventResource"));
+
+        assertThatThrownBy(() -> interceptor.preHandle(request(Map.of()), new MockHttpServletResponse(), handler))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    private boolean preAuthorize(Authentication authentication, Method method) {
+        Object[] arguments = new Object[method.getParameterCount()];
+        Arrays.fill(arguments, "id-1");
+        EvaluationContext context = expressionHandler.createEvaluationContext(authentication,
+                new SimpleMethodInvocation(controller, method, arguments));
+        return ExpressionUtils.evaluateAsBoolean(
+                expressionHandler.getExpressionParser().parseExpression(PRE_AUTHORIZE.get(method.getName())), context);
+    }
+
+    private boolean routeTable(Authentication authentication, Method method) {
+        Map<String, String> pathVariables = new HashMap<>();
+        for (Parameter parameter : method.getParameters()) {
+            pathVariables.put(parameter.getName(), "id-1");
+        }
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        try {
+            return interceptor.preHandle(request(pathVariables), new MockHttpServletResponse(), new HandlerMethod(controller, method));
+        } catch (AccessDeniedException e) {
+            return false;
+        }
+    }
+
+    private List<Method> handlerMethods() {
+        List<Method> handlers = new ArrayList<>();
+        for (Method method : ConductorAccessController.class.getDeclaredMethods()) {
+            if (Modifier.isPublic(method.getModifiers())) {
+                handlers.add(method);
+            }
+        }
+        return handlers;
+    }
+
+    private ConductorAccessInterceptor interceptor() {
+        ConductorAccessInterceptor interceptor = new ConductorAccessInterceptor(context(), permissionEvaluator);
+        interceptor.afterSingletonsInstantiated();
+        return interceptor;
+    }
+
+    private ApplicationContext context() {
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBeansWithAnnotation(Controller.class)).thenReturn(Map.of("conductorAccessController", controller));
+        return context;
+    }
+
+    private static MockHttpServletRequest request(Map<String, String> pathVariables) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, pathVariables);
+        return request;
+    }
+
+    private static ConductorRoleConfig roleConfig() {
+        ConductorRoleConfig roleConfig = new ConductorRoleConfig();
+        roleConfig.update(ConductorRoleConfig.Roles.of(
+                List.of("ADMIN"), List.of("WORKFLOW_MANAGER"), List.of("METADATA_MANAGER"), List.of("USER")));
+        return roleConfig;
+    }
+
+    private static Authentication token(int subset) {
+        List<String> authorities = new ArrayList<>();
+        for (int i = 0; i < ROLES.size(); i++) {
+            if ((subset & 1 << i) != 0) {
+                authorities.add(ROLES.get(i));
+            }
+        }
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject("alice")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(300))
+                .build();
+        return new JwtAuthenticationToken(jwt, AuthorityUtils.createAuthorityList(authorities.toArray(new String[0])), "alice");
+    }
+}
@@ -0,0 +1,168 @@
+package com.ywdrtt.conductor.working;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The matrix must decide exactly like the per-call rules ConductorPermissionEvaluator evaluated
+ * before it was compiled. {@link LegacyRules} is that code, minus its debug output, and both are
+ * asked about every authority subset × target type × action, for both overloads:
+ * 256 × 15 × 5 × 2 = 38,400 decisions.
+ */
+class ConductorPermissionMatrixTest {
+
+    // Mixed case on purpose: the old code upper-cased configured roles on every call
+    private static final List<String> ADMIN_ROLES = List.of("ADMIN");
+    private static final List<String> WORKFLOW_MANAGER_ROLES = List.of("WORKFLOW_MANAGER", "Ops");
+    private static final List<String> METADATA_MANAGER_ROLES = List.of("METADATA_MANAGER", "ops");
+    private static final List<String> USER_ROLES = List.of("user");
+
+    private static final List<String> AUTHORITIES = List.of(
+            "ROLE_ADMIN", "ROLE_WORKFLOW_MANAGER", "ROLE_METADATA_MANAGER", "ROLE_USER",
+            "ROLE_Ops", "ROLE_guest", "SCOPE_ADMIN", "USER");
+
+    private static final List<String> TARGET_TYPES = List.of(
+            "workflow", "WORKFLOW", "workflow-bulk", "Workflow-Bulk", "workflowDef",
+            "metadata", "Metadata", "event", "EVENT", "task",
+            "health-check", "Health-Check", "queue", "admin", "unknown");
+
+    private final ConductorPermissionMatrix matrix = ConductorPermissionMatrix.compile(
+            ConductorRoleConfig.Roles.of(ADMIN_ROLES, WORKFLOW_MANAGER_ROLES, METADATA_MANAGER_ROLES, USER_ROLES));
+    private final LegacyRules legacy = new LegacyRules();
+
+    @Test
+    void decidesLikeThePerCallRulesForEveryCombination() {
+        List<String> mismatches = new ArrayList<>();
+        int decisions = 0;
+        for (int subset = 0; subset < 1 << AUTHORITIES.size(); subset++) {
+            List<GrantedAuthority> authorities = authorities(subset);
+            for (String targetType : TARGET_TYPES) {
+                for (ConductorPermission action : ConductorPermission.values()) {
+                    boolean expectedGlobal = legacy.hasPermission(authorities, targetType, action);
+                    if (matrix.isAllowed(authorities, targetType, action) != expectedGlobal) {
+                        mismatches.add("global " + describe(authorities, targetType, action, expectedGlobal));
+                    }
+                    boolean expectedResource = legacy.hasPermissionOnResource(authorities, targetType, action);
+                    if (matrix.isAllowedOnResource(authorities, targetType, action) != expectedResource) {
+                        mismatches.add("resource " + describe(authorities, targetType, action, expectedResource));
+                    }
+                    decisions += 2;
+                }
+            }
+        }
+
+        assertThat(decisions).isEqualTo(38_400);
+        assertThat(mismatches).isEmpty();
+    }
+
+    @Test
+    void deniesEverythingWithoutAuthorities() {
+        for (String targetType : TARGET_TYPES) {
+            for (ConductorPermission action : ConductorPermission.values()) {
+                assertThat(matrix.isAllowed(null, targetType, action)).isFalse();
+                assertThat(matrix.isAllowedOnResource(List.of(), targetType, action)).isFalse();
+            }
+        }
+    }
+
+    private static List<GrantedAuthority> authorities(int subset) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (int i = 0; i < AUTHORITIES.size(); i++) {
+            if ((subset & 1 << i) != 0) {
+                authorities.add(new SimpleGrantedAuthority(AUTHORITIES.get(i)));
+            }
+        }
+        return List.copyOf(authorities);
+    }
+
+    private static String describe(List<GrantedAuthority> authorities, String targetType,
+                                   ConductorPermission action, boolean expected) {
+        return authorities + " " + targetType + " " + action + ": expected " + expected;
+    }
+
+    /**
+     * ConductorPermissionEvaluator's checks as they were before ConductorPermissionMatrix, given
+     * the authorities instead of a JWT authentication.
+     */
+    private static final class LegacyRules {
+
+        private List<String> extractUserRoles(Collection<? extends GrantedAuthority> authorities) {
+            return authorities.stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .filter(role -> role.startsWith("ROLE_"))
+                    .map(role -> role.substring(5).toUpperCase())
+                    .collect(Collectors.toList());
+        }
+
+        private boolean hasAnyRequiredRole(List<String> userExtractedRoles, List<String> configuredRoles) {
+            if (userExtractedRoles.isEmpty() || configuredRoles.isEmpty()) {
+                return false;
+            }
+            return configuredRoles.stream()
+                    .map(String::toUpperCase)
+                    .anyMatch(userExtractedRoles::contains);
+        }
+
+        boolean hasPermission(Collection<? extends GrantedAuthority> authorities, Object targetDomainObject, ConductorPermission action) {
+            var userRoles = extractUserRoles(authorities);
+            var targetType = String.valueOf(targetDomainObject).toLowerCase();
+            if (hasAnyRequiredRole(userRoles, ADMIN_ROLES)) {
+                return true;
+            }
+            if (targetType.startsWith("workflow") || targetType.equals("workflow-bulk")) {
+                if (hasAnyRequiredRole(userRoles, WORKFLOW_MANAGER_ROLES)) {
+                    return true;
+                }
+            }
+            if (targetType.equals("metadata")) {
+                if (hasAnyRequiredRole(userRoles, METADATA_MANAGER_ROLES)) {
+                    return true;
+                }
+            }
+            if (hasAnyRequiredRole(userRoles, USER_ROLES)) {
+                if (action == ConductorPermission.CREATE || action == ConductorPermission.READ) {
+                    return switch (targetType) {
+                        case "workflow", "metadata", "event", "task" -> true;
+                        case "health-check" -> true;
+                        default -> false;
+                    };
+                }
+            }
+            return false;
+        }
+
+        boolean hasPermissionOnResource(Collection<? extends GrantedAuthority> authorities, String targetType, ConductorPermission action) {
+            var userRoles = extractUserRoles(authorities);
+            if (hasAnyRequiredRole(userRoles, ADMIN_ROLES)) {
+                return true;
+            }
+            if (targetType.equalsIgnoreCase("workflow") || targetType.equalsIgnoreCase("workflow-bulk")) {
+                if (hasAnyRequiredRole(userRoles, WORKFLOW_MANAGER_ROLES)) {
+                    return true;
+                }
+            }
+            if (targetType.equalsIgnoreCase("metadata")) {
+                if (hasAnyRequiredRole(userRoles, METADATA_MANAGER_ROLES)) {
+                    return true;
+                }
+            }
+            if (hasAnyRequiredRole(userRoles, USER_ROLES)) {
+                return switch (targetType.toLowerCase()) {
+                    case "workflow", "event", "task", "health-check", "metadata" -> switch (action) {
+                        case READ, CREATE, UPDATE, DELETE, EXECUTE -> true;
+                    };
+                    default -> false;
+                };
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.ywdrtt.conductor.working;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConductorRoleConfigReloaderTest {
+
+    private static final ConductorRoleConfig.Roles STARTUP = ConductorRoleConfig.Roles.of(
+            List.of("ADMIN"), List.of("WORKFLOW_MANAGER"), List.of("METADATA_MANAGER"), List.of("USER"));
+
+    @TempDir
+    Path dir;
+
+    private final ConductorRoleConfig roleConfig = new ConductorRoleConfig();
+    private final MockEnvironment environment = new MockEnvironment();
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    private final ConductorRoleConfigReloader reloader = new ConductorRoleConfigReloader(roleConfig, environment, events::add);
+
+    ConductorRoleConfigReloaderTest() {
+        roleConfig.update(STARTUP);
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        reloader.destroy();
+    }
+
+    @Test
+    void appliesTheFileAtStartup() throws Exception {
+        Path file = write("roles.properties", "app.roles.admin=ROOT,Admin\n");
+
+        watch(file);
+
+        // keys missing from the file keep their Environment value (here: the defaults)
+        assertThat(roleConfig.current()).isEqualTo(ConductorRoleConfig.Roles.of(
+                List.of("ROOT", "ADMIN"), List.of("WORKFLOW_MANAGER"), List.of("METADATA_MANAGER"), List.of("USER")));
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    void appliesABurstOfWritesOnceItSettles() throws Exception {
+        Path file = write("roles.properties", "app.roles.admin=A0\n");
+        watch(file);
+        events.clear();
+
+        for (int i = 1; i <= 5; i++) {
+            write("roles.properties", "app.roles.admin=A" + i + "\n");
+            Thread.sleep(20);
+        }
+
+        waitFor(() -> roleConfig.current().admin().equals(List.of("A5")));
+        Thread.sleep(500); // longer than the debounce: nothing else may follow
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    void keepsTheCurrentRolesWhenTheFileIsMissing() throws Exception {
+        watch(dir.resolve("absent.properties"));
+
+        assertThat(roleConfig.current()).isSameAs(STARTUP);
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void keepsTheCurrentRolesWhenTheFileIsDeletedLater() throws Exception {
+        Path file = write("roles.properties", "app.roles.admin=ROOT\n");
+        watch(file);
+        ConductorRoleConfig.Roles applied = roleConfig.current();
+        events.clear();
+
+        Files.delete(file);
+        Thread.sleep(800);
+
+        assertThat(roleConfig.current()).isSameAs(applied);
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void keepsTheCurrentRolesWhenTheFileDefinesNoRoles() throws Exception {
+        Path file = write("roles.properties", """
+                app.roles.admin=
+                app.roles.workflowManager=
+                app.roles.metadataManager= ,
+                app.roles.user=
+                """);
+
+        watch(file);
+
+        assertThat(roleConfig.current()).isSameAs(STARTUP);
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void endpointReadsAndReloadsTheEnvironmentRoles() {
+        assertThat(ConductorRoleConfigReloader.class.getAnnotation(Endpoint.class).id()).isEqualTo("conductorroles");
+        assertThat(reloader.roles()).isSameAs(STARTUP);
+
+        environment.setProperty("app.roles.user", "USER,READER");
+        ConductorRoleConfig.Roles reloaded = reloader.reloadFromEnvironment();
+
+        assertThat(reloaded.user()).containsExactly("USER", "READER");
+        assertThat(reloader.roles()).isSameAs(reloaded);
+        assertThat(events).singleElement().isInstanceOf(ConductorRolesReloadedEvent.class);
+
+        // same roles again: nothing to announce
+        reloader.reloadFromEnvironment();
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    void endpointKeepsTheCurrentRolesWhenTheEnvironmentDefinesNone() {
+        environment.setProperty("app.roles.admin", "");
+        environment.setProperty("app.roles.workflowManager", "");
+        environment.setProperty("app.roles.metadataManager", "");
+        environment.setProperty("app.roles.user", "");
+
+        assertThat(reloader.reloadFromEnvironment()).isSameAs(STARTUP);
+        assertThat(events).isEmpty();
+    }
+
+    private void watch(Path file) throws Exception {
+        ReflectionTestUtils.setField(reloader, "rolesFile", file.toString());
+        reloader.afterPropertiesSet();
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5s").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
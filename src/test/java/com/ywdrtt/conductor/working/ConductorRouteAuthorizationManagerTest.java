@@ -0,0 +1,182 @@
+package com.ywdrtt.conductor.working;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The trie must decide exactly like the requestMatchers(...).hasAnyRole(...) chain it replaced,
+ * so every request below is checked against Spring Security's own matcher-by-matcher evaluation
+ * of the same rule list.
+ */
+class ConductorRouteAuthorizationManagerTest {
+
+    // Rule list of NewSecurityConfig, with RequestMappingConstants values spelled out
+    private static final List<Object[]> RULES = List.of(
+            new Object[]{null, "/api/admin/**", List.of("ADMIN")},
+            new Object[]{HttpMethod.GET, "/api/queue/**", List.of("ADMIN")},
+            new Object[]{HttpMethod.POST, "/api/queue/**", List.of("ADMIN")},
+            new Object[]{null, "/api/workflow/bulk/**", List.of("WORKFLOW_MANAGER", "ADMIN")},
+            new Object[]{HttpMethod.GET, "/api/workflow/**", List.of("USER", "WORKFLOW_MANAGER", "ADMIN")},
+            new Object[]{HttpMethod.DELETE, "/api/workflow/**", List.of("USER", "WORKFLOW_MANAGER", "ADMIN")},
+            new Object[]{HttpMethod.POST, "/api/workflow/**", List.of("WORKFLOW_MANAGER", "ADMIN")},
+            new Object[]{HttpMethod.PUT, "/api/workflow/**", List.of("WORKFLOW_MANAGER", "ADMIN")},
+            new Object[]{null, "/api/metadata/**", List.of("USER", "METADATA_MANAGER", "ADMIN")},
+            new Object[]{HttpMethod.GET, "/api/event/**", List.of("USER", "ADMIN")},
+            new Object[]{HttpMethod.POST, "/api/event/**", List.of("USER", "ADMIN")},
+            new Object[]{HttpMethod.PUT, "/api/event/**", List.of("USER", "ADMIN")},
+            new Object[]{HttpMethod.GET, "/api/tasks/**", List.of("USER", "ADMIN")},
+            new Object[]{HttpMethod.PUT, "/api/tasks/**", List.of("USER", "ADMIN")},
+            new Object[]{HttpMethod.GET, "/health/**", List.of("USER", "ADMIN")});
+
+    private static final List<String> ROLES = List.of("ADMIN", "WORKFLOW_MANAGER", "METADATA_MANAGER", "USER", "OTHER");
+
+    @Test
+    void decidesLikeTheRequestMatcherChain() {
+        ConductorRouteAuthorizationManager trie = trie();
+        RequestMatcherDelegatingAuthorizationManager chain = chain();
+
+        List<String> methods = new ArrayList<>();
+        for (HttpMethod method : HttpMethod.values()) {
+            methods.add(method.name());
+        }
+        methods.add("PROPFIND");
+        methods.add("");
+
+        int checked = 0;
+        for (String path : paths()) {
+            for (String method : methods) {
+                for (Authentication authentication : authentications()) {
+                    for (boolean splitPathInfo : new boolean[]{false, true}) {
+                        MockHttpServletRequest request = request(method, path, splitPathInfo);
+                        boolean expected = granted(chain.check(() -> authentication, request));
+                        boolean actual = granted(trie.check(() -> authentication, new RequestAuthorizationContext(request, Map.of())));
+                        assertThat(actual)
+                                .as("%s %s (pathInfo split: %s) as %s", method, path, splitPathInfo, authentication)
+                                .isEqualTo(expected);
+                        checked++;
+                    }
+                }
+            }
+        }
+        assertThat(checked).isGreaterThan(10_000);
+    }
+
+    @Test
+    void firstDeclaredRuleWinsOverMoreSpecificLaterRule() {
+        ConductorRouteAuthorizationManager manager = ConductorRouteAuthorizationManager.builder()
+                .route("/api/workflow/**", List.of("USER"))
+                .route("/api/workflow/bulk/**", List.of("ADMIN"))
+                .build();
+        Authentication user = new TestingAuthenticationToken("u", "p", "ROLE_USER");
+
+        AuthorizationDecision decision = manager.check(() -> user,
+                new RequestAuthorizationContext(request("DELETE", "/api/workflow/bulk/1", false), Map.of()));
+
+        assertThat(granted(decision)).isTrue();
+    }
+
+    @Test
+    void rejectsPatternsItCannotCompile() {
+        ConductorRouteAuthorizationManager.Builder builder = ConductorRouteAuthorizationManager.builder();
+
+        assertThatThrownBy(() -> builder.route("/api/*/bulk/**", List.of("ADMIN"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.route("/api/workflow", List.of("ADMIN"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.route("/api/admin/**", List.of("ROLE_ADMIN"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ConductorRouteAuthorizationManager trie() {
+        ConductorRouteAuthorizationManager.Builder builder = ConductorRouteAuthorizationManager.builder();
+        for (Object[] rule : RULES) {
+            @SuppressWarnings("unchecked")
+            List<String> roles = (List<String>) rule[2];
+            builder.route((HttpMethod) rule[0], (String) rule[1], roles);
+        }
+        return builder.build();
+    }
+
+    private static RequestMatcherDelegatingAuthorizationManager chain() {
+        RequestMatcherDelegatingAuthorizationManager.Builder builder = RequestMatcherDelegatingAuthorizationManager.builder();
+        for (Object[] rule : RULES) {
+            HttpMethod method = (HttpMethod) rule[0];
+            @SuppressWarnings("unchecked")
+            List<String> roles = (List<String>) rule[2];
+            builder.add(new AntPathRequestMatcher((String) rule[1], method == null ? null : method.name()),
+                    AuthorityAuthorizationManager.hasAnyRole(roles.toArray(new String[0])));
+        }
+        builder.add(AnyRequestMatcher.INSTANCE, AuthenticatedAuthorizationManager.authenticated());
+        return builder.build();
+    }
+
+    private static List<String> paths() {
+        List<String> paths = new ArrayList<>(List.of("", "/", "//", "/api", "/api/", "/api//workflow", "/apix",
+                "/API/workflow", "/api/Workflow/1", "/other/api/workflow", "api/workflow", "/health", "/healthz"));
+        for (Object[] rule : RULES) {
+            String prefix = ((String) rule[1]).substring(0, ((String) rule[1]).length() - 3);
+            paths.add(prefix);
+            paths.add(prefix + "/");
+            paths.add(prefix + "x");
+            paths.add(prefix + "/123");
+            paths.add(prefix + "/123/sub/path");
+            paths.add(prefix + "//123");
+            paths.add(prefix + "/bulk");
+            paths.add(prefix.toUpperCase());
+        }
+        return paths;
+    }
+
+    private static List<Authentication> authentications() {
+        List<Authentication> authentications = new ArrayList<>();
+        for (int subset = 0; subset < 1 << ROLES.size(); subset++) {
+            List<String> authorities = new ArrayList<>();
+            for (int i = 0; i < ROLES.size(); i++) {
+                if ((subset & 1 << i) != 0) {
+                    authorities.add("ROLE_" + ROLES.get(i));
+                }
+            }
+            authentications.add(new TestingAuthenticationToken("user", "n/a", authorities.toArray(new String[0])));
+        }
+        // Roles compare case-sensitively, as hasAnyRole does
+        authentications.add(new TestingAuthenticationToken("user", "n/a", "ROLE_admin", "ADMIN"));
+        TestingAuthenticationToken notAuthenticated = new TestingAuthenticationToken("user", "n/a", "ROLE_ADMIN");
+        notAuthenticated.setAuthenticated(false);
+        authentications.add(notAuthenticated);
+        authentications.add(new AnonymousAuthenticationToken("key", "anonymous", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        authentications.add(null);
+        return authentications;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, boolean splitPathInfo) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        int split = path.indexOf('/', 1);
+        if (splitPathInfo && path.startsWith("/") && split > 0) {
+            request.setServletPath(path.substring(0, split));
+            request.setPathInfo(path.substring(split));
+        } else {
+            request.setServletPath(path);
+        }
+        return request;
+    }
+
+    private static boolean granted(AuthorizationDecision decision) {
+        return decision != null && decision.isGranted();
+    }
+}
@@ -0,0 +1,134 @@
+package com.ywdrtt.conductor.working;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Converts locally built tokens. A cache hit shows as the roles of the first token converted under
+ * the same key, whatever the later token's own claims say.
+ */
+class JwtConverterConfigTest {
+
+    private final AuthorizationAudit audit = mock(AuthorizationAudit.class);
+
+    @Test
+    void readsRolesFromNestedClaimMaps() {
+        JwtAuthenticationConverter converter = converter(List.of("realm_access.roles", "resource_access.conductor.roles"), 100);
+        Jwt jwt = jwt("token-1", "jti-1", Instant.now().plusSeconds(300), Map.of(
+                "realm_access", Map.of("roles", List.of("user", 42)),
+                "resource_access", Map.of("conductor", Map.of("roles", List.of("workflow_manager")))));
+
+        assertThat(roles(converter, jwt)).containsExactlyInAnyOrder("ROLE_USER", "ROLE_WORKFLOW_MANAGER");
+    }
+
+    @Test
+    void acceptsASingleStringRole() {
+        JwtAuthenticationConverter converter = converter(List.of("app.role"), 100);
+        Jwt jwt = jwt("token-1", "jti-1", Instant.now().plusSeconds(300), Map.of("app", Map.of("role", "admin")));
+
+        assertThat(roles(converter, jwt)).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void aNonMapIntermediateSegmentGivesNoRolesAndIsAudited() {
+        JwtAuthenticationConverter converter = converter(List.of("realm_access.roles"), 100);
+        Jwt jwt = jwt("token-1", "jti-1", Instant.now().plusSeconds(300), Map.of("realm_access", "admin"));
+
+        assertThat(roles(converter, jwt)).isEmpty();
+        verify(audit).malformedClaim("alice", "realm_access.roles", "roles", "admin");
+    }
+
+    @Test
+    void aMapAtTheEndOfThePathGivesNoRolesAndIsAudited() {
+        JwtAuthenticationConverter converter = converter(List.of("realm_access.roles"), 100);
+        Jwt jwt = jwt("token-1", "jti-1", Instant.now().plusSeconds(300),
+                Map.of("realm_access", Map.of("roles", Map.of("admin", true))));
+
+        assertThat(roles(converter, jwt)).isEmpty();
+        verify(audit).malformedClaim(eq("alice"), eq("realm_access.roles"), isNull(), any());
+    }
+
+    @Test
+    void servesTheSameTokenFromCache() {
+        JwtAuthenticationConverter converter = converter(List.of("realm_access.roles"), 100);
+        Instant expiresAt = Instant.now().plusSeconds(300);
+
+        assertThat(roles(converter, jwt("token-1", "jti-1", expiresAt, roles("user")))).containsExactly("ROLE_USER");
+        assertThat(roles(converter, jwt("token-1", "jti-1", expiresAt, roles("admin")))).containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void keysTheCacheByIssuerSubjectAndJti() {
+        JwtAuthenticationConverter converter = converter(List.of("realm_access.roles"), 100);
+        Instant expiresAt = Instant.now().plusSeconds(300);
+        roles(converter, jwt("token-1", "jti-1", expiresAt, roles("user")));
+
+        assertThat(roles(converter, jwt("token-2", "jti-1", expiresAt, roles("admin")))).containsExactly("ROLE_USER");
+        assertThat(roles(converter, jwt("token-1", "jti-2", expiresAt, roles("admin")))).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void keysTheCacheByTheRawTokenWithoutAJti() {
+        JwtAuthenticationConverter converter = converter(List.of("realm_access.roles"), 100);
+        Instant expiresAt = Instant.now().plusSeconds(300);
+        roles(converter, jwt("token-1", null, expiresAt, roles("user")));
+
+        assertThat(roles(converter, jwt("token-1", null, expiresAt, roles("admin")))).containsExactly("ROLE_USER");
+        assertThat(roles(converter, jwt("token-2", null, expiresAt, roles("admin")))).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void cachesNothingWhenDisabled() {
+        JwtAuthenticationConverter converter = converter(List.of("realm_access.roles"), 0);
+        Instant expiresAt = Instant.now().plusSeconds(300);
+        roles(converter, jwt("token-1", "jti-1", expiresAt, roles("user")));
+
+        assertThat(roles(converter, jwt("token-1", "jti-1", expiresAt, roles("admin")))).containsExactly("ROLE_ADMIN");
+    }
+
+    private JwtAuthenticationConverter converter(List<String> rolePaths, int cacheMaxSize) {
+        JwtConverterConfig config = new JwtConverterConfig(audit);
+        ReflectionTestUtils.setField(config, "roleClaimPaths", rolePaths);
+        ReflectionTestUtils.setField(config, "authorityCacheMaxSize", cacheMaxSize);
+        return config.jwtAuthenticationConverter();
+    }
+
+    private static List<String> roles(JwtAuthenticationConverter converter, Jwt jwt) {
+        return converter.convert(jwt).getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(authority -> authority.startsWith("ROLE_"))
+                .toList();
+    }
+
+    private static Map<String, Object> roles(String... roles) {
+        return Map.of("realm_access", Map.of("roles", List.of(roles)));
+    }
+
+    private static Jwt jwt(String tokenValue, String jti, Instant expiresAt, Map<String, Object> claims) {
+        Jwt.Builder builder = Jwt.withTokenValue(tokenValue)
+                .header("alg", "RS256")
+                .issuer("https://idp.example")
+                .subject("alice")
+                .issuedAt(expiresAt.minusSeconds(600))
+                .expiresAt(expiresAt)
+                .claims(all -> all.putAll(claims));
+        if (jti != null) {
+            builder.jti(jti);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.ywdrtt.conductor.working;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenScopedCacheTest {
+
+    @Test
+    void returnsAValueUntilItsTokenExpires() {
+        TokenScopedCache<String> cache = new TokenScopedCache<>(10);
+
+        cache.put("token", "authorities", Instant.now().plusSeconds(300));
+
+        assertThat(cache.get("token")).isEqualTo("authorities");
+        assertThat(cache.get("other")).isNull();
+    }
+
+    @Test
+    void neverCachesATokenWithoutExpiryOrAlreadyExpired() {
+        TokenScopedCache<String> cache = new TokenScopedCache<>(10);
+
+        cache.put("no-exp", "authorities", null);
+        cache.put("expired", "authorities", Instant.now().minusSeconds(1));
+
+        assertThat(cache.get("no-exp")).isNull();
+        assertThat(cache.get("expired")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void keepsAtMostMaxSizeEntries() {
+        TokenScopedCache<String> cache = new TokenScopedCache<>(20);
+
+        for (int i = 0; i < 200; i++) {
+            cache.put("token-" + i, "authorities", Instant.now().plusSeconds(300));
+            assertThat(cache.size()).isLessThanOrEqualTo(20);
+        }
+        assertThat(cache.get("token-199")).isEqualTo("authorities");
+    }
+
+    @Test
+    void evictsExpiredEntriesBeforeLiveOnes() throws Exception {
+        TokenScopedCache<String> cache = new TokenScopedCache<>(2);
+        cache.put("expiring", "authorities", Instant.now().plusMillis(50));
+        cache.put("live", "authorities", Instant.now().plusSeconds(300));
+        Thread.sleep(100);
+
+        cache.put("new", "authorities", Instant.now().plusSeconds(300));
+
+        assertThat(cache.get("live")).isEqualTo("authorities");
+        assertThat(cache.get("new")).isEqualTo("authorities");
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void cachesNothingWhenDisabled() {
+        TokenScopedCache<String> cache = new TokenScopedCache<>(0);
+
+        cache.put("token", "authorities", Instant.now().plusSeconds(300));
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.get("token")).isNull();
+    }
+}